@@ -0,0 +1,115 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.maritimecloud.util.Binary;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The operations on {@link Binary} used when creating, hashing and comparing messages.
+ *
+ * @author Kasper Nielsen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryBenchmark {
+
+    /** The contents of the binary encoded as base64. */
+    String base64;
+
+    /** The binary operated on. */
+    Binary binary;
+
+    /** The contents of the binary. */
+    byte[] bytes;
+
+    /** A binary with the same contents as {@link #binary}. */
+    Binary other;
+
+    /** The number of bytes in the binary. */
+    @Param({ "32", "1024" })
+    int size;
+
+    @Setup
+    public void setup() {
+        binary = Binary.random(size);
+        bytes = binary.toByteArray();
+        other = Binary.copyFrom(bytes);
+        base64 = binary.base64encode();
+    }
+
+    @Benchmark
+    public Binary base64Decode() {
+        return Binary.copyFromBase64(base64);
+    }
+
+    @Benchmark
+    public String base64Encode() {
+        return binary.base64encode();
+    }
+
+    @Benchmark
+    public Binary concat() {
+        return binary.concat(other);
+    }
+
+    @Benchmark
+    public Binary copyFrom() {
+        return Binary.copyFrom(bytes);
+    }
+
+    @Benchmark
+    public boolean equals() {
+        return binary.equals(other);
+    }
+
+    /** Calculates the hash code of a new binary, as the hash code of a binary is cached. */
+    @Benchmark
+    public int hashCodeUncached() {
+        return Binary.copyFrom(bytes).hashCode();
+    }
+
+    @Benchmark
+    public Binary sha256() {
+        return binary.sha256();
+    }
+
+    @Benchmark
+    public Binary substring() {
+        return binary.substring(1, size - 1);
+    }
+
+    @Benchmark
+    public byte[] toByteArray() {
+        return binary.toByteArray();
+    }
+}
@@ -0,0 +1,81 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.maritimecloud.internal.net.messages.Broadcast;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageSerializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Delivers an incoming broadcast to a number of listeners of the same type, either decoding the payload for each
+ * listener or decoding it once and sharing an immutable message.
+ *
+ * @author Kasper Nielsen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastReceiveBenchmark {
+
+    /** The messages handed to each listener. */
+    Message[] delivered;
+
+    /** The JSON payload of the broadcast. */
+    String payload;
+
+    /** The number of listeners subscribing to the type of the broadcast. */
+    @Param({ "1", "10", "100" })
+    int subscribers;
+
+    @Setup
+    public void setup() {
+        payload = MessageSerializer.writeToJSON(Messages.broadcast(), Broadcast.SERIALIZER);
+        delivered = new Message[subscribers];
+    }
+
+    @Benchmark
+    public Message[] decodeOnce() {
+        Message m = MessageSerializer.readFromJSON(Broadcast.SERIALIZER, payload).immutable();
+        for (int i = 0; i < delivered.length; i++) {
+            delivered[i] = m;
+        }
+        return delivered;
+    }
+
+    @Benchmark
+    public Message[] decodePerListener() {
+        for (int i = 0; i < delivered.length; i++) {
+            delivered[i] = MessageSerializer.readFromJSON(Broadcast.SERIALIZER, payload);
+        }
+        return delivered;
+    }
+}
@@ -0,0 +1,62 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.maritimecloud.internal.net.messages.Broadcast;
+import net.maritimecloud.internal.net.messages.MessageHasher;
+import net.maritimecloud.internal.net.messages.MethodInvoke;
+import net.maritimecloud.util.Binary;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Calculates the message ids of broadcasts and method invocations.
+ *
+ * @author Kasper Nielsen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageHasherBenchmark {
+
+    /** The broadcast to hash. */
+    final Broadcast broadcast = Messages.broadcast();
+
+    /** The method invocation to hash. */
+    final MethodInvoke methodInvoke = Messages.methodInvoke();
+
+    @Benchmark
+    public Binary broadcast() {
+        return MessageHasher.calculateSHA256(broadcast);
+    }
+
+    @Benchmark
+    public Binary methodInvoke() {
+        return MessageHasher.calculateSHA256(methodInvoke);
+    }
+}
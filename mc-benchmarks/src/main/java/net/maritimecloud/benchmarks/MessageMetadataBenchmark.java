@@ -0,0 +1,71 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.maritimecloud.internal.message.MessageHelper;
+import net.maritimecloud.internal.net.messages.Broadcast;
+import net.maritimecloud.message.MessageSerializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up the name and serializer of a message class, with and without the cache in
+ * {@link net.maritimecloud.internal.message.MessageMetadata}.
+ *
+ * @author Kasper Nielsen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageMetadataBenchmark {
+
+    /** The message to look up. */
+    final Broadcast message = Messages.broadcast();
+
+    @Benchmark
+    public String name() {
+        return MessageHelper.getName(message);
+    }
+
+    /** The reflective lookup that was done for every message before the cache was introduced. */
+    @Benchmark
+    public String nameReflective() throws ReflectiveOperationException {
+        return (String) message.getClass().getField("NAME").get(null);
+    }
+
+    @Benchmark
+    public MessageSerializer<Broadcast> serializer() {
+        return MessageHelper.getSerializer(message);
+    }
+
+    /** The reflective lookup that was done for every message before the cache was introduced. */
+    @Benchmark
+    public Object serializerReflective() throws ReflectiveOperationException {
+        return message.getClass().getField("SERIALIZER").get(null);
+    }
+}
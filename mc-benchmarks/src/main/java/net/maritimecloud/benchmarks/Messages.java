@@ -0,0 +1,152 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.benchmarks;
+
+import net.maritimecloud.internal.mms.messages.PositionReport;
+import net.maritimecloud.internal.net.messages.Broadcast;
+import net.maritimecloud.internal.net.messages.MessageHasher;
+import net.maritimecloud.internal.net.messages.MethodInvoke;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageSerializer;
+import net.maritimecloud.util.Binary;
+import net.maritimecloud.util.Timestamp;
+import net.maritimecloud.util.geometry.Area;
+import net.maritimecloud.util.geometry.Circle;
+import net.maritimecloud.util.geometry.Polygon;
+import net.maritimecloud.util.geometry.Position;
+import net.maritimecloud.util.geometry.PositionTime;
+
+/**
+ * The messages used by the benchmarks. They are fixed, so results from different runs can be compared, and sized like
+ * the messages sent between ships and shore.
+ *
+ * @author Kasper Nielsen
+ */
+final class Messages {
+
+    /** The JSON payload of the broadcast, a navigational warning. */
+    static final String BROADCAST_PAYLOAD = "{\n  \"id\": 1042,\n  \"priority\": \"MEDIUM\",\n"
+            + "  \"title\": \"Drifting buoy\",\n  \"description\": \"A yellow buoy is reported adrift in position "
+            + "55 40.8N 012 35.9E. Mariners are advised to keep a safe distance.\",\n"
+            + "  \"validFrom\": 1433325600000,\n  \"validTo\": 1433412000000\n}";
+
+    /** The JSON parameters of the method invocation, a route with a number of waypoints. */
+    static final String METHOD_INVOKE_PARAMETERS;
+
+    /** The time all timestamps in the messages are relative to. */
+    static final long TIME = 1433325600000L;
+
+    static {
+        StringBuilder sb = new StringBuilder("{\n  \"route\": {\n    \"name\": \"Copenhagen - Oslo\",\n    \"waypoints\": [");
+        for (int i = 0; i < 20; i++) {
+            sb.append(i == 0 ? "\n" : ",\n").append("      {\"latitude\": ").append(55.6761 + i * 0.15)
+                    .append(", \"longitude\": ").append(12.5683 - i * 0.01).append(", \"speed\": 12.5}");
+        }
+        METHOD_INVOKE_PARAMETERS = sb.append("\n    ]\n  }\n}").toString();
+    }
+
+    /** No instances. */
+    private Messages() {}
+
+    static Area area() {
+        Polygon p = Polygon.create(Position.create(55.6, 12.5), Position.create(55.7, 12.6),
+                Position.create(55.8, 12.6), Position.create(55.9, 12.5), Position.create(55.9, 12.3),
+                Position.create(55.8, 12.2), Position.create(55.7, 12.2), Position.create(55.6, 12.3),
+                Position.create(55.6, 12.5));
+        return p.unionWith(Circle.create(55.68, 12.57, 2500));
+    }
+
+    static Broadcast broadcast() {
+        Broadcast b = new Broadcast();
+        b.setBroadcastType("dma.msi.MsiBroadcast");
+        b.setSenderId("mmsi://219014000");
+        b.setSenderTimestamp(Timestamp.create(TIME));
+        b.setSenderPosition(Position.create(55.6761, 12.5683));
+        b.setPayload(Binary.copyFromUtf8(BROADCAST_PAYLOAD));
+        b.setArea(Circle.create(55.6761, 12.5683, 10000));
+        b.setMessageId(MessageHasher.calculateSHA256(b));
+        b.setSignature(signature());
+        return b;
+    }
+
+    /**
+     * Returns the message of the specified type.
+     *
+     * @param type
+     *            the simple name of the message type
+     * @return the message
+     */
+    static Message message(String type) {
+        switch (type) {
+        case "Area":
+            return area();
+        case "Broadcast":
+            return broadcast();
+        case "MethodInvoke":
+            return methodInvoke();
+        case "PositionReport":
+            return positionReport();
+        }
+        throw new IllegalArgumentException("Unknown message type " + type);
+    }
+
+    static MethodInvoke methodInvoke() {
+        MethodInvoke mi = new MethodInvoke();
+        mi.setEndpointMethod("dma.route.RouteService.sendRoute");
+        mi.setSenderId("mmsi://219014000");
+        mi.setSenderTimestamp(Timestamp.create(TIME));
+        mi.setSenderPosition(Position.create(55.6761, 12.5683));
+        mi.setReceiverId("mmsi://257000500");
+        mi.setParameters(METHOD_INVOKE_PARAMETERS);
+        mi.setMessageId(MessageHasher.calculateSHA256(mi));
+        mi.setSignature(signature());
+        return mi;
+    }
+
+    static PositionReport positionReport() {
+        return new PositionReport().setPositionTime(PositionTime.create(55.6761, 12.5683, TIME));
+    }
+
+    /**
+     * Returns the serializer of the message type returned by {@link #message(String)}.
+     *
+     * @param type
+     *            the simple name of the message type
+     * @return the serializer
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static MessageSerializer<Message> serializer(String type) {
+        switch (type) {
+        case "Area":
+            return (MessageSerializer) Area.SERIALIZER;
+        case "Broadcast":
+            return (MessageSerializer) Broadcast.SERIALIZER;
+        case "MethodInvoke":
+            return (MessageSerializer) MethodInvoke.SERIALIZER;
+        case "PositionReport":
+            return (MessageSerializer) PositionReport.SERIALIZER;
+        }
+        throw new IllegalArgumentException("Unknown message type " + type);
+    }
+
+    /** Returns a fixed signature of the size of a 2048 bit RSA signature. */
+    static Binary signature() {
+        byte[] b = new byte[256];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) (i * 31 + 7);
+        }
+        return Binary.copyFrom(b);
+    }
+}
@@ -0,0 +1,107 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encodes and parses the frames sent over a connection in each of the wire formats.
+ *
+ * @author Kasper Nielsen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MmsMessageBenchmark {
+
+    /** The frame in the protobuf format. */
+    byte[] binary;
+
+    /** The frame in the compact binary format. */
+    byte[] compact;
+
+    /** The frame to encode. */
+    MmsMessage message;
+
+    /** The frame in the text format. */
+    String text;
+
+    /** The type of message carried in the frame. */
+    @Param({ "Broadcast", "MethodInvoke", "PositionReport" })
+    String type;
+
+    @Setup
+    public void setup() throws IOException {
+        message = new MmsMessage(Messages.message(type)).setMessageId(1).setLatestReceivedId(1);
+        binary = message.toBinary();
+        compact = message.toCompactBinary();
+        text = message.toText();
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() throws IOException {
+        return message.toBinary();
+    }
+
+    @Benchmark
+    public byte[] encodeCompact() throws IOException {
+        return message.toCompactBinary();
+    }
+
+    @Benchmark
+    public String encodeText() {
+        return message.toText();
+    }
+
+    @Benchmark
+    public MmsMessage parseBinary() throws IOException {
+        return MmsMessage.parseBinaryMessage(ByteBuffer.wrap(binary), false);
+    }
+
+    /** Parses the frame leaving the payload of broadcasts undecoded, as the server does when relaying. */
+    @Benchmark
+    public MmsMessage parseBinaryLazy() throws IOException {
+        return MmsMessage.parseBinaryMessage(ByteBuffer.wrap(binary), true);
+    }
+
+    @Benchmark
+    public MmsMessage parseCompact() throws IOException {
+        return MmsMessage.parseCompactBinaryMessage(ByteBuffer.wrap(compact));
+    }
+
+    @Benchmark
+    public MmsMessage parseText() {
+        return MmsMessage.parseTextMessage(text);
+    }
+}
@@ -0,0 +1,95 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.maritimecloud.mms.server.tracker.PositionIndex;
+import net.maritimecloud.util.geometry.Area;
+import net.maritimecloud.util.geometry.Circle;
+import net.maritimecloud.util.geometry.Position;
+import net.maritimecloud.util.geometry.PositionTime;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finds the clients within a 20 nautical miles circle, as done for every broadcast, with the
+ * {@link PositionIndex} compared to a full scan of all clients.
+ *
+ * @author Kasper Nielsen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionIndexBenchmark {
+
+    /** The area of the broadcast. */
+    final Area area = Circle.create(Position.create(55.5, 11), 37040);
+
+    /** The number of connected clients. */
+    @Param({ "1000", "8000", "64000" })
+    int clients;
+
+    PositionIndex<Integer> index;
+
+    Map<Integer, PositionTime> positions;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(12345);
+        index = new PositionIndex<>();
+        positions = new HashMap<>();
+        for (int i = 0; i < clients; i++) {
+            // Cluster the vessels in northern Europe
+            PositionTime pt = Position.create(50 + rnd.nextDouble() * 20, -5 + rnd.nextDouble() * 35).withTime(i);
+            positions.put(i, pt);
+            index.put(i, pt);
+        }
+    }
+
+    @Benchmark
+    public int indexed() {
+        int[] count = new int[1];
+        index.forEachWithin(area, (t, pt) -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    public int fullScan() {
+        int count = 0;
+        for (PositionTime pt : positions.values()) {
+            if (area.contains(pt)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
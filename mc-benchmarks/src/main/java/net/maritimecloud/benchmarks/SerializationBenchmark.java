@@ -0,0 +1,157 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.benchmarks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import net.maritimecloud.internal.message.binary.compact.BinaryMessageReader;
+import net.maritimecloud.internal.message.binary.compact.BinaryMessageWriter;
+import net.maritimecloud.internal.message.binary.protobuf.ProtobufByteBufferMessageReader;
+import net.maritimecloud.internal.message.binary.protobuf.ProtobufMessageReader;
+import net.maritimecloud.internal.message.binary.protobuf.ProtobufMessageWriter;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageSerializer;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encodes and decodes messages in the JSON, protobuf and compact binary formats. The {@link #size(Sizes)} benchmark
+ * reports the encoded size of each message in each format as secondary results.
+ *
+ * @author Kasper Nielsen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /** The message encoded in the compact binary format. */
+    byte[] compact;
+
+    /** The message encoded as JSON. */
+    String json;
+
+    /** The size of the JSON encoded message in UTF-8. */
+    int jsonBytes;
+
+    /** The message to encode. */
+    Message message;
+
+    /** The message encoded in the protobuf format. */
+    byte[] protobuf;
+
+    /** The serializer of the message. */
+    MessageSerializer<Message> serializer;
+
+    /** The type of message to encode and decode. */
+    @Param({ "Area", "Broadcast", "MethodInvoke", "PositionReport" })
+    String type;
+
+    @Setup
+    public void setup() throws IOException {
+        message = Messages.message(type);
+        serializer = Messages.serializer(type);
+        json = MessageSerializer.writeToJSON(message, serializer);
+        jsonBytes = json.getBytes(StandardCharsets.UTF_8).length;
+        protobuf = ProtobufMessageWriter.write(message, serializer);
+        compact = BinaryMessageWriter.write(message, serializer);
+    }
+
+    @Benchmark
+    public Message decodeCompact() throws IOException {
+        return BinaryMessageReader.read(compact, serializer);
+    }
+
+    @Benchmark
+    public Message decodeJson() {
+        return MessageSerializer.readFromJSON(serializer, json);
+    }
+
+    /** Decodes the protobuf format from a ByteBuffer, as frames are received. */
+    @Benchmark
+    public Message decodeProtobuf() throws IOException {
+        return ProtobufByteBufferMessageReader.read(protobuf, serializer);
+    }
+
+    /** Decodes the protobuf format through a coded input stream. */
+    @Benchmark
+    public Message decodeProtobufStream() throws IOException {
+        return ProtobufMessageReader.read(protobuf, serializer);
+    }
+
+    @Benchmark
+    public byte[] encodeCompact() throws IOException {
+        return BinaryMessageWriter.write(message, serializer);
+    }
+
+    /** Encodes JSON into a pooled per-thread buffer. */
+    @Benchmark
+    public String encodeJson() {
+        return MessageSerializer.writeToJSON(message, serializer);
+    }
+
+    /** Encodes JSON into a new StringWriter for every message, for comparison with the pooled buffers. */
+    @Benchmark
+    public String encodeJsonStringWriter() throws IOException {
+        StringWriter sw = new StringWriter();
+        MessageSerializer.writeToJSON(message, serializer, sw);
+        return sw.toString();
+    }
+
+    @Benchmark
+    public byte[] encodeProtobuf() throws IOException {
+        return ProtobufMessageWriter.write(message, serializer);
+    }
+
+    /** Reports the encoded sizes through {@link Sizes}, the time of this benchmark is of no interest. */
+    @Benchmark
+    public void size(Sizes sizes) {
+        sizes.compactBytes = compact.length;
+        sizes.jsonBytes = jsonBytes;
+        sizes.protobufBytes = protobuf.length;
+    }
+
+    /** The size in bytes of the message in each format. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sizes {
+
+        /** The size in the compact binary format. */
+        public long compactBytes;
+
+        /** The size of the JSON in UTF-8. */
+        public long jsonBytes;
+
+        /** The size in the protobuf format. */
+        public long protobufBytes;
+    }
+}
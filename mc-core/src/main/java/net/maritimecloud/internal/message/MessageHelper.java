@@ -106,15 +106,11 @@ public class MessageHelper {
     }
 
     public static <T extends Message> MessageSerializer<T> getSerializer(T message) {
-        return getSerializer(message, message.getClass());
+        MessageSerializer<T> serializer = MessageMetadata.of(message.getClass()).getSerializer();
+        return serializer == null ? getSerializer(message, message.getClass()) : serializer;
     }
 
-    //
-    // @SuppressWarnings("unchecked")
-    // private static <T extends Message> MessageSerializer<T> getSerializer(Class<?> c) {
-    // return getSerializer(null, message.getClass());
-    // }
-
+    /** Looks up the serializer of a message type without a SERIALIZER field, or fails. */
     @SuppressWarnings("unchecked")
     private static <T extends Message> MessageSerializer<T> getSerializer(T message, Class<?> messageType) {
         try {
@@ -140,13 +136,16 @@ public class MessageHelper {
     }
 
     public static String getName(Message message) {
-        return getName(message, message.getClass());
+        String name = MessageMetadata.of(message.getClass()).getName();
+        return name == null ? getName(message, message.getClass()) : name;
     }
 
     public static String getName(Class<? extends Message> messageType) {
-        return getName(null, messageType);
+        String name = MessageMetadata.of(messageType).getName();
+        return name == null ? getName(null, messageType) : name;
     }
 
+    /** Looks up the name of a message type without a NAME field, or fails. */
     private static String getName(Message message, Class<? extends Message> messageType) {
         requireNonNull(messageType, "message type is null");
         try {
@@ -0,0 +1,166 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.message;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageSerializer;
+
+/**
+ * The name and serializer of a message type, read once from the public static {@code NAME} and {@code SERIALIZER}
+ * fields of the type and then cached for as long as the type is loaded.
+ *
+ * @author Kasper Nielsen
+ */
+public final class MessageMetadata {
+
+    /** The metadata of each message type. */
+    private static final ClassValue<MessageMetadata> METADATA = new ClassValue<MessageMetadata>() {
+        @Override
+        protected MessageMetadata computeValue(Class<?> type) {
+            return new MessageMetadata(type);
+        }
+    };
+
+    /**
+     * The message types that have been looked up by name, per class loader. Neither the class loaders nor the message
+     * types are strongly referenced, so they can still be unloaded. Guarded by itself.
+     */
+    private static final WeakHashMap<ClassLoader, ConcurrentHashMap<String, WeakReference<Class<?>>>> BY_NAME =
+            new WeakHashMap<>();
+
+    /** The entry of {@link #BY_NAME} that was used last, so lookups in the same class loader do not lock. */
+    private static volatile LoaderTypes lastLoader;
+
+    /** The value of the NAME field, or null if the type has no such field. */
+    private final String name;
+
+    /** The value of the SERIALIZER field, or null if the type has no such field. */
+    private final MessageSerializer<?> serializer;
+
+    /** The message type. */
+    private final Class<?> type;
+
+    private MessageMetadata(Class<?> type) {
+        this.type = type;
+        this.name = (String) readStaticField(type, "NAME");
+        this.serializer = (MessageSerializer<?>) readStaticField(type, "SERIALIZER");
+    }
+
+    /**
+     * Returns the name of the message type.
+     *
+     * @return the name of the message type, or null if the type has no public static NAME field
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the serializer of the message type.
+     *
+     * @return the serializer of the message type, or null if the type has no public static SERIALIZER field
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Message> MessageSerializer<T> getSerializer() {
+        return (MessageSerializer<T>) serializer;
+    }
+
+    /**
+     * Returns the message type.
+     *
+     * @return the message type
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Returns the metadata of the specified message type.
+     *
+     * @param type
+     *            the message type
+     * @return the metadata of the message type
+     */
+    public static MessageMetadata of(Class<?> type) {
+        return METADATA.get(requireNonNull(type, "type is null"));
+    }
+
+    /**
+     * Returns the metadata of the message type with the specified name. Right now the name of a message is the full
+     * name of the Java class implementing it.
+     *
+     * @param name
+     *            the name of the message type
+     * @param loader
+     *            the class loader to load the message type from
+     * @return the metadata of the message type
+     * @throws ClassNotFoundException
+     *             if the class loader cannot find a class with the specified name
+     */
+    public static MessageMetadata forName(String name, ClassLoader loader) throws ClassNotFoundException {
+        requireNonNull(name, "name is null");
+        requireNonNull(loader, "loader is null");
+        LoaderTypes last = lastLoader;
+        ConcurrentHashMap<String, WeakReference<Class<?>>> types;
+        if (last != null && last.loader.get() == loader) {
+            types = last.types;
+        } else {
+            synchronized (BY_NAME) {
+                types = BY_NAME.computeIfAbsent(loader, k -> new ConcurrentHashMap<>());
+            }
+            lastLoader = new LoaderTypes(loader, types);
+        }
+        WeakReference<Class<?>> ref = types.get(name);
+        Class<?> type = ref == null ? null : ref.get();
+        if (type == null) {
+            type = Class.forName(name, true, loader);
+            types.put(name, new WeakReference<>(type));
+        }
+        return of(type);
+    }
+
+    private static Object readStaticField(Class<?> type, String name) {
+        try {
+            Field field = type.getField(name);
+            return field.get(null);
+        } catch (NoSuchFieldException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** The message types looked up by name in a single class loader. */
+    private static final class LoaderTypes {
+
+        /** The class loader, not strongly referenced. */
+        final WeakReference<ClassLoader> loader;
+
+        /** The message types that have been looked up in the class loader. */
+        final ConcurrentHashMap<String, WeakReference<Class<?>>> types;
+
+        LoaderTypes(ClassLoader loader, ConcurrentHashMap<String, WeakReference<Class<?>>> types) {
+            this.loader = new WeakReference<>(loader);
+            this.types = types;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.message;
+
+import java.io.IOException;
+
+import net.maritimecloud.internal.message.binary.AbstractBinaryMessageWriter;
+import net.maritimecloud.internal.message.text.json.JsonValueWriter;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageSerializer;
+import net.maritimecloud.message.MessageWriter;
+
+/**
+ * A message serializer with specialized write methods for the binary formats and for JSON. It is the base class of
+ * the serializers generated by the MSDL Java generator when specialized serializers are enabled.
+ * <p>
+ * The specialized methods write primitive fields without boxing, leave out field names where the format does not use
+ * them, and write JSON field names that have been prepared with {@link JsonValueWriter#fieldName(String)}. Any other
+ * writer is handed to {@link #writeGeneric(Message, MessageWriter)}. All three methods must produce the same output
+ * for a given writer.
+ *
+ * @param <T>
+ *            the type of message that can be serialized
+ * @author Kasper Nielsen
+ */
+public abstract class SpecializedMessageSerializer<T extends Message> extends MessageSerializer<T> {
+
+    /** {@inheritDoc} */
+    @Override
+    public final void write(T message, MessageWriter writer) throws IOException {
+        if (writer instanceof AbstractBinaryMessageWriter) {
+            writeBinary(message, (AbstractBinaryMessageWriter) writer);
+        } else if (writer instanceof TaggableMessageWriter
+                && ((TaggableMessageWriter) writer).getValueWriter() instanceof JsonValueWriter) {
+            writeJson(message, (JsonValueWriter) ((TaggableMessageWriter) writer).getValueWriter());
+        } else {
+            writeGeneric(message, writer);
+        }
+    }
+
+    /**
+     * Writes the specified message to a binary writer.
+     *
+     * @param message
+     *            the message to write
+     * @param writer
+     *            the writer to write the message to
+     * @throws IOException
+     *             if the message could not be written
+     */
+    protected abstract void writeBinary(T message, AbstractBinaryMessageWriter writer) throws IOException;
+
+    /**
+     * Writes the specified message to any kind of writer.
+     *
+     * @param message
+     *            the message to write
+     * @param writer
+     *            the writer to write the message to
+     * @throws IOException
+     *             if the message could not be written
+     */
+    protected abstract void writeGeneric(T message, MessageWriter writer) throws IOException;
+
+    /**
+     * Writes the fields of the specified message to a JSON writer.
+     *
+     * @param message
+     *            the message to write
+     * @param writer
+     *            the writer to write the fields of the message to
+     * @throws IOException
+     *             if the message could not be written
+     */
+    protected abstract void writeJson(T message, JsonValueWriter writer) throws IOException;
+}
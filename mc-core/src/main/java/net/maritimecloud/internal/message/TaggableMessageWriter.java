@@ -46,6 +46,15 @@ public class TaggableMessageWriter implements MessageWriter {
         this.w = w;
     }
 
+    /**
+     * Returns the value writer that the values of fields are written to.
+     *
+     * @return the value writer that the values of fields are written to
+     */
+    public TaggableValueWriter getValueWriter() {
+        return w;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void close() throws IOException {
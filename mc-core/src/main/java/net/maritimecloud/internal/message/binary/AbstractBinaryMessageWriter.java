@@ -49,6 +49,24 @@ public abstract class AbstractBinaryMessageWriter implements MessageWriter {
 
     protected abstract void writeBinary(int tag, byte[] bin) throws IOException;
 
+    /**
+     * Writes a boolean without boxing it. Used by generated serializers.
+     *
+     * @param tag
+     *            the tag of the value
+     * @param value
+     *            the value to write
+     * @throws IOException
+     *             if the value could not be written
+     */
+    public final void writeBoolean(int tag, boolean value) throws IOException {
+        writeBoolean0(tag, value);
+    }
+
+    protected void writeBoolean0(int tag, boolean value) throws IOException {
+        writeBoolean(tag, null, value);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void writeBinary(int tag, String name, Binary binary) throws IOException {
@@ -75,6 +93,20 @@ public abstract class AbstractBinaryMessageWriter implements MessageWriter {
         }
     }
 
+    /**
+     * Writes a double without boxing it. Used by generated serializers.
+     *
+     * @param tag
+     *            the tag of the value
+     * @param value
+     *            the value to write
+     * @throws IOException
+     *             if the value could not be written
+     */
+    public final void writeDouble(int tag, double value) throws IOException {
+        writeDouble0(tag, value);
+    }
+
     protected void writeDouble0(int tag, double value) throws IOException {
         long val = Double.doubleToLongBits(MessageHelper.checkDouble(value));
         writeInt640(tag, val);
@@ -96,6 +128,20 @@ public abstract class AbstractBinaryMessageWriter implements MessageWriter {
         }
     }
 
+    /**
+     * Writes a float without boxing it. Used by generated serializers.
+     *
+     * @param tag
+     *            the tag of the value
+     * @param value
+     *            the value to write
+     * @throws IOException
+     *             if the value could not be written
+     */
+    public final void writeFloat(int tag, float value) throws IOException {
+        writeFloat0(tag, value);
+    }
+
     protected void writeFloat0(int tag, float value) throws IOException {
         int val = Float.floatToIntBits(MessageHelper.checkFloat(value));
         writeInt0(tag, val);
@@ -109,6 +155,20 @@ public abstract class AbstractBinaryMessageWriter implements MessageWriter {
         }
     }
 
+    /**
+     * Writes an int without boxing it. Used by generated serializers.
+     *
+     * @param tag
+     *            the tag of the value
+     * @param value
+     *            the value to write
+     * @throws IOException
+     *             if the value could not be written
+     */
+    public final void writeInt(int tag, int value) throws IOException {
+        writeInt0(tag, value);
+    }
+
     protected abstract void writeInt0(int tag, int value) throws IOException;
 
     /** {@inheritDoc} */
@@ -119,6 +179,20 @@ public abstract class AbstractBinaryMessageWriter implements MessageWriter {
         }
     }
 
+    /**
+     * Writes a long without boxing it. Used by generated serializers.
+     *
+     * @param tag
+     *            the tag of the value
+     * @param value
+     *            the value to write
+     * @throws IOException
+     *             if the value could not be written
+     */
+    public final void writeInt64(int tag, long value) throws IOException {
+        writeInt640(tag, value);
+    }
+
     protected abstract void writeInt640(int tag, long value) throws IOException;
 
     protected abstract void writeInt640(int tag, String name, long value) throws IOException;
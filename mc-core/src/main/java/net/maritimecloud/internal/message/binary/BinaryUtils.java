@@ -106,7 +106,7 @@ public class BinaryUtils {
                 b[i] = (byte) value;
                 return b;
             } else {
-                b[i] = (byte) (value & 0x7F | 0x80);
+                b[i++] = (byte) (value & 0x7F | 0x80);
                 value >>>= 7;
             }
         }
@@ -14,146 +14,223 @@
  */
 package net.maritimecloud.internal.message.binary.compact;
 
-import static java.util.Objects.requireNonNull;
-
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
 
+import net.maritimecloud.message.SerializationException;
 import net.maritimecloud.util.Binary;
 
 /**
+ * Reads fields in the compact binary format from a {@link ByteBuffer}. Values are returned as slices of the buffer,
+ * so the buffer must not be modified while it is being read.
  *
  * @author Kasper Nielsen
  */
 public class BinaryInputStream extends Types {
 
+    /** The buffer to read from. */
+    private final ByteBuffer buffer;
+
+    /** The wire type of the field whose header was read last. */
     int lastWireType;
 
-    int fieldNumber;
+    public BinaryInputStream(Binary bytes) {
+        this(bytes.asReadOnlyByteBuffer());
+    }
 
-    boolean consumed = true;
+    public BinaryInputStream(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
 
-    final InputStream is;
+    /**
+     * Creates a new stream reading the remaining bytes of the specified buffer. The position of the buffer is not
+     * changed.
+     *
+     * @param buffer
+     *            the buffer to read
+     */
+    public BinaryInputStream(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+    }
 
-    public BinaryInputStream(Binary bytes) {
-        this(bytes.toByteArray());
+    boolean hasRemaining() {
+        return buffer.hasRemaining();
     }
 
-    public BinaryInputStream(byte[] bytes) {
-        this(new ByteArrayInputStream(bytes));
+    int position() {
+        return buffer.position();
     }
 
+    void position(int position) {
+        buffer.position(position);
+    }
 
-    public BinaryInputStream(InputStream is) {
-        this.is = requireNonNull(is);
+    /**
+     * Reads the header of the next field, and returns the field number. The wire type is available in
+     * {@link #lastWireType} afterwards.
+     *
+     * @return the field number of the next field
+     */
+    int readHeader() throws SerializationException {
+        int b = readRawByte() & 0xFF;
+        lastWireType = getWireType(b);
+        int fieldNumber = getTagFieldNumber(b);
+        return fieldNumber == 0 ? readVarint32() : fieldNumber;
     }
 
-    public int readInt() {
-        // return encodeAndWriteInteger(tag, name, Float.floatToIntBits(value));
-        return 0;
+    int readVarint32() throws SerializationException {
+        return (int) readRawVarint64(buffer);
     }
 
-    int getWireType() throws IOException {
-        if (consumed) {
-            readHeader();
+    private byte readRawByte() throws SerializationException {
+        if (!buffer.hasRemaining()) {
+            throw new SerializationException("Truncated message, a field header ended unexpectedly");
         }
-        return lastWireType;
+        return buffer.get();
     }
 
-    int getFieldId() throws IOException {
-        if (consumed) {
-            readHeader();
-        }
-        return fieldNumber;
+    /**
+     * Returns the value of the field whose header was read last, and advances past it. For wire types where the value
+     * is a sequence of bytes, the length prefix is not included in the returned buffer.
+     *
+     * @return a slice containing the value
+     */
+    ByteBuffer readValue() throws SerializationException {
+        return readValue(buffer, lastWireType);
     }
 
-    byte[] read(int bytes) throws IOException {
-        byte[] b = new byte[bytes];
-        for (int i = 0; i < bytes; i++) {
-            b[i] = readRawByte();
+    /**
+     * Returns the value of the field with the specified wire type at the position of the buffer, and advances the
+     * position past it.
+     *
+     * @param b
+     *            the buffer
+     * @param wireType
+     *            the wire type of the field
+     * @return a slice containing the value
+     */
+    static ByteBuffer readValue(ByteBuffer b, int wireType) throws SerializationException {
+        switch (wireType) {
+        case WIRETYPE_CONSTANT_0:
+        case WIRETYPE_CONSTANT_1:
+        case WIRETYPE_CONSTANT_2:
+        case WIRETYPE_CONSTANT_MINUS_1:
+            return slice(b, 0);
+        case WIRETYPE_FIXED_8:
+            return slice(b, 1);
+        case WIRETYPE_FIXED_16:
+            return slice(b, 2);
+        case WIRETYPE_FIXED_32:
+            return slice(b, 4);
+        case WIRETYPE_FIXED_64:
+            return slice(b, 8);
+        case WIRETYPE_VARINT_NEGATIVE:
+        case WIRETYPE_VARINT_POSITIVE:
+            int start = b.position();
+            readRawVarint64(b);
+            int length = b.position() - start;
+            b.position(start);
+            return slice(b, length);
+        case WIRETYPE_NUMBER_OF_BYTES:
+            return slice(b, (int) readRawVarint64(b));
+        default:
+            throw new SerializationException("Invalid wire type " + wireType);
         }
-        consumed = true;
-        return b;
     }
 
-    void readHeader() throws IOException {
-        int b = readRawByte();
-        lastWireType = Types.getWireType(b);
-        if ((b & ~TAG_TYPE_MASK) == 0) {
-            fieldNumber = readInt();
-        } else {
-            fieldNumber = Types.getTagFieldNumber(b);
+    /**
+     * Decodes an integer value returned by {@link #readValue(ByteBuffer, int)}.
+     *
+     * @param value
+     *            the value
+     * @param wireType
+     *            the wire type of the value
+     * @return the decoded integer
+     */
+    static long decodeInteger(ByteBuffer value, int wireType) throws SerializationException {
+        int p = value.position();
+        switch (wireType) {
+        case WIRETYPE_CONSTANT_0:
+            return 0;
+        case WIRETYPE_CONSTANT_1:
+            return 1;
+        case WIRETYPE_CONSTANT_2:
+            return 2;
+        case WIRETYPE_CONSTANT_MINUS_1:
+            return -1;
+        case WIRETYPE_FIXED_8:
+            return value.get(p);
+        case WIRETYPE_FIXED_16:
+            return value.getShort(p);
+        case WIRETYPE_FIXED_32:
+            return value.getInt(p);
+        case WIRETYPE_FIXED_64:
+            return value.getLong(p);
+        case WIRETYPE_VARINT_NEGATIVE:
+            return ~readRawVarint64(value.duplicate());
+        case WIRETYPE_VARINT_POSITIVE:
+            return readRawVarint64(value.duplicate());
+        default:
+            throw new SerializationException("Wire type " + wireType + " is not an integer");
         }
-        consumed = false;
     }
 
-
-    int readVarint32() throws IOException {
-        return (int) readRawVarint64SlowPath();
+    /**
+     * Decodes a sequence of bytes returned by {@link #readValue(ByteBuffer, int)}.
+     *
+     * @param value
+     *            the value
+     * @param wireType
+     *            the wire type of the value
+     * @return the decoded bytes
+     */
+    static ByteBuffer decodeBytes(ByteBuffer value, int wireType) throws SerializationException {
+        if (isConstantWireType(wireType)) {
+            return ByteBuffer.wrap(new byte[] { (byte) decodeInteger(value, wireType) });
+        } else if (wireType == WIRETYPE_VARINT_NEGATIVE || wireType == WIRETYPE_VARINT_POSITIVE) {
+            throw new SerializationException("Wire type " + wireType + " is not a sequence of bytes");
+        }
+        return value.duplicate();
     }
 
-    /** Variant of readRawVarint64 for when uncomfortably close to the limit. */
-    /* Visible for testing */
-    long readRawVarint64SlowPath() throws IOException {
+    /**
+     * Reads a raw varint from the buffer, advancing the position of the buffer.
+     *
+     * @param b
+     *            the buffer to read from
+     * @return the value read
+     */
+    static long readRawVarint64(ByteBuffer b) throws SerializationException {
         long result = 0;
         for (int shift = 0; shift < 64; shift += 7) {
-            final byte b = readRawByte();
-            result |= (long) (b & 0x7F) << shift;
-            if ((b & 0x80) == 0) {
-                consumed = true;
+            if (!b.hasRemaining()) {
+                throw new SerializationException("Truncated message, a varint ended unexpectedly");
+            }
+            byte x = b.get();
+            result |= (long) (x & 0x7F) << shift;
+            if ((x & 0x80) == 0) {
                 return result;
             }
         }
-        throw new RuntimeException();
-    }
-
-    private byte readRawByte() throws IOException {
-        return (byte) is.read();
+        throw new SerializationException("Malformed varint");
     }
 
-
-    public int read08Bits() throws IOException {
-        int result = readRawByte() & 0xff;
-        consumed = true;
-        return result;
-    }
-
-    public int read16Bits() throws IOException {
-        int result = (readRawByte() & 0xff) << 8 << 16 >> 16; // <<16>>16 for sign extension
-        result |= readRawByte() & 0xff;
-        consumed = true;
-        return result;
-    }
-
-    public int read32Bits() throws IOException {
-        int result = (readRawByte() & 0xff) << 24;
-        result |= (readRawByte() & 0xff) << 16;
-        result |= (readRawByte() & 0xff) << 8;
-        result |= readRawByte() & 0xff;
-        consumed = true;
-        return result;
-    }
-
-    public int read64Bits() throws IOException {
-        int result = readRawByte() << 24;
-        result = readRawByte() << 16;
-        result = readRawByte() << 8;
-        return result + readRawByte();
+    /**
+     * Returns a slice of the next bytes of the buffer, and advances the position of the buffer past them.
+     *
+     * @param b
+     *            the buffer
+     * @param length
+     *            the number of bytes
+     * @return the slice
+     */
+    static ByteBuffer slice(ByteBuffer b, int length) throws SerializationException {
+        if (length < 0 || length > b.remaining()) {
+            throw new SerializationException("Truncated message, expected " + length + " bytes but only "
+                    + b.remaining() + " remains");
+        }
+        ByteBuffer s = b.slice();
+        s.limit(length);
+        b.position(b.position() + length);
+        return s;
     }
-
-    // /** Variant of readRawVarint64 for when uncomfortably close to the limit. */
-    // /* Visible for testing */
-    // long readRawVarint64SlowPath() throws IOException {
-    // long result = 0;
-    // for (int shift = 0; shift < 64; shift = 7) {
-    // final byte b = readRawByte();
-    // result |= (long) (b & 0x7F) << shift;
-    // if ((b & 0x80) == 0) {
-    // return result;
-    // }
-    // }
-    // throw InvalidProtocolBufferException.malformedVarint();
-    // }
-
 }
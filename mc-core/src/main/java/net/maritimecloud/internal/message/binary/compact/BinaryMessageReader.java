@@ -14,8 +14,9 @@
  */
 package net.maritimecloud.internal.message.binary.compact;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.Map;
 
 import net.maritimecloud.internal.message.AbstractMessageReader;
@@ -27,9 +28,10 @@ import net.maritimecloud.message.MessageSerializer;
 import net.maritimecloud.message.SerializationException;
 import net.maritimecloud.message.ValueReader;
 import net.maritimecloud.message.ValueSerializer;
-import net.maritimecloud.util.Binary;
 
 /**
+ * Reads messages in the compact binary format. Fields are read on demand in tag order, fields with tags that are not
+ * requested by the serializer are skipped.
  *
  * @author Kasper Nielsen
  */
@@ -47,9 +49,30 @@ public class BinaryMessageReader extends AbstractMessageReader {
         this.bis = bis;
     }
 
+    /**
+     * Skips all fields with a tag lower than the specified tag, and returns the tag of the next field without
+     * consuming it.
+     *
+     * @param tag
+     *            the tag that is looked for
+     * @return the tag of the next field, or -1 if there are no more fields
+     */
+    private int nextTag(int tag) throws IOException {
+        while (bis.hasRemaining()) {
+            int position = bis.position();
+            int next = bis.readHeader();
+            if (next >= tag) {
+                bis.position(position);
+                return next;
+            }
+            bis.readValue();
+        }
+        return -1;
+    }
+
     @Override
     public boolean isNext(int tag, String name) throws IOException {
-        return tag == bis.getFieldId();
+        return nextTag(tag) == tag;
     }
 
     /** {@inheritDoc} */
@@ -64,51 +87,51 @@ public class BinaryMessageReader extends AbstractMessageReader {
     @Override
     public <K, V> Map<K, V> readMap(int tag, String name, ValueSerializer<K> keyParser, ValueSerializer<V> valueParser)
             throws IOException {
-        return null;
+        ValueReader r = findOptional(tag, name);
+        return r == null ? Collections.emptyMap() : r.readMap(keyParser, valueParser);
     }
 
     /** {@inheritDoc} */
     @Override
     public <T extends Message> T readMessage(int tag, String name, MessageSerializer<T> parser) throws IOException {
-        Binary bin = readBinary(tag, name, Binary.EMPTY);
-        if (bin != null) {
-            BinaryMessageReader bmr = new BinaryMessageReader(new BinaryInputStream(bin));
-            return parser.read(bmr);
-        }
-        return null;
+        ValueReader r = findOptional(tag, name);
+        return r == null ? null : r.readMessage(parser);
     }
 
     /** {@inheritDoc} */
     @Override
-    protected ValueReader find(int tag, String name) throws SerializationException {
-        return null;
+    protected ValueReader find(int tag, String name) throws IOException {
+        ValueReader r = findOptional(tag, name);
+        if (r == null) {
+            throw new SerializationException("Could not find tag " + tag);
+        }
+        return r;
     }
 
     @Override
     protected ValueReader findOptional(int tag, String name) throws IOException {
-        if (isNext(tag, name)) {
-            int wireType = bis.getWireType();
-            return new FlexibleBinaryValueReader(wireType, bis);
-            // if (Types.isConstantWireType(wireType)) {
-            // return TReaderConstant.fromWireType(wireType);
-            // } else if (wireType == Types.WIRETYPE_FIXED_8) {
-            // byte bal = bis.readRawByte();
-            // return new TReaderConstant(bal);
-            // } else if (wireType == Types.WIRETYPE_FIXED_16) {
-            //
-            // } else if (wireType == Types.WIRETYPE_FIXED_32) {
-            //
-            // } else if (wireType == Types.WIRETYPE_FIXED_64) {
-            //
-            // } else if (wireType == Types.WIRETYPE_NUMBER_OF_BYTES) {}
+        if (!isNext(tag, name)) {
+            return null;
         }
-        return null;
+        bis.readHeader();
+        return new FlexibleBinaryValueReader(bis.lastWireType, bis.readValue());
+    }
+
+    /**
+     * Reads a message from a byte buffer using the given message serializer. The buffer is read from its position to
+     * its limit, the position of the buffer is not changed.
+     *
+     * @param message
+     *            the buffer containing the message
+     * @param serializer
+     *            the message serializer
+     * @return the message
+     */
+    public static <T extends Message> T read(ByteBuffer message, MessageSerializer<T> serializer) throws IOException {
+        return serializer.read(new BinaryMessageReader(new BinaryInputStream(message)));
     }
 
     public static <T extends Message> T read(byte[] message, MessageSerializer<T> serializer) throws IOException {
-        ByteArrayInputStream baos = new ByteArrayInputStream(message);
-        BinaryInputStream bos = new BinaryInputStream(baos);
-        BinaryMessageReader bvw = new BinaryMessageReader(bos);
-        return serializer.read(bvw);
+        return read(ByteBuffer.wrap(message), serializer);
     }
 }
@@ -18,6 +18,7 @@ import static java.util.Objects.requireNonNull;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.Map;
@@ -28,6 +29,7 @@ import net.maritimecloud.message.MessageSerializer;
 import net.maritimecloud.message.ValueSerializer;
 
 /**
+ * Writes messages in the compact binary format.
  *
  * @author Kasper Nielsen
  */
@@ -39,6 +41,16 @@ public class BinaryMessageWriter extends AbstractBinaryMessageWriter {
         this.os = requireNonNull(bos);
     }
 
+    /**
+     * Creates a new writer writing to the specified stream.
+     *
+     * @param os
+     *            the output stream
+     */
+    public BinaryMessageWriter(OutputStream os) {
+        this(new BinaryOutputStream(os));
+    }
+
     /** {@inheritDoc} */
     @Override
     public void close() throws IOException {}
@@ -49,6 +61,7 @@ public class BinaryMessageWriter extends AbstractBinaryMessageWriter {
         os.flush();
     }
 
+    /** {@inheritDoc} */
     @Override
     protected void writeBinary(int tag, byte[] bin) throws IOException {
         os.writeBytes(tag, bin);
@@ -62,10 +75,10 @@ public class BinaryMessageWriter extends AbstractBinaryMessageWriter {
         }
     }
 
+    /** {@inheritDoc} */
     @Override
     protected void writeDecimal0(int tag, BigDecimal bd) throws IOException {
-        os.encodeAndWriteInteger(tag, bd.scale());
-        os.writeBytes(bd.unscaledValue().toByteArray());
+        os.writeBigDecimal(tag, bd);
     }
 
     /** {@inheritDoc} */
@@ -77,7 +90,7 @@ public class BinaryMessageWriter extends AbstractBinaryMessageWriter {
     /** {@inheritDoc} */
     @Override
     protected void writeInt640(int tag, long value) throws IOException {
-        os.encodeAndWriteInteger(tag, (int) value);
+        os.writeLong(tag, value);
     }
 
     /** {@inheritDoc} */
@@ -86,8 +99,12 @@ public class BinaryMessageWriter extends AbstractBinaryMessageWriter {
             ValueSerializer<V> valueSerializer) throws IOException {
         byte[] bytes = BinaryValueWriter.writeWithWriter(w -> {
             for (Map.Entry<K, V> e : map.entrySet()) {
-                keySerializer.write(e.getKey(), w);
-                valueSerializer.write(e.getValue(), w);
+                K key = e.getKey();
+                V value = e.getValue();
+                if (key != null && value != null) {
+                    keySerializer.write(key, w);
+                    valueSerializer.write(value, w);
+                }
             }
         });
         os.writeBytes(tag, bytes);
@@ -97,19 +114,27 @@ public class BinaryMessageWriter extends AbstractBinaryMessageWriter {
     @Override
     protected <T extends Message> void writeMessage0(int tag, T message, MessageSerializer<T> serializer)
             throws IOException {
-        byte[] bytes = BinaryValueWriter.writeWithWriter(w -> {
-            serializer.write(message, w);
-        });
-        os.writeBytes(tag, bytes);
+        os.writeBytes(tag, write(message, serializer));
+    }
+
+    /**
+     * Writes a message that has already been encoded using {@link #write(Message, MessageSerializer)}. The output is
+     * identical to writing the message using {@link #writeMessage(int, String, Message, MessageSerializer)}.
+     *
+     * @param tag
+     *            the tag of the message
+     * @param encoded
+     *            the encoded message
+     * @throws IOException
+     *             if the message could not be written
+     */
+    public void writeEncodedMessage(int tag, byte[] encoded) throws IOException {
+        os.writeBytes(tag, encoded);
     }
 
     /** {@inheritDoc} */
     @Override
     protected <T> void writeSetOrList(int tag, Collection<T> col, ValueSerializer<T> serializer) throws IOException {
-        /*
-         * if (col.size() == 1) { T t = col.iterator().next(); if (t != null) { serializer.write(tag, "tagIsIgnored", t,
-         * this); } } else {
-         */
         byte[] bytes = BinaryValueWriter.writeWithWriter(e -> {
             for (T t : col) {
                 if (t != null) {
@@ -118,9 +143,17 @@ public class BinaryMessageWriter extends AbstractBinaryMessageWriter {
             }
         });
         os.writeBytes(tag, bytes);
-        // }
     }
 
+    /**
+     * Writes the message as a byte array in the compact binary format
+     *
+     * @param message
+     *            the message
+     * @param serializer
+     *            the message serializer
+     * @return the bytes
+     */
     public static <T extends Message> byte[] write(T message, MessageSerializer<T> serializer) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         BinaryOutputStream bos = new BinaryOutputStream(baos);
@@ -132,5 +165,7 @@ public class BinaryMessageWriter extends AbstractBinaryMessageWriter {
 
     /** {@inheritDoc} */
     @Override
-    protected void writeInt640(int tag, String name, long value) throws IOException {}
+    protected void writeInt640(int tag, String name, long value) throws IOException {
+        writeInt640(tag, value);
+    }
 }
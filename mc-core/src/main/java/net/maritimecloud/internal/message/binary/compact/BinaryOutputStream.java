@@ -20,7 +20,10 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.math.BigDecimal;
 
+import net.maritimecloud.internal.message.binary.BinaryUtils;
+
 /**
+ * Writes fields in the compact binary format to an output stream.
  *
  * @author Kasper Nielsen
  */
@@ -33,35 +36,7 @@ public class BinaryOutputStream extends Types {
     }
 
     public BinaryOutputStream encodeAndWriteInteger(int tag, int value) throws IOException {
-        switch (value) {
-        case 0:
-            return writeTypeTag(WIRETYPE_CONSTANT_0, tag);
-        case 1:
-            return writeTypeTag(WIRETYPE_CONSTANT_1, tag);
-        case 2:
-            return writeTypeTag(WIRETYPE_CONSTANT_2, tag);
-        case -1:
-            return writeTypeTag(WIRETYPE_CONSTANT_MINUS_1, tag);
-        default:
-            if (value > 0) { // POSITIVE
-                if (value <= Byte.MAX_VALUE) {
-                    return writeTypeTag(WIRETYPE_FIXED_8, tag).write08Bits(value);
-                } else if (value <= Short.MAX_VALUE) {
-                    return writeTypeTag(WIRETYPE_FIXED_16, tag).write16Bits(value);
-                } else if ((value & 0xffffffff << 21) == 0) {
-                    return writeTypeTag(WIRETYPE_VARINT_POSITIVE, tag).writeRawVarint32(value);
-                }
-            } else {
-                if (value >= Byte.MIN_VALUE) {
-                    return writeTypeTag(WIRETYPE_FIXED_8, tag).write08Bits(value);
-                } else if (value >= Short.MIN_VALUE) {
-                    return writeTypeTag(WIRETYPE_FIXED_16, tag).write16Bits(value);
-                } else if ((value & 0xffffffff << 21) == 0) {
-                    return writeTypeTag(WIRETYPE_VARINT_NEGATIVE, tag).writeRawVarint32Negative(value);
-                }
-            }
-            return writeTypeTag(WIRETYPE_FIXED_32, tag).write32Bits(value);
-        }
+        return writeLong(tag, value);
     }
 
     public void flush() throws IOException {
@@ -101,9 +76,8 @@ public class BinaryOutputStream extends Types {
         return writeRawByte((int) value & 0xFF);
     }
 
-    public void writeBigDecimal(BigDecimal value) throws IOException {
-        writeRawVarint32(value.scale());
-        // writeBigInteger(value.unscaledValue());
+    public BinaryOutputStream writeBigDecimal(int tag, BigDecimal value) throws IOException {
+        return writeBytes(tag, BinaryUtils.encodeBigDecimal(value).toByteArray());
     }
 
     public BinaryOutputStream writeBoolean(int tag, String name, boolean value) throws IOException {
@@ -114,27 +88,77 @@ public class BinaryOutputStream extends Types {
         os.write(value);
     }
 
-    public void writeBytes(int tag, byte[] value) throws IOException {
-        if (value.length == 1) {
-            encodeAndWriteInteger(tag, value[0]);
-        } else if (value.length == 2) {
-            writeTypeTag(WIRETYPE_FIXED_16, tag).writeRawByte(value[0]).writeRawByte(value[1]);
-        } else if (value.length == 4) {
-            writeTypeTag(WIRETYPE_FIXED_32, tag).writeRawByte(value[0]).writeRawByte(value[1]).writeRawByte(value[2])
-            .writeRawByte(value[3]);
-        } else if (value.length == 8) {
-            writeTypeTag(WIRETYPE_FIXED_64, tag).writeRawByte(value[0]).writeRawByte(value[1]).writeRawByte(value[2])
-                    .writeRawByte(value[3]).writeRawByte(value[4]).writeRawByte(value[5]).writeRawByte(value[6])
-                    .writeRawByte(value[7]);
+    public BinaryOutputStream writeBytes(int tag, byte[] value) throws IOException {
+        return writeBytes(tag, value, 0, value.length);
+    }
+
+    /**
+     * Writes a sequence of bytes. Sequences of 1, 2, 4 and 8 bytes are written without a length prefix.
+     *
+     * @param tag
+     *            the tag of the field
+     * @param value
+     *            the array containing the bytes
+     * @param offset
+     *            the offset of the first byte in the array
+     * @param length
+     *            the number of bytes to write
+     * @return this stream
+     * @throws IOException
+     *             if the bytes could not be written
+     */
+    public BinaryOutputStream writeBytes(int tag, byte[] value, int offset, int length) throws IOException {
+        if (length == 1) {
+            return encodeAndWriteInteger(tag, value[offset]);
+        } else if (length == 2) {
+            writeTypeTag(WIRETYPE_FIXED_16, tag);
+        } else if (length == 4) {
+            writeTypeTag(WIRETYPE_FIXED_32, tag);
+        } else if (length == 8) {
+            writeTypeTag(WIRETYPE_FIXED_64, tag);
         } else {
             writeTypeTag(WIRETYPE_NUMBER_OF_BYTES, tag);
-            writeVarInt32Positive(value.length);
-            os.write(value);
+            writeVarInt32Positive(length);
         }
+        os.write(value, offset, length);
+        return this;
     }
 
-    public BinaryOutputStream writeLong(int tag, long value) {
-        return this;
+    /**
+     * Writes an integer using the wire type that results in the fewest bytes. The constants 0, 1, 2 and -1 are written
+     * in the header, other values that fit into a byte or a short are written as fixed 8 and 16 bit values. Larger
+     * values are written as varints if that is shorter than writing them as a fixed 32 or 64 bit value.
+     *
+     * @param tag
+     *            the tag of the field
+     * @param value
+     *            the value to write
+     * @return this stream
+     * @throws IOException
+     *             if the value could not be written
+     */
+    public BinaryOutputStream writeLong(int tag, long value) throws IOException {
+        if (value == 0) {
+            return writeTypeTag(WIRETYPE_CONSTANT_0, tag);
+        } else if (value == 1) {
+            return writeTypeTag(WIRETYPE_CONSTANT_1, tag);
+        } else if (value == 2) {
+            return writeTypeTag(WIRETYPE_CONSTANT_2, tag);
+        } else if (value == -1) {
+            return writeTypeTag(WIRETYPE_CONSTANT_MINUS_1, tag);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            return writeTypeTag(WIRETYPE_FIXED_8, tag).write08Bits((int) value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            return writeTypeTag(WIRETYPE_FIXED_16, tag).write16Bits((int) value);
+        }
+        long magnitude = value < 0 ? ~value : value;
+        boolean isInt = value == (int) value;
+        if (computeRawVarint64Size(magnitude) < (isInt ? 4 : 8)) {
+            return writeTypeTag(value < 0 ? WIRETYPE_VARINT_NEGATIVE : WIRETYPE_VARINT_POSITIVE, tag)
+                    .writeRawVarint64(magnitude);
+        }
+        return isInt ? writeTypeTag(WIRETYPE_FIXED_32, tag).write32Bits((int) value) : writeTypeTag(
+                WIRETYPE_FIXED_64, tag).write64Bits(value);
     }
 
     /** Write a single byte. */
@@ -164,18 +188,6 @@ public class BinaryOutputStream extends Types {
         }
     }
 
-    BinaryOutputStream writeRawVarint32Negative(int value) throws IOException {
-        while (true) {
-            if ((value & ~0x7F) == 0) {
-                writeRawByte(value);
-                return this;
-            } else {
-                writeRawByte(value & 0x7F | 0x80);
-                value >>>= 7;
-            }
-        }
-    }
-
     /** Encode and write a varint. */
     BinaryOutputStream writeRawVarint64(long value) throws IOException {
         while (true) {
@@ -198,13 +210,13 @@ public class BinaryOutputStream extends Types {
         return this;
     }
 
-    void writeVarInt32(int value) {
-
-    }
-
     void writeVarInt32Positive(int value) throws IOException {
         writeRawVarint32(value);
     }
 
-
+    /** Returns the number of bytes needed to write the specified value as a varint. */
+    static int computeRawVarint64Size(long value) {
+        int bits = 64 - Long.numberOfLeadingZeros(value);
+        return bits == 0 ? 1 : (bits + 6) / 7;
+    }
 }
@@ -15,64 +15,119 @@
 package net.maritimecloud.internal.message.binary.compact;
 
 import static java.util.Objects.requireNonNull;
+import static net.maritimecloud.internal.message.binary.compact.Types.WIRETYPE_NUMBER_OF_BYTES;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import net.maritimecloud.internal.message.binary.AbstractBinaryValueReader;
+import net.maritimecloud.internal.message.binary.BinaryUtils;
 import net.maritimecloud.message.Message;
 import net.maritimecloud.message.MessageSerializer;
 import net.maritimecloud.message.ValueSerializer;
 import net.maritimecloud.util.Binary;
 
 /**
+ * Reads the elements of lists and maps written by {@link BinaryValueWriter}. Elements have no headers, integers are
+ * written as ZigZag encoded varints and everything else as a sequence of bytes prefixed by its length.
  *
  * @author Kasper Nielsen
  */
-public abstract class BinaryValueReader extends AbstractBinaryValueReader {
+public class BinaryValueReader extends AbstractBinaryValueReader {
 
-    BinaryInputStream bis;
+    /** The buffer containing the elements. */
+    final ByteBuffer buffer;
 
-    BinaryValueReader(BinaryInputStream bis) {
-        this.bis = requireNonNull(bis);
+    BinaryValueReader(ByteBuffer buffer) {
+        this.buffer = requireNonNull(buffer);
     }
 
     /** {@inheritDoc} */
     @Override
     public Binary readBinary() throws IOException {
-        int length = bis.readVarint32();
-        return Binary.copyFrom(bis.read(length));
+        return Binary.wrap(readBytes());
+    }
+
+    /**
+     * Reads the next sequence of bytes.
+     *
+     * @return a slice of the buffer containing the bytes
+     */
+    private ByteBuffer readBytes() throws IOException {
+        return BinaryInputStream.readValue(buffer, WIRETYPE_NUMBER_OF_BYTES);
     }
 
     /** {@inheritDoc} */
     @Override
     public Integer readInt() throws IOException {
-        return null;
+        return BinaryUtils.decodeZigZag32((int) BinaryInputStream.readRawVarint64(buffer));
     }
 
     /** {@inheritDoc} */
     @Override
     public Long readInt64() throws IOException {
-        return null;
+        return BinaryUtils.decodeZigZag64(BinaryInputStream.readRawVarint64(buffer));
     }
 
     /** {@inheritDoc} */
     @Override
     public <T extends Message> T readMessage(MessageSerializer<T> parser) throws IOException {
-        return null;
+        return BinaryMessageReader.read(readBytes(), parser);
     }
 
     /** {@inheritDoc} */
     @Override
     public <T> List<T> readList(ValueSerializer<T> parser) throws IOException {
-        return null;
+        return readList(readBytes(), parser);
     }
 
     /** {@inheritDoc} */
     @Override
     public <K, V> Map<K, V> readMap(ValueSerializer<K> keyParser, ValueSerializer<V> valueParser) throws IOException {
-        return null;
+        return readMap(readBytes(), keyParser, valueParser);
     }
 
+    /**
+     * Reads all elements in the specified buffer.
+     *
+     * @param elements
+     *            the buffer containing the elements
+     * @param parser
+     *            the parser of the elements
+     * @return a list of the elements
+     */
+    static <T> List<T> readList(ByteBuffer elements, ValueSerializer<T> parser) throws IOException {
+        BinaryValueReader r = new BinaryValueReader(elements);
+        List<T> result = new ArrayList<>();
+        while (elements.hasRemaining()) {
+            result.add(parser.read(r));
+        }
+        return result;
+    }
+
+    /**
+     * Reads all key-value pairs in the specified buffer.
+     *
+     * @param elements
+     *            the buffer containing the key-value pairs
+     * @param keyParser
+     *            the parser of the keys
+     * @param valueParser
+     *            the parser of the values
+     * @return a map of the key-value pairs
+     */
+    static <K, V> Map<K, V> readMap(ByteBuffer elements, ValueSerializer<K> keyParser, ValueSerializer<V> valueParser)
+            throws IOException {
+        BinaryValueReader r = new BinaryValueReader(elements);
+        Map<K, V> result = new LinkedHashMap<>();
+        while (elements.hasRemaining()) {
+            K key = keyParser.read(r);
+            result.put(key, valueParser.read(r));
+        }
+        return result;
+    }
 }
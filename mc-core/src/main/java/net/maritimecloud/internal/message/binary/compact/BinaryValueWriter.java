@@ -45,7 +45,17 @@ public class BinaryValueWriter extends AbstractBinaryValueWriter {
     /** {@inheritDoc} */
     @Override
     public void writeBinary(Binary binary) throws IOException {
-        byte[] b = binary.toByteArray();
+        bos.writeRawVarint32(binary.size());
+        binary.writeTo(bos.os);
+    }
+
+    /**
+     * Writes bytes prefixed by their length.
+     *
+     * @param b
+     *            the bytes to write
+     */
+    private void writeBytes(byte[] b) throws IOException {
         bos.writeRawVarint32(b.length);
         bos.writeBytes(b);
     }
@@ -72,7 +82,7 @@ public class BinaryValueWriter extends AbstractBinaryValueWriter {
                 }
             }
         });
-        writeBinary(Binary.copyFrom(b));
+        writeBytes(b);
     }
 
     /** {@inheritDoc} */
@@ -89,16 +99,22 @@ public class BinaryValueWriter extends AbstractBinaryValueWriter {
                 }
             }
         });
-        writeBinary(Binary.copyFrom(b));
+        writeBytes(b);
     }
 
     /** {@inheritDoc} */
     @Override
     public <T extends Message> void writeMessage(T message, MessageSerializer<T> serializer) throws IOException {
-        byte[] b = writeWithWriter(e -> serializer.write(message, e));
-        writeBinary(Binary.copyFrom(b));
+        writeBytes(BinaryMessageWriter.write(message, serializer));
     }
 
+    /**
+     * Helper function. Generate the bytes for the value writer consumer
+     *
+     * @param w
+     *            the value writer consumer
+     * @return the bytes
+     */
     static byte[] writeWithWriter(IOEConsumer<BinaryValueWriter> w) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         BinaryOutputStream bos = new BinaryOutputStream(baos);
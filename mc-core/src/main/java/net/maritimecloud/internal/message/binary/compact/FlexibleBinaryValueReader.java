@@ -15,126 +15,85 @@
 package net.maritimecloud.internal.message.binary.compact;
 
 import static java.util.Objects.requireNonNull;
-import static net.maritimecloud.internal.message.binary.compact.Types.WIRETYPE_CONSTANT_0;
-import static net.maritimecloud.internal.message.binary.compact.Types.WIRETYPE_CONSTANT_1;
-import static net.maritimecloud.internal.message.binary.compact.Types.WIRETYPE_CONSTANT_2;
-import static net.maritimecloud.internal.message.binary.compact.Types.WIRETYPE_CONSTANT_MINUS_1;
-import static net.maritimecloud.internal.message.binary.compact.Types.WIRETYPE_FIXED_16;
-import static net.maritimecloud.internal.message.binary.compact.Types.WIRETYPE_FIXED_32;
-import static net.maritimecloud.internal.message.binary.compact.Types.WIRETYPE_FIXED_64;
-import static net.maritimecloud.internal.message.binary.compact.Types.WIRETYPE_FIXED_8;
 import static net.maritimecloud.internal.message.binary.compact.Types.WIRETYPE_NUMBER_OF_BYTES;
-import static net.maritimecloud.internal.message.binary.compact.Types.WIRETYPE_VARINT_NEGATIVE;
-import static net.maritimecloud.internal.message.binary.compact.Types.WIRETYPE_VARINT_POSITIVE;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 
 import net.maritimecloud.internal.message.binary.AbstractBinaryValueReader;
+import net.maritimecloud.internal.message.binary.BinaryUtils;
 import net.maritimecloud.message.Message;
 import net.maritimecloud.message.MessageSerializer;
+import net.maritimecloud.message.SerializationException;
 import net.maritimecloud.message.ValueSerializer;
 import net.maritimecloud.util.Binary;
 
 /**
+ * Reads the value of a single field. Depending on the wire type the value is either an integer or a sequence of bytes.
  *
  * @author Kasper Nielsen
  */
 public class FlexibleBinaryValueReader extends AbstractBinaryValueReader {
 
+    /** The wire type of the field. */
     private final int wireType;
 
-    private final BinaryInputStream bis;
+    /** The value of the field, without the header or length prefix. */
+    private final ByteBuffer value;
 
-    FlexibleBinaryValueReader(int wireType, BinaryInputStream bis) {
+    FlexibleBinaryValueReader(int wireType, ByteBuffer value) {
         this.wireType = wireType;
-        this.bis = requireNonNull(bis);
+        this.value = requireNonNull(value);
     }
 
     /** {@inheritDoc} */
     @Override
     public Integer readInt() throws IOException {
         long l = readInt64();
+        if (l != (int) l) {
+            throw new SerializationException("The value " + l + " does not fit into an int");
+        }
         return (int) l;
     }
 
     /** {@inheritDoc} */
     @Override
     public Long readInt64() throws IOException {
-        switch (wireType) {
-        case WIRETYPE_CONSTANT_0:
-            return 0L;
-        case WIRETYPE_CONSTANT_1:
-            return 1L;
-        case WIRETYPE_CONSTANT_2:
-            return 2L;
-        case WIRETYPE_CONSTANT_MINUS_1:
-            return -1L;
-        case WIRETYPE_FIXED_8:
-            long b = bis.read08Bits();
-            return b;
-        case WIRETYPE_FIXED_16:
-            b = bis.read16Bits();
-            return b;
-        case WIRETYPE_FIXED_32:
-            b = bis.read32Bits();
-            return b;
-        case WIRETYPE_VARINT_POSITIVE:
-            return 1L;
-        case WIRETYPE_VARINT_NEGATIVE:
-            return 1L;
-        default:
-            throw new IOException("Illegal wireType");
-        }
+        return BinaryInputStream.decodeInteger(value, wireType);
     }
 
     /** {@inheritDoc} */
     @Override
     public Binary readBinary() throws IOException {
-        switch (wireType) {
-        case WIRETYPE_CONSTANT_0:
-            return Binary.copyFrom(new byte[] { 0 });
-        case WIRETYPE_CONSTANT_1:
-            return Binary.copyFrom(new byte[] { 1 });
-        case WIRETYPE_CONSTANT_2:
-            return Binary.copyFrom(new byte[] { 2 });
-        case WIRETYPE_CONSTANT_MINUS_1:
-            return Binary.copyFrom(new byte[] { -1 });
-        case WIRETYPE_FIXED_8:
-            return Binary.copyFrom(bis.read(1));
-        case WIRETYPE_FIXED_16:
-            return Binary.copyFrom(bis.read(2));
-        case WIRETYPE_FIXED_32:
-            return Binary.copyFrom(bis.read(4));
-        case WIRETYPE_FIXED_64:
-            return Binary.copyFrom(bis.read(8));
-        case WIRETYPE_NUMBER_OF_BYTES:
-            int numberOfBytes = bis.readVarint32();
-            return Binary.copyFrom(bis.read(numberOfBytes));
-        default:
-            throw new IOException("Illegal wireType");
-        }
+        return Binary.wrap(BinaryInputStream.decodeBytes(value, wireType));
     }
 
     /** {@inheritDoc} */
     @Override
     public <T extends Message> T readMessage(MessageSerializer<T> parser) throws IOException {
-        Binary bin = readBinary();
-        BinaryMessageReader bmr = new BinaryMessageReader(new BinaryInputStream(bin));
-        return parser.read(bmr);
+        return BinaryMessageReader.read(BinaryInputStream.decodeBytes(value, wireType), parser);
     }
 
     /** {@inheritDoc} */
     @Override
     public <T> List<T> readList(ValueSerializer<T> parser) throws IOException {
-        return Collections.emptyList();
+        return BinaryValueReader.readList(BinaryInputStream.decodeBytes(value, wireType), parser);
     }
 
     /** {@inheritDoc} */
     @Override
     public <K, V> Map<K, V> readMap(ValueSerializer<K> keyParser, ValueSerializer<V> valueParser) throws IOException {
-        return Collections.emptyMap();
+        return BinaryValueReader.readMap(BinaryInputStream.decodeBytes(value, wireType), keyParser, valueParser);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public BigInteger readVarInt() throws IOException {
+        // Only integers that cannot be represented as a long are written as bytes
+        return wireType == WIRETYPE_NUMBER_OF_BYTES ? BinaryUtils.decodeBigInteger(readBinary()) : BigInteger
+                .valueOf(readInt64());
     }
 }
@@ -15,6 +15,13 @@
 package net.maritimecloud.internal.message.binary.compact;
 
 /**
+ * The wire types of the compact binary format.
+ * <p>
+ * Every field starts with a header byte. The 4 lowest bits of the header contain the wire type, and the 4 highest bits
+ * contain the field number if it is between 1 and 15. Otherwise the 4 highest bits are 0 and the field number follows
+ * the header as a varint. Integers are written using the shortest of the constant, fixed and varint wire types.
+ * Everything else, such as text, binaries, nested messages, lists and maps, is written as a sequence of bytes. A
+ * sequence of 1, 2, 4 or 8 bytes is written using the fixed wire types, which need no length prefix.
  *
  * @author Kasper Nielsen
  */
@@ -44,10 +51,13 @@ class Types {
     /** A fixed 64 bit number/string.. */
     static final int WIRETYPE_FIXED_64 = 7;
 
+    /** A negative number, written as a varint of its bitwise complement. */
     static final int WIRETYPE_VARINT_NEGATIVE = 8;
 
+    /** A non-negative number, written as a varint. */
     static final int WIRETYPE_VARINT_POSITIVE = 9;
 
+    /** A sequence of bytes prefixed by its length written as a varint. */
     static final int WIRETYPE_NUMBER_OF_BYTES = 10;
 
     static final int TAG_TYPE_BITS = 4;
@@ -56,11 +66,6 @@ class Types {
 
     static final int MAXIMUM_FIELD_ID = 1 << 29;
 
-    public static void main(String[] args) {
-        System.out.println(TAG_TYPE_MASK);
-        System.out.println(~TAG_TYPE_MASK);
-    }
-
     static boolean isConstantWireType(int wireType) {
         return wireType >= 0 && wireType <= 3;
     }
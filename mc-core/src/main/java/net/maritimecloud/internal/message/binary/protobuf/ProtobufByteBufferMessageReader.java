@@ -0,0 +1,221 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.message.binary.protobuf;
+
+import static net.maritimecloud.internal.message.binary.protobuf.ProtobufByteBufferValueReader.decodeZigZag64;
+import static net.maritimecloud.internal.message.binary.protobuf.ProtobufByteBufferValueReader.readRawVarint64;
+import static net.maritimecloud.internal.message.binary.protobuf.ProtobufByteBufferValueReader.slice;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+import net.maritimecloud.internal.message.AbstractMessageReader;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageEnum;
+import net.maritimecloud.message.MessageEnumSerializer;
+import net.maritimecloud.message.MessageFormatType;
+import net.maritimecloud.message.MessageSerializer;
+import net.maritimecloud.message.SerializationException;
+import net.maritimecloud.message.ValueReader;
+import net.maritimecloud.message.ValueSerializer;
+
+/**
+ * Implementation of a message reader that reads the Google Protobuf wire format directly from a {@link ByteBuffer}.
+ * <p>
+ * Unlike {@link ProtobufMessageReader} the fields of the message are not copied into a map up front. Instead fields
+ * are read on demand in tag order, and length delimited fields, such as binaries and nested messages, are returned as
+ * slices of the underlying buffer. Fields with tags that are not requested by the serializer are skipped.
+ * <p>
+ * The buffer must not be modified while the message is being read. Binary values read from a buffer that is backed by
+ * an array keep a reference to the array.
+ */
+public class ProtobufByteBufferMessageReader extends AbstractMessageReader {
+
+    /** The buffer to read the fields from. */
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructor
+     * @param buffer the buffer containing the message, from its position to its limit
+     */
+    public ProtobufByteBufferMessageReader(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public MessageFormatType getFormatType() {
+        return MessageFormatType.MACHINE_READABLE;
+    }
+
+    /**
+     * Skips all fields with a tag lower than the specified tag, and returns the tag of the next field without
+     * consuming it.
+     * @param tag the tag that is looked for
+     * @return the tag of the next field, or -1 if there are no more fields
+     */
+    private int nextTag(int tag) throws IOException {
+        while (buffer.hasRemaining()) {
+            int position = buffer.position();
+            int pbTag = (int) readRawVarint64(buffer);
+            int next = ProtobufWireFormat.getTagFieldNumber(pbTag);
+            if (next >= tag) {
+                buffer.position(position);
+                return next;
+            }
+            skipField(buffer, ProtobufWireFormat.getTagWireType(pbTag));
+        }
+        return -1;
+    }
+
+    /** Skips the value of the field at the position of the buffer. */
+    private static void skipField(ByteBuffer buffer, int wireType) throws IOException {
+        switch (wireType) {
+            case ProtobufWireFormat.WIRETYPE_VARINT:
+                readRawVarint64(buffer);
+                break;
+            case ProtobufWireFormat.WIRETYPE_LENGTH_DELIMITED:
+                slice(buffer, (int) readRawVarint64(buffer));
+                break;
+            default:
+                throw new SerializationException("Invalid protobuf wire type " + wireType);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isNext(int tag, String name) throws IOException {
+        return nextTag(tag) == tag;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T extends MessageEnum> T readEnum(int tag, String name, MessageEnumSerializer<T> factory)
+            throws IOException {
+        int enumValue = readInt(tag, name);
+        return factory.from(enumValue);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <K, V> Map<K, V> readMap(int tag, String name, ValueSerializer<K> keyParser, ValueSerializer<V> valueParser)
+            throws IOException {
+        ValueReader r = findOptional(tag, name);
+        return r == null ? Collections.emptyMap() : r.readMap(keyParser, valueParser);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T extends Message> T readMessage(int tag, String name, MessageSerializer<T> parser) throws IOException {
+        ValueReader valueReader = findOptional(tag, name);
+        return valueReader == null ? null : valueReader.readMessage(parser);
+    }
+
+    /**
+     * Reads a length delimited field, such as a nested message, without decoding it.
+     * @param tag the tag of the field
+     * @param name the name of the field
+     * @return a slice of the buffer containing the value of the field, or null if the field is not present
+     */
+    public ByteBuffer readRaw(int tag, String name) throws IOException {
+        ValueReader valueReader = findOptional(tag, name);
+        if (valueReader == null) {
+            return null;
+        } else if (!(valueReader instanceof ProtobufByteBufferValueReader)) {
+            throw new SerializationException("Field " + tag + " is not length delimited");
+        }
+        return ((ProtobufByteBufferValueReader) valueReader).readSlice();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected ValueReader find(int tag, String name) throws IOException {
+        ValueReader valueReader = findOptional(tag, name);
+        if (valueReader == null) {
+            throw new SerializationException("Could not find tag " + tag);
+        }
+        return valueReader;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected ValueReader findOptional(int tag, String name) throws IOException {
+        if (!isNext(tag, name)) {
+            return null;
+        }
+        int wireType = ProtobufWireFormat.getTagWireType((int) readRawVarint64(buffer));
+        switch (wireType) {
+            case ProtobufWireFormat.WIRETYPE_VARINT:
+                return new ProtobufByteBufferValueReader(decodeZigZag64(readRawVarint64(buffer)));
+            case ProtobufWireFormat.WIRETYPE_LENGTH_DELIMITED:
+                // The value reader expects to be positioned at the length prefix
+                int start = buffer.position();
+                int length = (int) readRawVarint64(buffer);
+                int prefixLength = buffer.position() - start;
+                buffer.position(start);
+                return new ProtobufByteBufferValueReader(slice(buffer, prefixLength + length));
+            default:
+                throw new SerializationException("Invalid protobuf wire type " + wireType);
+        }
+    }
+
+    /**
+     * Copies the encoded fields of a message whose tags are accepted by the specified filter, without decoding them.
+     * The fields are copied in the order they appear in the buffer. The position of the buffer is not changed.
+     * @param buffer the buffer containing the message
+     * @param filter the filter that decides which fields to copy
+     * @return the copied fields, which is itself a valid encoding of a message
+     */
+    public static byte[] copyFields(ByteBuffer buffer, IntPredicate filter) throws IOException {
+        ByteBuffer b = buffer.slice();
+        ByteBuffer result = ByteBuffer.allocate(b.remaining());
+        while (b.hasRemaining()) {
+            int start = b.position();
+            int pbTag = (int) readRawVarint64(b);
+            skipField(b, ProtobufWireFormat.getTagWireType(pbTag));
+            if (filter.test(ProtobufWireFormat.getTagFieldNumber(pbTag))) {
+                ByteBuffer field = b.duplicate();
+                field.limit(b.position()).position(start);
+                result.put(field);
+            }
+        }
+        return Arrays.copyOf(result.array(), result.position());
+    }
+
+    /**
+     * Reads a message from a byte buffer using the given message serializer. The buffer is read from its position to
+     * its limit, the position of the buffer is not changed.
+     * @param buffer the buffer containing the message
+     * @param serializer the message serializer
+     * @return the message
+     */
+    public static <T extends Message> T read(ByteBuffer buffer, MessageSerializer<T> serializer) throws IOException {
+        return serializer.read(new ProtobufByteBufferMessageReader(buffer));
+    }
+
+    /**
+     * Reads a message from a byte array using the given message serializer. The array is not copied.
+     * @param message the message byte array
+     * @param serializer the message serializer
+     * @return the message
+     */
+    public static <T extends Message> T read(byte[] message, MessageSerializer<T> serializer) throws IOException {
+        return read(ByteBuffer.wrap(message), serializer);
+    }
+}
@@ -0,0 +1,203 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.message.binary.protobuf;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.maritimecloud.internal.message.binary.AbstractBinaryValueReader;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageSerializer;
+import net.maritimecloud.message.SerializationException;
+import net.maritimecloud.message.ValueSerializer;
+import net.maritimecloud.util.Binary;
+
+/**
+ * A Protobuf value reader that reads directly from a {@link ByteBuffer}.
+ * <p>
+ * The reader is used by the {@code ProtobufByteBufferMessageReader}. Unlike {@link ProtobufValueReader} nothing is
+ * copied, binary values and nested messages are slices of the underlying buffer. If the buffer is backed by an
+ * accessible array, binary values are backed by the array as well.
+ * <p>
+ * The reader may be initialized with either a long value, used for WIRETYPE_VARINT fields, or a buffer, used for
+ * WIRETYPE_LENGTH_DELIMITED fields and for the elements of lists and maps.
+ *
+ * @author Kasper Nielsen
+ */
+public class ProtobufByteBufferValueReader extends AbstractBinaryValueReader {
+
+    /** The buffer to read from, or null if the reader was initialized with a varint value. */
+    private final ByteBuffer buffer;
+
+    /** The varint value, only used if the buffer is null. */
+    private final long value;
+
+    /**
+     * Constructor
+     * @param buffer the buffer to read from, the position of the buffer is advanced as values are read
+     */
+    ProtobufByteBufferValueReader(ByteBuffer buffer) {
+        this.buffer = requireNonNull(buffer);
+        this.value = 0;
+    }
+
+    /**
+     * Constructor
+     * @param value the value
+     */
+    ProtobufByteBufferValueReader(long value) {
+        this.buffer = null;
+        this.value = value;
+    }
+
+    /** Throws an exception unless the value reader was instantiated with a buffer */
+    private ByteBuffer buffer() throws IOException {
+        if (buffer == null) {
+            throw new IOException("The value reader is not based on a ByteBuffer");
+        }
+        return buffer;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Binary readBinary() throws IOException {
+        return Binary.wrap(readSlice());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Integer readInt() throws IOException {
+        if (buffer == null) {
+            return (int) value;
+        }
+        int n = (int) readRawVarint64(buffer);
+        return n >>> 1 ^ -(n & 1);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Long readInt64() throws IOException {
+        if (buffer == null) {
+            return value;
+        }
+        return decodeZigZag64(readRawVarint64(buffer));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public BigDecimal readDecimal() throws IOException {
+        ProtobufByteBufferValueReader r = new ProtobufByteBufferValueReader(readSlice());
+        int scale = r.readInt();
+        BigInteger unscaled = new BigInteger(r.readBinary().toByteArray());
+        return new BigDecimal(unscaled, scale);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T extends Message> T readMessage(MessageSerializer<T> parser) throws IOException {
+        return parser.read(new ProtobufByteBufferMessageReader(readSlice()));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> List<T> readList(ValueSerializer<T> parser) throws IOException {
+        ByteBuffer b = readSlice();
+        ArrayList<T> list = new ArrayList<>();
+        ProtobufByteBufferValueReader r = new ProtobufByteBufferValueReader(b);
+        while (b.hasRemaining()) {
+            T t = parser.read(r);
+            if (t != null) {
+                list.add(t);
+            }
+        }
+        return list;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <K, V> Map<K, V> readMap(ValueSerializer<K> keyParser, ValueSerializer<V> valueParser) throws IOException {
+        ByteBuffer b = readSlice();
+        Map<K, V> map = new HashMap<>();
+        ProtobufByteBufferValueReader r = new ProtobufByteBufferValueReader(b);
+        while (b.hasRemaining()) {
+            K key = keyParser.read(r);
+            V value = valueParser.read(r);
+            if (key != null && value != null) {
+                map.put(key, value);
+            }
+        }
+        return map;
+    }
+
+    /** Reads a length delimited value, and returns a slice of the buffer containing the value. */
+    ByteBuffer readSlice() throws IOException {
+        ByteBuffer b = buffer();
+        return slice(b, (int) readRawVarint64(b));
+    }
+
+    /**
+     * Decodes a ZigZag-encoded 64-bit value.
+     * @param n the encoded value
+     * @return the decoded value
+     */
+    static long decodeZigZag64(long n) {
+        return n >>> 1 ^ -(n & 1);
+    }
+
+    /**
+     * Reads a raw varint from the buffer, advancing the position of the buffer.
+     * @param b the buffer to read from
+     * @return the value read
+     */
+    static long readRawVarint64(ByteBuffer b) throws SerializationException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!b.hasRemaining()) {
+                throw new SerializationException("Truncated message, a varint ended unexpectedly");
+            }
+            byte x = b.get();
+            result |= (long) (x & 0x7F) << shift;
+            if ((x & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new SerializationException("Malformed varint");
+    }
+
+    /**
+     * Returns a slice of the next bytes of the buffer, and advances the position of the buffer past them.
+     * @param b the buffer
+     * @param length the number of bytes
+     * @return the slice
+     */
+    static ByteBuffer slice(ByteBuffer b, int length) throws SerializationException {
+        if (length < 0 || length > b.remaining()) {
+            throw new SerializationException("Truncated message, expected " + length + " bytes but only "
+                    + b.remaining() + " remains");
+        }
+        ByteBuffer s = b.slice();
+        s.limit(length);
+        b.position(b.position() + length);
+        return s;
+    }
+}
@@ -20,28 +20,54 @@ import net.maritimecloud.message.Message;
 import net.maritimecloud.message.MessageSerializer;
 import net.maritimecloud.message.ValueSerializer;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 
+import static java.util.Objects.requireNonNull;
+import static net.maritimecloud.internal.message.binary.protobuf.ProtobufWireFormat.WIRETYPE_LENGTH_DELIMITED;
+
 /**
- * Implementation of a message writer that uses the Google Protobuf wire format
+ * Implementation of a message writer that uses the Google Protobuf wire format.
+ * <p>
+ * Nested messages, lists, maps and decimals are written directly to the output stream. The length prefix of such a
+ * value is taken from a {@link ProtobufSizes} table that is filled by a {@link ProtobufSizeMessageWriter}, either for
+ * the whole message up front by {@link #write(Message, MessageSerializer)} or for each top-level nested value when it
+ * is written.
+ *
  * @author Kasper Nielsen
  */
 public class ProtobufMessageWriter extends AbstractBinaryMessageWriter {
 
     final CodedOutputStream cos;
 
+    /** The lengths of the nested values to write. */
+    final ProtobufSizes sizes;
+
+    /** The writer used to calculate the lengths of nested values, lazily created. */
+    private ProtobufSizeMessageWriter sizeWriter;
+
+    /** The value writer used for lists, maps and decimals, lazily created. */
+    private ProtobufValueWriter valueWriter;
+
     /**
      * Constructor
      * @param os the nested output stream
      */
     public ProtobufMessageWriter(OutputStream os) {
-        cos = CodedOutputStream.newInstance(os);
+        this(CodedOutputStream.newInstance(os), new ProtobufSizes());
+    }
+
+    /**
+     * Constructor
+     * @param cos the coded output stream
+     * @param sizes the lengths of the nested values to write
+     */
+    ProtobufMessageWriter(CodedOutputStream cos, ProtobufSizes sizes) {
+        this.cos = requireNonNull(cos);
+        this.sizes = requireNonNull(sizes);
     }
 
     /** {@inheritDoc} */
@@ -63,6 +89,12 @@ public class ProtobufMessageWriter extends AbstractBinaryMessageWriter {
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected void writeBoolean0(int tag, boolean value) throws IOException {
+        cos.writeBool(tag, value);
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void writeBinary(int tag, byte[] bin) throws IOException {
@@ -81,8 +113,26 @@ public class ProtobufMessageWriter extends AbstractBinaryMessageWriter {
     @Override
     protected <T extends Message> void writeMessage0(int tag, T message, MessageSerializer<T> serializer)
             throws IOException {
-        byte[] bytes = ProtobufValueWriter.writeWithMessageWriter(w -> serializer.write(message, w));
-        cos.writeByteArray(tag, bytes);
+        if (!sizes.hasNext()) {
+            sizeWriter().writeMessage0(tag, message, serializer);
+        }
+        writeLengthPrefix(tag);
+        serializer.write(message, this);
+    }
+
+    /**
+     * Writes a message that has already been encoded using {@link #write(Message, MessageSerializer)}. The output is
+     * identical to writing the message using {@link #writeMessage(int, String, Message, MessageSerializer)}.
+     *
+     * @param tag
+     *            the tag of the message
+     * @param encoded
+     *            the encoded message
+     * @throws IOException
+     *             if the message could not be written
+     */
+    public void writeEncodedMessage(int tag, byte[] encoded) throws IOException {
+        cos.writeByteArray(tag, encoded);
     }
 
     /** {@inheritDoc} */
@@ -94,8 +144,11 @@ public class ProtobufMessageWriter extends AbstractBinaryMessageWriter {
     /** {@inheritDoc} */
     @Override
     protected void writeDecimal0(int tag, BigDecimal bd) throws IOException {
-        byte[] bytes = ProtobufValueWriter.writeWithValueWriter(w -> w.writeDecimal(bd));
-        cos.writeByteArray(tag, bytes);
+        if (!sizes.hasNext()) {
+            sizeWriter().writeDecimal0(tag, bd);
+        }
+        writeLengthPrefix(tag);
+        values().writeDecimal(bd);
     }
 
     /** {@inheritDoc} */
@@ -108,29 +161,88 @@ public class ProtobufMessageWriter extends AbstractBinaryMessageWriter {
     @Override
     protected <K, V> void writeMap0(int tag, Map<K, V> map, ValueSerializer<K> keySerializer,
             ValueSerializer<V> valueSerializer) throws IOException {
-        byte[] bytes = ProtobufValueWriter.writeWithValueWriter(w -> w.writeMap(map, keySerializer, valueSerializer));
-        cos.writeByteArray(tag, bytes);
+        if (!sizes.hasNext()) {
+            sizeWriter().writeMap0(tag, map, keySerializer, valueSerializer);
+        }
+        writeLengthPrefix(tag);
+        values().writeMap(map, keySerializer, valueSerializer);
     }
 
     /** {@inheritDoc} */
     @Override
     protected <T> void writeSetOrList(int tag, Collection<T> col, ValueSerializer<T> serializer) throws IOException {
-        byte[] bytes = ProtobufValueWriter.writeWithValueWriter(w -> w.writeList(new ArrayList<>(col), serializer));
-        cos.writeByteArray(tag, bytes);
+        if (!sizes.hasNext()) {
+            sizeWriter().writeSetOrList(tag, col, serializer);
+        }
+        writeLengthPrefix(tag);
+        values().writeAll(col, serializer);
+    }
+
+    /**
+     * Returns a writer for calculating the lengths of the next nested value. Must only be called when all previously
+     * calculated lengths have been consumed.
+     *
+     * @return the size writer
+     */
+    ProtobufSizeMessageWriter sizeWriter() {
+        ProtobufSizeMessageWriter w = sizeWriter;
+        if (w == null) {
+            w = sizeWriter = new ProtobufSizeMessageWriter(sizes);
+        }
+        sizes.clear();
+        w.size = 0;
+        return w;
+    }
+
+    /**
+     * Returns the value writer that should be used for writing list, maps and decimals.
+     *
+     * @return the value writer
+     */
+    ProtobufValueWriter values() {
+        ProtobufValueWriter w = valueWriter;
+        return w == null ? valueWriter = new ProtobufValueWriter(this) : w;
+    }
+
+    /**
+     * Writes the tag and the precalculated length of a length-delimited value.
+     *
+     * @param tag
+     *            the tag of the value
+     */
+    private void writeLengthPrefix(int tag) throws IOException {
+        cos.writeTag(tag, WIRETYPE_LENGTH_DELIMITED);
+        cos.writeRawVarint32(sizes.next());
+    }
+
+    /**
+     * Returns the number of bytes of the message in the Protobuf format, without encoding it.
+     * @param message the message
+     * @param serializer the message serializer
+     * @return the number of bytes
+     */
+    public static <T extends Message> int sizeOf(T message, MessageSerializer<T> serializer) throws IOException {
+        ProtobufSizeMessageWriter sizeWriter = new ProtobufSizeMessageWriter(new ProtobufSizes());
+        serializer.write(message, sizeWriter);
+        return sizeWriter.size;
     }
 
     /**
-     * Writes the message as a byte array in the Protobuf format
+     * Writes the message as a byte array in the Protobuf format. The size of the message, and of every nested value,
+     * is calculated first so the message can be written directly into an array of the exact size.
      * @param message the message
      * @param serializer the message serializer
      * @return the bytes
      */
     public static <T extends Message> byte[] write(T message, MessageSerializer<T> serializer) throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        ProtobufMessageWriter bvw = new ProtobufMessageWriter(out);
+        ProtobufSizes sizes = new ProtobufSizes();
+        ProtobufSizeMessageWriter sizeWriter = new ProtobufSizeMessageWriter(sizes);
+        serializer.write(message, sizeWriter);
+        byte[] result = new byte[sizeWriter.size];
+        ProtobufMessageWriter bvw = new ProtobufMessageWriter(CodedOutputStream.newInstance(result), sizes);
         serializer.write(message, bvw);
-        bvw.flush();
-        return out.toByteArray();
+        bvw.cos.checkNoSpaceLeft();
+        return result;
     }
 
 }
@@ -0,0 +1,210 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.message.binary.protobuf;
+
+import static net.maritimecloud.internal.core.com.google.protobuf.CodedOutputStream.computeBoolSize;
+import static net.maritimecloud.internal.core.com.google.protobuf.CodedOutputStream.computeByteArraySize;
+import static net.maritimecloud.internal.core.com.google.protobuf.CodedOutputStream.computeRawVarint32Size;
+import static net.maritimecloud.internal.core.com.google.protobuf.CodedOutputStream.computeSInt32Size;
+import static net.maritimecloud.internal.core.com.google.protobuf.CodedOutputStream.computeSInt64Size;
+import static net.maritimecloud.internal.core.com.google.protobuf.CodedOutputStream.computeTagSize;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+
+import net.maritimecloud.internal.message.binary.AbstractBinaryMessageWriter;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageSerializer;
+import net.maritimecloud.message.ValueSerializer;
+
+/**
+ * A message writer that does not write anything but calculates the number of bytes {@link ProtobufMessageWriter}
+ * would write for the same calls. The length of every length-delimited value is recorded in a {@link ProtobufSizes}.
+ *
+ * @author Kasper Nielsen
+ */
+final class ProtobufSizeMessageWriter extends AbstractBinaryMessageWriter {
+
+    /** The table the lengths of length-delimited values are recorded in. */
+    final ProtobufSizes sizes;
+
+    /** The number of bytes written so far. */
+    int size;
+
+    /** The value writer used for lists, maps and decimals, lazily created. */
+    private ProtobufSizeValueWriter valueWriter;
+
+    /**
+     * Creates a new size calculating message writer.
+     *
+     * @param sizes
+     *            the table to record the lengths of length-delimited values in
+     */
+    ProtobufSizeMessageWriter(ProtobufSizes sizes) {
+        this.sizes = requireNonNull(sizes);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {}
+
+    /** {@inheritDoc} */
+    @Override
+    public void flush() throws IOException {}
+
+    /**
+     * Ends a length-delimited value that was started at the specified size, and records its length.
+     *
+     * @param tag
+     *            the tag of the value
+     * @param index
+     *            the slot reserved for the length of the value
+     * @param start
+     *            the size before the contents of the value was written
+     */
+    private void endNested(int tag, int index, int start) {
+        int length = size - start;
+        sizes.set(index, length);
+        size += computeTagSize(tag) + computeRawVarint32Size(length);
+    }
+
+    /**
+     * Returns the value writer that should be used for writing list, maps and decimals.
+     *
+     * @return the value writer
+     */
+    ProtobufSizeValueWriter values() {
+        ProtobufSizeValueWriter w = valueWriter;
+        return w == null ? valueWriter = new ProtobufSizeValueWriter(this) : w;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void writeBinary(int tag, byte[] bin) throws IOException {
+        if (bin != null) {
+            size += computeByteArraySize(tag, bin);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void writeBoolean(int tag, String name, Boolean value) throws IOException {
+        if (value != null) {
+            size += computeBoolSize(tag, value);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void writeBoolean0(int tag, boolean value) throws IOException {
+        size += computeBoolSize(tag, value);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void writeDecimal0(int tag, BigDecimal bd) throws IOException {
+        int index = sizes.reserve();
+        int start = size;
+        values().writeDecimal(bd);
+        endNested(tag, index, start);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void writeInt0(int tag, int value) throws IOException {
+        size += computeSInt32Size(tag, value);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void writeInt640(int tag, long value) throws IOException {
+        size += computeSInt64Size(tag, value);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void writeInt640(int tag, String name, long value) throws IOException {
+        writeInt640(tag, value);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected <K, V> void writeMap0(int tag, Map<K, V> map, ValueSerializer<K> keySerializer,
+            ValueSerializer<V> valueSerializer) throws IOException {
+        int index = sizes.reserve();
+        int start = size;
+        values().writeMap(map, keySerializer, valueSerializer);
+        endNested(tag, index, start);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected <T extends Message> void writeMessage0(int tag, T message, MessageSerializer<T> serializer)
+            throws IOException {
+        int index = sizes.reserve();
+        int start = size;
+        serializer.write(message, this);
+        endNested(tag, index, start);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected <T> void writeSetOrList(int tag, Collection<T> col, ValueSerializer<T> serializer) throws IOException {
+        int index = sizes.reserve();
+        int start = size;
+        values().writeAll(col, serializer);
+        endNested(tag, index, start);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void writeText(int tag, String name, String value) throws IOException {
+        if (value != null) {
+            int length = utf8Length(value);
+            size += computeTagSize(tag) + computeRawVarint32Size(length) + length;
+        }
+    }
+
+    /**
+     * Returns the number of bytes {@code value.getBytes("UTF-8")} returns, without encoding the string. Unpaired
+     * surrogates are replaced with a single byte, just like the encoder does.
+     *
+     * @param value
+     *            the string
+     * @return the length of the UTF-8 encoding of the string
+     */
+    static int utf8Length(String value) {
+        int length = value.length();
+        int result = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    result += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    result += 2; // 4 bytes for the pair
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    result += 2;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.message.binary.protobuf;
+
+import static net.maritimecloud.internal.core.com.google.protobuf.CodedOutputStream.computeRawVarint32Size;
+import static net.maritimecloud.internal.core.com.google.protobuf.CodedOutputStream.computeSInt32SizeNoTag;
+import static net.maritimecloud.internal.core.com.google.protobuf.CodedOutputStream.computeSInt64SizeNoTag;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import net.maritimecloud.internal.message.binary.AbstractBinaryValueWriter;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageSerializer;
+import net.maritimecloud.message.ValueSerializer;
+import net.maritimecloud.util.Binary;
+
+/**
+ * A value writer that does not write anything but calculates the number of bytes {@link ProtobufValueWriter} would
+ * write for the same calls. Sizes are accumulated in the owning {@link ProtobufSizeMessageWriter}.
+ *
+ * @author Kasper Nielsen
+ */
+final class ProtobufSizeValueWriter extends AbstractBinaryValueWriter {
+
+    /** The message writer used for nested messages and that keeps track of the size. */
+    final ProtobufSizeMessageWriter messageWriter;
+
+    /**
+     * Creates a new size calculating value writer.
+     *
+     * @param messageWriter
+     *            the owning message writer
+     */
+    ProtobufSizeValueWriter(ProtobufSizeMessageWriter messageWriter) {
+        this.messageWriter = messageWriter;
+    }
+
+    /**
+     * Adds a length-delimited value of the specified length.
+     *
+     * @param length
+     *            the length of the value
+     */
+    private void addLengthDelimited(int length) {
+        messageWriter.size += computeRawVarint32Size(length) + length;
+    }
+
+    /**
+     * Calculates the size of the non-null elements of the specified values.
+     *
+     * @param values
+     *            the values
+     * @param serializer
+     *            the serializer of the values
+     */
+    <T> void writeAll(Iterable<T> values, ValueSerializer<T> serializer) throws IOException {
+        for (T t : values) {
+            if (t != null) {
+                serializer.write(t, this);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void writeBinary(Binary binary) throws IOException {
+        addLengthDelimited(binary.size());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void writeDecimal(BigDecimal value) throws IOException {
+        writeInt(value.scale());
+        // the length of BigInteger.toByteArray()
+        addLengthDelimited(value.unscaledValue().bitLength() / 8 + 1);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void writeInt(Integer value) throws IOException {
+        messageWriter.size += computeSInt32SizeNoTag(value);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void writeInt64(Long value) throws IOException {
+        messageWriter.size += computeSInt64SizeNoTag(value);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> void writeList(List<T> list, ValueSerializer<T> serializer) throws IOException {
+        writeAll(list, serializer);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <K, V> void writeMap(Map<K, V> map, ValueSerializer<K> keySerializer, ValueSerializer<V> valueSerializer)
+            throws IOException {
+        for (Map.Entry<K, V> entry : map.entrySet()) {
+            K key = entry.getKey();
+            V value = entry.getValue();
+            if (key != null && value != null) {
+                keySerializer.write(key, this);
+                valueSerializer.write(value, this);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T extends Message> void writeMessage(T message, MessageSerializer<T> serializer) throws IOException {
+        ProtobufSizes sizes = messageWriter.sizes;
+        int index = sizes.reserve();
+        int start = messageWriter.size;
+        serializer.write(message, messageWriter);
+        int length = messageWriter.size - start;
+        sizes.set(index, length);
+        messageWriter.size += computeRawVarint32Size(length);
+    }
+}
@@ -0,0 +1,88 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.message.binary.protobuf;
+
+import java.util.Arrays;
+
+/**
+ * The lengths of the length-delimited values (nested messages, lists, maps and decimals) of a message, recorded in
+ * the order they are visited by a {@link ProtobufSizeMessageWriter}. A {@link ProtobufMessageWriter} consumes the
+ * lengths in the same order when writing the length prefixes, so nested values can be written directly to the output
+ * instead of being buffered in temporary byte arrays first.
+ *
+ * @author Kasper Nielsen
+ */
+final class ProtobufSizes {
+
+    /** The recorded lengths. */
+    private int[] sizes = new int[16];
+
+    /** The number of recorded lengths. */
+    private int count;
+
+    /** The index of the next length to consume. */
+    private int next;
+
+    /** Removes all recorded lengths. */
+    void clear() {
+        count = 0;
+        next = 0;
+    }
+
+    /**
+     * Returns whether or not there are recorded lengths that have not yet been consumed.
+     *
+     * @return whether or not there are recorded lengths that have not yet been consumed
+     */
+    boolean hasNext() {
+        return next < count;
+    }
+
+    /**
+     * Returns the next recorded length.
+     *
+     * @return the next recorded length
+     */
+    int next() {
+        if (next == count) {
+            throw new IllegalStateException("No more recorded lengths");
+        }
+        return sizes[next++];
+    }
+
+    /**
+     * Reserves a slot for a length that is not known until the value it belongs to has been visited.
+     *
+     * @return the index of the slot
+     */
+    int reserve() {
+        if (count == sizes.length) {
+            sizes = Arrays.copyOf(sizes, count * 2);
+        }
+        return count++;
+    }
+
+    /**
+     * Records the length of a previously reserved slot.
+     *
+     * @param index
+     *            the index of the slot
+     * @param size
+     *            the length
+     */
+    void set(int index, int size) {
+        sizes[index] = size;
+    }
+}
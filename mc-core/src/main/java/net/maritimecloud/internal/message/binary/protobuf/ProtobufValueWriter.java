@@ -21,7 +21,6 @@ import net.maritimecloud.message.MessageSerializer;
 import net.maritimecloud.message.ValueSerializer;
 import net.maritimecloud.util.Binary;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.math.BigDecimal;
@@ -40,6 +39,12 @@ public class ProtobufValueWriter extends AbstractBinaryValueWriter {
     /** The output stream to write to. */
     final CodedOutputStream cos;
 
+    /** The message writer used for nested messages, lazily created if not specified. */
+    private ProtobufMessageWriter messageWriter;
+
+    /** Writes raw bytes to {@link #cos}, lazily created. */
+    private OutputStream rawOutput;
+
     /**
      * Constructor
      * @param cos the coded output stream
@@ -48,6 +53,15 @@ public class ProtobufValueWriter extends AbstractBinaryValueWriter {
         this.cos = requireNonNull(cos);
     }
 
+    /**
+     * Constructor
+     * @param messageWriter the message writer whose output stream and lengths of nested values are shared
+     */
+    ProtobufValueWriter(ProtobufMessageWriter messageWriter) {
+        this.cos = messageWriter.cos;
+        this.messageWriter = messageWriter;
+    }
+
     /**
      * Constructor
      * @param os the output stream
@@ -65,8 +79,21 @@ public class ProtobufValueWriter extends AbstractBinaryValueWriter {
     /** {@inheritDoc} */
     @Override
     public void writeBinary(Binary binary) throws IOException {
-        byte[] b = binary.toByteArray();
-        cos.writeByteArrayNoTag(b);
+        // The bytes are written directly from the binary, instead of from a copy
+        cos.writeRawVarint32(binary.size());
+        OutputStream os = rawOutput;
+        if (os == null) {
+            os = rawOutput = new OutputStream() {
+                public void write(int b) throws IOException {
+                    cos.writeRawByte(b);
+                }
+
+                public void write(byte[] b, int off, int len) throws IOException {
+                    cos.writeRawBytes(b, off, len);
+                }
+            };
+        }
+        binary.writeTo(os);
     }
 
     /** {@inheritDoc} */
@@ -91,7 +118,16 @@ public class ProtobufValueWriter extends AbstractBinaryValueWriter {
     /** {@inheritDoc} */
     @Override
     public <T> void writeList(List<T> list, ValueSerializer<T> serializer) throws IOException {
-        for (T t : list) {
+        writeAll(list, serializer);
+    }
+
+    /**
+     * Writes the non-null elements of the specified values.
+     * @param values the values to write
+     * @param serializer the serializer of the values
+     */
+    <T> void writeAll(Iterable<T> values, ValueSerializer<T> serializer) throws IOException {
+        for (T t : values) {
             if (t != null) {
                 serializer.write(t, this);
             }
@@ -115,38 +151,14 @@ public class ProtobufValueWriter extends AbstractBinaryValueWriter {
     /** {@inheritDoc} */
     @Override
     public <T extends Message> void writeMessage(T message, MessageSerializer<T> serializer) throws IOException {
-        byte[] b = writeWithMessageWriter(e -> serializer.write(message, e));
-        writeBinary(Binary.copyFrom(b));
-    }
-
-    /**
-     * Helper function. Generate the Protobuf byte array for the value writer consumer
-     * @param w the value writer consumer
-     * @return the Protobuf bytes
-     */
-    static byte[] writeWithValueWriter(IOEConsumer<ProtobufValueWriter> w) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        CodedOutputStream bos = CodedOutputStream.newInstance(baos);
-        ProtobufValueWriter bvw = new ProtobufValueWriter(bos);
-        w.consume(bvw);
-        bvw.flush();
-        return baos.toByteArray();
-    }
-
-    /**
-     * Helper function. Generate the Protobuf byte array for the message writer consumer
-     * @param w the message writer consumer
-     * @return the Protobuf bytes
-     */
-    static byte[] writeWithMessageWriter(IOEConsumer<ProtobufMessageWriter> w) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ProtobufMessageWriter bmw = new ProtobufMessageWriter(baos);
-        w.consume(bmw);
-        bmw.flush();
-        return baos.toByteArray();
-    }
-
-    interface IOEConsumer<T> {
-        void consume(T t) throws IOException;
+        ProtobufMessageWriter w = messageWriter;
+        if (w == null) {
+            w = messageWriter = new ProtobufMessageWriter(cos, new ProtobufSizes());
+        }
+        if (!w.sizes.hasNext()) {
+            w.sizeWriter().values().writeMessage(message, serializer);
+        }
+        cos.writeRawVarint32(w.sizes.next());
+        serializer.write(message, w);
     }
 }
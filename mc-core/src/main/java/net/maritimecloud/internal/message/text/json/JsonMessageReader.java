@@ -19,15 +19,15 @@ import static java.util.Objects.requireNonNull;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 
+import net.maritimecloud.internal.core.javax.json.JsonException;
 import net.maritimecloud.internal.core.javax.json.JsonObject;
 import net.maritimecloud.internal.core.javax.json.JsonReader;
-import net.maritimecloud.internal.core.javax.json.JsonString;
-import net.maritimecloud.internal.core.javax.json.JsonValue;
 import net.maritimecloud.internal.core.javax.json.spi.JsonProvider;
+import net.maritimecloud.internal.core.javax.json.stream.JsonParser;
+import net.maritimecloud.internal.core.javax.json.stream.JsonParser.Event;
 import net.maritimecloud.internal.message.AbstractMessageReader;
 import net.maritimecloud.message.Message;
 import net.maritimecloud.message.MessageEnum;
@@ -39,61 +39,129 @@ import net.maritimecloud.message.ValueReader;
 import net.maritimecloud.message.ValueSerializer;
 
 /**
+ * A message reader that reads JSON using a pull parser. Fields are read in the order they appear in the document,
+ * straight from the character stream, without building an intermediate object tree.
  *
  * @author Kasper Nielsen
  */
 public class JsonMessageReader extends AbstractMessageReader {
 
-    final JsonIterator iter;
+    /** The parser to read from. */
+    final JsonParser parser;
 
-    final JsonReader r;
+    /** The name of the next field, or null if it has not been read from the parser yet. */
+    private String nextName;
 
-    public JsonMessageReader(CharSequence s) {
-        this(JsonProvider.provider().createReader(new StringReader(s.toString())));
-    }
+    /** Whether or not the end of the object has been reached. */
+    private boolean end;
 
-    /** {@inheritDoc} */
-    @Override
-    public final MessageFormatType getFormatType() {
-        return MessageFormatType.HUMAN_READABLE;
+    /** The reader of the latest value found, it is skipped if it has not been read before the next field is read. */
+    private JsonValueReader current;
+
+    public JsonMessageReader(CharSequence s) {
+        this(start(JsonProvider.provider().createParser(new StringReader(s.toString()))));
     }
 
+    /**
+     * Creates a reader of the specified object. The object is serialized and read again, so this constructor should
+     * only be used if the object is already available.
+     *
+     * @param o
+     *            the object to read
+     */
     public JsonMessageReader(JsonObject o) {
-        this.r = null;
-        this.iter = new JsonIterator(o);
+        this(o.toString());
     }
 
     public JsonMessageReader(JsonReader r) {
-        this.r = requireNonNull(r);
-        iter = new JsonIterator(r.readObject());
+        this(r.readObject());
+    }
+
+    /**
+     * Creates a reader of an object whose start has already been read from the parser.
+     *
+     * @param parser
+     *            the parser
+     */
+    JsonMessageReader(JsonParser parser) {
+        this.parser = requireNonNull(parser);
+    }
+
+    /** Reads the start of the top level object from the parser. */
+    private static JsonParser start(JsonParser parser) {
+        Event e = parser.next();
+        if (e != Event.START_OBJECT) {
+            throw new IllegalArgumentException("Expected a JSON object, but was " + e);
+        }
+        return parser;
     }
 
     /** {@inheritDoc} */
     @Override
-    public void close() throws IOException {}
+    public final MessageFormatType getFormatType() {
+        return MessageFormatType.HUMAN_READABLE;
+    }
 
-    protected ValueReader find(int tag, String name) throws SerializationException {
-        if (isNext(-1, name)) {
-            return new JsonValueReader(iter.next().getValue());
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    protected ValueReader find(int tag, String name) throws IOException {
+        ValueReader r = findOptional(tag, name);
+        if (r == null) {
+            throw new SerializationException("Could not find tag '" + name + "'");
         }
-        throw new SerializationException("Could not find tag '" + name + "'");
+        return r;
     }
 
-    protected ValueReader findOptional(int tag, String name) {
+    protected ValueReader findOptional(int tag, String name) throws IOException {
         if (isNext(-1, name)) {
-            return new JsonValueReader(iter.next().getValue());
+            nextName = null;
+            return current = new JsonValueReader(parser, next(parser));
         }
         return null;
     }
 
+    /**
+     * Skips the remaining fields of the object, including the end of the object.
+     *
+     * @throws IOException
+     *             if the remaining fields could not be read
+     */
+    void finish() throws IOException {
+        while (nextName() != null) {
+            nextName = null;
+            new JsonValueReader(parser, next(parser)).finish();
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
-    public boolean isNext(int tag, String name) {
+    public boolean isNext(int tag, String name) throws IOException {
         requireNonNull(name, "name is null");
-        if (iter.hasNext()) {
-            return name.equals(iter.peek().getKey());
+        return name.equals(nextName());
+    }
+
+    /** Returns the name of the next field, or null if there are no more fields. */
+    private String nextName() throws IOException {
+        JsonValueReader current = this.current;
+        if (current != null) {
+            this.current = null;
+            current.finish();
+        }
+        if (nextName == null && !end) {
+            Event e = next(parser);
+            if (e == Event.KEY_NAME) {
+                nextName = parser.getString();
+            } else if (e == Event.END_OBJECT) {
+                end = true;
+            } else {
+                throw new SerializationException("Expected a field name, but was " + e);
+            }
         }
-        return false;
+        return nextName;
     }
 
     /** {@inheritDoc} */
@@ -109,165 +177,38 @@ public class JsonMessageReader extends AbstractMessageReader {
     @Override
     public <K, V> Map<K, V> readMap(int tag, String name, ValueSerializer<K> keyParser, ValueSerializer<V> valueParser)
             throws IOException {
-        if (isNext(-1, name)) {
-            Entry<String, JsonValue> next = iter.next();
-            return new JsonValueReader(next.getValue()).readMap(keyParser, valueParser);
-        }
-        return Collections.emptyMap();
+        ValueReader r = findOptional(tag, name);
+        return r == null ? Collections.emptyMap() : r.readMap(keyParser, valueParser);
     }
 
     /** {@inheritDoc} */
     @Override
     public <T extends Message> T readMessage(int tag, String name, MessageSerializer<T> parser) throws IOException {
-        if (isNext(-1, name)) {
-            Entry<String, JsonValue> next = iter.next();
-            return new JsonValueReader(next.getValue()).readMessage(parser);
-            //
-            // JsonIterator existing = iter;
-            // Entry<String, JsonValue> next = iter.next();
-            // JsonObject a = (JsonObject) next.getValue();
-            // iter = new JsonIterator(a);
-            // T result = parser.parse(this);
-            // iter = existing;
-            // return result;
+        ValueReader r = findOptional(tag, name);
+        return r == null ? null : r.readMessage(parser);
+    }
+
+    /**
+     * Returns the next event of the parser.
+     *
+     * @param parser
+     *            the parser
+     * @return the next event
+     * @throws SerializationException
+     *             if the document is not valid JSON, or has ended
+     */
+    static Event next(JsonParser parser) throws SerializationException {
+        try {
+            return parser.next();
+        } catch (JsonException | NoSuchElementException e) {
+            throw new SerializationException("Invalid JSON document", e);
         }
-        return null;
-
-        // parser.parse(null)
-        // stack.push(o);
-        // o = (JSONObject) o.get(name);
-        // T result = parser.parse(this);
-        // o = stack.pop();
-        // return result;
     }
 
-    // A Quick hack
     public static <T> T readFromString(String value, ValueSerializer<T> parser) throws IOException {
-        String ss = " { \"x\": " + value + "}";
-        JsonReader reader = JsonProvider.provider().createReader(new StringReader(ss));
-        JsonObject o = reader.readObject();
-        JsonValue val = o.get("x");
-        ValueReader r = new JsonValueReader(val);
-        return parser.read(r);
-    }
-
-    static class JsonIterator {
-        Iterator<Entry<String, net.maritimecloud.internal.core.javax.json.JsonValue>> iter;
-
-        private Entry<String, net.maritimecloud.internal.core.javax.json.JsonValue> next;
-
-        final JsonObject o;
-
-        JsonIterator(JsonObject o) {
-            this.o = o;
-            iter = o.entrySet().iterator();
-            if (iter.hasNext()) {
-                next = iter.next();
-            }
-        }
-
-        boolean hasNext() {
-            return next != null;
-        }
-
-        Entry<String, net.maritimecloud.internal.core.javax.json.JsonValue> next() {
-            Entry<String, net.maritimecloud.internal.core.javax.json.JsonValue> n = next;
-            if (iter.hasNext()) {
-                next = iter.next();
-            } else {
-                next = null;
-            }
-            return n;
-        }
-
-        Entry<String, net.maritimecloud.internal.core.javax.json.JsonValue> peek() {
-            return next;
+        // The parser only accepts objects and arrays, so we wrap the value in an object
+        try (JsonMessageReader r = new JsonMessageReader(" { \"x\": " + value + "}")) {
+            return parser.read(r.find(-1, "x"));
         }
     }
 }
-
-final class JsonStringImpl implements JsonString {
-    private final String value;
-
-    JsonStringImpl(String value) {
-        this.value = value;
-    }
-
-    public boolean equals(Object obj) {
-        if (!(obj instanceof JsonString)) {
-            return false;
-        }
-        JsonString other = (JsonString) obj;
-        return getString().equals(other.getString());
-    }
-
-    public CharSequence getChars() {
-        return this.value;
-    }
-
-    public String getString() {
-        return this.value;
-    }
-
-    public JsonValue.ValueType getValueType() {
-        return JsonValue.ValueType.STRING;
-    }
-
-    public int hashCode() {
-        return getString().hashCode();
-    }
-
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append('"');
-
-        for (int i = 0; i < this.value.length(); ++i) {
-            char c = this.value.charAt(i);
-
-            if (c >= ' ' && c <= 1114111 && c != '"' && c != '\\') {
-                sb.append(c);
-            } else {
-                switch (c) {
-                case '"':
-                case '\\':
-                    sb.append('\\');
-                    sb.append(c);
-                    break;
-                case '\b':
-                    sb.append('\\');
-                    sb.append('b');
-                    break;
-                case '\f':
-                    sb.append('\\');
-                    sb.append('f');
-                    break;
-                case '\n':
-                    sb.append('\\');
-                    sb.append('n');
-                    break;
-                case '\r':
-                    sb.append('\\');
-                    sb.append('r');
-                    break;
-                case '\t':
-                    sb.append('\\');
-                    sb.append('t');
-                    break;
-                default:
-                    String hex = new StringBuilder().append("000").append(Integer.toHexString(c)).toString();
-                    sb.append("\\u").append(hex.substring(hex.length() - 4));
-                }
-            }
-        }
-
-        sb.append('"');
-        return sb.toString();
-    }
-}
-// public static ValueReader readFromString(String value) {
-// String ss = " { \"x\": " + value + "}";
-// JsonReader reader = JsonProvider.provider().createReader(new StringReader(ss));
-// JsonObject o = reader.readObject();
-// JsonValue val = o.get("x");
-// return new JsonValueReader(val);
-// }
@@ -15,6 +15,7 @@
 package net.maritimecloud.internal.message.text.json;
 
 import static java.util.Objects.requireNonNull;
+import static net.maritimecloud.internal.message.text.json.JsonMessageReader.next;
 
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -24,11 +25,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import net.maritimecloud.internal.core.javax.json.JsonArray;
-import net.maritimecloud.internal.core.javax.json.JsonNumber;
-import net.maritimecloud.internal.core.javax.json.JsonObject;
-import net.maritimecloud.internal.core.javax.json.JsonString;
-import net.maritimecloud.internal.core.javax.json.JsonValue;
+import net.maritimecloud.internal.core.javax.json.stream.JsonParser;
+import net.maritimecloud.internal.core.javax.json.stream.JsonParser.Event;
 import net.maritimecloud.internal.message.text.AbstractTextValueReader;
 import net.maritimecloud.message.Message;
 import net.maritimecloud.message.MessageSerializer;
@@ -36,86 +34,113 @@ import net.maritimecloud.message.SerializationException;
 import net.maritimecloud.message.ValueSerializer;
 
 /**
+ * A value reader that reads a single JSON value from a pull parser. The first event of the value has already been read
+ * from the parser when the reader is created. Arrays and objects are read from the parser as they are consumed.
  *
  * @author Kasper Nielsen
  */
 public class JsonValueReader extends AbstractTextValueReader {
 
-    final JsonValue value;
+    /** The parser to read from. */
+    final JsonParser parser;
 
-    JsonValueReader(JsonValue value) {
-        this.value = requireNonNull(value);
+    /** The first event of the value. */
+    final Event event;
+
+    /** Whether or not the value has been read from the parser. */
+    private boolean consumed;
+
+    JsonValueReader(JsonParser parser, Event event) {
+        this.parser = requireNonNull(parser);
+        this.event = requireNonNull(event);
+    }
+
+    /** Marks the value as read, and fails if the value is not of the specified type. */
+    private void consume(Event expected, String type) throws SerializationException {
+        consumed = true;
+        if (event != expected) {
+            throw new SerializationException("Was not a " + type + ", was " + event);
+        }
+    }
+
+    /**
+     * Skips the value if it has not been read.
+     *
+     * @throws IOException
+     *             if the value could not be skipped
+     */
+    void finish() throws IOException {
+        if (!consumed) {
+            consumed = true;
+            if (event == Event.START_OBJECT || event == Event.START_ARRAY) {
+                for (int depth = 1; depth > 0;) {
+                    Event e = next(parser);
+                    if (e == Event.START_OBJECT || e == Event.START_ARRAY) {
+                        depth++;
+                    } else if (e == Event.END_OBJECT || e == Event.END_ARRAY) {
+                        depth--;
+                    }
+                }
+            }
+        }
     }
 
     /** {@inheritDoc} */
     @Override
     public Boolean readBoolean() throws IOException {
-        if (value == JsonValue.TRUE) {
+        consumed = true;
+        if (event == Event.VALUE_TRUE) {
             return Boolean.TRUE;
-        } else if (value == JsonValue.FALSE) {
+        } else if (event == Event.VALUE_FALSE) {
             return Boolean.FALSE;
         }
-        throw new SerializationException("Was not a boolean " + value.getClass());
+        throw new SerializationException("Was not a boolean " + event);
     }
 
     /** {@inheritDoc} */
     @Override
     public BigDecimal readDecimal() throws IOException {
-        if (value instanceof JsonNumber) {
-            JsonNumber v = (JsonNumber) value;
-            return v.bigDecimalValue();
-        }
-        throw new SerializationException("Was not a number");
+        consume(Event.VALUE_NUMBER, "number");
+        return parser.getBigDecimal();
     }
 
     /** {@inheritDoc} */
     @Override
     public Double readDouble() throws IOException {
-        if (value instanceof JsonNumber) {
-            JsonNumber v = (JsonNumber) value;
-            return v.doubleValue();
-        }
-        throw new SerializationException("Was not a number");
+        consume(Event.VALUE_NUMBER, "number");
+        return parser.getBigDecimal().doubleValue();
     }
 
     /** {@inheritDoc} */
     @Override
     public Float readFloat() throws IOException {
-        if (value instanceof JsonNumber) {
-            JsonNumber v = (JsonNumber) value;
-            return (float) v.doubleValue();
-        }
-        throw new SerializationException("Was not a number");
+        consume(Event.VALUE_NUMBER, "number");
+        return (float) parser.getBigDecimal().doubleValue();
     }
 
     /** {@inheritDoc} */
     @Override
     public Integer readInt() throws IOException {
-        if (value instanceof JsonNumber) {
-            JsonNumber v = (JsonNumber) value;
-            return v.intValue();
-        }
-        throw new SerializationException("Was not a number");
+        consume(Event.VALUE_NUMBER, "number");
+        return parser.getInt();
     }
 
     /** {@inheritDoc} */
     @Override
     public Long readInt64() throws IOException {
-        if (value instanceof JsonNumber) {
-            JsonNumber v = (JsonNumber) value;
-            return v.longValue();
-        }
-        throw new SerializationException("Was not a number");
+        consume(Event.VALUE_NUMBER, "number");
+        return parser.getLong();
     }
 
     /** {@inheritDoc} */
     @Override
     public <T> List<T> readList(ValueSerializer<T> parser) throws IOException {
+        consume(Event.START_ARRAY, "list");
         ArrayList<T> result = new ArrayList<>();
-        JsonArray a = (JsonArray) value;
-        for (int i = 0; i < a.size(); i++) {
-            T t = parser.read(new JsonValueReader(a.get(i)));
-            result.add(t);
+        for (Event e = next(this.parser); e != Event.END_ARRAY; e = next(this.parser)) {
+            JsonValueReader r = new JsonValueReader(this.parser, e);
+            result.add(parser.read(r));
+            r.finish();
         }
         return result;
     }
@@ -123,12 +148,14 @@ public class JsonValueReader extends AbstractTextValueReader {
     /** {@inheritDoc} */
     @Override
     public <K, V> Map<K, V> readMap(ValueSerializer<K> keyParser, ValueSerializer<V> valueParser) throws IOException {
+        consume(Event.START_OBJECT, "map");
         Map<K, V> result = new HashMap<>();
-        JsonObject a = (JsonObject) value;
-        for (Map.Entry<String, JsonValue> e : a.entrySet()) {
-            JsonStringImpl kImpl = new JsonStringImpl(e.getKey());
-            K key = keyParser.read(new JsonValueReader(kImpl));
-            V value = valueParser.read(new JsonValueReader(e.getValue()));
+        for (Event e = next(parser); e != Event.END_OBJECT; e = next(parser)) {
+            // The key is read from the KEY_NAME event, which holds the name just like a string value
+            K key = keyParser.read(new JsonValueReader(parser, e));
+            JsonValueReader r = new JsonValueReader(parser, next(parser));
+            V value = valueParser.read(r);
+            r.finish();
             result.put(key, value);
         }
         return result;
@@ -137,17 +164,19 @@ public class JsonValueReader extends AbstractTextValueReader {
     /** {@inheritDoc} */
     @Override
     public <T extends Message> T readMessage(MessageSerializer<T> parser) throws IOException {
-        JsonObject o = (JsonObject) value;
-        JsonMessageReader r = new JsonMessageReader(o);
-        return parser.read(r);
+        consume(Event.START_OBJECT, "message");
+        JsonMessageReader r = new JsonMessageReader(this.parser);
+        T result = parser.read(r);
+        r.finish();
+        return result;
     }
 
     /** {@inheritDoc} */
     @Override
     protected String readString() throws IOException {
-        if (value instanceof JsonString) {
-            JsonString v = (JsonString) value;
-            return v.getString();
+        consumed = true;
+        if (event == Event.VALUE_STRING || event == Event.KEY_NAME) {
+            return parser.getString();
         }
         throw new SerializationException("Was not a string");
     }
@@ -155,10 +184,7 @@ public class JsonValueReader extends AbstractTextValueReader {
     /** {@inheritDoc} */
     @Override
     public BigInteger readVarInt() throws IOException {
-        if (value instanceof JsonNumber) {
-            JsonNumber v = (JsonNumber) value;
-            return v.bigIntegerValue();
-        }
-        throw new SerializationException("Was not a number");
+        consume(Event.VALUE_NUMBER, "number");
+        return parser.getBigDecimal().toBigInteger();
     }
 }
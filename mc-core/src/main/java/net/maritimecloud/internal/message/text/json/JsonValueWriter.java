@@ -18,7 +18,6 @@ import static java.util.Objects.requireNonNull;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.util.List;
 import java.util.Map;
@@ -63,10 +62,44 @@ public class JsonValueWriter extends AbstractTextValueWriter implements Taggable
         pw.close();
     }
 
+    /** Returns whether or not the specified character must be escaped. */
+    private static boolean mustEscape(char ch) {
+        return ch == '"' || ch == '\\' || ch == '/' || ch <= '\u001F' || ch >= '\u007F' && ch <= '\u009F'
+                || ch >= '\u2000' && ch <= '\u20FF';
+    }
+
     protected String escape(String string) {
-        StringBuilder sb = new StringBuilder();
         int len = string.length();
-        for (int i = 0; i < len; i++) {
+        int first = 0;
+        while (first < len && !mustEscape(string.charAt(first))) {
+            first++;
+        }
+        if (first == len) {
+            return string; // Nothing to escape, which is the common case
+        }
+        StringBuilder sb = new StringBuilder(len + 16);
+        sb.append(string, 0, first);
+        appendEscaped(string, first, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the specified string to the specified builder, escaped so it can be used as the contents of a JSON
+     * string. Used for writing strings without creating an escaped copy first.
+     *
+     * @param string
+     *            the string to escape
+     * @param sb
+     *            the builder to append to
+     */
+    public static void appendEscaped(String string, StringBuilder sb) {
+        appendEscaped(string, 0, sb);
+    }
+
+    /** Appends the characters of the string, starting at the specified index, escaping them as needed. */
+    private static void appendEscaped(String string, int first, StringBuilder sb) {
+        int len = string.length();
+        for (int i = first; i < len; i++) {
             char ch = string.charAt(i);
             switch (ch) {
             case '"':
@@ -107,7 +140,6 @@ public class JsonValueWriter extends AbstractTextValueWriter implements Taggable
                 }
             }
         }
-        return sb.toString();
     }
 
     /**
@@ -129,7 +161,9 @@ public class JsonValueWriter extends AbstractTextValueWriter implements Taggable
 
     @Override
     protected void writeEscapedString(String value) throws IOException {
-        pw.append("\"").append(value).append("\"");
+        pw.write('"');
+        pw.write(value);
+        pw.write('"');
     }
 
     public <T> void writeList(List<T> list, ValueSerializer<T> serializer) throws IOException {
@@ -182,30 +216,64 @@ public class JsonValueWriter extends AbstractTextValueWriter implements Taggable
     }
 
     public JsonValueWriter writeTag(int tag, String name) throws IOException {
+        startField();
+        pw.write('"');
+        pw.write(name);
+        pw.write("\": ");
+        return this;
+    }
+
+    /**
+     * Writes the name of a field that has been created using {@link #fieldName(String)}.
+     *
+     * @param fieldName
+     *            the prepared field name
+     * @return this writer
+     * @throws IOException
+     *             if the name could not be written
+     */
+    public JsonValueWriter writeTag(char[] fieldName) throws IOException {
+        startField();
+        pw.write(fieldName);
+        return this;
+    }
+
+    /** Writes the separator and indentation that precedes a field. */
+    private void startField() throws IOException {
         if (!isFirst) {
             pw.write(",");
         }
         isFirst = false;
         pw.write(LS);
         indent();
-        pw.write("\"" + name + "\": ");
-        return this;
+    }
+
+    /**
+     * Prepares the name of a field so it can be written with a single call to {@link #writeTag(char[])}. Used by
+     * generated serializers that keep the prepared names in constants.
+     *
+     * @param name
+     *            the name of the field
+     * @return the prepared field name
+     */
+    public static char[] fieldName(String name) {
+        return ('"' + name + "\": ").toCharArray();
     }
 
     public static <T extends Message> String writeMessageTo(int indent, T message, MessageSerializer<T> serializer)
             throws IOException {
-        StringWriter sw = new StringWriter();
+        PooledStringWriter sw = PooledStringWriter.acquire();
         try (JsonValueWriter jvv = new JsonValueWriter(sw, indent)) {
             jvv.writeMessage(message, serializer);
         }
-        return sw.toString();
+        return sw.release();
     }
 
     public static <T> String writeValueTo(int indent, T message, ValueSerializer<T> serializer) throws IOException {
-        StringWriter sw = new StringWriter();
+        PooledStringWriter sw = PooledStringWriter.acquire();
         try (JsonValueWriter jvv = new JsonValueWriter(sw, indent)) {
             serializer.write(message, jvv);
         }
-        return sw.toString();
+        return sw.release();
     }
 }
@@ -0,0 +1,140 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.message.text.json;
+
+import java.io.Writer;
+
+/**
+ * An unsynchronized writer that writes to a string builder, which is reused by the thread that created it. Used
+ * instead of a {@link java.io.StringWriter} when writing JSON, to avoid growing a new buffer for every message.
+ * <p>
+ * A writer is obtained with {@link #acquire()}, and the written text is returned by {@link #release()}, after which
+ * the writer must no longer be used. If a writer is acquired while the thread is already using its writer, for example
+ * when a message writes the JSON of another message, a new writer is created.
+ *
+ * @author Kasper Nielsen
+ */
+public final class PooledStringWriter extends Writer {
+
+    /** Writers with a larger buffer than this (in characters) are not reused, to avoid retaining large buffers. */
+    static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    /** The writer of each thread, or null if the writer of the thread is currently in use. */
+    private static final ThreadLocal<PooledStringWriter> WRITERS = ThreadLocal.withInitial(PooledStringWriter::new);
+
+    /** The buffer that is written to. */
+    private final StringBuilder sb = new StringBuilder(1024);
+
+    private PooledStringWriter() {}
+
+    /** {@inheritDoc} */
+    @Override
+    public PooledStringWriter append(char c) {
+        sb.append(c);
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public PooledStringWriter append(CharSequence csq) {
+        sb.append(csq);
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public PooledStringWriter append(CharSequence csq, int start, int end) {
+        sb.append(csq, start, end);
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() {}
+
+    /** {@inheritDoc} */
+    @Override
+    public void flush() {}
+
+    /**
+     * Returns the buffer holding the text that has been written. The buffer must not be used after the writer has been
+     * released.
+     *
+     * @return the buffer holding the text that has been written
+     */
+    public StringBuilder getBuffer() {
+        return sb;
+    }
+
+    /**
+     * Discards the text that has been written, and makes the writer available for reuse by the current thread. Used
+     * instead of {@link #release()} when the text is read directly from {@link #getBuffer()}.
+     */
+    public void recycle() {
+        if (sb.capacity() <= MAX_RETAINED_CAPACITY) {
+            sb.setLength(0);
+            WRITERS.set(this);
+        }
+    }
+
+    /**
+     * Returns the text that has been written, and makes the writer available for reuse by the current thread.
+     *
+     * @return the text that has been written
+     */
+    public String release() {
+        String result = sb.toString();
+        recycle();
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        sb.append(cbuf, off, len);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(int c) {
+        sb.append((char) c);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(String str) {
+        sb.append(str);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(String str, int off, int len) {
+        sb.append(str, off, off + len);
+    }
+
+    /**
+     * Returns an empty writer, reusing the writer of the current thread if it is not already in use.
+     *
+     * @return an empty writer
+     */
+    public static PooledStringWriter acquire() {
+        PooledStringWriter w = WRITERS.get();
+        if (w == null) {
+            return new PooledStringWriter();
+        }
+        WRITERS.set(null);
+        return w;
+    }
+}
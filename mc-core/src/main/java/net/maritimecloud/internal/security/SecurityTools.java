@@ -29,23 +29,51 @@ public class SecurityTools {
 
     public static final String DEFAULT_SIGNATURE_ALGORITHM = "SHA512withECDSA";
 
-    public static Signature newSignatureForSigning(PrivateKey key) {
-        Signature dsa = SecurityTools.newSignature();
+    /**
+     * Initializes an existing signature for signing, discarding any data it has been updated with.
+     *
+     * @param dsa
+     *            the signature to initialize
+     * @param key
+     *            the key to sign with
+     * @throws IllegalArgumentException
+     *             if the key is invalid
+     */
+    public static void initSign(Signature dsa, PrivateKey key) {
         try {
             dsa.initSign(key);
         } catch (InvalidKeyException e) {
             throw new IllegalArgumentException("The specified private key is invalid", e);
         }
-        return dsa;
     }
 
-    public static Signature newSignatureForVerify(PublicKey key) {
-        Signature dsa = SecurityTools.newSignature();
+    /**
+     * Initializes an existing signature for verification, discarding any data it has been updated with.
+     *
+     * @param dsa
+     *            the signature to initialize
+     * @param key
+     *            the key to verify with
+     * @throws IllegalArgumentException
+     *             if the key is invalid
+     */
+    public static void initVerify(Signature dsa, PublicKey key) {
         try {
             dsa.initVerify(key);
         } catch (InvalidKeyException e) {
             throw new IllegalArgumentException("The specified public key is invalid", e);
         }
+    }
+
+    public static Signature newSignatureForSigning(PrivateKey key) {
+        Signature dsa = SecurityTools.newSignature();
+        initSign(dsa, key);
+        return dsa;
+    }
+
+    public static Signature newSignatureForVerify(PublicKey key) {
+        Signature dsa = SecurityTools.newSignature();
+        initVerify(dsa, key);
         return dsa;
     }
 
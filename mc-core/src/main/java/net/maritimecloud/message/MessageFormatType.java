@@ -25,5 +25,12 @@ public enum MessageFormatType {
     HUMAN_READABLE,
 
     /** The serialization protocol write messages in a compact, no-human readable format. */
-    MACHINE_READABLE;
+    MACHINE_READABLE,
+
+    /**
+     * The serialization protocol write messages in the compact binary format, which uses fewer bytes than
+     * {@link #MACHINE_READABLE} for typical messages. Used for selecting the format of a connection, readers and
+     * writers of the format report {@link #MACHINE_READABLE} as they are machine readable as well.
+     */
+    MACHINE_READABLE_COMPACT;
 }
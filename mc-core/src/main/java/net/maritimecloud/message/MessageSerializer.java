@@ -17,11 +17,11 @@ package net.maritimecloud.message;
 import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
 
 import net.maritimecloud.internal.message.text.json.JsonMessageReader;
 import net.maritimecloud.internal.message.text.json.JsonValueWriter;
+import net.maritimecloud.internal.message.text.json.PooledStringWriter;
 
 /**
  * A message serializer takes care of persisting and retrieving {@link Message messages}.
@@ -68,13 +68,13 @@ public abstract class MessageSerializer<T extends Message> extends ValueSerializ
     }
 
     public static <T extends Message> String writeToJSON(T message, MessageSerializer<T> serializer) {
-        StringWriter sw = new StringWriter();
+        PooledStringWriter sw = PooledStringWriter.acquire();
         try {
             writeToJSON(message, serializer, sw);
         } catch (IOException e) {
             throw new RuntimeException("Failed to write message as JSON", e);
         }
-        return sw.toString();
+        return sw.release();
     }
 
     /** {@inheritDoc} */
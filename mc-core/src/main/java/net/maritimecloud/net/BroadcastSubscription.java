@@ -14,6 +14,8 @@
  */
 package net.maritimecloud.net;
 
+import java.util.concurrent.TimeUnit;
+
 import net.maritimecloud.util.Binary;
 
 /**
@@ -54,6 +56,37 @@ public interface BroadcastSubscription {
      * @return the number of messages received
      */
     long getNumberOfReceivedMessages();
+
+    /**
+     * Returns the number of messages that were dropped, without being delivered, because the consumer could not keep
+     * up.
+     *
+     * @return the number of messages dropped
+     */
+    default long getNumberOfDroppedMessages() {
+        return 0;
+    }
+
+    /**
+     * Returns the number of messages that have been received but not yet delivered to the consumer.
+     *
+     * @return the number of messages waiting to be delivered
+     */
+    default int getNumberOfPendingMessages() {
+        return 0;
+    }
+
+    /**
+     * Returns how long the message currently being delivered, or the next message to be delivered, has been waiting
+     * since it was received. Or 0 if there are no messages waiting.
+     *
+     * @param unit
+     *            the time unit of the result
+     * @return how far the consumer lags behind
+     */
+    default long getLag(TimeUnit unit) {
+        return 0;
+    }
 }
 
 // I have dropped this so far. Problem is in the future we might have a default area registered for a client at the
@@ -45,6 +45,8 @@
 
 package net.maritimecloud.util;
 
+import static java.util.Objects.requireNonNull;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -53,6 +55,7 @@ import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
@@ -60,6 +63,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 import javax.xml.bind.DatatypeConverter;
 
@@ -413,6 +417,31 @@ public abstract class Binary implements Iterable<Byte>, Comparable<Binary> {
         return new LiteralBinary(digest);
     }
 
+    /**
+     * Releases a reference to the pooled buffer backing this binary. The buffer is recycled when the last reference has
+     * been released. Binaries that are not backed by a pooled buffer, see {@link #wrap(ByteBuffer, Consumer)}, ignore
+     * this call.
+     *
+     * @return true if the buffer was recycled by this call, otherwise false
+     * @throws IllegalStateException
+     *             if all references to the buffer have already been released
+     */
+    public boolean release() {
+        return false;
+    }
+
+    /**
+     * Acquires an additional reference to the pooled buffer backing this binary. Each call must be matched by a call
+     * to {@link #release()}. Binaries that are not backed by a pooled buffer ignore this call.
+     *
+     * @return this binary
+     * @throws IllegalStateException
+     *             if all references to the buffer have already been released
+     */
+    public Binary retain() {
+        return this;
+    }
+
     /**
      * Gets the number of bytes.
      *
@@ -560,6 +589,55 @@ public abstract class Binary implements Iterable<Byte>, Comparable<Binary> {
         return new LiteralBinary(copy);
     }
 
+    /**
+     * Returns a {@code Binary} backed by the given range of the array, without copying. The array must not be modified
+     * after it has been wrapped, and is retained for as long as the returned binary is.
+     *
+     * @param bytes
+     *            the array to wrap
+     * @param offset
+     *            offset in the array
+     * @param size
+     *            number of bytes to use
+     * @return new {@code Binary}
+     */
+    public static Binary wrap(byte[] bytes, int offset, int size) {
+        return offset == 0 && size == bytes.length ? new LiteralBinary(bytes) : new BoundedBinary(bytes, offset, size);
+    }
+
+    /**
+     * Returns a {@code Binary} backed by the remaining bytes of the given buffer, without copying. The buffer may be a
+     * heap buffer or a direct buffer. The position of the buffer is not changed. The bytes must not be modified after
+     * the buffer has been wrapped.
+     *
+     * @param bytes
+     *            the buffer to wrap
+     * @return new {@code Binary}
+     */
+    public static Binary wrap(ByteBuffer bytes) {
+        if (bytes.hasArray()) {
+            return wrap(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        }
+        return bytes.hasRemaining() ? new ByteBufferBinary(bytes.slice(), null) : EMPTY;
+    }
+
+    /**
+     * Returns a {@code Binary} backed by the remaining bytes of a pooled buffer, without copying. The returned binary
+     * holds a single reference to the buffer. When the last reference has been {@link #release() released} the buffer
+     * is handed to the specified recycler, typically to be returned to a pool. Neither the binary nor any substring of
+     * it may be used after it has been released.
+     *
+     * @param bytes
+     *            the pooled buffer to wrap
+     * @param recycler
+     *            invoked with the buffer once it is no longer referenced
+     * @return new {@code Binary}
+     */
+    public static Binary wrap(ByteBuffer bytes, Consumer<? super ByteBuffer> recycler) {
+        requireNonNull(recycler, "recycler is null");
+        return new ByteBufferBinary(bytes.slice(), new ByteBufferBinary.Frame(bytes, recycler));
+    }
+
     /**
      * Copies the remaining bytes from a {@code java.nio.ByteBuffer} into a {@code Binary}.
      *
@@ -747,10 +825,43 @@ public abstract class Binary implements Iterable<Byte>, Comparable<Binary> {
     // Methods {@link RopeBinary} needs on instances, which aren't part of the
     // public API.
 
+    /**
+     * Returns a binary with the specified number of random bytes. The bytes are generated by a fast non-cryptographic
+     * random number generator, and are suitable for identifiers such as message ids. Use {@link #secureRandom(int)} for
+     * anything that must not be guessable.
+     *
+     * @param bytes
+     *            the number of bytes
+     * @return the random binary
+     */
     public static Binary random(int bytes) {
         byte[] b = new byte[bytes];
-        ThreadLocalRandom.current().nextBytes(b);
-        return Binary.copyFrom(b);
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        int i = 0;
+        for (; i + 8 <= bytes; i += 8) {
+            long l = r.nextLong();
+            for (int j = 0; j < 8; j++) {
+                b[i + j] = (byte) (l >>> 8 * j);
+            }
+        }
+        for (long l = r.nextLong(); i < bytes; i++, l >>>= 8) {
+            b[i] = (byte) l;
+        }
+        return new LiteralBinary(b);
+    }
+
+    /**
+     * Returns a binary with the specified number of bytes generated by a cryptographically strong random number
+     * generator. Used for identifiers that must not be guessable, such as session ids.
+     *
+     * @param bytes
+     *            the number of bytes
+     * @return the random binary
+     */
+    public static Binary secureRandom(int bytes) {
+        byte[] b = new byte[bytes];
+        SecureRandomHolder.RANDOM.nextBytes(b);
+        return new LiteralBinary(b);
     }
 
     /**
@@ -1034,5 +1145,10 @@ public abstract class Binary implements Iterable<Byte>, Comparable<Binary> {
             out.write(copyArray(cachedBuffer, cachedBufferPos));
         }
     }
+
+    /** Lazily creates the secure random generator, as seeding it may block. */
+    private static final class SecureRandomHolder {
+        /** The shared generator, {@link SecureRandom} is thread safe. */
+        static final SecureRandom RANDOM = new SecureRandom();
+    }
 }
-// CHECKSTYLE:ON
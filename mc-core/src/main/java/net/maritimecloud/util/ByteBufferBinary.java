@@ -0,0 +1,408 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Binary} that is backed by a {@link ByteBuffer}, typically a direct or pooled buffer. The buffer is never
+ * copied, substrings are slices of the same buffer.
+ * <p>
+ * If the binary was created from a pooled buffer, the buffer is handed back to the pool when the last reference has
+ * been released. Substrings are views of the same frame and do not hold references of their own, so they must not be
+ * used after the frame has been released.
+ *
+ * @author Kasper Nielsen
+ */
+class ByteBufferBinary extends Binary {
+
+    /** The size of the temporary arrays used when the buffer is not backed by an accessible array. */
+    private static final int CHUNK_SIZE = 4096;
+
+    /** The bytes of this binary, position is always 0 and limit is the size. Never modified. */
+    private final ByteBuffer buffer;
+
+    /** The pooled frame this binary is a view of, or null if the buffer is not pooled. */
+    private final Frame frame;
+
+    /**
+     * Cached hash value. Intentionally accessed via a data race, which is safe because of the Java Memory Model's
+     * "no out-of-thin-air values" guarantees for ints.
+     */
+    private int hash;
+
+    /**
+     * Creates a new binary.
+     *
+     * @param buffer
+     *            the buffer to wrap, must have position 0
+     * @param frame
+     *            the pooled frame or null
+     */
+    ByteBufferBinary(ByteBuffer buffer, Frame frame) {
+        this.buffer = buffer;
+        this.frame = frame;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ByteBuffer asReadOnlyByteBuffer() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<ByteBuffer> asReadOnlyByteBufferList() {
+        List<ByteBuffer> result = new ArrayList<>(1);
+        result.add(asReadOnlyByteBuffer());
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public byte byteAt(int index) {
+        if (index < 0 || index >= buffer.limit()) {
+            throw new ArrayIndexOutOfBoundsException("Index: " + index + ", size: " + buffer.limit());
+        }
+        return buffer.get(index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void copyTo(ByteBuffer target) {
+        target.put(buffer.duplicate());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void copyToInternal(byte[] target, int sourceOffset, int targetOffset, int numberToCopy) {
+        ByteBuffer b = buffer.duplicate();
+        b.position(sourceOffset);
+        b.get(target, targetOffset, numberToCopy);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object other) {
+        if (other == this) {
+            return true;
+        } else if (!(other instanceof Binary)) {
+            return false;
+        }
+        Binary o = (Binary) other;
+        int size = buffer.limit();
+        if (size != o.size()) {
+            return false;
+        } else if (size == 0) {
+            return true;
+        } else if (other instanceof ByteBufferBinary) {
+            return buffer.equals(((ByteBufferBinary) other).buffer);
+        }
+        int h = hash;
+        if (h != 0) {
+            int cachedOtherHash = o.peekCachedHashCode();
+            if (cachedOtherHash != 0 && h != cachedOtherHash) {
+                return false;
+            }
+        }
+        // Compare against each of the pieces of the other binary, without copying any of them
+        ByteBuffer b = buffer.duplicate();
+        for (ByteBuffer piece : o.asReadOnlyByteBufferList()) {
+            b.limit(b.position() + piece.remaining());
+            if (!b.equals(piece)) {
+                return false;
+            }
+            b.position(b.limit());
+        }
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            int size = size();
+            h = partialHash(size, 0, size);
+            if (h == 0) {
+                h = 1;
+            }
+            hash = h;
+        }
+        return h;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected int peekCachedHashCode() {
+        return hash;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected int partialHash(int h, int offset, int length) {
+        ByteBuffer b = buffer;
+        for (int i = offset, limit = offset + length; i < limit; i++) {
+            h = h * 31 + b.get(i);
+        }
+        return h;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isValidUtf8() {
+        return partialIsValidUtf8(Utf8.COMPLETE, 0, size()) == Utf8.COMPLETE;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected int partialIsValidUtf8(int state, int offset, int length) {
+        if (buffer.hasArray()) {
+            int index = buffer.arrayOffset() + offset;
+            return Utf8.partialIsValidUtf8(state, buffer.array(), index, index + length);
+        }
+        byte[] chunk = new byte[Math.min(length, CHUNK_SIZE)];
+        for (int i = 0; i < length && state != Utf8.MALFORMED; i += chunk.length) {
+            int n = Math.min(chunk.length, length - i);
+            copyToInternal(chunk, offset + i, 0, n);
+            state = Utf8.partialIsValidUtf8(state, chunk, 0, n);
+        }
+        return state;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ByteIterator iterator() {
+        return new BufferByteIterator();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream newInput() {
+        return new BufferInputStream(buffer.duplicate());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return buffer.limit();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Binary substring(int beginIndex, int endIndex) {
+        if (beginIndex < 0) {
+            throw new IndexOutOfBoundsException("Beginning index: " + beginIndex + " < 0");
+        } else if (endIndex > size()) {
+            throw new IndexOutOfBoundsException("End index: " + endIndex + " > " + size());
+        } else if (beginIndex > endIndex) {
+            throw new IndexOutOfBoundsException("Beginning index larger than ending index: " + beginIndex + ", "
+                    + endIndex);
+        } else if (beginIndex == endIndex) {
+            return Binary.EMPTY;
+        }
+        ByteBuffer b = buffer.duplicate();
+        b.limit(endIndex);
+        b.position(beginIndex);
+        return new ByteBufferBinary(b.slice(), frame);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString(String charsetName) throws UnsupportedEncodingException {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset(), size(), charsetName);
+        }
+        return new String(toByteArray(), charsetName);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        if (buffer.hasArray()) {
+            outputStream.write(buffer.array(), buffer.arrayOffset(), size());
+        } else {
+            byte[] chunk = new byte[Math.min(size(), CHUNK_SIZE)];
+            for (int i = 0; i < size(); i += chunk.length) {
+                int n = Math.min(chunk.length, size() - i);
+                copyToInternal(chunk, i, 0, n);
+                outputStream.write(chunk, 0, n);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Binary retain() {
+        if (frame != null) {
+            frame.retain();
+        }
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean release() {
+        return frame != null && frame.release();
+    }
+
+    /**
+     * Returns a copy of this binary that is backed by a heap array. Used when this binary is concatenated with another
+     * binary, as the leafs of a {@link RopeBinary} must be array based.
+     *
+     * @return a copy of this binary
+     */
+    LiteralBinary toLiteral() {
+        return new LiteralBinary(toByteArray());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected int getTreeDepth() {
+        return 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean isBalanced() {
+        return true;
+    }
+
+    /** A pooled buffer with a reference count, shared by a binary and all of its substrings. */
+    static final class Frame {
+
+        /** The buffer to hand back to the pool. */
+        private final ByteBuffer buffer;
+
+        /** Invoked with the buffer when the reference count reaches 0. */
+        private final Consumer<? super ByteBuffer> recycler;
+
+        /** The number of references to this frame. */
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        Frame(ByteBuffer buffer, Consumer<? super ByteBuffer> recycler) {
+            this.buffer = buffer;
+            this.recycler = recycler;
+        }
+
+        void retain() {
+            for (;;) {
+                int r = references.get();
+                if (r == 0) {
+                    throw new IllegalStateException("The binary has already been released");
+                } else if (references.compareAndSet(r, r + 1)) {
+                    return;
+                }
+            }
+        }
+
+        boolean release() {
+            for (;;) {
+                int r = references.get();
+                if (r == 0) {
+                    throw new IllegalStateException("The binary has already been released");
+                } else if (references.compareAndSet(r, r - 1)) {
+                    if (r == 1) {
+                        recycler.accept(buffer);
+                        return true;
+                    }
+                    return false;
+                }
+            }
+        }
+    }
+
+    /** An iterator over the bytes in the buffer. */
+    class BufferByteIterator implements ByteIterator {
+        private int position;
+
+        public boolean hasNext() {
+            return position < buffer.limit();
+        }
+
+        public Byte next() {
+            // Boxing calls Byte.valueOf(byte), which does not instantiate.
+            return nextByte();
+        }
+
+        public byte nextByte() {
+            if (position >= buffer.limit()) {
+                throw new NoSuchElementException();
+            }
+            return buffer.get(position++);
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /** An input stream that reads from a private duplicate of the buffer. */
+    static class BufferInputStream extends InputStream {
+        private final ByteBuffer b;
+
+        private int mark;
+
+        BufferInputStream(ByteBuffer b) {
+            this.b = b;
+        }
+
+        public int available() {
+            return b.remaining();
+        }
+
+        public synchronized void mark(int readlimit) {
+            mark = b.position();
+        }
+
+        public boolean markSupported() {
+            return true;
+        }
+
+        public int read() {
+            return b.hasRemaining() ? b.get() & 0xFF : -1;
+        }
+
+        public int read(byte[] bytes, int off, int len) {
+            if (len == 0) {
+                return 0;
+            } else if (!b.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, b.remaining());
+            b.get(bytes, off, n);
+            return n;
+        }
+
+        public synchronized void reset() {
+            b.position(mark);
+        }
+
+        public long skip(long n) {
+            int skip = (int) Math.max(0, Math.min(n, b.remaining()));
+            b.position(b.position() + skip);
+            return skip;
+        }
+    }
+}
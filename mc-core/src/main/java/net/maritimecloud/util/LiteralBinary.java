@@ -186,7 +186,7 @@ class LiteralBinary extends Binary {
 
         if (other instanceof LiteralBinary) {
             return equalsRange((LiteralBinary) other, 0, size());
-        } else if (other instanceof RopeBinary) {
+        } else if (other instanceof RopeBinary || other instanceof ByteBufferBinary) {
             return other.equals(this);
         } else {
             throw new IllegalArgumentException("Has a new type of Binary been created? Found " + other.getClass());
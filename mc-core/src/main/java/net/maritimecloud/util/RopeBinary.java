@@ -165,6 +165,13 @@ class RopeBinary extends Binary {
      * @return concatenation representing the same sequence as the given strings
      */
     static Binary concatenate(Binary left, Binary right) {
+        // The leafs of a rope must be array based, buffer based binaries are copied
+        if (left instanceof ByteBufferBinary && left.size() > 0 && right.size() > 0) {
+            left = ((ByteBufferBinary) left).toLiteral();
+        }
+        if (right instanceof ByteBufferBinary && left.size() > 0 && right.size() > 0) {
+            right = ((ByteBufferBinary) right).toLiteral();
+        }
         Binary result;
         RopeBinary leftRope = left instanceof RopeBinary ? (RopeBinary) left : null;
         if (right.size() == 0) {
@@ -454,6 +461,9 @@ class RopeBinary extends Binary {
         if (totalLength == 0) {
             return true;
         }
+        if (other instanceof ByteBufferBinary) {
+            return other.equals(this);
+        }
 
         // You don't really want to be calling equals on long strings, but since
         // we cache the hashCode, we effectively cache inequality. We use the cached
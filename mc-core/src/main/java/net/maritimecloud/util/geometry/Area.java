@@ -60,7 +60,7 @@ public abstract class Area implements Message, Serializable {
         @Override
         public Area read(MessageReader r) throws IOException {
             if (r.isNext(UNION_TAG, UNION)) {
-                return new AreaUnion(r.readList(UNION_TAG, UNION, AreaUnion.SERIALIZER));
+                return r.readMessage(UNION_TAG, UNION, AreaUnion.SERIALIZER);
             } else if (r.isNext(CIRCLE_TAG, CIRCLE)) {
                 return r.readMessage(CIRCLE_TAG, CIRCLE, Circle.SERIALIZER);
             } else if (r.isNext(RECTANGLE_TAG, RECTANGLE)) {
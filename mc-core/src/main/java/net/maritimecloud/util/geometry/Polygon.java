@@ -88,15 +88,15 @@ public class Polygon extends Area implements Iterable<Position> {
     /** {@inheritDoc} */
     @Override
     public Rectangle getBoundingBox() {
-        double topLeftLatitude = Double.MIN_VALUE;
-        double bottom = Double.MAX_VALUE;
-        double left = Double.MIN_NORMAL;
-        double right = Double.MAX_VALUE;
+        double topLeftLatitude = -90;
+        double bottom = 90;
+        double left = 180;
+        double right = -180;
         for (Position p : positions) {
             topLeftLatitude = Math.max(topLeftLatitude, p.getLatitude());
             bottom = Math.min(bottom, p.getLatitude());
-            left = Math.max(left, p.getLongitude());
-            right = Math.min(right, p.getLongitude());
+            left = Math.min(left, p.getLongitude());
+            right = Math.max(right, p.getLongitude());
         }
         return new Rectangle(topLeftLatitude, left, bottom, right);
     }
@@ -0,0 +1,123 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageReader;
+import net.maritimecloud.message.MessageSerializer;
+import net.maritimecloud.message.MessageWriter;
+import net.maritimecloud.util.geometry.Position;
+
+import org.junit.Test;
+
+/**
+ * Test of {@link MessageMetadata}.
+ *
+ * @author Kasper Nielsen
+ */
+public class MessageMetadataTest {
+
+    @Test
+    public void metadata() {
+        MessageMetadata m = MessageMetadata.of(Named.class);
+        assertSame(m, MessageMetadata.of(Named.class));
+        assertSame(Named.class, m.getType());
+        assertEquals(Named.NAME, m.getName());
+        assertSame(Named.SERIALIZER, m.getSerializer());
+
+        assertEquals(Named.NAME, MessageHelper.getName(new Named()));
+        assertEquals(Named.NAME, MessageHelper.getName(Named.class));
+        assertSame(Named.SERIALIZER, MessageHelper.getSerializer(new Named()));
+    }
+
+    @Test
+    public void noName() {
+        MessageMetadata m = MessageMetadata.of(Position.class);
+        assertNull(m.getName());
+        assertSame(Position.SERIALIZER, m.getSerializer());
+    }
+
+    @Test
+    public void forName() throws ClassNotFoundException {
+        ClassLoader loader = Named.class.getClassLoader();
+        MessageMetadata m = MessageMetadata.forName(Named.class.getName(), loader);
+        assertSame(MessageMetadata.of(Named.class), m);
+        assertSame(m, MessageMetadata.forName(Named.class.getName(), loader));
+    }
+
+    /** A type found by one class loader is not visible through a class loader that cannot load it. */
+    @Test(expected = ClassNotFoundException.class)
+    public void forNameOtherLoader() throws ClassNotFoundException {
+        MessageMetadata.forName(Named.class.getName(), Named.class.getClassLoader());
+        MessageMetadata.forName(Named.class.getName(), new URLClassLoader(new URL[0], null));
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public void forNameUnknown() throws ClassNotFoundException {
+        MessageMetadata.forName("net.maritimecloud.DoesNotExist", getClass().getClassLoader());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void noSerializer() {
+        MessageHelper.getSerializer(new Unnamed());
+    }
+
+    public static class Named implements Message {
+
+        public static final String NAME = "net.maritimecloud.internal.message.Named";
+
+        public static final MessageSerializer<Named> SERIALIZER = new MessageSerializer<Named>() {
+
+            @Override
+            public Named read(MessageReader reader) throws IOException {
+                return new Named();
+            }
+
+            @Override
+            public void write(Named message, MessageWriter writer) throws IOException {}
+        };
+
+        @Override
+        public Message immutable() {
+            return this;
+        }
+
+        @Override
+        public String toJSON() {
+            return "{}";
+        }
+    }
+
+    public static class Unnamed implements Message {
+
+        @Override
+        public Message immutable() {
+            return this;
+        }
+
+        @Override
+        public String toJSON() {
+            return "{}";
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.message.binary.compact;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageReader;
+import net.maritimecloud.message.MessageSerializer;
+import net.maritimecloud.message.MessageWriter;
+import net.maritimecloud.message.TestEnum;
+import net.maritimecloud.message.ValueSerializer;
+import net.maritimecloud.util.Binary;
+import net.maritimecloud.util.Timestamp;
+import net.maritimecloud.util.geometry.Position;
+import net.maritimecloud.util.geometry.PositionTime;
+
+import org.junit.Test;
+
+/**
+ * Tests the compact binary message reader and writer.
+ *
+ * @author Kasper Nielsen
+ */
+public class TestCompactSerialization {
+
+    static final Random RANDOM = new Random(123);
+
+    static final long[] INTEGERS = { 0, 1, 2, -1, 3, -2, Byte.MAX_VALUE, Byte.MIN_VALUE, Byte.MAX_VALUE + 1,
+            Byte.MIN_VALUE - 1, Short.MAX_VALUE, Short.MIN_VALUE, Short.MAX_VALUE + 1, Short.MIN_VALUE - 1, 1 << 21,
+            -(1 << 21) - 1, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE + 1L, Integer.MIN_VALUE - 1L,
+            1L << 48, -(1L << 48) - 1, 1L << 56, Long.MAX_VALUE, Long.MIN_VALUE };
+
+    /** Tests that integers are written using the shortest wire type, and are read back correctly. */
+    @Test
+    public void integers() throws IOException {
+        for (long l : INTEGERS) {
+            AllTypes m = new AllTypes();
+            m.l = l;
+            if (l == (int) l) {
+                m.i = (int) l;
+            }
+            assertEquals(m, roundTrip(m));
+        }
+        assertEquals(1, size(new AllTypes().setI(0)));
+        assertEquals(1, size(new AllTypes().setI(-1)));
+        assertEquals(2, size(new AllTypes().setI(-100)));
+        assertEquals(3, size(new AllTypes().setI(30000)));
+        assertEquals(4, size(new AllTypes().setI(1 << 20))); // varint, 3 bytes
+        assertEquals(5, size(new AllTypes().setI(Integer.MAX_VALUE))); // fixed 32 bit
+    }
+
+    /** Tests that text, binaries and positions are written with or without a length prefix depending on the size. */
+    @Test
+    public void bytes() throws IOException {
+        for (int i = 1; i < 20; i++) { // empty binaries are not written
+            AllTypes m = new AllTypes();
+            byte[] b = new byte[i];
+            RANDOM.nextBytes(b);
+            m.binary = Binary.copyFrom(b);
+            m.text = new String(new char[i]).replace('\0', 'æ');
+            assertEquals(m, roundTrip(m));
+        }
+        AllTypes m = new AllTypes();
+        m.text = "ab";
+        assertEquals(3, size(m));
+    }
+
+    /** Tests a large number of messages with random values. */
+    @Test
+    public void random() throws IOException {
+        for (int i = 0; i < 1000; i++) {
+            AllTypes m = AllTypes.random(2);
+            assertEquals(m, roundTrip(m));
+        }
+    }
+
+    /** Tests that fields that are not read by the serializer are skipped. */
+    @Test
+    public void skipUnknownFields() throws IOException {
+        AllTypes m = AllTypes.random(2);
+        m.text = "foo";
+        byte[] bytes = BinaryMessageWriter.write(m, AllTypes.SERIALIZER);
+        AllTypes read = BinaryMessageReader.read(bytes, new AllTypesSerializer() {
+            public AllTypes read(MessageReader reader) throws IOException {
+                AllTypes r = new AllTypes();
+                r.text = reader.readText(11, "text", null);
+                r.message = reader.readMessage(18, "message", AllTypes.SERIALIZER);
+                return r;
+            }
+        });
+        assertEquals(m.text, read.text);
+        assertEquals(m.message, read.message);
+    }
+
+    /** Tests that an empty message is written as zero bytes. */
+    @Test
+    public void empty() throws IOException {
+        assertEquals(0, size(new AllTypes()));
+        AllTypes read = roundTrip(new AllTypes());
+        assertNull(read.i);
+        assertEquals(new AllTypes(), read);
+    }
+
+    static AllTypes roundTrip(AllTypes m) throws IOException {
+        return BinaryMessageReader.read(BinaryMessageWriter.write(m, AllTypes.SERIALIZER), AllTypes.SERIALIZER);
+    }
+
+    static int size(AllTypes m) throws IOException {
+        return BinaryMessageWriter.write(m, AllTypes.SERIALIZER).length;
+    }
+
+    static class AllTypesSerializer extends MessageSerializer<AllTypes> {
+
+        /** {@inheritDoc} */
+        @Override
+        public AllTypes read(MessageReader r) throws IOException {
+            AllTypes m = new AllTypes();
+            m.binary = r.readBinary(1, "binary", null);
+            m.bool = r.readBoolean(2, "bool", null);
+            m.decimal = r.readDecimal(3, "decimal", null);
+            m.d = r.readDouble(4, "d", null);
+            m.e = r.isNext(5, "e") ? r.readEnum(5, "e", TestEnum.PARSER) : null;
+            m.f = r.readFloat(6, "f", null);
+            m.i = r.readInt(7, "i", null);
+            m.l = r.readInt64(8, "l", null);
+            m.position = r.readPosition(9, "position", null);
+            m.positionTime = r.readPositionTime(10, "positionTime", null);
+            m.text = r.readText(11, "text", null);
+            m.timestamp = r.readTimestamp(12, "timestamp", null);
+            m.varInt = r.readVarInt(13, "varInt", null);
+            m.list = r.readList(14, "list", ValueSerializer.TEXT);
+            m.set = r.readSet(15, "set", ValueSerializer.INT64);
+            m.map = r.readMap(16, "map", ValueSerializer.INT, AllTypes.SERIALIZER);
+            m.nested = r.readList(17, "nested", ValueSerializer.DECIMAL.listOf());
+            m.message = r.readMessage(18, "message", AllTypes.SERIALIZER);
+            m.values = r.readList(1000, "values", ValueSerializer.VARINT);
+            return m;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void write(AllTypes m, MessageWriter w) throws IOException {
+            w.writeBinary(1, "binary", m.binary);
+            w.writeBoolean(2, "bool", m.bool);
+            w.writeDecimal(3, "decimal", m.decimal);
+            w.writeDouble(4, "d", m.d);
+            w.writeEnum(5, "e", m.e);
+            w.writeFloat(6, "f", m.f);
+            w.writeInt(7, "i", m.i);
+            w.writeInt64(8, "l", m.l);
+            w.writePosition(9, "position", m.position);
+            w.writePositionTime(10, "positionTime", m.positionTime);
+            w.writeText(11, "text", m.text);
+            w.writeTimestamp(12, "timestamp", m.timestamp);
+            w.writeVarInt(13, "varInt", m.varInt);
+            w.writeList(14, "list", m.list, ValueSerializer.TEXT);
+            w.writeSet(15, "set", m.set, ValueSerializer.INT64);
+            w.writeMap(16, "map", m.map, ValueSerializer.INT, AllTypes.SERIALIZER);
+            w.writeList(17, "nested", m.nested, ValueSerializer.DECIMAL.listOf());
+            w.writeMessage(18, "message", m.message, AllTypes.SERIALIZER);
+            w.writeList(1000, "values", m.values, ValueSerializer.VARINT);
+        }
+    }
+
+    /** A message with a field of every base type. */
+    static class AllTypes implements Message {
+
+        static final MessageSerializer<AllTypes> SERIALIZER = new AllTypesSerializer();
+
+        Binary binary;
+
+        Boolean bool;
+
+        BigDecimal decimal;
+
+        Double d;
+
+        TestEnum e;
+
+        Float f;
+
+        Integer i;
+
+        Long l;
+
+        Position position;
+
+        PositionTime positionTime;
+
+        String text;
+
+        Timestamp timestamp;
+
+        BigInteger varInt;
+
+        List<String> list = new ArrayList<>();
+
+        Set<Long> set = new LinkedHashSet<>();
+
+        Map<Integer, AllTypes> map = new LinkedHashMap<>();
+
+        List<List<BigDecimal>> nested = new ArrayList<>();
+
+        AllTypes message;
+
+        List<BigInteger> values = new ArrayList<>();
+
+        AllTypes setI(int i) {
+            this.i = i;
+            return this;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Message immutable() {
+            return this;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toJSON() {
+            throw new UnsupportedOperationException();
+        }
+
+        private List<Object> fields() {
+            return Arrays.asList(binary, bool, decimal, d, e, f, i, l, position, positionTime, text, timestamp, varInt,
+                    list, set, map, nested, message, values);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof AllTypes && fields().equals(((AllTypes) o).fields());
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            return fields().hashCode();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return fields().toString();
+        }
+
+        static <T> T rnd(T value) {
+            return RANDOM.nextInt(3) == 0 ? null : value;
+        }
+
+        static AllTypes random(int depth) {
+            AllTypes m = new AllTypes();
+            byte[] b = new byte[RANDOM.nextInt(12)];
+            RANDOM.nextBytes(b);
+            m.binary = rnd(b.length == 0 ? null : Binary.copyFrom(b));
+            m.bool = rnd(RANDOM.nextBoolean());
+            m.decimal = rnd(BigDecimal.valueOf(RANDOM.nextLong(), RANDOM.nextInt(20) - 10));
+            m.d = rnd(RANDOM.nextDouble() * 1000);
+            m.e = rnd(TestEnum.values()[RANDOM.nextInt(4)]);
+            m.f = rnd(RANDOM.nextFloat());
+            m.i = rnd((int) INTEGERS[RANDOM.nextInt(INTEGERS.length)] + RANDOM.nextInt(3));
+            m.l = rnd(INTEGERS[RANDOM.nextInt(INTEGERS.length)] * RANDOM.nextInt(3));
+            // Positions lose precision when serialized, use integer coordinates
+            m.position = rnd(Position.create(RANDOM.nextInt(180) - 90, RANDOM.nextInt(360) - 180));
+            m.positionTime = rnd(PositionTime.create(RANDOM.nextInt(180) - 90, RANDOM.nextInt(360) - 180,
+                    RANDOM.nextLong() >>> 20));
+            m.text = rnd(Long.toString(RANDOM.nextLong(), RANDOM.nextInt(30) + 2) + "æ€");
+            m.timestamp = rnd(Timestamp.create(RANDOM.nextLong() >>> 20));
+            m.varInt = rnd(new BigInteger(RANDOM.nextInt(100) + 1, RANDOM).subtract(BigInteger.TEN));
+            for (int i = RANDOM.nextInt(4); i > 0; i--) {
+                m.list.add(Integer.toString(RANDOM.nextInt()));
+                m.set.add(RANDOM.nextLong() >> RANDOM.nextInt(64));
+                m.nested.add(Arrays.asList(BigDecimal.valueOf(RANDOM.nextInt(), 2), BigDecimal.ONE));
+                m.values.add(BigInteger.valueOf(RANDOM.nextInt()).shiftLeft(RANDOM.nextInt(100)));
+                if (depth > 0) {
+                    m.map.put(RANDOM.nextInt(), random(depth - 1));
+                }
+            }
+            if (depth > 0) {
+                m.message = rnd(random(depth - 1));
+            }
+            return m;
+        }
+    }
+}
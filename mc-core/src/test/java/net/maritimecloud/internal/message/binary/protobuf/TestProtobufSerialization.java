@@ -20,9 +20,11 @@ import net.maritimecloud.util.geometry.PositionTime;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 /**
@@ -55,6 +57,67 @@ public class TestProtobufSerialization extends AbstractProtobufTest {
                 (System.currentTimeMillis() - t0) + " ms");
     }
 
+    /**
+     * Test that messages read with the byte buffer reader are identical to the messages read with the stream based
+     * reader, also when the message does not start at the beginning of the buffer
+     */
+    @Test
+    public void testByteBufferMessageSerialization() throws IOException {
+        for (int x = 0; x < 1000; x++) {
+            Msg1 m = randomMsg(true);
+            byte[] data = ProtobufMessageWriter.write(m, Msg1.SERIALIZER);
+            Assert.assertEquals(m, ProtobufByteBufferMessageReader.read(data, Msg1.SERIALIZER));
+
+            byte[] padded = new byte[data.length + 10];
+            System.arraycopy(data, 0, padded, 5, data.length);
+            ByteBuffer buffer = ByteBuffer.wrap(padded, 5, data.length);
+            Assert.assertEquals(m, ProtobufByteBufferMessageReader.read(buffer, Msg1.SERIALIZER));
+        }
+    }
+
+    /**
+     * Test that writing a message into a precalculated array produces the same bytes as writing it to a stream, where
+     * the lengths of nested values are calculated as they are written
+     */
+    @Test
+    public void testPrecalculatedSizes() throws IOException {
+        for (int x = 0; x < 1000; x++) {
+            Msg1 m = randomMsg(true);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ProtobufMessageWriter w = new ProtobufMessageWriter(out);
+            Msg1.SERIALIZER.write(m, w);
+            w.flush();
+            Assert.assertArrayEquals(out.toByteArray(), ProtobufMessageWriter.write(m, Msg1.SERIALIZER));
+        }
+    }
+
+    /** Test that the size of a message can be calculated without encoding it */
+    @Test
+    public void testSizeOf() throws IOException {
+        for (int x = 0; x < 1000; x++) {
+            Msg1 m = randomMsg(true);
+            Assert.assertEquals(ProtobufMessageWriter.write(m, Msg1.SERIALIZER).length,
+                    ProtobufMessageWriter.sizeOf(m, Msg1.SERIALIZER));
+        }
+    }
+
+    /** Test that the calculated length of a string matches the length of its UTF-8 encoding */
+    @Test
+    public void testUtf8Length() throws IOException {
+        for (String s : new String[] { "", "abc", "\u00e6\u00f8\u00e5", "\u20ac", "\ud83d\ude00", "\ud83d", "a\ude00b",
+                "\ude00\ud83d" }) {
+            Assert.assertEquals(s.getBytes("UTF-8").length, ProtobufSizeMessageWriter.utf8Length(s));
+        }
+        for (int x = 0; x < 1000; x++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 20; i++) {
+                sb.append((char) RANDOM.nextInt(Character.MAX_VALUE));
+            }
+            String s = sb.toString();
+            Assert.assertEquals(s.getBytes("UTF-8").length, ProtobufSizeMessageWriter.utf8Length(s));
+        }
+    }
+
     /**
      * Generate a test message with random field values
      * @param nested whether to add nested messages in list and map fields
@@ -0,0 +1,65 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.message.text.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link PooledStringWriter}.
+ *
+ * @author Kasper Nielsen
+ */
+public class PooledStringWriterTest {
+
+    @Test
+    public void reuse() {
+        PooledStringWriter w = PooledStringWriter.acquire();
+        w.append("abc").append('d').write("efg", 1, 2);
+        assertEquals("abcdfg", w.release());
+
+        PooledStringWriter w2 = PooledStringWriter.acquire();
+        assertSame(w, w2);
+        assertEquals("", w2.release());
+    }
+
+    /** A writer acquired while the writer of the thread is in use must be a different writer. */
+    @Test
+    public void nested() {
+        PooledStringWriter outer = PooledStringWriter.acquire();
+        outer.append("outer");
+        PooledStringWriter inner = PooledStringWriter.acquire();
+        assertNotSame(outer, inner);
+        inner.append("inner");
+        assertEquals("inner", inner.release());
+        assertEquals("outer", outer.release());
+    }
+
+    /** Writers that have grown too large are not reused. */
+    @Test
+    public void largeNotRetained() {
+        PooledStringWriter w = PooledStringWriter.acquire();
+        for (int i = 0; i <= PooledStringWriter.MAX_RETAINED_CAPACITY; i++) {
+            w.write('x');
+        }
+        w.release();
+        PooledStringWriter w2 = PooledStringWriter.acquire();
+        assertNotSame(w, w2);
+        w2.release();
+    }
+}
@@ -15,11 +15,15 @@
 package net.maritimecloud.internal.message.text.json;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import net.maritimecloud.message.ValueSerializer;
 import net.maritimecloud.util.Binary;
@@ -73,4 +77,25 @@ public class TestReader extends AbstractJSONTest {
                 readerOf("\"i1\": [", "  \"1\",", "  \"3\",", "  \"2\",", "  \"-4\",", "  \"1\"", "]").readList(1,
                         "i1", ValueSerializer.TEXT));
     }
+
+    @Test
+    public void readMap() throws IOException {
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("a", 1);
+        expected.put("b", -2);
+        assertEquals(expected, readerOf("\"m\": {\"a\": 1, \"b\": -2}").readMap(1, "m", ValueSerializer.TEXT,
+                ValueSerializer.INT));
+        assertEquals(Collections.emptyMap(), readerOf("\"m\": {}").readMap(1, "m", ValueSerializer.TEXT,
+                ValueSerializer.INT));
+    }
+
+    /** Fields of a nested message that are not read by the serializer are skipped. */
+    @Test
+    public void skipUnreadFields() throws IOException {
+        JsonMessageReader r = readerOf("\"f\": {\"latitude\": 10, \"longitude\": -10, \"x\": [1, {\"y\": [2]}]},",
+                "\"g\": 5");
+        assertEquals(Position.create(10, -10), r.readPosition(1, "f", null));
+        assertEquals(5, r.readInt(2, "g", null).intValue());
+        assertFalse(r.isNext(3, "h"));
+    }
 }
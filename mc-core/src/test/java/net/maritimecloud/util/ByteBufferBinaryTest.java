@@ -0,0 +1,119 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.util;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests {@link ByteBufferBinary} by inheriting the tests from {@link LiteralByteStringTest}, using a direct buffer.
+ *
+ * @author Kasper Nielsen
+ */
+public class ByteBufferBinaryTest extends LiteralByteStringTest {
+
+    @Override
+    protected void setUp() throws Exception {
+        classUnderTest = "ByteBufferBinary";
+        referenceBytes = ByteStringTest.getTestBytes(1234, 11337766L);
+        stringUnderTest = Binary.wrap(direct(referenceBytes));
+        expectedHashCode = 331161852;
+    }
+
+    static ByteBuffer direct(byte[] bytes) {
+        ByteBuffer b = ByteBuffer.allocateDirect(bytes.length + 10);
+        b.position(5);
+        b.put(bytes);
+        b.flip();
+        b.position(5);
+        return b;
+    }
+
+    @Override
+    public void testToString() throws UnsupportedEncodingException {
+        String testString = "I love unicode \u1234\u5678 characters";
+        Binary unicode = Binary.wrap(direct(testString.getBytes(UTF_8)));
+        assertEquals(classUnderTest + " unicode must match", testString, unicode.toString(UTF_8));
+        assertTrue(unicode.isValidUtf8());
+        assertEquals(classUnderTest + ".substring() must have the expected type", classUnderTest,
+                getActualClassName(unicode.substring(2, unicode.size() - 6)));
+    }
+
+    public void testEquals_otherTypes() {
+        Binary literal = Binary.copyFrom(referenceBytes);
+        Binary rope = Binary.copyFrom(referenceBytes, 0, 600).concat(Binary.copyFrom(referenceBytes, 600, 634));
+        assertEquals("RopeBinary", getActualClassName(rope));
+        for (Binary b : new Binary[] { literal, rope, literal.substring(10, 1000) }) {
+            Binary other = b.size() == stringUnderTest.size() ? stringUnderTest : stringUnderTest.substring(10, 1000);
+            assertEquals(other, b);
+            assertEquals(b, other);
+            assertEquals(b.hashCode(), other.hashCode());
+        }
+        assertFalse(rope.equals(stringUnderTest.substring(1).concat(Binary.copyFrom((byte) 0))));
+    }
+
+    public void testConcat() {
+        Binary concat = stringUnderTest.concat(stringUnderTest);
+        assertEquals(Binary.copyFrom(referenceBytes).concat(Binary.copyFrom(referenceBytes)), concat);
+        assertEquals(concat, stringUnderTest.concat(Binary.copyFrom(referenceBytes)));
+    }
+
+    public void testWrapHeapBuffer() {
+        ByteBuffer b = ByteBuffer.wrap(referenceBytes, 10, 100);
+        Binary wrapped = Binary.wrap(b);
+        assertEquals("BoundedBinary", getActualClassName(wrapped));
+        assertEquals(Binary.copyFrom(referenceBytes, 10, 100), wrapped);
+        assertEquals(10, b.position());
+        assertSame(Binary.EMPTY, Binary.wrap(ByteBuffer.allocateDirect(0)));
+    }
+
+    public void testRelease() {
+        List<ByteBuffer> recycled = new ArrayList<>();
+        ByteBuffer buffer = direct(referenceBytes);
+        Binary b = Binary.wrap(buffer, recycled::add);
+        assertEquals(stringUnderTest, b);
+
+        assertSame(b, b.retain());
+        assertFalse(b.substring(10).release());
+        assertTrue(recycled.isEmpty());
+        assertTrue(b.release());
+        assertEquals(1, recycled.size());
+        assertSame(buffer, recycled.get(0));
+
+        try {
+            b.release();
+            fail("Should have thrown an exception when releasing a released binary");
+        } catch (IllegalStateException expected) {}
+        try {
+            b.retain();
+            fail("Should have thrown an exception when retaining a released binary");
+        } catch (IllegalStateException expected) {}
+
+        // Binaries that are not pooled ignore release
+        assertFalse(stringUnderTest.release());
+        assertSame(stringUnderTest, stringUnderTest.retain());
+    }
+
+    public void testRandom() {
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, Binary.random(i).size());
+            assertEquals(i, Binary.secureRandom(i).size());
+        }
+        assertFalse(Binary.random(32).equals(Binary.random(32)));
+        assertFalse(Binary.secureRandom(32).equals(Binary.secureRandom(32)));
+    }
+}
@@ -16,6 +16,7 @@ package net.maritimecloud.util.geometry;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import net.maritimecloud.message.MessageSerializer;
 
 import org.junit.Ignore;
@@ -39,6 +40,15 @@ public class AreaTest {
         }
     }
 
+    @Test
+    public void union() {
+        Area a = Circle.random().unionWith(Circle.random());
+        String json = MessageSerializer.writeToJSON(a, Area.SERIALIZER);
+        Area read = Area.fromJSON(json);
+        assertTrue(read instanceof AreaUnion);
+        assertEquals(json, MessageSerializer.writeToJSON(read, Area.SERIALIZER));
+    }
+
     @Test
     @Ignore
     public void boundingBox() {
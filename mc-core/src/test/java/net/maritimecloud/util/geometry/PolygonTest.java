@@ -14,6 +14,8 @@
  */
 package net.maritimecloud.util.geometry;
 
+import static org.junit.Assert.assertEquals;
+
 import org.junit.Test;
 
 /**
@@ -24,6 +26,12 @@ public class PolygonTest extends AbstractAreaTest {
     static Polygon P = Polygon.create(P1, P3, P9, P7, P1);
 
 
+    @Test
+    public void boundingBox() {
+        assertEquals(Rectangle.create(P1, P9), P.getBoundingBox());
+        assertEquals(Rectangle.create(P2, P9), Polygon.create(P2, P3, P9, P8, P2).getBoundingBox());
+    }
+
     @Test
     public void contains() {
 
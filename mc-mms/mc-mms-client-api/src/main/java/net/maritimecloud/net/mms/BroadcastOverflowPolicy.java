@@ -0,0 +1,37 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.net.mms;
+
+/**
+ * What happens when a broadcast is received for a subscription whose queue of undelivered broadcasts is full. Each
+ * subscription has its own queue, so a slow consumer only affects its own broadcasts.
+ *
+ * @author Kasper Nielsen
+ * @see MmsClientConfiguration#setBroadcastOverflowPolicy(BroadcastOverflowPolicy)
+ */
+public enum BroadcastOverflowPolicy {
+
+    /**
+     * Waits until the consumer has room for the broadcast. This stops the processing of all incoming messages on the
+     * connection until then.
+     */
+    BLOCK,
+
+    /** Drops the broadcast that was just received. */
+    DROP_NEWEST,
+
+    /** Drops the oldest undelivered broadcast to make room for the broadcast that was just received. */
+    DROP_OLDEST;
+}
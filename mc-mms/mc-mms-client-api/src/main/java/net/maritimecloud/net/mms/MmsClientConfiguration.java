@@ -56,6 +56,28 @@ public class MmsClientConfiguration {
 
     private boolean useBinary;
 
+    private boolean useCompactBinary;
+
+    private boolean filterBroadcastsOnServer;
+
+    /** The maximum number of undelivered broadcasts queued for each subscription. */
+    private int broadcastQueueCapacity = 1024;
+
+    /** What happens when the queue of a subscription is full. */
+    private BroadcastOverflowPolicy broadcastOverflowPolicy = BroadcastOverflowPolicy.DROP_OLDEST;
+
+    /** The number of threads that deliver broadcasts to subscribers. */
+    private int broadcastThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /** The time to wait for the result of a remote invocation before it fails. */
+    private long invocationTimeoutNanos = TimeUnit.MINUTES.toNanos(1);
+
+    /** The maximum number of remote invocations that are awaiting a result. */
+    private int maxOutstandingInvocations = 10000;
+
+    /** The time to live of cached endpoint locate results, or 0 if results are not cached. */
+    private long endpointLocateCacheTimeToLiveNanos;
+
     private String keystore;
 
     private String keystorePassword;
@@ -206,6 +228,179 @@ public class MmsClientConfiguration {
         return this;
     }
 
+    public boolean useCompactBinary() {
+        return useCompactBinary;
+    }
+
+    /**
+     * Sets whether or not to use the compact binary format, which uses fewer bytes than the default binary format. For
+     * example, for connections that are billed per byte. The client falls back to the default binary format if the
+     * server does not support the compact format.
+     *
+     * @param useCompactBinary
+     *            whether or not to use the compact binary format
+     * @return this configuration
+     */
+    public MmsClientConfiguration setUseCompactBinary(boolean useCompactBinary) {
+        this.useCompactBinary = useCompactBinary;
+        return this;
+    }
+
+    public boolean filterBroadcastsOnServer() {
+        return filterBroadcastsOnServer;
+    }
+
+    /**
+     * Sets whether or not broadcast subscriptions are registered with the server. If enabled the server only sends
+     * broadcasts of the types, and from the areas, that the client subscribes to. Otherwise the server sends all
+     * broadcasts within range, and the client drops those that nobody subscribes to. For example, for connections that
+     * are billed per byte.
+     *
+     * @param filterBroadcastsOnServer
+     *            whether or not broadcasts are filtered on the server
+     * @return this configuration
+     */
+    public MmsClientConfiguration setFilterBroadcastsOnServer(boolean filterBroadcastsOnServer) {
+        this.filterBroadcastsOnServer = filterBroadcastsOnServer;
+        return this;
+    }
+
+    public int getBroadcastQueueCapacity() {
+        return broadcastQueueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of received broadcasts that are queued for each subscription while the consumer is busy.
+     * Broadcasts are delivered to each subscription one at a time in the order they are received. When the queue is
+     * full the {@link #setBroadcastOverflowPolicy(BroadcastOverflowPolicy) overflow policy} is applied.
+     *
+     * @param broadcastQueueCapacity
+     *            the capacity of the queue of each subscription
+     * @return this configuration
+     * @throws IllegalArgumentException
+     *             if the capacity is less than 1
+     */
+    public MmsClientConfiguration setBroadcastQueueCapacity(int broadcastQueueCapacity) {
+        if (broadcastQueueCapacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, was " + broadcastQueueCapacity);
+        }
+        this.broadcastQueueCapacity = broadcastQueueCapacity;
+        return this;
+    }
+
+    public BroadcastOverflowPolicy getBroadcastOverflowPolicy() {
+        return broadcastOverflowPolicy;
+    }
+
+    /**
+     * Sets what happens when a broadcast is received for a subscription whose queue is full. The default is to drop
+     * the oldest undelivered broadcast.
+     *
+     * @param broadcastOverflowPolicy
+     *            the overflow policy
+     * @return this configuration
+     */
+    public MmsClientConfiguration setBroadcastOverflowPolicy(BroadcastOverflowPolicy broadcastOverflowPolicy) {
+        this.broadcastOverflowPolicy = requireNonNull(broadcastOverflowPolicy, "broadcastOverflowPolicy is null");
+        return this;
+    }
+
+    public int getBroadcastThreads() {
+        return broadcastThreads;
+    }
+
+    /**
+     * Sets the number of threads that are shared by all subscriptions for delivering broadcasts. A subscription never
+     * uses more than one thread at a time.
+     *
+     * @param broadcastThreads
+     *            the number of threads
+     * @return this configuration
+     * @throws IllegalArgumentException
+     *             if the number of threads is less than 1
+     */
+    public MmsClientConfiguration setBroadcastThreads(int broadcastThreads) {
+        if (broadcastThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1, was " + broadcastThreads);
+        }
+        this.broadcastThreads = broadcastThreads;
+        return this;
+    }
+
+    public long getEndpointLocateCacheTimeToLive(TimeUnit unit) {
+        return unit.convert(endpointLocateCacheTimeToLiveNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets how long the endpoints found by {@link MmsEndpointLocator} are cached by the client. Lookups of the same
+     * endpoint type, with the same distance and maximum number of results, made from roughly the same position within
+     * the time to live are answered from the cache without contacting the server. Endpoints registered or deregistered
+     * by other clients are not seen until cached results expire. The default is 0, which disables the cache.
+     *
+     * @param timeToLive
+     *            the time to live of cached results, or 0 to disable the cache
+     * @param unit
+     *            the unit of the time to live
+     * @return this configuration
+     * @throws IllegalArgumentException
+     *             if the time to live is negative
+     */
+    public MmsClientConfiguration setEndpointLocateCacheTimeToLive(long timeToLive, TimeUnit unit) {
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("Time to live must not be negative, was " + timeToLive);
+        }
+        endpointLocateCacheTimeToLiveNanos = unit.toNanos(timeToLive);
+        return this;
+    }
+
+    public long getInvocationTimeout(TimeUnit unit) {
+        return unit.convert(invocationTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the default time to wait for the result of a remote invocation. If no result has been received in time, the
+     * invocation fails with a {@link java.util.concurrent.TimeoutException}. A shorter deadline can be set for a
+     * single invocation with {@link net.maritimecloud.net.EndpointInvocationFuture#orTimeout(long, TimeUnit)}.
+     *
+     * @param timeout
+     *            the time to wait
+     * @param unit
+     *            the unit of the timeout
+     * @return this configuration
+     * @throws IllegalArgumentException
+     *             if the timeout is not positive
+     */
+    public MmsClientConfiguration setInvocationTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive, was " + timeout);
+        }
+        invocationTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    public int getMaxOutstandingInvocations() {
+        return maxOutstandingInvocations;
+    }
+
+    /**
+     * Sets the maximum number of remote invocations that can await a result at the same time. When the limit is
+     * reached new invocations fail immediately with a {@link java.util.concurrent.RejectedExecutionException}, instead
+     * of queuing up while the remote ends do not keep up.
+     *
+     * @param maxOutstandingInvocations
+     *            the maximum number of outstanding invocations
+     * @return this configuration
+     * @throws IllegalArgumentException
+     *             if the maximum is less than 1
+     */
+    public MmsClientConfiguration setMaxOutstandingInvocations(int maxOutstandingInvocations) {
+        if (maxOutstandingInvocations < 1) {
+            throw new IllegalArgumentException("Maximum must be at least 1, was " + maxOutstandingInvocations);
+        }
+        this.maxOutstandingInvocations = maxOutstandingInvocations;
+        return this;
+    }
+
     public long getKeepAlive(TimeUnit unit) {
         return unit.convert(keepAliveNanos, TimeUnit.NANOSECONDS);
     }
@@ -59,8 +59,12 @@ public class ClientInfo {
     public ClientInfo(MmsClientConfiguration configuration) {
         this.clientId = requireNonNull(configuration.getId());
         this.positionReader = configuration.getPositionReader();
-        this.messageFormatType = configuration.useBinary() ? MessageFormatType.MACHINE_READABLE
-                : MessageFormatType.HUMAN_READABLE;
+        if (configuration.useCompactBinary()) {
+            this.messageFormatType = MessageFormatType.MACHINE_READABLE_COMPACT;
+        } else {
+            this.messageFormatType = configuration.useBinary() ? MessageFormatType.MACHINE_READABLE
+                    : MessageFormatType.HUMAN_READABLE;
+        }
         clientConnectString = new HashMap<>();
         clientConnectString.put("version", "0.3");
         if (configuration.properties().getName() != null) {
@@ -0,0 +1,231 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.mms.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import net.maritimecloud.internal.util.logging.Logger;
+import net.maritimecloud.net.mms.BroadcastOverflowPolicy;
+
+/**
+ * A bounded queue of tasks that are run one at a time, in the order they were added, on a shared executor. The queue
+ * occupies at most one thread of the executor at a time, and gives the thread back after a number of tasks so queues
+ * with many tasks do not starve the other queues.
+ *
+ * @author Kasper Nielsen
+ */
+public class DispatchQueue {
+
+    /** The logger. */
+    static final Logger LOG = Logger.get(DispatchQueue.class);
+
+    /** The maximum number of tasks run before the thread is given back to the executor. */
+    static final int BATCH_SIZE = 64;
+
+    /** The maximum number of tasks in the queue. */
+    final int capacity;
+
+    /** The number of tasks that have been dropped. Guarded by tasks. */
+    private long dropped;
+
+    /** The executor running the tasks. */
+    final ExecutorService executor;
+
+    /** The time the task currently running, or next to run, was added to the queue. Guarded by tasks. */
+    private long head;
+
+    /** What to do when a task is added to a full queue. */
+    final BroadcastOverflowPolicy policy;
+
+    /** Whether or not the queue has been handed to the executor. Guarded by tasks. */
+    private boolean scheduled;
+
+    /** The tasks that have not yet been run. */
+    private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+
+    /**
+     * Creates a new dispatch queue.
+     *
+     * @param executor
+     *            the executor running the tasks
+     * @param capacity
+     *            the maximum number of tasks in the queue
+     * @param policy
+     *            what to do when a task is added to a full queue
+     */
+    public DispatchQueue(ExecutorService executor, int capacity, BroadcastOverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, was " + capacity);
+        }
+        this.executor = requireNonNull(executor);
+        this.capacity = capacity;
+        this.policy = requireNonNull(policy);
+    }
+
+    /**
+     * Adds the specified task to the queue. If the queue is full the task, or the oldest task in the queue, is dropped
+     * or the calling thread waits for room depending on the overflow policy.
+     *
+     * @param task
+     *            the task to run
+     * @throws RejectedExecutionException
+     *             if the executor has been shutdown
+     */
+    public void execute(Runnable task) {
+        Task t = new Task(requireNonNull(task), System.nanoTime());
+        synchronized (tasks) {
+            while (tasks.size() >= capacity) {
+                if (policy == BroadcastOverflowPolicy.DROP_NEWEST) {
+                    dropped++;
+                    return;
+                } else if (policy == BroadcastOverflowPolicy.DROP_OLDEST) {
+                    tasks.poll();
+                    dropped++;
+                } else {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("The executor has been shutdown");
+                    }
+                    try {
+                        tasks.wait(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        dropped++;
+                        return;
+                    }
+                }
+            }
+            tasks.add(t);
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+            head = t.added;
+        }
+        schedule();
+    }
+
+    /** Runs up to {@link #BATCH_SIZE} tasks, rescheduling the queue if there are more. */
+    void drain() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Task t;
+            synchronized (tasks) {
+                t = tasks.poll();
+                if (t == null) {
+                    scheduled = false;
+                    return;
+                }
+                head = t.added;
+                tasks.notifyAll();
+            }
+            try {
+                t.task.run();
+            } catch (RuntimeException e) {
+                LOG.error("Exception while running dispatched task", e);
+            } catch (Error e) {
+                // Do not leave the queue scheduled without a thread draining it
+                resume();
+                throw e;
+            }
+        }
+        resume();
+    }
+
+    /** Reschedules the queue if there are more tasks, otherwise marks it as no longer scheduled. */
+    private void resume() {
+        synchronized (tasks) {
+            Task next = tasks.peek();
+            if (next == null) {
+                scheduled = false;
+                return;
+            }
+            head = next.added;
+        }
+        try {
+            schedule();
+        } catch (RejectedExecutionException ignore) {
+            // The executor has been shutdown, the remaining tasks have been discarded
+        }
+    }
+
+    /**
+     * Returns the time the task currently running, or the oldest task in the queue if none is running, has been
+     * waiting. Or 0 if the queue is idle.
+     *
+     * @param unit
+     *            the time unit of the result
+     * @return how far the queue lags behind
+     */
+    public long getLag(TimeUnit unit) {
+        synchronized (tasks) {
+            return scheduled ? unit.convert(System.nanoTime() - head, TimeUnit.NANOSECONDS) : 0;
+        }
+    }
+
+    /**
+     * Returns the number of tasks that have been dropped because the queue was full.
+     *
+     * @return the number of tasks that have been dropped
+     */
+    public long getNumberOfDropped() {
+        synchronized (tasks) {
+            return dropped;
+        }
+    }
+
+    /**
+     * Returns the number of tasks waiting to be run.
+     *
+     * @return the number of tasks waiting to be run
+     */
+    public int getNumberOfPending() {
+        synchronized (tasks) {
+            return tasks.size();
+        }
+    }
+
+    /** Hands the queue to the executor, discarding all tasks if the executor has been shutdown. */
+    private void schedule() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            synchronized (tasks) {
+                tasks.clear();
+                scheduled = false;
+                tasks.notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    /** A task together with the time it was added. */
+    static final class Task {
+
+        /** The time the task was added, as returned by {@link System#nanoTime()}. */
+        final long added;
+
+        /** The task to run. */
+        final Runnable task;
+
+        Task(Runnable task, long added) {
+            this.task = task;
+            this.added = added;
+        }
+    }
+}
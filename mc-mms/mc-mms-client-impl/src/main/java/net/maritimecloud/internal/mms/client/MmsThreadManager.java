@@ -18,10 +18,10 @@ import static java.util.Objects.requireNonNull;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -31,6 +31,7 @@ import net.maritimecloud.internal.net.util.DefaultEndpointInvocationFuture;
 import net.maritimecloud.internal.util.concurrent.CompletableFuture;
 import net.maritimecloud.internal.util.concurrent.ConcurrentWeakHashSet;
 import net.maritimecloud.net.mms.MmsClientClosedException;
+import net.maritimecloud.net.mms.MmsClientConfiguration;
 import net.maritimecloud.util.Binary;
 
 import org.cakeframework.container.lifecycle.RunOnStart;
@@ -48,9 +49,15 @@ public class MmsThreadManager {
     /** The prefix of each thread created by the client. */
     static final String THREAD_PREFIX = "MMSClient";
 
-    /** An {@link ExecutorService} for running various tasks. */
-    final ThreadPoolExecutor es = new ThreadPoolExecutor(0, 100, 60L, TimeUnit.SECONDS,
-            new SynchronousQueue<Runnable>(), new DefaultThreadFactory("GeneralPool", Executors.defaultThreadFactory()));
+    /** The configuration of the client. */
+    final MmsClientConfiguration configuration;
+
+    /**
+     * An {@link ExecutorService} for delivering broadcasts. Each subscription has its own {@link DispatchQueue} which
+     * uses at most one thread at a time, so the queue of the pool is bounded by the number of subscriptions. Also used
+     * by {@link #execute(Runnable)}.
+     */
+    final ThreadPoolExecutor es;
 
     /** A list of all outstanding futures. Is used to cancel each future in case of shutdown. */
     final ConcurrentWeakHashSet<DefaultEndpointInvocationFuture<?>> futures = new ConcurrentWeakHashSet<>();
@@ -59,26 +66,84 @@ public class MmsThreadManager {
     final ScheduledThreadPoolExecutor ses = new ScheduledThreadPoolExecutor(2, new DefaultThreadFactory("Scheduler",
             Executors.defaultThreadFactory()));
 
+    /**
+     * Creates a new thread manager.
+     *
+     * @param configuration
+     *            the configuration of the client
+     */
+    public MmsThreadManager(MmsClientConfiguration configuration) {
+        this.configuration = requireNonNull(configuration);
+        int threads = configuration.getBroadcastThreads();
+        es = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new DefaultThreadFactory("BroadcastPool", Executors.defaultThreadFactory()));
+        es.allowCoreThreadTimeOut(true);
+    }
+
     public <T> DefaultEndpointInvocationFuture<T> create(Binary messageId) {
-        DefaultEndpointInvocationFuture<T> t = new DefaultEndpointInvocationFuture<>(new CompletableFuture<T>(),
-                messageId);
-        futures.add(t);
-        return t;
+        return register(new DefaultEndpointInvocationFuture<T>(new CompletableFuture<T>(), messageId));
     }
 
+    /**
+     * Registers the specified future so it is failed if the client is shutdown before it completes.
+     *
+     * @param future
+     *            the future to register
+     * @return the specified future
+     */
+    public <F extends DefaultEndpointInvocationFuture<?>> F register(F future) {
+        futures.add(future);
+        return future;
+    }
 
-    public void broadcastReceived(Runnable r) {
-        es.execute(r);
+    /**
+     * Runs the specified task periodically until the client is shutdown.
+     *
+     * @param task
+     *            the task to run
+     * @param period
+     *            the time between runs
+     * @param unit
+     *            the unit of the period
+     * @return a future that can be used to cancel the task
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period, TimeUnit unit) {
+        return ses.scheduleAtFixedRate(task, period, period, unit);
+    }
+
+    /**
+     * Runs the specified task asynchronously. Used for tasks, such as completing futures, that may run user code and
+     * should therefore not run on the threads of the scheduler.
+     *
+     * @param task
+     *            the task to run
+     * @throws java.util.concurrent.RejectedExecutionException
+     *             if the client has been shutdown
+     */
+    public void execute(Runnable task) {
+        es.execute(task);
+    }
+
+
+    /**
+     * Creates a new queue for delivering broadcasts to a single subscription, bounded as specified in the
+     * configuration.
+     *
+     * @return a new dispatch queue
+     */
+    public DispatchQueue newBroadcastQueue() {
+        return new DispatchQueue(es, configuration.getBroadcastQueueCapacity(),
+                configuration.getBroadcastOverflowPolicy());
     }
 
     @RunOnStart
     public void start() {
         // Clean up weak references
-        ses.schedule(new Runnable() {
+        ses.scheduleAtFixedRate(new Runnable() {
             public void run() {
                 futures.cleanup();
             }
-        }, 1, TimeUnit.MINUTES);
+        }, 1, 1, TimeUnit.MINUTES);
     }
 
     /**
@@ -15,8 +15,8 @@
 package net.maritimecloud.internal.mms.client.broadcast;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 
+import net.maritimecloud.internal.message.MessageMetadata;
 import net.maritimecloud.message.MessageReader;
 import net.maritimecloud.message.MessageSerializer;
 import net.maritimecloud.net.BroadcastMessage;
@@ -38,12 +38,13 @@ public interface BroadcastDeserializer {
 
         /** {@inheritDoc} */
         @Override
-        @SuppressWarnings("unchecked")
         public BroadcastMessage convert(String name, MessageReader r) throws Exception {
             // right now: msdl message name == full Java class name
-            Class<BroadcastMessage> cl = (Class<BroadcastMessage>) Class.forName(name);
-            Field field = cl.getField("SERIALIZER");
-            MessageSerializer<BroadcastMessage> p = (MessageSerializer<BroadcastMessage>) field.get(null);
+            MessageSerializer<BroadcastMessage> p = MessageMetadata.forName(name, getClass().getClassLoader())
+                    .getSerializer();
+            if (p == null) {
+                throw new NoSuchFieldException("No SERIALIZER field in " + name);
+            }
             try {
                 return p.read(r);
             } catch (IOException e) {
@@ -16,6 +16,10 @@ package net.maritimecloud.internal.mms.client.broadcast;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
@@ -29,6 +33,8 @@ import net.maritimecloud.internal.message.text.json.JsonMessageReader;
 import net.maritimecloud.internal.mms.client.ClientInfo;
 import net.maritimecloud.internal.mms.client.MmsThreadManager;
 import net.maritimecloud.internal.mms.client.connection.ClientConnection;
+import net.maritimecloud.internal.mms.client.endpoint.ClientEndpointManager;
+import net.maritimecloud.internal.mms.messages.services.Services;
 import net.maritimecloud.internal.net.messages.Broadcast;
 import net.maritimecloud.internal.net.messages.BroadcastAck;
 import net.maritimecloud.internal.net.messages.MessageHasher;
@@ -47,6 +53,7 @@ import net.maritimecloud.net.MessageHeader;
 import net.maritimecloud.net.mms.MmsBroadcastOptions;
 import net.maritimecloud.net.mms.MmsClient;
 import net.maritimecloud.net.mms.MmsClientClosedException;
+import net.maritimecloud.net.mms.MmsClientConfiguration;
 import net.maritimecloud.util.Binary;
 import net.maritimecloud.util.geometry.Area;
 import net.maritimecloud.util.geometry.Circle;
@@ -88,11 +95,18 @@ public class ClientBroadcastManager {
 
     final ScheduledExecutorService ses;
 
+    /** Used for registering subscriptions with the server, or null if broadcasts are only filtered locally. */
+    private final ClientEndpointManager endpointManager;
+
+    /** Makes sure subscriptions are registered with the server in the order they are made. */
+    private final Object serverSubscriptionsLock = new Object();
+
     public ClientBroadcastManager(ClientInfo info, MmsThreadManager threadManager, ClientConnection connection,
-            ThreadManager tmm) {
+            ThreadManager tmm, MmsClientConfiguration configuration, ClientEndpointManager endpointManager) {
         this.connection = requireNonNull(connection);
         this.threadManager = requireNonNull(threadManager);
         this.info = requireNonNull(info);
+        this.endpointManager = configuration.filterBroadcastsOnServer() ? requireNonNull(endpointManager) : null;
         ses = tmm.getScheduledExecutor("");
 
         connection.subscribe(BroadcastAck.class, (a, e) -> onBroadcastAck(e));
@@ -123,13 +137,44 @@ public class ClientBroadcastManager {
                 throw new MmsClientClosedException("The mms client has been shutdown");
             }
             SubscriptionSet set = subscribers.computeIfAbsent(type, e -> new SubscriptionSet(this, type));
-            return set.newSubscription(bd, listener, area == null ? Coverage.ALL
-                    : new Coverage.StaticAreaCoverage(area));
+            BroadcastSubscription s = set.newSubscription(bd, listener, area == null ? Coverage.ALL
+                    : new Coverage.StaticAreaCoverage(area), threadManager.newBroadcastQueue());
+            updateServerSubscriptions();
+            return s;
         } finally {
             subscribeLock.readLock().unlock();
         }
     }
 
+    /**
+     * Registers the current subscriptions with the server, if broadcasts are filtered on the server. The server
+     * replaces the subscriptions it has for this client, so all the subscribed broadcast types are sent every time.
+     * The area is the union of the areas of all subscriptions. Each subscription still filters by its own area.
+     */
+    void updateServerSubscriptions() {
+        if (endpointManager != null) {
+            synchronized (serverSubscriptionsLock) {
+                List<String> types = new ArrayList<>();
+                Area area = null;
+                boolean everywhere = false;
+                for (SubscriptionSet set : subscribers.values()) {
+                    if (!set.listeners.isEmpty()) {
+                        types.add(set.broadcastType);
+                        for (SubscriptionSet.DefaultSubscription s : set.listeners) {
+                            if (s.coverage instanceof Coverage.StaticAreaCoverage) {
+                                Area a = ((Coverage.StaticAreaCoverage) s.coverage).getArea();
+                                area = area == null ? a : area.unionWith(a);
+                            } else {
+                                everywhere = true;
+                            }
+                        }
+                    }
+                }
+                endpointManager.endpointFrom(null, Services.class).subscribe(types, everywhere ? null : area);
+            }
+        }
+    }
+
     DispatchedMessage brodcast(BroadcastMessage message, Area area, int radius,
             Consumer<? super MessageHeader> ackConsumer) {
         String broadcastType = MessageHelper.getName(message);
@@ -202,18 +247,28 @@ public class ClientBroadcastManager {
             MessageHeader header = new DefaultMessageHeader(MaritimeId.create(broadcast.getSenderId()),
                     broadcast.getMessageId(), broadcast.getSenderTimestamp(), broadcast.getSenderPosition());
 
+            String payload = broadcast.getPayload().toStringUtf8();
+            // The payload is decoded once per deserializer, listeners using the same deserializer share an immutable
+            // message. Messages that cannot be made immutable are decoded for each listener.
+            Map<BroadcastDeserializer, BroadcastMessage> decoded = new HashMap<>(2);
+
             // Deliver to each listener
             for (SubscriptionSet.DefaultSubscription s : set.listeners) {
-                BroadcastMessage message;
-                JsonMessageReader r = new JsonMessageReader(broadcast.getPayload().toStringUtf8());
-                try {
-                    message = s.bd.convert(broadcast.getBroadcastType(), r);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    return;
+                BroadcastMessage message = decoded.get(s.bd);
+                if (message == null) {
+                    JsonMessageReader r = new JsonMessageReader(payload);
+                    try {
+                        message = s.bd.convert(broadcast.getBroadcastType(), r);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        return;
+                    }
+                    try {
+                        message = message.immutable();
+                        decoded.put(s.bd, message);
+                    } catch (UnsupportedOperationException ignore) {}
                 }
-
-                threadManager.broadcastReceived(() -> s.deliver(header, message));
+                s.dispatch(header, message);
             }
         }
     }
@@ -19,8 +19,10 @@ import static java.util.Objects.requireNonNull;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+import net.maritimecloud.internal.mms.client.DispatchQueue;
 import net.maritimecloud.internal.util.Coverage;
 import net.maritimecloud.internal.util.logging.Logger;
 import net.maritimecloud.net.BroadcastConsumer;
@@ -56,8 +58,8 @@ class SubscriptionSet {
     }
 
     BroadcastSubscription newSubscription(BroadcastDeserializer bd,
-            BroadcastConsumer<? extends BroadcastMessage> listener, Coverage coverage) {
-        DefaultSubscription bs = new DefaultSubscription(bd, listener, coverage);
+            BroadcastConsumer<? extends BroadcastMessage> listener, Coverage coverage, DispatchQueue queue) {
+        DefaultSubscription bs = new DefaultSubscription(bd, listener, coverage, queue);
         listeners.add(bs);
         return bs;
     }
@@ -65,7 +67,9 @@ class SubscriptionSet {
     void remove(DefaultSubscription s) {
         broadcastManager.subscribeLock.readLock().lock();
         try {
-            listeners.remove(s);
+            if (listeners.remove(s)) {
+                broadcastManager.updateServerSubscriptions();
+            }
         } finally {
             broadcastManager.subscribeLock.readLock().unlock();
         }
@@ -86,11 +90,15 @@ class SubscriptionSet {
 
         final BroadcastDeserializer bd;
 
+        /** The queue of broadcasts that have not yet been delivered to the listener. */
+        final DispatchQueue queue;
+
         DefaultSubscription(BroadcastDeserializer bd, BroadcastConsumer<? extends BroadcastMessage> listener,
-                Coverage coverage) {
+                Coverage coverage, DispatchQueue queue) {
             this.bd = requireNonNull(bd);
             this.listener = requireNonNull(listener);
             this.coverage = coverage;
+            this.queue = requireNonNull(queue);
         }
 
         /** {@inheritDoc} */
@@ -99,6 +107,18 @@ class SubscriptionSet {
             remove(this);
         }
 
+        /**
+         * Queues the specified broadcast for delivery. Broadcasts are delivered in the order they are dispatched.
+         *
+         * @param broadcastHeader
+         *            the header of the broadcast
+         * @param message
+         *            the broadcast message
+         */
+        void dispatch(MessageHeader broadcastHeader, BroadcastMessage message) {
+            queue.execute(() -> deliver(broadcastHeader, message));
+        }
+
         @SuppressWarnings({ "unchecked", "rawtypes" })
         void deliver(MessageHeader broadcastHeader, BroadcastMessage message) {
             // Vi har et problem, hvis vi ikke sender et evt, broadcast area med...
@@ -128,6 +148,24 @@ class SubscriptionSet {
             return count.get();
         }
 
+        /** {@inheritDoc} */
+        @Override
+        public long getNumberOfDroppedMessages() {
+            return queue.getNumberOfDropped();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int getNumberOfPendingMessages() {
+            return queue.getNumberOfPending();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public long getLag(TimeUnit unit) {
+            return queue.getLag(unit);
+        }
+
         /** {@inheritDoc} */
         @Override
         public String getBroadcastType() {
@@ -31,6 +31,7 @@ import net.maritimecloud.internal.mms.messages.Welcome;
 import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
 import net.maritimecloud.internal.util.logging.Logger;
 import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageFormatType;
 import net.maritimecloud.net.mms.MmsConnectionClosingCode;
 import net.maritimecloud.util.Binary;
 import net.maritimecloud.util.geometry.PositionTime;
@@ -151,6 +152,13 @@ final class SessionStateConnecting extends SessionState {
         Hello h = new Hello();
         // Client properties
         h.setClientId(session.info.getClientId().toString());
+        boolean compact = session.info.getMessageFormatType() == MessageFormatType.MACHINE_READABLE_COMPACT
+                && w.getProtocolVersion().contains(MmsMessage.PROTOCOL_VERSION_COMPACT);
+        if (compact) {
+            h.setProtocolVersion(MmsMessage.PROTOCOL_VERSION_COMPACT); // also allows the server to send batches
+        } else if (w.getProtocolVersion().contains(MmsMessage.PROTOCOL_VERSION_BATCH)) {
+            h.setProtocolVersion(MmsMessage.PROTOCOL_VERSION_BATCH); // allow the server to send batches
+        }
         if (session.info.getClientConnectString() != null) {
             for (Map.Entry<String, String> e : session.info.getClientConnectString().entrySet()) {
                 h.putProperties(e.getKey(), e.getValue());
@@ -169,6 +177,9 @@ final class SessionStateConnecting extends SessionState {
             h.setPositionTime(pr.get().withTime(System.currentTimeMillis()));
         }
 
+        if (compact) {
+            transport.useCompactBinary(); // before sending Hello, the server replies in the compact format
+        }
         transport.sendMessage(new MmsMessage(h));
         receivedHelloMessage = true;
     }
@@ -18,8 +18,11 @@ import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import net.maritimecloud.internal.mms.messages.Batch;
 import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
 import net.maritimecloud.internal.util.logging.Logger;
 import net.maritimecloud.net.mms.MmsConnection;
@@ -42,6 +45,9 @@ public abstract class ClientTransport {
     /** The listener of transport events. */
     final ClientTransportListener transportListener;
 
+    /** Whether or not binary messages are sent and received in the compact binary format. */
+    volatile boolean compactBinary;
+
     /**
      * Creates a new ClientTransport
      *
@@ -88,15 +94,40 @@ public abstract class ClientTransport {
 
         MmsMessage msg;
         try {
-            msg = MmsMessage.parseBinaryMessage(binaryMessage);
+            msg = compactBinary ? MmsMessage.parseCompactBinaryMessage(ByteBuffer.wrap(binaryMessage)) : MmsMessage
+                    .parseBinaryMessage(binaryMessage);
             msg.setInbound(true);
         } catch (Exception e) {
             LOGGER.error("Failed to parse incoming binary message", e);
             closeTransport(MmsConnectionClosingCode.WRONG_MESSAGE.withMessage(e.getMessage()));
             return;
         }
-        transportListener.onMessageReceived(msg);
+        onMessage(msg);
+    }
 
+    /**
+     * Delivers a parsed message to the transport listener. A batch is split into the messages it contains.
+     *
+     * @param msg
+     *            the message that was received
+     */
+    private void onMessage(MmsMessage msg) {
+        if (msg.getM() instanceof Batch) {
+            List<MmsMessage> messages;
+            try {
+                messages = MmsMessage.parseBatch((Batch) msg.getM(), compactBinary);
+            } catch (Exception e) {
+                LOGGER.error("Failed to parse incoming batch", e);
+                closeTransport(MmsConnectionClosingCode.WRONG_MESSAGE.withMessage(e.getMessage()));
+                return;
+            }
+            for (MmsMessage m : messages) {
+                m.setInbound(true);
+                transportListener.onMessageReceived(m);
+            }
+        } else {
+            transportListener.onMessageReceived(msg);
+        }
     }
 
     /**
@@ -118,12 +149,21 @@ public abstract class ClientTransport {
             return;
         }
         try {
-            transportListener.onMessageReceived(msg);
+            onMessage(msg);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Switches binary messages to the compact binary format. Called right before sending a Hello message selecting
+     * {@link MmsMessage#PROTOCOL_VERSION_COMPACT}. The Hello message itself is still sent in the default binary format,
+     * all following binary messages in both directions use the compact format.
+     */
+    public void useCompactBinary() {
+        compactBinary = true;
+    }
+
     /**
      * Sends the specified message.
      *
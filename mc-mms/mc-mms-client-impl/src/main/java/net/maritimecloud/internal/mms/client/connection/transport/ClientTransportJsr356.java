@@ -14,6 +14,7 @@
  */
 package net.maritimecloud.internal.mms.client.connection.transport;
 
+import net.maritimecloud.internal.mms.messages.Hello;
 import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
 import net.maritimecloud.internal.util.concurrent.CompletableFuture;
 import net.maritimecloud.internal.util.logging.Logger;
@@ -84,7 +85,9 @@ public final class ClientTransportJsr356 extends ClientTransport { // Class must
         super(transportListener, connectionListener);
 
         this.conf = conf;
-        this.mft = conf != null && conf.useBinary() ? MessageFormatType.MACHINE_READABLE : MessageFormatType.HUMAN_READABLE;
+        // A compact binary connection sends the Hello message in the default binary format
+        this.mft = conf != null && (conf.useBinary() || conf.useCompactBinary()) ? MessageFormatType.MACHINE_READABLE
+                : MessageFormatType.HUMAN_READABLE;
         this.container = requireNonNull(container);
     }
 
@@ -144,7 +147,8 @@ public final class ClientTransportJsr356 extends ClientTransport { // Class must
             message.setInbound(false);
             if (mft == MessageFormatType.MACHINE_READABLE) {
                 try {
-                    byte[] data = message.toBinary();
+                    boolean compact = compactBinary && !(message.getM() instanceof Hello);
+                    byte[] data = compact ? message.toCompactBinary() : message.toBinary();
                     connectionListener.binaryMessageSend(data);
                     synchronized (writeLock) {
                         session.getBasicRemote().sendBinary(ByteBuffer.wrap(data));
@@ -17,7 +17,9 @@ package net.maritimecloud.internal.mms.client.endpoint;
 import static java.util.Objects.requireNonNull;
 
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import net.maritimecloud.core.id.MaritimeId;
 import net.maritimecloud.internal.mms.client.ClientInfo;
@@ -28,7 +30,8 @@ import net.maritimecloud.internal.net.endpoint.EndpointManager;
 import net.maritimecloud.internal.net.endpoint.EndpointMirror;
 import net.maritimecloud.internal.net.messages.MethodInvoke;
 import net.maritimecloud.internal.net.messages.MethodInvokeResult;
-import net.maritimecloud.internal.net.util.DefaultEndpointInvocationFuture;
+import net.maritimecloud.internal.util.MessageIdMap;
+import net.maritimecloud.internal.util.concurrent.CompletableFuture;
 import net.maritimecloud.message.Message;
 import net.maritimecloud.message.MessageSerializer;
 import net.maritimecloud.message.ValueSerializer;
@@ -38,6 +41,7 @@ import net.maritimecloud.net.EndpointRegistration;
 import net.maritimecloud.net.LocalEndpoint;
 import net.maritimecloud.net.mms.MmsClient;
 import net.maritimecloud.net.mms.MmsClientClosedException;
+import net.maritimecloud.net.mms.MmsClientConfiguration;
 import net.maritimecloud.net.mms.MmsEndpointLocator;
 import net.maritimecloud.util.Binary;
 import net.maritimecloud.util.Timestamp;
@@ -56,8 +60,20 @@ public class ClientEndpointManager {
     /** A map of subscribers. ChannelName -> List of listeners. */
     final EndpointManager em = new EndpointManager();
 
-    /** The client container. */
-    final ConcurrentHashMap<Binary, RemoteInvocation> invokers = new ConcurrentHashMap<>();
+    /** Outstanding remote invocations, keyed by the message id of the invocation. */
+    final MessageIdMap<RemoteInvocation> invokers = new MessageIdMap<>();
+
+    /** Limits the number of outstanding remote invocations. */
+    final Semaphore outstanding;
+
+    /** The default time to wait for the result of a remote invocation in nanoseconds. */
+    final long timeoutNanos;
+
+    /** The deadlines of the outstanding remote invocations. */
+    final InvocationTimer timer;
+
+    /** A cache of located endpoints, or null if located endpoints are not cached. */
+    final EndpointLocateCache locateCache;
 
     final MmsThreadManager threadManager;
 
@@ -70,11 +86,20 @@ public class ClientEndpointManager {
      *            the thread manager
      * @param clientInfo
      *            clientInfo
+     * @param configuration
+     *            the configuration of the client
      */
-    public ClientEndpointManager(ClientConnection connection, MmsThreadManager threadManager, ClientInfo clientInfo) {
+    public ClientEndpointManager(ClientConnection connection, MmsThreadManager threadManager, ClientInfo clientInfo,
+            MmsClientConfiguration configuration) {
         this.connection = requireNonNull(connection);
         this.threadManager = requireNonNull(threadManager);
         this.clientInfo = requireNonNull(clientInfo);
+        this.outstanding = new Semaphore(configuration.getMaxOutstandingInvocations());
+        this.timeoutNanos = configuration.getInvocationTimeout(TimeUnit.NANOSECONDS);
+        this.timer = new InvocationTimer(threadManager::execute);
+        threadManager.scheduleAtFixedRate(timer::advance, timer.tickNanos, TimeUnit.NANOSECONDS);
+        long ttl = configuration.getEndpointLocateCacheTimeToLive(TimeUnit.NANOSECONDS);
+        this.locateCache = ttl > 0 ? new EndpointLocateCache(ttl, TimeUnit.NANOSECONDS) : null;
 
         connection.subscribe(MethodInvoke.class, (a, e) -> onMethodInvoke(e));
         connection.subscribe(MethodInvokeResult.class, (a, e) -> onMethodInvokeResult(e));
@@ -125,11 +150,33 @@ public class ClientEndpointManager {
         }
         ei.setSenderId(clientInfo.getClientId().toString());
 
-        DefaultEndpointInvocationFuture<T> result = threadManager.create(ei.getMessageId());
-
-        result.recivedByCloud = connection.sendMessage(ei);
-        invokers.put(ei.getMessageId(), new RemoteInvocation(result, resultParser));
-
+        Binary id = ei.getMessageId();
+        RemoteInvocationFuture<T> result = threadManager.register(new RemoteInvocationFuture<>(timer, id));
+        if (!outstanding.tryAcquire()) {
+            // Fail fast instead of piling up invocations that the remote ends cannot keep up with
+            RejectedExecutionException e = new RejectedExecutionException(
+                    "The maximum number of outstanding invocations has been reached");
+            result.recivedByCloud = new CompletableFuture<>();
+            result.recivedByCloud.completeExceptionally(e);
+            result.completeExceptionally(e);
+            return result;
+        }
+        RemoteInvocation invocation = new RemoteInvocation(result, resultParser);
+        // Registered before the message is sent, as the result may arrive before sendMessage returns
+        invokers.put(id, invocation);
+        // Removed again when the invocation completes, whether by a result, a timeout or a shutdown of the client
+        result.delegate.whenComplete((v, e) -> {
+            invokers.remove(id, invocation);
+            timer.cancel(result);
+            outstanding.release();
+        });
+        timer.schedule(result, timeoutNanos, TimeUnit.NANOSECONDS);
+        try {
+            result.recivedByCloud = connection.sendMessage(ei);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            throw e;
+        }
         return result;
     }
 
@@ -146,6 +193,9 @@ public class ClientEndpointManager {
      */
     public EndpointRegistration endpointRegister(EndpointImplementation implementation) {
         em.endpointRegister(implementation);
+        if (locateCache != null) {
+            locateCache.invalidate(implementation.getEndpointName());
+        }
 
         Services s = endpointFrom(null, Services.class);
         DefaultEndpointRegistration reg = new DefaultEndpointRegistration();
@@ -158,7 +208,7 @@ public class ClientEndpointManager {
     }
 
     void onMethodInvokeResult(MethodInvokeResult m) {
-        RemoteInvocation f = invokers.get(m.getResultForMessageId());
+        RemoteInvocation f = invokers.remove(m.getResultForMessageId());
         if (f != null) {
             f.complete(m);
         }
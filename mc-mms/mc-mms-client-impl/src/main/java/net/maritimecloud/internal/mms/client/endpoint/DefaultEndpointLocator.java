@@ -22,6 +22,8 @@ import java.util.List;
 import net.maritimecloud.core.id.MaritimeId;
 import net.maritimecloud.internal.mms.messages.services.Services;
 import net.maritimecloud.internal.net.endpoint.EndpointMirror;
+import net.maritimecloud.internal.net.util.DefaultEndpointInvocationFuture;
+import net.maritimecloud.internal.util.concurrent.CompletableFuture;
 import net.maritimecloud.net.EndpointInvocationFuture;
 import net.maritimecloud.net.LocalEndpoint;
 import net.maritimecloud.net.mms.MmsEndpointLocator;
@@ -63,19 +65,47 @@ class DefaultEndpointLocator<T extends LocalEndpoint> implements MmsEndpointLoca
     /** {@inheritDoc} */
     @Override
     public EndpointInvocationFuture<T> findNearest() {
-        Services s = cem.endpointFrom(null, Services.class);
-        EndpointInvocationFuture<List<String>> f = s.locate(mirror.getName(), distance, 1);
-        return f.thenApply(e -> {
-            List<T> li = fromIds(e);
-            return li.isEmpty() ? null : li.get(0);
-        });
+        return locate(1).thenApply(li -> li.isEmpty() ? null : li.get(0));
     }
 
     /** {@inheritDoc} */
     public EndpointInvocationFuture<List<T>> findAll(int maximumResults) {
+        return locate(maximumResults);
+    }
+
+    /**
+     * Locates endpoints, using the cache of the endpoint manager if enabled.
+     *
+     * @param max
+     *            the maximum number of endpoints to locate
+     * @return a future with the endpoints
+     */
+    @SuppressWarnings("unchecked")
+    private EndpointInvocationFuture<List<T>> locate(int max) {
+        EndpointLocateCache cache = cem.locateCache;
+        EndpointLocateCache.Key key = null;
+        if (cache != null) {
+            key = cache.key(mirror.getName(), distance, max, cem.clientInfo.getCurrentPosition().orElse(null));
+            EndpointLocateCache.Result r = cache.get(key);
+            if (r != null) {
+                // A copy, as the cached list is shared
+                List<T> endpoints = new ArrayList<>((List<T>) (List<?>) r.endpoints);
+                DefaultEndpointInvocationFuture<List<T>> f = new DefaultEndpointInvocationFuture<>(
+                        CompletableFuture.completedFuture(endpoints), r.messageId);
+                f.recivedByCloud = CompletableFuture.completedFuture(null);
+                return f;
+            }
+        }
         Services s = cem.endpointFrom(null, Services.class);
-        EndpointInvocationFuture<List<String>> f = s.locate(mirror.getName(), distance, maximumResults);
-        return f.thenApply(e -> fromIds(e));
+        EndpointInvocationFuture<List<String>> f = s.locate(mirror.getName(), distance, max);
+        EndpointLocateCache.Key k = key;
+        return f.thenApply(e -> {
+            List<T> endpoints = fromIds(e);
+            if (k != null) {
+                cache.put(k, endpoints, f.getMessageId());
+            }
+            return endpoints;
+        });
     }
 
     @SuppressWarnings("unchecked")
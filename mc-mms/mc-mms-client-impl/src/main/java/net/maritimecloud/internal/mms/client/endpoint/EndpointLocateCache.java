@@ -0,0 +1,213 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.mms.client.endpoint;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import net.maritimecloud.net.LocalEndpoint;
+import net.maritimecloud.util.Binary;
+import net.maritimecloud.util.geometry.Position;
+
+/**
+ * A client side cache of the results of locating endpoints. Results are keyed by the name of the endpoint, the maximum
+ * distance, the maximum number of results and the cell of a grid that the position of the client is in. Each cell is
+ * a tenth of the maximum distance on a side, but at least {@value #MINIMUM_CELL_METERS} meters. So a result is reused
+ * while the client stays close to where the endpoints were located, relative to the distance searched.
+ * <p>
+ * Results expire after a fixed time to live. The server does not notify clients when endpoints are registered or
+ * deregistered, so the time to live bounds how long a stale result can be returned.
+ *
+ * @author Kasper Nielsen
+ */
+class EndpointLocateCache {
+
+    /** The maximum number of results kept. */
+    static final int MAXIMUM_SIZE = 1024;
+
+    /** The minimum size of the cells of the grid in meters. */
+    static final int MINIMUM_CELL_METERS = 100;
+
+    /** The approximate number of meters per degree of latitude. */
+    static final double METERS_PER_DEGREE = 111_320;
+
+    /** The cached results. */
+    final ConcurrentHashMap<Key, Result> results = new ConcurrentHashMap<>();
+
+    /** The time to live of results in nanoseconds. */
+    final long timeToLiveNanos;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param timeToLive
+     *            the time to live of results
+     * @param unit
+     *            the unit of the time to live
+     */
+    EndpointLocateCache(long timeToLive, TimeUnit unit) {
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        if (timeToLiveNanos <= 0) {
+            throw new IllegalArgumentException("timeToLive must be positive, was " + timeToLive);
+        }
+    }
+
+    /**
+     * Returns the cached result for the specified key, or null if there is no result or it has expired.
+     *
+     * @param key
+     *            the key of the lookup
+     * @return the cached result, or null
+     */
+    Result get(Key key) {
+        Result r = results.get(key);
+        if (r != null && r.expires - System.nanoTime() <= 0) {
+            results.remove(key, r);
+            return null;
+        }
+        return r;
+    }
+
+    /**
+     * Removes all results for endpoints with the specified name.
+     *
+     * @param endpointName
+     *            the name of the endpoint
+     */
+    void invalidate(String endpointName) {
+        results.keySet().removeIf(k -> k.endpointName.equals(endpointName));
+    }
+
+    /**
+     * Creates a key for a lookup made at the specified position.
+     *
+     * @param endpointName
+     *            the name of the endpoint
+     * @param distance
+     *            the maximum distance in meters
+     * @param max
+     *            the maximum number of results
+     * @param position
+     *            the position of the client, or null if the position is unknown
+     * @return the key
+     */
+    Key key(String endpointName, int distance, int max, Position position) {
+        long latitude = Long.MIN_VALUE;
+        long longitude = Long.MIN_VALUE;
+        if (position != null) {
+            // Cells are narrower in meters towards the poles, so results are never reused further away than intended
+            double cellDegrees = Math.max(distance / 10d, MINIMUM_CELL_METERS) / METERS_PER_DEGREE;
+            latitude = (long) Math.floor(position.getLatitude() / cellDegrees);
+            longitude = (long) Math.floor(position.getLongitude() / cellDegrees);
+        }
+        return new Key(endpointName, distance, max, latitude, longitude);
+    }
+
+    /**
+     * Caches the specified endpoints.
+     *
+     * @param key
+     *            the key of the lookup
+     * @param endpoints
+     *            the endpoints that were located
+     * @param messageId
+     *            the message id of the invocation that located the endpoints
+     */
+    void put(Key key, List<? extends LocalEndpoint> endpoints, Binary messageId) {
+        if (results.size() >= MAXIMUM_SIZE) {
+            long now = System.nanoTime();
+            results.values().removeIf(r -> r.expires - now <= 0);
+            // Still full, make room by removing an arbitrary result
+            Iterator<Key> iter = results.keySet().iterator();
+            while (results.size() >= MAXIMUM_SIZE && iter.hasNext()) {
+                iter.next();
+                iter.remove();
+            }
+        }
+        results.put(key, new Result(endpoints, messageId, System.nanoTime() + timeToLiveNanos));
+    }
+
+    /** The key of a lookup. */
+    static final class Key {
+
+        /** The name of the endpoint. */
+        final String endpointName;
+
+        /** The maximum distance in meters. */
+        final int distance;
+
+        /** The maximum number of results. */
+        final int max;
+
+        /** The latitude of the cell, or Long.MIN_VALUE if the position of the client is unknown. */
+        final long latitude;
+
+        /** The longitude of the cell, or Long.MIN_VALUE if the position of the client is unknown. */
+        final long longitude;
+
+        Key(String endpointName, int distance, int max, long latitude, long longitude) {
+            this.endpointName = requireNonNull(endpointName);
+            this.distance = distance;
+            this.max = max;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) {
+                return true;
+            } else if (other instanceof Key) {
+                Key o = (Key) other;
+                return distance == o.distance && max == o.max && latitude == o.latitude && longitude == o.longitude
+                        && endpointName.equals(o.endpointName);
+            }
+            return false;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpointName, distance, max, latitude, longitude);
+        }
+    }
+
+    /** The endpoints located by a lookup. */
+    static final class Result {
+
+        /** The endpoints, in the order they were returned by the server. */
+        final List<LocalEndpoint> endpoints;
+
+        /** The time the result expires, as given by {@link System#nanoTime()}. */
+        final long expires;
+
+        /** The message id of the invocation that located the endpoints. */
+        final Binary messageId;
+
+        Result(List<? extends LocalEndpoint> endpoints, Binary messageId, long expires) {
+            this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+            this.messageId = requireNonNull(messageId);
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.mms.client.endpoint;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The deadlines of outstanding remote invocations, kept in a hashed timing wheel. The deadline of an invocation
+ * selects a bucket, each bucket covers one tick of time. Scheduling and cancelling a deadline are constant time
+ * operations. {@link #advance()} is invoked once every tick and fails the invocations in the buckets that have passed
+ * whose deadline has been reached. Deadlines more than a rotation away stay in their bucket until a later rotation.
+ * <p>
+ * Expired invocations are failed by the executor of the timer, so the dependent actions of the invocations are never
+ * run by the thread advancing the timer.
+ *
+ * @author Kasper Nielsen
+ */
+class InvocationTimer {
+
+    /** The default duration of each bucket. */
+    static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /** The default number of buckets, a rotation of the wheel takes a little less than a minute. */
+    static final int DEFAULT_BUCKETS = 512;
+
+    /** The next tick that has not been expired. Guarded by this. */
+    private long nextTick;
+
+    /** The time that ticks are counted from. */
+    final long origin = System.nanoTime();
+
+    /** The duration of each bucket in nanoseconds. */
+    final long tickNanos;
+
+    /** The buckets of the wheel, an invocation expiring in tick t is placed in bucket t % length. Guarded by this. */
+    final HashSet<RemoteInvocationFuture<?>>[] wheel;
+
+    /** The executor used for failing expired invocations. */
+    final Executor executor;
+
+    /**
+     * Creates a new timer with buckets of 100 milliseconds.
+     *
+     * @param executor
+     *            the executor used for failing expired invocations
+     */
+    InvocationTimer(Executor executor) {
+        this(executor, DEFAULT_TICK_NANOS, TimeUnit.NANOSECONDS, DEFAULT_BUCKETS);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param executor
+     *            the executor used for failing expired invocations
+     * @param tickDuration
+     *            the duration of each bucket, deadlines are enforced at this granularity
+     * @param unit
+     *            the unit of the tick duration
+     * @param buckets
+     *            the number of buckets in the wheel
+     */
+    @SuppressWarnings("unchecked")
+    InvocationTimer(Executor executor, long tickDuration, TimeUnit unit, int buckets) {
+        this.executor = requireNonNull(executor);
+        this.tickNanos = unit.toNanos(tickDuration);
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive, was " + tickDuration);
+        } else if (buckets < 1) {
+            throw new IllegalArgumentException("buckets must be at least 1, was " + buckets);
+        }
+        wheel = new HashSet[buckets];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new HashSet<>();
+        }
+    }
+
+    /**
+     * Fails all invocations whose deadline has been reached with a {@link TimeoutException}. Should be invoked once
+     * every tick. If some ticks were missed, the buckets of those ticks are expired as well.
+     */
+    void advance() {
+        List<RemoteInvocationFuture<?>> expired = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (this) {
+            long current = Math.floorDiv(now - origin, tickNanos);
+            // Never visit a bucket more than once, even if more than a rotation has been missed
+            for (long tick = Math.max(nextTick, current - wheel.length + 1); tick <= current; tick++) {
+                HashSet<RemoteInvocationFuture<?>> b = wheel[(int) (tick % wheel.length)];
+                for (Iterator<RemoteInvocationFuture<?>> iter = b.iterator(); iter.hasNext();) {
+                    RemoteInvocationFuture<?> f = iter.next();
+                    if (f.deadline - now <= 0) {
+                        iter.remove();
+                        f.bucket = -1;
+                        expired.add(f);
+                    }
+                }
+            }
+            nextTick = Math.max(nextTick, current + 1);
+        }
+        if (!expired.isEmpty()) {
+            // Complete the futures without holding the lock, as completing them runs the dependent actions
+            Runnable r = () -> expire(expired);
+            try {
+                executor.execute(r);
+            } catch (RejectedExecutionException e) {
+                r.run(); // the client is shutting down
+            }
+        }
+    }
+
+    /**
+     * Fails the specified invocations with a {@link TimeoutException}.
+     *
+     * @param expired
+     *            the invocations whose deadline has been reached
+     */
+    static void expire(List<RemoteInvocationFuture<?>> expired) {
+        for (RemoteInvocationFuture<?> f : expired) {
+            f.completeExceptionally(new TimeoutException("No result was received for the invocation with id "
+                    + f.getMessageId() + " within the deadline"));
+        }
+    }
+
+    /**
+     * Removes the deadline of the specified invocation, if any.
+     *
+     * @param f
+     *            the invocation
+     */
+    synchronized void cancel(RemoteInvocationFuture<?> f) {
+        if (f.bucket >= 0) {
+            wheel[f.bucket].remove(f);
+            f.bucket = -1;
+        }
+    }
+
+    /**
+     * Sets the deadline of the specified invocation, replacing any previous deadline. Does nothing if the invocation
+     * has already completed.
+     *
+     * @param f
+     *            the invocation
+     * @param timeout
+     *            the time from now until the deadline
+     * @param unit
+     *            the unit of the timeout
+     */
+    synchronized void schedule(RemoteInvocationFuture<?> f, long timeout, TimeUnit unit) {
+        cancel(f);
+        if (!f.isDone()) {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            // Round up so an invocation is never failed before its deadline
+            long tick = Math.max(nextTick, Math.floorDiv(deadline - origin + tickNanos - 1, tickNanos));
+            f.deadline = deadline;
+            f.bucket = (int) (tick % wheel.length);
+            wheel[f.bucket].add(f);
+        }
+    }
+
+    /**
+     * Returns the number of invocations that have a deadline.
+     *
+     * @return the number of invocations that have a deadline
+     */
+    synchronized int size() {
+        int size = 0;
+        for (HashSet<RemoteInvocationFuture<?>> b : wheel) {
+            size += b.size();
+        }
+        return size;
+    }
+}
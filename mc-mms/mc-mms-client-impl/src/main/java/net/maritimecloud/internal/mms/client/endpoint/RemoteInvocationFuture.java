@@ -0,0 +1,58 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.mms.client.endpoint;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.TimeUnit;
+
+import net.maritimecloud.internal.net.util.DefaultEndpointInvocationFuture;
+import net.maritimecloud.internal.util.concurrent.CompletableFuture;
+import net.maritimecloud.util.Binary;
+
+/**
+ * The future of a remote invocation, whose deadline is kept by an {@link InvocationTimer}.
+ *
+ * @author Kasper Nielsen
+ */
+class RemoteInvocationFuture<T> extends DefaultEndpointInvocationFuture<T> {
+
+    /** The index of the bucket holding the deadline, or -1 if there is no deadline. Guarded by the timer. */
+    int bucket = -1;
+
+    /** The deadline as given by {@link System#nanoTime()}. Guarded by the timer. */
+    long deadline;
+
+    /** The timer keeping the deadline. */
+    final InvocationTimer timer;
+
+    RemoteInvocationFuture(InvocationTimer timer, Binary messageId) {
+        super(new CompletableFuture<T>(), messageId);
+        this.timer = requireNonNull(timer);
+    }
+
+    /**
+     * Creates a new future that times out after the specified time. The invocation itself keeps its default deadline,
+     * so other users of this future are not affected.
+     */
+    @Override
+    public DefaultEndpointInvocationFuture<T> orTimeout(long timeout, TimeUnit unit) {
+        DefaultEndpointInvocationFuture<T> f = new DefaultEndpointInvocationFuture<>(delegate.thenApply(e -> e),
+                getMessageId());
+        f.recivedByCloud = recivedByCloud;
+        f.delegate.orTimeout(timeout, unit);
+        return f;
+    }
+}
@@ -0,0 +1,185 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.mms.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.maritimecloud.net.mms.BroadcastOverflowPolicy;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link DispatchQueue}.
+ *
+ * @author Kasper Nielsen
+ */
+public class DispatchQueueTest {
+
+    ExecutorService es = Executors.newFixedThreadPool(4);
+
+    @After
+    public void teardown() throws InterruptedException {
+        es.shutdownNow();
+        es.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    /** Tasks are run one at a time in the order they were added. */
+    @Test
+    public void ordered() throws InterruptedException {
+        DispatchQueue q = new DispatchQueue(es, 10000, BroadcastOverflowPolicy.BLOCK);
+        List<Integer> result = new ArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        for (int i = 0; i < 1000; i++) {
+            int n = i;
+            q.execute(() -> {
+                assertEquals(1, running.incrementAndGet());
+                result.add(n);
+                running.decrementAndGet();
+                if (n == 999) {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        synchronized (result) {
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, result.get(i).intValue());
+            }
+        }
+        assertEquals(0, q.getNumberOfDropped());
+    }
+
+    /** A task failing with an error does not stop the tasks after it. */
+    @Test
+    public void error() throws InterruptedException {
+        DispatchQueue q = new DispatchQueue(es, 10, BroadcastOverflowPolicy.BLOCK);
+        CountDownLatch done = new CountDownLatch(1);
+        q.execute(() -> {
+            throw new StackOverflowError();
+        });
+        q.execute(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void dropNewest() throws InterruptedException {
+        CountDownLatch block = new CountDownLatch(1);
+        DispatchQueue q = new DispatchQueue(es, 2, BroadcastOverflowPolicy.DROP_NEWEST);
+        List<Integer> result = blocked(q, block);
+        for (int i = 0; i < 4; i++) {
+            int n = i;
+            q.execute(() -> add(result, n));
+        }
+        assertEquals(2, q.getNumberOfPending());
+        assertEquals(2, q.getNumberOfDropped());
+        block.countDown();
+        awaitIdle(q);
+        assertEquals(2, result.size());
+        assertEquals(0, result.get(0).intValue());
+        assertEquals(1, result.get(1).intValue());
+    }
+
+    @Test
+    public void dropOldest() throws InterruptedException {
+        CountDownLatch block = new CountDownLatch(1);
+        DispatchQueue q = new DispatchQueue(es, 2, BroadcastOverflowPolicy.DROP_OLDEST);
+        List<Integer> result = blocked(q, block);
+        for (int i = 0; i < 4; i++) {
+            int n = i;
+            q.execute(() -> add(result, n));
+        }
+        assertEquals(2, q.getNumberOfPending());
+        assertEquals(2, q.getNumberOfDropped());
+        block.countDown();
+        awaitIdle(q);
+        assertEquals(2, result.size());
+        assertEquals(2, result.get(0).intValue());
+        assertEquals(3, result.get(1).intValue());
+    }
+
+    @Test
+    public void block() throws InterruptedException {
+        CountDownLatch block = new CountDownLatch(1);
+        DispatchQueue q = new DispatchQueue(es, 1, BroadcastOverflowPolicy.BLOCK);
+        List<Integer> result = blocked(q, block);
+        q.execute(() -> add(result, 0));
+        CountDownLatch added = new CountDownLatch(1);
+        new Thread(() -> {
+            q.execute(() -> add(result, 1));
+            added.countDown();
+        }).start();
+        assertFalse(added.await(200, TimeUnit.MILLISECONDS));
+        block.countDown();
+        assertTrue(added.await(5, TimeUnit.SECONDS));
+        awaitIdle(q);
+        assertEquals(2, result.size());
+        assertEquals(0, q.getNumberOfDropped());
+    }
+
+    @Test
+    public void lag() throws InterruptedException {
+        CountDownLatch block = new CountDownLatch(1);
+        DispatchQueue q = new DispatchQueue(es, 10, BroadcastOverflowPolicy.BLOCK);
+        assertEquals(0, q.getLag(TimeUnit.NANOSECONDS));
+        blocked(q, block);
+        Thread.sleep(50);
+        assertTrue(q.getLag(TimeUnit.MILLISECONDS) >= 50);
+        block.countDown();
+        awaitIdle(q);
+        assertEquals(0, q.getLag(TimeUnit.NANOSECONDS));
+    }
+
+    static void add(List<Integer> list, int n) {
+        synchronized (list) {
+            list.add(n);
+        }
+    }
+
+    /** Waits until the queue is idle. */
+    static void awaitIdle(DispatchQueue q) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (q.getLag(TimeUnit.NANOSECONDS) > 0 || q.getNumberOfPending() > 0) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    /** Adds a task that blocks the queue until the latch is released, returns once the task is running. */
+    static List<Integer> blocked(DispatchQueue q, CountDownLatch latch) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        q.execute(() -> {
+            started.countDown();
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return new ArrayList<>();
+    }
+}
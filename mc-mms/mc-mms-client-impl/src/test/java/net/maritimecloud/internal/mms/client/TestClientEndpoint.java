@@ -28,6 +28,7 @@ import javax.websocket.RemoteEndpoint.Basic;
 import javax.websocket.Session;
 import javax.websocket.server.ServerEndpoint;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
@@ -139,6 +140,15 @@ public class TestClientEndpoint {
         }
     }
 
+    public void sendBatch(MmsMessage... messages) {
+        Basic r = session.getBasicRemote();
+        try {
+            r.sendText(MmsMessage.toText(Arrays.asList(messages)));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     public <T extends BlockingQueue<MmsMessage>> T setQueue(T q) {
         this.m = requireNonNull(q);
         return q;
@@ -15,9 +15,12 @@
 package net.maritimecloud.internal.mms.client.broadcast;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import net.maritimecloud.internal.mms.client.AbstractClientConnectionTest;
@@ -88,6 +91,31 @@ public class BroadcastTest extends AbstractClientConnectionTest {
         assertTrue(cdl.await(2, TimeUnit.SECONDS));
     }
 
+    /** Listeners of the same type share a single decoded immutable message. */
+    @Test
+    public void broadcastListenDecodedOnce() throws Exception {
+        MmsClient c = createAndConnect();
+
+        final BlockingQueue<BroadcastTestMessage> received = new LinkedBlockingQueue<>();
+        c.broadcastSubscribe(BroadcastTestMessage.class, (header, m) -> received.add(m));
+        c.broadcastSubscribe(BroadcastTestMessage.class, (header, m) -> received.add(m));
+
+        Broadcast bm = new Broadcast();
+        bm.setBroadcastType(BroadcastTestMessage.class.getCanonicalName());
+        bm.setMessageId(Binary.random(32));
+        bm.setPayload(Binary.copyFromUtf8(new BroadcastTestMessage().setMsg("foo").toJSON()));
+        bm.setSenderPosition(Position.create(1, 1));
+        bm.setSenderTimestamp(Timestamp.create(1));
+        bm.setSenderId(ID2.toString());
+        t.send(bm, 0, 0);
+
+        BroadcastTestMessage m1 = received.poll(2, TimeUnit.SECONDS);
+        BroadcastTestMessage m2 = received.poll(2, TimeUnit.SECONDS);
+        assertEquals("foo", m1.getMsg());
+        assertSame(m1, m2);
+        assertSame(m1, m1.immutable());
+    }
+
     @Test
     @Ignore
     // Subtype does not work, probably never will
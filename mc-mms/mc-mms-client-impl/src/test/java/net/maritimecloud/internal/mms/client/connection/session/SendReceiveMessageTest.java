@@ -83,6 +83,27 @@ public class SendReceiveMessageTest extends AbstractSessionTest {
         s.closeSession(MmsConnectionClosingCode.NORMAL);
     }
 
+    @Test
+    public void receiveBatch() throws Exception {
+        BlockingQueue<MmsMessage> q = new LinkedBlockingQueue<>();
+
+        Session s = connectNormally(msg -> q.add(msg));
+
+        MmsMessage[] batch = new MmsMessage[10];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = new MmsMessage(new Broadcast().setSenderId("abc" + i)).setMessageId(i + 1).setLatestReceivedId(0);
+        }
+        t.sendBatch(batch);
+
+        for (int i = 0; i < batch.length; i++) {
+            MmsMessage mm = q.poll(2, TimeUnit.SECONDS);
+            assertEquals(i + 1, mm.getMessageId());
+            assertEquals(0, mm.getLatestReceivedId());
+            assertEquals("abc" + i, mm.cast(Broadcast.class).getSenderId());
+        }
+        s.closeSession(MmsConnectionClosingCode.NORMAL);
+    }
+
     @Test
     public void receiveMessagesAckCheck() throws Exception {
         BlockingQueue<MmsMessage> q = new LinkedBlockingQueue<>();
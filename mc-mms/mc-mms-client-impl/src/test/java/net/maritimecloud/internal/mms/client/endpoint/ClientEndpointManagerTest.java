@@ -0,0 +1,164 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.mms.client.endpoint;
+
+import static net.maritimecloud.internal.mms.client.MoreAsserts.assertTrueWithin;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.maritimecloud.internal.mms.client.AbstractClientConnectionTest;
+import net.maritimecloud.internal.mms.client.DefaultMmsClient;
+import net.maritimecloud.internal.mms.messages.Connected;
+import net.maritimecloud.internal.net.messages.MethodInvoke;
+import net.maritimecloud.internal.net.messages.MethodInvokeResult;
+import net.maritimecloud.message.ValueSerializer;
+import net.maritimecloud.mms.stubs.HelloWorldEndpoint;
+import net.maritimecloud.mms.stubs.HelloWorldEndpoint.Hello;
+import net.maritimecloud.net.EndpointInvocationFuture;
+import net.maritimecloud.net.mms.MmsConnection;
+import net.maritimecloud.util.Binary;
+
+import org.cakeframework.container.Container;
+import org.cakeframework.container.Container.State;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the bookkeeping of outstanding invocations in {@link ClientEndpointManager}.
+ *
+ * @author Kasper Nielsen
+ */
+public class ClientEndpointManagerTest extends AbstractClientConnectionTest {
+
+    Container container;
+
+    ClientEndpointManager cem;
+
+    @After
+    public void shutdown() throws InterruptedException {
+        if (container != null) {
+            container.shutdown();
+            assertTrue(container.awaitState(State.TERMINATED, 5, TimeUnit.SECONDS));
+        }
+    }
+
+    void connect() throws InterruptedException {
+        container = DefaultMmsClient.createClient(conf);
+        t.m.take();
+        t.send(new Connected().setSessionId(BIN1).setLastReceivedMessageId(0L));
+        assertTrue(container.getService(MmsConnection.class).awaitConnected(1, TimeUnit.SECONDS));
+        cem = container.getService(ClientEndpointManager.class);
+    }
+
+    EndpointInvocationFuture<String> invoke() {
+        return cem.invokeRemote(ID4, HelloWorldEndpoint.NAME + ".hello", new Hello(), Hello.SERIALIZER,
+                ValueSerializer.TEXT);
+    }
+
+    void reply(MethodInvoke mi, String result) {
+        MethodInvokeResult r = new MethodInvokeResult();
+        r.setResultForMessageId(mi.getMessageId());
+        r.setResult(Binary.copyFromUtf8("\"" + result + "\""));
+        t.send(r);
+    }
+
+    /** Asserts that no invocations are outstanding. */
+    void assertNoneOutstanding(int maxOutstanding) throws InterruptedException {
+        // The invocation is cleaned up by a dependent action, that may not have run when join() returns
+        assertTrueWithin(() -> cem.outstanding.availablePermits() == maxOutstanding, 1, TimeUnit.SECONDS);
+        assertEquals(0, cem.invokers.size());
+        assertEquals(0, cem.timer.size());
+    }
+
+    @Test
+    public void result() throws Exception {
+        conf.setMaxOutstandingInvocations(2);
+        connect();
+
+        EndpointInvocationFuture<String> f = invoke();
+        assertEquals(1, cem.invokers.size());
+        assertEquals(1, cem.timer.size());
+        assertEquals(1, cem.outstanding.availablePermits());
+
+        reply(t.take(MethodInvoke.class), "ABC");
+        assertEquals("ABC", f.join());
+        assertNoneOutstanding(2);
+    }
+
+    @Test
+    public void timeout() throws Exception {
+        conf.setMaxOutstandingInvocations(2);
+        conf.setInvocationTimeout(200, TimeUnit.MILLISECONDS);
+        connect();
+
+        EndpointInvocationFuture<String> f = invoke();
+        AtomicReference<Thread> completedBy = new AtomicReference<>();
+        f.handle((v, e) -> completedBy.set(Thread.currentThread()));
+        MethodInvoke mi = t.take(MethodInvoke.class);
+        try {
+            f.join();
+            throw new AssertionError();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertNoneOutstanding(2);
+
+        // Timed out invocations are not failed by the thread advancing the timer
+        assertTrueWithin(() -> completedBy.get() != null, 1, TimeUnit.SECONDS);
+        assertFalse(completedBy.get().getName().contains("Scheduler"));
+
+        // A late result is ignored
+        reply(mi, "ABC");
+        EndpointInvocationFuture<String> f2 = invoke();
+        reply(t.take(MethodInvoke.class), "DEF");
+        assertEquals("DEF", f2.join());
+        assertNoneOutstanding(2);
+    }
+
+    @Test
+    public void maxOutstanding() throws Exception {
+        conf.setMaxOutstandingInvocations(1);
+        connect();
+
+        EndpointInvocationFuture<String> f1 = invoke();
+        MethodInvoke mi = t.take(MethodInvoke.class);
+
+        EndpointInvocationFuture<String> f2 = invoke();
+        try {
+            f2.getNow(null); // fails immediately
+            throw new AssertionError();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(1, cem.invokers.size());
+        assertEquals(0, cem.outstanding.availablePermits());
+
+        // A new invocation is accepted once the outstanding invocation has completed
+        reply(mi, "ABC");
+        assertEquals("ABC", f1.join());
+        assertNoneOutstanding(1);
+        EndpointInvocationFuture<String> f3 = invoke();
+        reply(t.take(MethodInvoke.class), "DEF");
+        assertEquals("DEF", f3.join());
+        assertNoneOutstanding(1);
+    }
+}
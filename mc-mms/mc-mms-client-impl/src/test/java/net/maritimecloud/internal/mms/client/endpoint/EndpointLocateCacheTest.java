@@ -0,0 +1,98 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.mms.client.endpoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import net.maritimecloud.util.Binary;
+import net.maritimecloud.util.geometry.Position;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link EndpointLocateCache}.
+ *
+ * @author Kasper Nielsen
+ */
+public class EndpointLocateCacheTest {
+
+    static final Binary ID = Binary.random(32);
+
+    EndpointLocateCache cache = new EndpointLocateCache(1, TimeUnit.HOURS);
+
+    @Test
+    public void putGet() {
+        EndpointLocateCache.Key key = cache.key("foo", 10000, 1, Position.create(55.6761, 12.5683));
+        assertNull(cache.get(key));
+        cache.put(key, Collections.emptyList(), ID);
+        EndpointLocateCache.Result r = cache.get(cache.key("foo", 10000, 1, Position.create(55.6761, 12.5683)));
+        assertNotNull(r);
+        assertSame(ID, r.messageId);
+        assertEquals(0, r.endpoints.size());
+    }
+
+    /** Positions in the same cell share the key, cells are a tenth of the distance on a side. */
+    @Test
+    public void cells() {
+        EndpointLocateCache.Key key = cache.key("foo", 10000, 1, Position.create(55.6761, 12.5683));
+        assertEquals(key, cache.key("foo", 10000, 1, Position.create(55.6762, 12.5684)));
+        assertNotEquals(key, cache.key("foo", 10000, 1, Position.create(55.7761, 12.5683)));
+        assertNotEquals(key, cache.key("foo", 10000, 2, Position.create(55.6761, 12.5683)));
+        assertNotEquals(key, cache.key("foo", 20000, 1, Position.create(55.6761, 12.5683)));
+        assertNotEquals(key, cache.key("bar", 10000, 1, Position.create(55.6761, 12.5683)));
+        assertNotEquals(key, cache.key("foo", 10000, 1, null));
+        assertEquals(cache.key("foo", 10000, 1, null), cache.key("foo", 10000, 1, null));
+        // A larger distance means larger cells
+        assertEquals(cache.key("foo", 1000000, 1, Position.create(55.1, 12.5683)),
+                cache.key("foo", 1000000, 1, Position.create(55.2, 12.5683)));
+    }
+
+    @Test
+    public void expires() throws InterruptedException {
+        cache = new EndpointLocateCache(20, TimeUnit.MILLISECONDS);
+        EndpointLocateCache.Key key = cache.key("foo", 10000, 1, null);
+        cache.put(key, Collections.emptyList(), ID);
+        assertNotNull(cache.get(key));
+        Thread.sleep(40);
+        assertNull(cache.get(key));
+        assertEquals(0, cache.results.size());
+    }
+
+    @Test
+    public void invalidate() {
+        EndpointLocateCache.Key foo = cache.key("foo", 10000, 1, null);
+        EndpointLocateCache.Key bar = cache.key("bar", 10000, 1, null);
+        cache.put(foo, Collections.emptyList(), ID);
+        cache.put(bar, Collections.emptyList(), ID);
+        cache.invalidate("foo");
+        assertNull(cache.get(foo));
+        assertNotNull(cache.get(bar));
+    }
+
+    @Test
+    public void bounded() {
+        for (int i = 0; i < EndpointLocateCache.MAXIMUM_SIZE * 2; i++) {
+            cache.put(cache.key("foo", i, 1, null), Collections.emptyList(), ID);
+        }
+        assertEquals(EndpointLocateCache.MAXIMUM_SIZE, cache.results.size());
+    }
+}
@@ -0,0 +1,144 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.mms.client.endpoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.maritimecloud.internal.net.util.DefaultEndpointInvocationFuture;
+import net.maritimecloud.util.Binary;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link InvocationTimer}.
+ *
+ * @author Kasper Nielsen
+ */
+public class InvocationTimerTest {
+
+    InvocationTimer timer = new InvocationTimer(Runnable::run, 10, TimeUnit.MILLISECONDS, 8);
+
+    RemoteInvocationFuture<String> newFuture() {
+        return new RemoteInvocationFuture<>(timer, Binary.random(32));
+    }
+
+    /** Advances the timer until the specified time has passed. */
+    void advanceFor(long millis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        while (System.nanoTime() - deadline < 0) {
+            timer.advance();
+            Thread.sleep(2);
+        }
+        timer.advance();
+    }
+
+    @Test
+    public void expires() throws InterruptedException {
+        RemoteInvocationFuture<String> f = newFuture();
+        timer.schedule(f, 50, TimeUnit.MILLISECONDS);
+        assertEquals(1, timer.size());
+        timer.advance();
+        assertFalse(f.isDone());
+        advanceFor(60);
+        assertTrue(f.isDone());
+        assertEquals(0, timer.size());
+        try {
+            f.join();
+            throw new AssertionError();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    /** A deadline more than a rotation of the wheel away survives the earlier rotations. */
+    @Test
+    public void expiresAfterSeveralRotations() throws InterruptedException {
+        RemoteInvocationFuture<String> f = newFuture();
+        timer.schedule(f, 250, TimeUnit.MILLISECONDS);
+        advanceFor(150);
+        assertFalse(f.isDone());
+        advanceFor(120);
+        assertTrue(f.isDone());
+    }
+
+    @Test
+    public void cancel() throws InterruptedException {
+        RemoteInvocationFuture<String> f = newFuture();
+        timer.schedule(f, 20, TimeUnit.MILLISECONDS);
+        timer.cancel(f);
+        assertEquals(0, timer.size());
+        advanceFor(40);
+        assertFalse(f.isDone());
+    }
+
+    /** Expired invocations are failed by the executor of the timer, not by the thread advancing it. */
+    @Test
+    public void executor() throws InterruptedException {
+        List<Runnable> tasks = new ArrayList<>();
+        timer = new InvocationTimer(tasks::add, 10, TimeUnit.MILLISECONDS, 8);
+        RemoteInvocationFuture<String> f1 = newFuture();
+        RemoteInvocationFuture<String> f2 = newFuture();
+        timer.schedule(f1, 20, TimeUnit.MILLISECONDS);
+        timer.schedule(f2, 20, TimeUnit.MILLISECONDS);
+        advanceFor(40);
+        assertEquals(0, timer.size());
+        assertFalse(f1.isDone());
+        assertFalse(f2.isDone());
+        assertFalse(tasks.isEmpty());
+        tasks.forEach(Runnable::run);
+        assertTrue(f1.isDone());
+        assertTrue(f2.isDone());
+    }
+
+    /** A completed invocation is not given a deadline. */
+    @Test
+    public void completed() {
+        RemoteInvocationFuture<String> f = newFuture();
+        f.complete("foo");
+        timer.schedule(f, 20, TimeUnit.MILLISECONDS);
+        assertEquals(0, timer.size());
+    }
+
+    /** {@link RemoteInvocationFuture#orTimeout(long, TimeUnit)} creates a new future, the deadline is unchanged. */
+    @Test
+    public void orTimeout() throws InterruptedException {
+        RemoteInvocationFuture<String> f = newFuture();
+        timer.schedule(f, 1, TimeUnit.HOURS);
+        DefaultEndpointInvocationFuture<String> t = f.orTimeout(20, TimeUnit.MILLISECONDS);
+        assertNotSame(f, t);
+        assertEquals(1, timer.size());
+        advanceFor(40);
+        assertTrue(t.isDone());
+        assertFalse(f.isDone());
+        assertEquals(1, timer.size());
+        try {
+            t.join();
+            throw new AssertionError();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        f.complete("foo");
+        assertEquals("foo", f.orTimeout(1, TimeUnit.HOURS).join());
+    }
+}
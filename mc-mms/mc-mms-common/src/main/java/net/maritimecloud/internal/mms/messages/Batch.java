@@ -0,0 +1,207 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.mms.messages;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import net.maritimecloud.internal.message.Hashing;
+import net.maritimecloud.internal.message.MessageHelper;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageReader;
+import net.maritimecloud.message.MessageSerializer;
+import net.maritimecloud.message.MessageWriter;
+import net.maritimecloud.message.ValueSerializer;
+import net.maritimecloud.util.Binary;
+
+public class Batch implements Message {
+
+    /** The full name of this message. */
+    public static final String NAME = "net.maritimecloud.internal.mms.messages.Batch";
+
+    /** A message serializer that can read and write instances of this class. */
+    public static final MessageSerializer<Batch> SERIALIZER = new Serializer();
+
+    /** Field definition. */
+    private final List<Binary> binaryMessages;
+
+    /** Field definition. */
+    private final List<String> textMessages;
+
+    /** Creates a new Batch. */
+    public Batch() {
+        binaryMessages = new java.util.ArrayList<>();
+        textMessages = new java.util.ArrayList<>();
+    }
+
+    /**
+     * Creates a new Batch by reading from a message reader.
+     *
+     * @param reader
+     *            the message reader
+     */
+    Batch(MessageReader reader) throws IOException {
+        this.binaryMessages = MessageHelper.readList(1, "binaryMessages", reader, ValueSerializer.BINARY);
+        this.textMessages = MessageHelper.readList(2, "textMessages", reader, ValueSerializer.TEXT);
+    }
+
+    /**
+     * Creates a new Batch by copying an existing.
+     *
+     * @param instance
+     *            the instance to copy all fields from
+     */
+    Batch(Batch instance) {
+        this.binaryMessages = MessageHelper.immutableCopy(instance.binaryMessages);
+        this.textMessages = MessageHelper.immutableCopy(instance.textMessages);
+    }
+
+    void writeTo(MessageWriter w) throws IOException {
+        w.writeList(1, "binaryMessages", binaryMessages, ValueSerializer.BINARY);
+        w.writeList(2, "textMessages", textMessages, ValueSerializer.TEXT);
+    }
+
+    /** Returns the messages of the batch in the binary format, in the order they were sent. */
+    public List<Binary> getBinaryMessages() {
+        return java.util.Collections.unmodifiableList(binaryMessages);
+    }
+
+    public boolean hasBinaryMessages() {
+        return binaryMessages != null;
+    }
+
+    public Batch addBinaryMessages(Binary binaryMessages) {
+        java.util.Objects.requireNonNull(binaryMessages, "binaryMessages is null");
+        this.binaryMessages.add(binaryMessages);
+        return this;
+    }
+
+    public Batch addAllBinaryMessages(Collection<? extends Binary> binaryMessages) {
+        for (Binary e : binaryMessages) {
+            addBinaryMessages(e);
+        }
+        return this;
+    }
+
+    /** Returns the messages of the batch in the text format, in the order they were sent. */
+    public List<String> getTextMessages() {
+        return java.util.Collections.unmodifiableList(textMessages);
+    }
+
+    public boolean hasTextMessages() {
+        return textMessages != null;
+    }
+
+    public Batch addTextMessages(String textMessages) {
+        java.util.Objects.requireNonNull(textMessages, "textMessages is null");
+        this.textMessages.add(textMessages);
+        return this;
+    }
+
+    public Batch addAllTextMessages(Collection<? extends String> textMessages) {
+        for (String e : textMessages) {
+            addTextMessages(e);
+        }
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Batch immutable() {
+        return new Immutable(this);
+    }
+
+    /** Returns a JSON representation of this message */
+    public String toJSON() {
+        return MessageSerializer.writeToJSON(this, SERIALIZER);
+    }
+
+    /**
+     * Creates a message of this type from a JSON throwing a runtime exception if the format of the message does not match
+     */
+    public static Batch fromJSON(CharSequence c) {
+        return MessageSerializer.readFromJSON(SERIALIZER, c);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        int result = 31 + Hashing.hashcode(this.binaryMessages);
+        return 31 * result + Hashing.hashcode(this.textMessages);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object other) {
+        if (other == this) {
+            return true;
+        } else if (other instanceof Batch) {
+            Batch o = (Batch) other;
+            return Objects.equals(binaryMessages, o.binaryMessages) &&
+                   Objects.equals(textMessages, o.textMessages);
+        }
+        return false;
+    }
+
+    /** A serializer for reading and writing instances of Batch. */
+    static class Serializer extends MessageSerializer<Batch> {
+
+        /** {@inheritDoc} */
+        @Override
+        public Batch read(MessageReader reader) throws IOException {
+            return new Batch(reader);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void write(Batch message, MessageWriter writer) throws IOException {
+            message.writeTo(writer);
+        }
+    }
+
+    /** An immutable version of Batch. */
+    static class Immutable extends Batch {
+
+        /**
+         * Creates a new Immutable instance.
+         *
+         * @param instance
+         *            the instance to make an immutable copy of
+         */
+        Immutable(Batch instance) {
+            super(instance);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Batch immutable() {
+            return this;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Batch addBinaryMessages(Binary binaryMessages) {
+            throw new UnsupportedOperationException("Instance is immutable");
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Batch addTextMessages(String textMessages) {
+            throw new UnsupportedOperationException("Instance is immutable");
+        }
+    }
+}
@@ -42,6 +42,9 @@ public class Hello implements Message {
     /** Field definition. */
     private final Map<String, String> properties;
 
+    /** Field definition. */
+    private Integer protocolVersion;
+
     /** Field definition. */
     private Binary sessionId;
 
@@ -65,6 +68,7 @@ public class Hello implements Message {
     Hello(MessageReader reader) throws IOException {
         this.clientId = reader.readText(1, "clientId", null);
         this.properties = MessageHelper.readMap(2, "properties", reader, ValueSerializer.TEXT, ValueSerializer.TEXT);
+        this.protocolVersion = reader.readInt(3, "protocolVersion", null);
         this.sessionId = reader.readBinary(4, "sessionId", null);
         this.lastReceivedMessageId = reader.readInt64(5, "lastReceivedMessageId", null);
         this.positionTime = reader.readPositionTime(6, "positionTime", null);
@@ -79,6 +83,7 @@ public class Hello implements Message {
     Hello(Hello instance) {
         this.clientId = instance.clientId;
         this.properties = MessageHelper.immutableCopy(instance.properties);
+        this.protocolVersion = instance.protocolVersion;
         this.sessionId = instance.sessionId;
         this.lastReceivedMessageId = instance.lastReceivedMessageId;
         this.positionTime = instance.positionTime;
@@ -87,6 +92,7 @@ public class Hello implements Message {
     void writeTo(MessageWriter w) throws IOException {
         w.writeText(1, "clientId", clientId);
         w.writeMap(2, "properties", properties, ValueSerializer.TEXT, ValueSerializer.TEXT);
+        w.writeInt(3, "protocolVersion", protocolVersion);
         w.writeBinary(4, "sessionId", sessionId);
         w.writeInt64(5, "lastReceivedMessageId", lastReceivedMessageId);
         w.writePositionTime(6, "positionTime", positionTime);
@@ -122,6 +128,20 @@ public class Hello implements Message {
         return this;
     }
 
+    /** Returns the protocol version selected by the client, from the versions listed in the Welcome message. */
+    public Integer getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    public boolean hasProtocolVersion() {
+        return protocolVersion != null;
+    }
+
+    public Hello setProtocolVersion(Integer protocolVersion) {
+        this.protocolVersion = protocolVersion;
+        return this;
+    }
+
     public Binary getSessionId() {
         return sessionId;
     }
@@ -184,6 +204,7 @@ public class Hello implements Message {
     public int hashCode() {
         int result = 31 + Hashing.hashcode(this.clientId);
         result = 31 * result + Hashing.hashcode(this.properties);
+        result = 31 * result + Hashing.hashcode(this.protocolVersion);
         result = 31 * result + Hashing.hashcode(this.sessionId);
         result = 31 * result + Hashing.hashcode(this.lastReceivedMessageId);
         return 31 * result + Hashing.hashcode(this.positionTime);
@@ -198,6 +219,7 @@ public class Hello implements Message {
             Hello o = (Hello) other;
             return Objects.equals(clientId, o.clientId) &&
                    Objects.equals(properties, o.properties) &&
+                   Objects.equals(protocolVersion, o.protocolVersion) &&
                    Objects.equals(sessionId, o.sessionId) &&
                    Objects.equals(lastReceivedMessageId, o.lastReceivedMessageId) &&
                    Objects.equals(positionTime, o.positionTime);
@@ -252,6 +274,12 @@ public class Hello implements Message {
             throw new UnsupportedOperationException("Instance is immutable");
         }
 
+        /** {@inheritDoc} */
+        @Override
+        public Hello setProtocolVersion(Integer protocolVersion) {
+            throw new UnsupportedOperationException("Instance is immutable");
+        }
+
         /** {@inheritDoc} */
         @Override
         public Hello setSessionId(Binary sessionId) {
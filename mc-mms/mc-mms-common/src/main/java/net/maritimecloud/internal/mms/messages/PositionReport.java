@@ -18,6 +18,9 @@ import java.io.IOException;
 import java.util.Objects;
 
 import net.maritimecloud.internal.message.Hashing;
+import net.maritimecloud.internal.message.SpecializedMessageSerializer;
+import net.maritimecloud.internal.message.binary.AbstractBinaryMessageWriter;
+import net.maritimecloud.internal.message.text.json.JsonValueWriter;
 import net.maritimecloud.message.Message;
 import net.maritimecloud.message.MessageReader;
 import net.maritimecloud.message.MessageSerializer;
@@ -112,7 +115,10 @@ public class PositionReport implements Message {
     }
 
     /** A serializer for reading and writing instances of PositionReport. */
-    static class Serializer extends MessageSerializer<PositionReport> {
+    static class Serializer extends SpecializedMessageSerializer<PositionReport> {
+
+        /** The JSON name of the positionTime field. */
+        private static final char[] POSITION_TIME = JsonValueWriter.fieldName("positionTime");
 
         /** {@inheritDoc} */
         @Override
@@ -122,9 +128,23 @@ public class PositionReport implements Message {
 
         /** {@inheritDoc} */
         @Override
-        public void write(PositionReport message, MessageWriter writer) throws IOException {
+        protected void writeGeneric(PositionReport message, MessageWriter writer) throws IOException {
             message.writeTo(writer);
         }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void writeBinary(PositionReport message, AbstractBinaryMessageWriter writer) throws IOException {
+            writer.writePositionTime(3, null, message.positionTime);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void writeJson(PositionReport message, JsonValueWriter writer) throws IOException {
+            if (message.positionTime != null) {
+                writer.writeTag(POSITION_TIME).writePositionTime(message.positionTime);
+            }
+        }
     }
 
     /** An immutable version of PositionReport. */
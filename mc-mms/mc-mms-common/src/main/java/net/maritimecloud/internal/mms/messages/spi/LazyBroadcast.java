@@ -0,0 +1,163 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.mms.messages.spi;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import net.maritimecloud.internal.message.binary.protobuf.ProtobufByteBufferMessageReader;
+import net.maritimecloud.internal.net.messages.Broadcast;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.util.geometry.Area;
+
+/**
+ * A broadcast received in the binary format, of which only the fields needed to route the broadcast have been decoded.
+ * The remaining fields, most notably the payload, are kept encoded until they are needed.
+ * <p>
+ * A server only needs to look at the routing fields, and can forward the broadcast by copying the encoded fields with
+ * {@link #toForward()}, instead of decoding and re-encoding the whole broadcast.
+ *
+ * @author Kasper Nielsen
+ */
+public final class LazyBroadcast implements Message {
+
+    /** The tags of the fields that are forwarded to the receivers of the broadcast. */
+    private static final int[] FORWARDED_TAGS = { 1, 2, 3, 4, 5, 6, 15 };
+
+    /** The encoded broadcast, must not be modified. */
+    private final ByteBuffer encoded;
+
+    /** A broadcast with only the routing fields set. */
+    private final Broadcast routing;
+
+    /** The fully decoded broadcast, lazily initialized. */
+    private volatile Broadcast broadcast;
+
+    /** The forwarded broadcast, lazily initialized. */
+    private volatile PreEncodedMessage forward;
+
+    private LazyBroadcast(ByteBuffer encoded, Broadcast routing) {
+        this.encoded = encoded;
+        this.routing = routing;
+    }
+
+    /**
+     * Returns the fully decoded broadcast. The broadcast is decoded the first time this method is invoked. Binary
+     * fields, such as the payload, are views of the encoded broadcast.
+     *
+     * @return the fully decoded broadcast
+     * @throws IOException
+     *             if the broadcast could not be decoded
+     */
+    public Broadcast getBroadcast() throws IOException {
+        Broadcast broadcast = this.broadcast;
+        if (broadcast == null) {
+            this.broadcast = broadcast = ProtobufByteBufferMessageReader.read(encoded.duplicate(),
+                    Broadcast.SERIALIZER);
+        }
+        return broadcast;
+    }
+
+    /**
+     * Returns a broadcast with only the routing fields set. These are the messageId, broadcastType, senderId,
+     * senderPosition, ackBroadcast and area fields. The returned broadcast must not be modified.
+     *
+     * @return a broadcast with only the routing fields set
+     */
+    public Broadcast getRouting() {
+        return routing;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public LazyBroadcast immutable() {
+        return this;
+    }
+
+    /**
+     * Returns the encoded broadcast.
+     *
+     * @return the encoded broadcast
+     */
+    byte[] toBinary() {
+        ByteBuffer b = encoded.duplicate();
+        byte[] result = new byte[b.remaining()];
+        b.get(result);
+        return result;
+    }
+
+    /**
+     * Returns the broadcast that is forwarded to receivers. The forwarded broadcast contains the fields of this
+     * broadcast that are relevant for receivers, its binary encoding is copied from this broadcast. The forwarded
+     * broadcast is only decoded if it is sent to a session using another format than Protobuf.
+     *
+     * @return the broadcast that is forwarded to receivers
+     * @throws IOException
+     *             if the broadcast could not be read
+     */
+    public PreEncodedMessage toForward() throws IOException {
+        PreEncodedMessage forward = this.forward;
+        if (forward == null) {
+            byte[] binary = ProtobufByteBufferMessageReader.copyFields(encoded,
+                    tag -> Arrays.binarySearch(FORWARDED_TAGS, tag) >= 0);
+            this.forward = forward = new PreEncodedMessage(Broadcast.class, Broadcast.SERIALIZER, binary);
+        }
+        return forward;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toJSON() {
+        try {
+            return getBroadcast().toJSON();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not decode broadcast", e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "LazyBroadcast[" + routing.getBroadcastType() + "]";
+    }
+
+    /**
+     * Reads the routing fields of an encoded broadcast. The buffer is read from its position to its limit, and must
+     * not be modified afterwards.
+     *
+     * @param encoded
+     *            the encoded broadcast
+     * @return the lazily decoded broadcast
+     * @throws IOException
+     *             if the routing fields could not be decoded
+     */
+    public static LazyBroadcast read(ByteBuffer encoded) throws IOException {
+        ByteBuffer b = requireNonNull(encoded, "encoded is null").slice();
+        ProtobufByteBufferMessageReader r = new ProtobufByteBufferMessageReader(b);
+        // Fields that are not read, such as the payload, are skipped without being decoded
+        Broadcast routing = new Broadcast();
+        routing.setMessageId(r.readBinary(1, "messageId", null));
+        routing.setBroadcastType(r.readText(2, "broadcastType", null));
+        routing.setSenderId(r.readText(3, "senderId", null));
+        // Subscribers filter broadcasts by the position of the sender
+        routing.setSenderPosition(r.readPosition(5, "senderPosition", null));
+        routing.setAckBroadcast(r.readBoolean(7, "ackBroadcast", null));
+        routing.setArea(r.readMessage(10, "area", Area.SERIALIZER));
+        return new LazyBroadcast(b, routing);
+    }
+}
@@ -16,19 +16,28 @@ package net.maritimecloud.internal.mms.messages.spi;
 
 import static java.util.Objects.requireNonNull;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import net.maritimecloud.internal.message.MessageHelper;
-import net.maritimecloud.internal.message.binary.protobuf.ProtobufMessageReader;
+import net.maritimecloud.internal.message.MessageMetadata;
+import net.maritimecloud.internal.message.binary.compact.BinaryInputStream;
+import net.maritimecloud.internal.message.binary.compact.BinaryMessageReader;
+import net.maritimecloud.internal.message.binary.compact.BinaryMessageWriter;
+import net.maritimecloud.internal.message.binary.protobuf.ProtobufByteBufferMessageReader;
 import net.maritimecloud.internal.message.binary.protobuf.ProtobufMessageWriter;
 import net.maritimecloud.internal.message.text.json.JsonMessageReader;
+import net.maritimecloud.internal.message.text.json.JsonValueWriter;
+import net.maritimecloud.internal.message.text.json.PooledStringWriter;
+import net.maritimecloud.internal.mms.messages.Batch;
 import net.maritimecloud.internal.net.messages.Broadcast;
 import net.maritimecloud.message.Message;
 import net.maritimecloud.message.MessageSerializer;
 import net.maritimecloud.net.BroadcastMessage;
+import net.maritimecloud.util.Binary;
 
 /**
  * This class is a bit of mess, will be cleaned up a later point.
@@ -36,12 +45,28 @@ import net.maritimecloud.net.BroadcastMessage;
  * @author Kasper Nielsen
  */
 public class MmsMessage {
+
+    /** The first protocol version that supports {@link Batch} messages. */
+    public static final int PROTOCOL_VERSION_BATCH = 2;
+
+    /**
+     * The first protocol version that supports the compact binary format. A client that selects it in its Hello
+     * message, sends and receives all binary messages following the Hello in the compact binary format.
+     */
+    public static final int PROTOCOL_VERSION_COMPACT = 3;
+
     boolean fastAck;
 
     Long latestReceivedId;
 
     Message m;
 
+    /** The pre-encoded form of the message, or null if the message is encoded for every session. */
+    PreEncodedMessage encoded;
+
+    /** The binary representation this message was read from, or null if it must be encoded. */
+    byte[] binary;
+
     Long oldMessageId;
 
     boolean ignoreForNewSession;
@@ -54,7 +79,7 @@ public class MmsMessage {
     }
 
     public MmsMessage(Message m) {
-        this.m = m;
+        setM(m);
     }
 
     /**
@@ -68,20 +93,25 @@ public class MmsMessage {
      * @return the m
      */
     public Message getM() {
-        return m;
+        return encoded == null ? m : encoded.getMessage();
     }
 
     public MmsMessageType getType() {
-        return MmsMessageType.getTypeOf(m.getClass());
+        return MmsMessageType.getTypeOf(messageType());
     }
 
     public boolean isConnectionMessage() {
-        MmsMessageType mt = MmsMessageType.getTypeOf(m.getClass());
+        MmsMessageType mt = MmsMessageType.getTypeOf(messageType());
         return mt.isConnectionMessage();
     }
 
     public Message getMessage() {
-        return m;
+        return getM();
+    }
+
+    /** Returns the type of the message, without decoding a pre-encoded message. */
+    private Class<? extends Message> messageType() {
+        return encoded == null ? m.getClass() : encoded.getMessageType();
     }
 
     public <T extends Message> T cast(Class<T> c) {
@@ -112,6 +142,7 @@ public class MmsMessage {
     }
 
     public MmsMessage setLatestReceivedId(long latestReceivedId) {
+        this.binary = null;
         this.latestReceivedId = latestReceivedId;
         return this;
     }
@@ -121,7 +152,15 @@ public class MmsMessage {
     }
 
     public MmsMessage setM(Message m) {
-        this.m = m;
+        this.binary = null;
+        if (m instanceof PreEncodedMessage) {
+            // The message is only decoded if it is needed
+            this.encoded = (PreEncodedMessage) m;
+            this.m = null;
+        } else {
+            this.encoded = null;
+            this.m = m;
+        }
         return this;
     }
 
@@ -130,23 +169,32 @@ public class MmsMessage {
      *            the oldMessageId to set
      */
     public MmsMessage setMessageId(long oldMessageId) {
+        this.binary = null;
         this.oldMessageId = oldMessageId;
         return this;
     }
 
     public String toText() {
-        StringBuilder sb = new StringBuilder();
-        MmsMessageType mt = MmsMessageType.getTypeOf(m.getClass());
-        sb.append(mt.type);
-        sb.append(":");
+        PooledStringWriter sb = PooledStringWriter.acquire();
+        MmsMessageType mt = MmsMessageType.getTypeOf(messageType());
+        sb.append(Integer.toString(mt.type));
+        sb.append(':');
         if (mt.isConnectionMessage()) {
-            sb.append(oldMessageId);
-            sb.append(":");
-            sb.append(latestReceivedId);
-            sb.append(":");
+            sb.append(String.valueOf(oldMessageId));
+            sb.append(':');
+            sb.append(String.valueOf(latestReceivedId));
+            sb.append(':');
+        }
+        if (encoded != null) {
+            sb.append(encoded.toJSON());
+        } else {
+            try {
+                MessageSerializer.writeToJSON(m, MessageHelper.getSerializer(m), sb);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write message as JSON", e);
+            }
         }
-        sb.append(m.toJSON());
-        return sb.toString();
+        return sb.release();
     }
 
     public static String toText(Message m) {
@@ -154,6 +202,31 @@ public class MmsMessage {
     }
 
 
+    /**
+     * Returns the text representation of a batch containing the specified messages. The batch is written directly,
+     * the text of each message is escaped straight into the batch.
+     *
+     * @param messages
+     *            the messages to batch
+     * @return the text representation of the batch
+     */
+    public static String toText(List<MmsMessage> messages) {
+        String[] texts = new String[messages.size()];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = messages.get(i).toText();
+        }
+        PooledStringWriter w = PooledStringWriter.acquire();
+        StringBuilder sb = w.getBuffer();
+        sb.append(MmsMessageType.BATCH.type).append(":{\"textMessages\":[");
+        for (int i = 0; i < texts.length; i++) {
+            sb.append(i == 0 ? "\"" : ",\"");
+            JsonValueWriter.appendEscaped(texts[i], sb);
+            sb.append('"');
+        }
+        sb.append("]}");
+        return w.release();
+    }
+
     public static MmsMessage parseTextMessage(String msg) {
         MmsMessage pm = new MmsMessage();
         int io = msg.indexOf(':');
@@ -183,7 +256,10 @@ public class MmsMessage {
      * @return a binary representation of the MmsMessage
      */
     public byte[] toBinary() throws IOException {
-        MmsMessageType mt = MmsMessageType.getTypeOf(m.getClass());
+        if (binary != null) {
+            return binary;
+        }
+        MmsMessageType mt = MmsMessageType.getTypeOf(messageType());
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         try (ProtobufMessageWriter bvw = new ProtobufMessageWriter(baos)) {
             bvw.writeInt(1, null, mt.type);
@@ -191,12 +267,99 @@ public class MmsMessage {
                 bvw.writeInt64(2, null, oldMessageId);
                 bvw.writeInt64(3, null, latestReceivedId);
             }
-            bvw.writeMessage(4, null, m, MessageHelper.getSerializer(m));
+            if (m instanceof LazyBroadcast) {
+                bvw.writeEncodedMessage(4, ((LazyBroadcast) m).toBinary());
+            } else if (encoded == null) {
+                bvw.writeMessage(4, null, m, MessageHelper.getSerializer(m));
+            } else {
+                bvw.writeEncodedMessage(4, encoded.toBinary());
+            }
             bvw.flush();
         }
         return baos.toByteArray();
     }
 
+    /**
+     * Returns a binary representation of a batch containing the specified messages.
+     *
+     * @param messages
+     *            the messages to batch
+     * @return a binary representation of the batch
+     */
+    public static byte[] toBinary(List<MmsMessage> messages) throws IOException {
+        // The encoded messages are wrapped, not copied, and written as they are
+        Batch b = new Batch();
+        for (MmsMessage m : messages) {
+            byte[] binary = m.toBinary();
+            b.addBinaryMessages(Binary.wrap(binary, 0, binary.length));
+        }
+        return new MmsMessage(b).toBinary();
+    }
+
+    /**
+     * Returns a representation of the MmsMessage in the compact binary format.
+     *
+     * @return a representation of the MmsMessage in the compact binary format
+     */
+    public byte[] toCompactBinary() throws IOException {
+        MmsMessageType mt = MmsMessageType.getTypeOf(messageType());
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (BinaryMessageWriter bvw = new BinaryMessageWriter(baos)) {
+            bvw.writeInt(1, null, mt.type);
+            if (mt.isConnectionMessage()) {
+                bvw.writeInt64(2, null, oldMessageId);
+                bvw.writeInt64(3, null, latestReceivedId);
+            }
+            if (m instanceof LazyBroadcast) {
+                Message b = ((LazyBroadcast) m).getBroadcast();
+                bvw.writeMessage(4, null, b, MessageHelper.getSerializer(b));
+            } else if (encoded == null) {
+                bvw.writeMessage(4, null, m, MessageHelper.getSerializer(m));
+            } else {
+                bvw.writeEncodedMessage(4, encoded.toCompactBinary());
+            }
+            bvw.flush();
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * Returns a representation of a batch containing the specified messages in the compact binary format.
+     *
+     * @param messages
+     *            the messages to batch
+     * @return a representation of the batch in the compact binary format
+     */
+    public static byte[] toCompactBinary(List<MmsMessage> messages) throws IOException {
+        Batch b = new Batch();
+        for (MmsMessage m : messages) {
+            byte[] binary = m.toCompactBinary();
+            b.addBinaryMessages(Binary.wrap(binary, 0, binary.length));
+        }
+        return new MmsMessage(b).toCompactBinary();
+    }
+
+    /**
+     * Parses the remaining bytes of the buffer as an MmsMessage in the compact binary format. The bytes are not
+     * copied, and the buffer must not be modified afterwards.
+     *
+     * @param msg
+     *            the bytes of the message
+     * @return the parsed message
+     */
+    public static MmsMessage parseCompactBinaryMessage(ByteBuffer msg) throws IOException {
+        MmsMessage pm = new MmsMessage();
+        try (BinaryMessageReader bmr = new BinaryMessageReader(new BinaryInputStream(msg))) {
+            int type = bmr.readInt(1, null);
+            if (type > 7) {
+                pm.setMessageId(bmr.readInt64(2, null));
+                pm.setLatestReceivedId(bmr.readInt64(3, null));
+            }
+            pm.m = bmr.readMessage(4, null, MmsMessageType.getParser(type));
+        }
+        return pm;
+    }
+
     /**
      * Parses the byte array as an MmsMessage
      *
@@ -205,28 +368,135 @@ public class MmsMessage {
      * @return the parsed message
      */
     public static MmsMessage parseBinaryMessage(byte[] msg) throws IOException {
+        return parseBinaryMessage(ByteBuffer.wrap(msg));
+    }
+
+    /**
+     * Parses the remaining bytes of the buffer as an MmsMessage. The bytes are not copied, binary fields of the parsed
+     * message, such as the payload of a broadcast, are views of the buffer. The buffer must not be modified
+     * afterwards.
+     *
+     * @param msg
+     *            the bytes of the message
+     * @return the parsed message
+     */
+    public static MmsMessage parseBinaryMessage(ByteBuffer msg) throws IOException {
+        return parseBinaryMessage(msg, false);
+    }
+
+    /**
+     * Parses the remaining bytes of the buffer as an MmsMessage. If {@code lazyBroadcasts} is true, a broadcast is
+     * parsed as a {@link LazyBroadcast}, of which only the routing fields are decoded. The bytes are not copied, and
+     * the buffer must not be modified afterwards.
+     *
+     * @param msg
+     *            the bytes of the message
+     * @param lazyBroadcasts
+     *            whether or not to only decode the routing fields of broadcasts
+     * @return the parsed message
+     */
+    public static MmsMessage parseBinaryMessage(ByteBuffer msg, boolean lazyBroadcasts) throws IOException {
         MmsMessage pm = new MmsMessage();
-        ByteArrayInputStream bain = new ByteArrayInputStream(msg);
-        try (ProtobufMessageReader bmr = new ProtobufMessageReader(bain)) {
+        try (ProtobufByteBufferMessageReader bmr = new ProtobufByteBufferMessageReader(msg)) {
             int type = bmr.readInt(1, null);
             if (type > 7) {
                 pm.setMessageId(bmr.readInt64(2, null));
                 pm.setLatestReceivedId(bmr.readInt64(3, null));
             }
-            pm.m = bmr.readMessage(4, null, MmsMessageType.getParser(type));
+            if (lazyBroadcasts && type == MmsMessageType.BROADCAST.type) {
+                ByteBuffer encoded = bmr.readRaw(4, null);
+                pm.m = LazyBroadcast.read(encoded == null ? ByteBuffer.allocate(0) : encoded);
+            } else {
+                pm.m = bmr.readMessage(4, null, MmsMessageType.getParser(type));
+            }
+        }
+        return pm;
+    }
+
+    /**
+     * Parses the byte array as an MmsMessage. Unlike {@link #parseBinaryMessage(byte[])} the byte array is kept and
+     * returned by {@link #toBinary()} as long as the message is not modified. The byte array must not be modified.
+     *
+     * @param msg
+     *            the bytes of the message
+     * @return the parsed message
+     */
+    public static MmsMessage parseAndRetainBinaryMessage(byte[] msg) throws IOException {
+        MmsMessage pm = parseBinaryMessage(msg);
+        pm.binary = msg;
+        return pm;
+    }
+
+    /**
+     * Wraps the byte array of an MmsMessage, for example, a message that is resent from a session journal. Only the
+     * header is decoded, the message itself is only decoded if it is needed in another format. The byte array is
+     * returned by {@link #toBinary()} as long as the message is not modified. The byte array must not be modified.
+     *
+     * @param msg
+     *            the bytes of the message
+     * @return the wrapped message
+     */
+    public static MmsMessage wrapBinaryMessage(byte[] msg) throws IOException {
+        MmsMessage pm = new MmsMessage();
+        try (ProtobufByteBufferMessageReader bmr = new ProtobufByteBufferMessageReader(ByteBuffer.wrap(msg))) {
+            int type = bmr.readInt(1, null);
+            if (type > 7) {
+                pm.setMessageId(bmr.readInt64(2, null));
+                pm.setLatestReceivedId(bmr.readInt64(3, null));
+            }
+            ByteBuffer encoded = bmr.readRaw(4, null);
+            byte[] payload = new byte[encoded == null ? 0 : encoded.remaining()];
+            if (encoded != null) {
+                encoded.get(payload);
+            }
+            pm.setM(MmsMessageType.preEncoded(type, payload));
         }
+        pm.binary = msg;
         return pm;
     }
 
+    /**
+     * Parses all messages in the specified batch.
+     *
+     * @param batch
+     *            the batch
+     * @return the messages of the batch in the order they were sent
+     */
+    public static List<MmsMessage> parseBatch(Batch batch) throws IOException {
+        return parseBatch(batch, false);
+    }
+
+    /**
+     * Parses all messages in the specified batch.
+     *
+     * @param batch
+     *            the batch
+     * @param compactBinary
+     *            whether or not the binary messages of the batch are in the compact binary format
+     * @return the messages of the batch in the order they were sent
+     */
+    public static List<MmsMessage> parseBatch(Batch batch, boolean compactBinary) throws IOException {
+        List<MmsMessage> result = new ArrayList<>();
+        for (Binary b : batch.getBinaryMessages()) {
+            ByteBuffer bb = b.asReadOnlyByteBuffer();
+            result.add(compactBinary ? parseCompactBinaryMessage(bb) : parseBinaryMessage(bb));
+        }
+        for (String s : batch.getTextMessages()) {
+            result.add(parseTextMessage(s));
+        }
+        return result;
+    }
+
     public static BroadcastMessage tryRead(Broadcast bd) throws ReflectiveOperationException {
         return tryRead(bd.getBroadcastType(), bd.getPayload().toStringUtf8());
     }
 
-    @SuppressWarnings("unchecked")
     public static BroadcastMessage tryRead(String name, String contents) throws ReflectiveOperationException {
-        Class<BroadcastMessage> cl = (Class<BroadcastMessage>) Class.forName(name);
-        Field field = cl.getField("SERIALIZER");
-        MessageSerializer<BroadcastMessage> p = (MessageSerializer<BroadcastMessage>) field.get(null);
+        MessageSerializer<BroadcastMessage> p = MessageMetadata.forName(name, MmsMessage.class.getClassLoader())
+                .getSerializer();
+        if (p == null) {
+            throw new NoSuchFieldException("No SERIALIZER field in " + name);
+        }
         JsonMessageReader r = new JsonMessageReader(contents);
         try {
             return p.read(r);
@@ -16,11 +16,11 @@ package net.maritimecloud.internal.mms.messages.spi;
 
 import static java.util.Objects.requireNonNull;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 
+import net.maritimecloud.internal.mms.messages.Batch;
 import net.maritimecloud.internal.mms.messages.Close;
 import net.maritimecloud.internal.mms.messages.Connected;
 import net.maritimecloud.internal.mms.messages.Hello;
@@ -54,6 +54,9 @@ enum MmsMessageType {
     /** The final handshake massage from the server, contains the connection id */
     CLOSE(4, Close.class, Close.SERIALIZER), // 2. message from server 2 client
 
+    /** A number of messages sent in a single frame, only sent to clients that selected protocol version 2. */
+    BATCH(5, Batch.class, Batch.SERIALIZER),
+
 
     /** A keep alive message sent periodically. Contains current position/time. */
     POSITION_REPORT(8, PositionReport.class, PositionReport.SERIALIZER),
@@ -101,9 +104,28 @@ enum MmsMessageType {
         return HelperHolder.TYPES[type].p;
     }
 
+    /**
+     * Wraps the Protobuf encoding of a message of the specified type, without decoding it.
+     *
+     * @param type
+     *            the type of the message
+     * @param binary
+     *            the message encoded in the Protobuf format
+     * @return the wrapped message
+     * @throws IOException
+     *             if the type is not a valid message type
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    static PreEncodedMessage preEncoded(int type, byte[] binary) throws IOException {
+        MmsMessageType mt = type > 0 && type < HelperHolder.TYPES.length ? HelperHolder.TYPES[type] : null;
+        if (mt == null) {
+            throw new IOException("Unknown message type " + type);
+        }
+        return new PreEncodedMessage((Class) mt.cl, (MessageSerializer) mt.p, binary);
+    }
+
     public static MmsMessageType getTypeOf(Class<? extends Message> c) {
-        requireNonNull(c);
-        return HelperHolder.MAP.get(c);
+        return HelperHolder.TYPE_OF.get(requireNonNull(c));
     }
 
     public boolean isConnectionMessage() {
@@ -114,12 +136,26 @@ enum MmsMessageType {
     private static class HelperHolder {
         static MmsMessageType[] TYPES;
 
-        static final Map<Class<? extends Message>, MmsMessageType> MAP = new HashMap<>();
+        /** The type of each message class, or null if the class is not a message type. */
+        static final ClassValue<MmsMessageType> TYPE_OF = new ClassValue<MmsMessageType>() {
+            @Override
+            protected MmsMessageType computeValue(Class<?> type) {
+                if (type == LazyBroadcast.class) {
+                    return BROADCAST; // Broadcasts that are only decoded for routing are sent as ordinary broadcasts
+                }
+                for (MmsMessageType mt : MmsMessageType.values()) {
+                    if (mt.cl == type) {
+                        return mt;
+                    }
+                }
+                return null;
+            }
+        };
+
         static {
             TreeMap<Integer, MmsMessageType> m = new TreeMap<>();
             for (MmsMessageType mt : MmsMessageType.values()) {
                 m.put(mt.type, mt);
-                MAP.put(mt.cl, mt);
             }
             TYPES = new MmsMessageType[m.lastKey() + 1];
             for (Entry<Integer, MmsMessageType> e : m.entrySet()) {
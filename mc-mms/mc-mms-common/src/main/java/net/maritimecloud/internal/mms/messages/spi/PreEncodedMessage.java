@@ -0,0 +1,186 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.mms.messages.spi;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+
+import net.maritimecloud.internal.message.MessageHelper;
+import net.maritimecloud.internal.message.binary.compact.BinaryMessageWriter;
+import net.maritimecloud.internal.message.binary.protobuf.ProtobufByteBufferMessageReader;
+import net.maritimecloud.internal.message.binary.protobuf.ProtobufMessageWriter;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageSerializer;
+
+/**
+ * A message that is sent unchanged to many sessions, for example, a broadcast. The message is only encoded once for
+ * each format, the first time it is needed. {@link MmsMessage} unwraps it, and only writes the per session header for
+ * each session before appending the already encoded message.
+ * <p>
+ * The wrapped message must not be modified after it has been wrapped.
+ *
+ * @author Kasper Nielsen
+ */
+public final class PreEncodedMessage implements Message {
+
+    /** The message that is encoded, lazily decoded if the message was created from its Protobuf encoding. */
+    private volatile Message message;
+
+    /** The serializer used for decoding the Protobuf encoding, or null if the message was given. */
+    private final MessageSerializer<? extends Message> serializer;
+
+    /** The type of the message. */
+    private final Class<? extends Message> type;
+
+    /** The message encoded in the Protobuf format, lazily initialized. */
+    private volatile byte[] binary;
+
+    /** The size of the message encoded in the Protobuf format, or -1 if it has not been calculated. */
+    private volatile int binarySize = -1;
+
+    /** The message encoded in the compact binary format, lazily initialized. */
+    private volatile byte[] compactBinary;
+
+    /** The message encoded in the JSON format, lazily initialized. */
+    private volatile String json;
+
+    /**
+     * Creates a new pre-encoded message.
+     *
+     * @param message
+     *            the message to wrap
+     */
+    public PreEncodedMessage(Message message) {
+        this.message = requireNonNull(message, "message is null");
+        this.serializer = null;
+        this.type = message.getClass();
+    }
+
+    /**
+     * Creates a new pre-encoded message from its Protobuf encoding, for example, because it has been copied from a
+     * received message. The message is only decoded if it is needed in another format.
+     *
+     * @param type
+     *            the type of the message
+     * @param serializer
+     *            the serializer used for decoding the message
+     * @param binary
+     *            the message encoded in the Protobuf format, the array must not be modified
+     */
+    public <T extends Message> PreEncodedMessage(Class<T> type, MessageSerializer<T> serializer, byte[] binary) {
+        this.type = requireNonNull(type, "type is null");
+        this.serializer = requireNonNull(serializer, "serializer is null");
+        this.binary = requireNonNull(binary, "binary is null");
+    }
+
+    /**
+     * Returns the wrapped message, decoding it if this message was created from its Protobuf encoding.
+     *
+     * @return the wrapped message
+     * @throws IllegalStateException
+     *             if the message could not be decoded
+     */
+    public Message getMessage() {
+        Message message = this.message;
+        if (message == null) {
+            try {
+                this.message = message = ProtobufByteBufferMessageReader.read(binary, serializer);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not decode message of type " + type.getName(), e);
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Returns the type of the wrapped message, without decoding it.
+     *
+     * @return the type of the wrapped message
+     */
+    public Class<? extends Message> getMessageType() {
+        return type;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public PreEncodedMessage immutable() {
+        return this;
+    }
+
+    /**
+     * Returns the message encoded in the Protobuf format. The returned array must not be modified.
+     *
+     * @return the message encoded in the Protobuf format
+     * @throws IOException
+     *             if the message could not be encoded
+     */
+    byte[] toBinary() throws IOException {
+        byte[] binary = this.binary;
+        if (binary == null) {
+            // Several threads might encode the message concurrently, which is harmless
+            Message message = getMessage();
+            this.binary = binary = ProtobufMessageWriter.write(message, MessageHelper.getSerializer(message));
+        }
+        return binary;
+    }
+
+    /**
+     * Returns the message encoded in the compact binary format. The returned array must not be modified.
+     *
+     * @return the message encoded in the compact binary format
+     * @throws IOException
+     *             if the message could not be encoded
+     */
+    byte[] toCompactBinary() throws IOException {
+        byte[] compactBinary = this.compactBinary;
+        if (compactBinary == null) {
+            Message message = getMessage();
+            this.compactBinary = compactBinary = BinaryMessageWriter.write(message, MessageHelper.getSerializer(message));
+        }
+        return compactBinary;
+    }
+
+    /**
+     * Returns the size of the message encoded in the Protobuf format. If the message has not already been encoded, the
+     * size is calculated without encoding it.
+     *
+     * @return the size of the message encoded in the Protobuf format
+     * @throws IOException
+     *             if the size of the message could not be calculated
+     */
+    public int getBinarySize() throws IOException {
+        byte[] binary = this.binary;
+        if (binary != null) {
+            return binary.length;
+        }
+        int binarySize = this.binarySize;
+        if (binarySize < 0) {
+            Message message = getMessage();
+            this.binarySize = binarySize = ProtobufMessageWriter.sizeOf(message, MessageHelper.getSerializer(message));
+        }
+        return binarySize;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toJSON() {
+        String json = this.json;
+        if (json == null) {
+            this.json = json = getMessage().toJSON();
+        }
+        return json;
+    }
+}
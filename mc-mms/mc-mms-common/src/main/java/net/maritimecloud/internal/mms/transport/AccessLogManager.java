@@ -18,6 +18,7 @@ import net.maritimecloud.internal.mms.messages.Close;
 import net.maritimecloud.internal.mms.messages.Connected;
 import net.maritimecloud.internal.mms.messages.Hello;
 import net.maritimecloud.internal.mms.messages.PositionReport;
+import net.maritimecloud.internal.mms.messages.spi.LazyBroadcast;
 import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
 import net.maritimecloud.internal.net.messages.Broadcast;
 import net.maritimecloud.internal.net.messages.BroadcastAck;
@@ -246,7 +247,9 @@ public class AccessLogManager {
          * @param type the message type
          */
         public void logMessage(MmsMessage msg, String clientId, boolean inbound, MessageFormatType type) {
-            String msgType = type == MessageFormatType.MACHINE_READABLE ? "bin" : "txt";
+            boolean binary = type == MessageFormatType.MACHINE_READABLE
+                    || type == MessageFormatType.MACHINE_READABLE_COMPACT;
+            String msgType = binary ? "bin" : "txt";
             boolean doLog = checkLogMessage(msg, inbound);
 
             // Check if a message filter has been defined
@@ -314,10 +317,26 @@ public class AccessLogManager {
 
             } else {
                 // Indent each line in the JSON blob
-                return String.format("%n%s", msg.toText().replaceAll("(?m)^", "  "));
+                return System.lineSeparator() + indent(msg.toText());
             }
         }
 
+        /**
+         * Indents each line of the specified text with two spaces. The text of a message only contains the
+         * '\n' line separator, as all other line separators are escaped.
+         * @param text the text to indent
+         * @return the indented text
+         */
+        static String indent(String text) {
+            StringBuilder sb = new StringBuilder(text.length() + 64).append("  ");
+            int start = 0;
+            for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', start)) {
+                sb.append(text, start, i + 1).append("  ");
+                start = i + 1;
+            }
+            return sb.append(text, start, text.length()).toString();
+        }
+
         /** Simple utility method that extracts the parameter value */
         public static String extractParam(String txt, String param, String defaultValue) {
             try {
@@ -343,6 +362,10 @@ public class AccessLogManager {
             } else if (msg.getMessage() instanceof Broadcast) {
                 return String.format("Broadcast[%s]", ((Broadcast) msg.getMessage()).getBroadcastType());
 
+            } else if (msg.getMessage() instanceof LazyBroadcast) {
+                LazyBroadcast broadcast = (LazyBroadcast) msg.getMessage();
+                return String.format("Broadcast[%s]", broadcast.getRouting().getBroadcastType());
+
             } else if (msg.getMessage() instanceof MethodInvoke) {
                 MethodInvoke invoke = (MethodInvoke)msg.getMessage();
 
@@ -19,6 +19,9 @@ import java.util.Objects;
 
 import net.maritimecloud.internal.message.Hashing;
 import net.maritimecloud.internal.message.MessageHelper;
+import net.maritimecloud.internal.message.SpecializedMessageSerializer;
+import net.maritimecloud.internal.message.binary.AbstractBinaryMessageWriter;
+import net.maritimecloud.internal.message.text.json.JsonValueWriter;
 import net.maritimecloud.message.Message;
 import net.maritimecloud.message.MessageReader;
 import net.maritimecloud.message.MessageSerializer;
@@ -318,7 +321,37 @@ public class Broadcast implements Message {
     }
 
     /** A serializer for reading and writing instances of Broadcast. */
-    static class Serializer extends MessageSerializer<Broadcast> {
+    static class Serializer extends SpecializedMessageSerializer<Broadcast> {
+
+        /** The JSON name of the messageId field. */
+        private static final char[] MESSAGE_ID = JsonValueWriter.fieldName("messageId");
+
+        /** The JSON name of the broadcastType field. */
+        private static final char[] BROADCAST_TYPE = JsonValueWriter.fieldName("broadcastType");
+
+        /** The JSON name of the senderId field. */
+        private static final char[] SENDER_ID = JsonValueWriter.fieldName("senderId");
+
+        /** The JSON name of the senderTimestamp field. */
+        private static final char[] SENDER_TIMESTAMP = JsonValueWriter.fieldName("senderTimestamp");
+
+        /** The JSON name of the senderPosition field. */
+        private static final char[] SENDER_POSITION = JsonValueWriter.fieldName("senderPosition");
+
+        /** The JSON name of the payload field. */
+        private static final char[] PAYLOAD = JsonValueWriter.fieldName("payload");
+
+        /** The JSON name of the ackBroadcast field. */
+        private static final char[] ACK_BROADCAST = JsonValueWriter.fieldName("ackBroadcast");
+
+        /** The JSON name of the area field. */
+        private static final char[] AREA = JsonValueWriter.fieldName("area");
+
+        /** The JSON name of the radius field. */
+        private static final char[] RADIUS = JsonValueWriter.fieldName("radius");
+
+        /** The JSON name of the signature field. */
+        private static final char[] SIGNATURE = JsonValueWriter.fieldName("signature");
 
         /** {@inheritDoc} */
         @Override
@@ -328,9 +361,63 @@ public class Broadcast implements Message {
 
         /** {@inheritDoc} */
         @Override
-        public void write(Broadcast message, MessageWriter writer) throws IOException {
+        protected void writeGeneric(Broadcast message, MessageWriter writer) throws IOException {
             message.writeTo(writer);
         }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void writeBinary(Broadcast message, AbstractBinaryMessageWriter writer) throws IOException {
+            writer.writeBinary(1, null, message.messageId);
+            writer.writeText(2, null, message.broadcastType);
+            writer.writeText(3, null, message.senderId);
+            writer.writeTimestamp(4, null, message.senderTimestamp);
+            writer.writePosition(5, null, message.senderPosition);
+            writer.writeBinary(6, null, message.payload);
+            if (message.ackBroadcast != null) {
+                writer.writeBoolean(7, message.ackBroadcast.booleanValue());
+            }
+            writer.writeMessage(10, null, message.area, net.maritimecloud.util.geometry.Area.SERIALIZER);
+            if (message.radius != null) {
+                writer.writeInt(11, message.radius.intValue());
+            }
+            writer.writeBinary(15, null, message.signature);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void writeJson(Broadcast message, JsonValueWriter writer) throws IOException {
+            if (message.messageId != null) {
+                writer.writeTag(MESSAGE_ID).writeBinary(message.messageId);
+            }
+            if (message.broadcastType != null) {
+                writer.writeTag(BROADCAST_TYPE).writeText(message.broadcastType);
+            }
+            if (message.senderId != null) {
+                writer.writeTag(SENDER_ID).writeText(message.senderId);
+            }
+            if (message.senderTimestamp != null) {
+                writer.writeTag(SENDER_TIMESTAMP).writeTimestamp(message.senderTimestamp);
+            }
+            if (message.senderPosition != null) {
+                writer.writeTag(SENDER_POSITION).writePosition(message.senderPosition);
+            }
+            if (message.payload != null) {
+                writer.writeTag(PAYLOAD).writeBinary(message.payload);
+            }
+            if (message.ackBroadcast != null) {
+                writer.writeTag(ACK_BROADCAST).writeBoolean(message.ackBroadcast);
+            }
+            if (message.area != null) {
+                writer.writeTag(AREA).writeMessage(message.area, net.maritimecloud.util.geometry.Area.SERIALIZER);
+            }
+            if (message.radius != null) {
+                writer.writeTag(RADIUS).writeInt(message.radius);
+            }
+            if (message.signature != null) {
+                writer.writeTag(SIGNATURE).writeBinary(message.signature);
+            }
+        }
     }
 
     /** An immutable version of Broadcast. */
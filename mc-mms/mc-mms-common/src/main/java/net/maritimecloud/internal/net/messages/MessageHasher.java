@@ -14,146 +14,373 @@
  */
 package net.maritimecloud.internal.net.messages;
 
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.Signature;
 import java.security.SignatureException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
+import net.maritimecloud.internal.message.MessageHelper;
+import net.maritimecloud.internal.message.text.json.PooledStringWriter;
 import net.maritimecloud.internal.security.SecurityTools;
+import net.maritimecloud.internal.util.concurrent.CompletableFuture;
 import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageSerializer;
 import net.maritimecloud.util.Binary;
 import net.maritimecloud.util.Timestamp;
 import net.maritimecloud.util.geometry.Position;
 
 /**
+ * Calculates the message ids, and creates and verifies the signatures, of the messages that are sent between clients.
+ * <p>
+ * The fields of a message are written directly to a message digest or signature, which is reused by the current
+ * thread. The bytes written for each field are the same as those of {@link Binary#copyFromUtf8(String)},
+ * {@link Position#toBinary()} and {@link Timestamp#toBinary()}, and the UTF-8 encoded JSON of nested messages.
  *
  * @author Kasper Nielsen
  */
 public class MessageHasher {
 
-    static Binary binaryOf(Broadcast br) {
-        Binary b = Binary.EMPTY;
-        b = b.concat(from(br.getBroadcastType(), false, "broadcastType"));
-        b = b.concat(from(br.getSenderId(), false, "senderId"));
-        b = b.concat(from(br.getSenderTimestamp(), false, "senderTimestamp"));
-        b = b.concat(from(br.getSenderPosition(), true, "senderPosition"));
-        b = b.concat(from(br.getPayload(), true, "payload"));
-        return b;
-    }
-
-    static Binary binaryOf(BroadcastAck br) {
-        Binary b = Binary.EMPTY;
-        b = b.concat(from(br.getAckForMessageId(), false, "broadcastType"));
-        b = b.concat(from(br.getOriginalSenderId(), false, "senderId"));
-        b = b.concat(from(br.getReceiverId(), false, "senderTimestamp"));
-        b = b.concat(from(br.getReceiverTimestamp(), true, "senderPosition"));
-        return b.concat(from(br.getReceiverPosition(), true, "payload"));
-    }
-
-    static Binary binaryOf(MethodInvoke mi) {
-        Binary b = Binary.EMPTY;
-        b = b.concat(from(mi.getEndpointMethod(), false, "endpointMethod"));
-        b = b.concat(from(mi.getSenderId(), false, "senderId"));
-        b = b.concat(from(mi.getSenderTimestamp(), false, "senderTimestamp"));
-        b = b.concat(from(mi.getSenderPosition(), true, "senderPosition"));
-        b = b.concat(from(mi.getReceiverId(), true, "receiverId")); // null=server
-        return b.concat(from(mi.getParameters(), true, "parameters")); // true
-    }
-
-    static Binary binaryOf(MethodInvokeResult mir) {
-        Binary b = Binary.EMPTY;
-        b = b.concat(from(mir.getResultForMessageId(), false, "resultForMessageId"));
-        b = b.concat(from(mir.getOriginalSenderId(), false, "originalSenderId"));
-        b = b.concat(from(mir.getReceiverId(), false, "receiverId"));
-        b = b.concat(from(mir.getReceiverTimestamp(), true, "senderPosition"));
-        b = b.concat(from(mir.getResult(), true, "receiverId")); // null=server
-        return b.concat(from(mir.getFailure(), true, "parameters")); // true
-    }
+    /** The size of the buffer strings are encoded into before being written to a digest or signature. */
+    static final int BUFFER_SIZE = 1024;
+
+    /** The message digest of each thread. */
+    private static final ThreadLocal<DigestInput> DIGESTS = ThreadLocal.withInitial(DigestInput::new);
+
+    /** The signature of each thread. */
+    private static final ThreadLocal<SignatureInput> SIGNATURES = ThreadLocal.withInitial(SignatureInput::new);
 
     public static Binary calculateSHA256(Broadcast mi) {
-        return binaryOf(mi).sha256();
+        return calculateSHA256((Message) mi);
     }
 
     public static Binary calculateSHA256(BroadcastAck mi) {
-        return binaryOf(mi).sha256();
+        return calculateSHA256((Message) mi);
     }
 
     public static Binary calculateSHA256(MethodInvoke mi) {
-        return binaryOf(mi).sha256();
+        return calculateSHA256((Message) mi);
     }
 
     public static Binary calculateSHA256(MethodInvokeResult mi) {
-        return binaryOf(mi).sha256();
+        return calculateSHA256((Message) mi);
     }
 
-    static Binary checkEmpty(boolean optional, String name) {
-        if (optional) {
-            return Binary.EMPTY;
+    static Binary calculateSHA256(Message message) {
+        DigestInput in = DIGESTS.get();
+        in.digest.reset(); // in case a previous message was missing a field
+        write(message, in);
+        return Binary.copyFrom(in.digest.digest());
+    }
+
+    static void checkEmpty(boolean optional, String name) {
+        if (!optional) {
+            throw new IllegalArgumentException("The field '" + name + "' was not filled out");
         }
-        throw new IllegalArgumentException("The field '" + name + "' was not filled out");
     }
 
-    static Binary from(Binary binary, boolean optional, String name) {
-        return binary == null ? checkEmpty(optional, name) : binary;
+    static Binary sign(Message message, PrivateKey key) throws SignatureException {
+        SignatureInput in = SIGNATURES.get();
+        SecurityTools.initSign(in.signature, key);
+        write(message, in);
+        return Binary.copyFrom(in.signature.sign());
     }
 
-    static Binary from(Message mes, boolean optional, String name) {
-        return mes == null ? checkEmpty(optional, name) : Binary.copyFromUtf8(mes.toJSON());
+    public static Binary sign(Broadcast mi, PrivateKey key) throws SignatureException {
+        return sign((Message) mi, key);
     }
 
-    static Binary from(Position position, boolean optional, String name) {
-        return position == null ? checkEmpty(optional, name) : position.toBinary();
+    public static Binary sign(BroadcastAck mi, PrivateKey key) throws SignatureException {
+        return sign((Message) mi, key);
     }
 
-    static Binary from(String str, boolean optional, String name) {
-        return str == null ? checkEmpty(optional, name) : Binary.copyFromUtf8(str);
+    public static Binary sign(MethodInvoke mi, PrivateKey key) throws SignatureException {
+        return sign((Message) mi, key);
     }
 
-    static Binary from(Timestamp timestamp, boolean optional, String name) {
-        return timestamp == null ? checkEmpty(optional, name) : timestamp.toBinary();
+    public static Binary sign(MethodInvokeResult mi, PrivateKey key) throws SignatureException {
+        return sign((Message) mi, key);
     }
 
-    static Binary sign(Binary b, PrivateKey key) throws SignatureException {
-        Signature dsa = SecurityTools.newSignatureForSigning(key);
-        dsa.update(b.toByteArray());
-        byte[] signature = dsa.sign();
-        return Binary.copyFrom(signature);
+    /**
+     * Verifies the signature of a message.
+     *
+     * @param message
+     *            the message to verify, a broadcast, broadcast ack, method invocation or method invocation result
+     * @param signature
+     *            the signature of the message, or null if the message is not signed
+     * @param key
+     *            the public key of the sender
+     * @return true if the message is signed and the signature is valid, otherwise false
+     * @throws SignatureException
+     *             if the signature is not encoded correctly
+     */
+    static boolean verify(Message message, Binary signature, PublicKey key) throws SignatureException {
+        if (signature == null) {
+            return false;
+        }
+        SignatureInput in = SIGNATURES.get();
+        SecurityTools.initVerify(in.signature, key);
+        write(message, in);
+        return in.signature.verify(signature.toByteArray());
     }
 
-    public static Binary sign(Broadcast mi, PrivateKey key) throws SignatureException {
-        return sign(binaryOf(mi), key);
+    public static boolean verify(Broadcast mi, PublicKey key) throws SignatureException {
+        return verify(mi, mi.getSignature(), key);
     }
 
-    public static Binary sign(BroadcastAck mi, PrivateKey key) throws SignatureException {
-        return sign(binaryOf(mi), key);
+    public static boolean verify(BroadcastAck mi, PublicKey key) throws SignatureException {
+        return verify(mi, mi.getSignature(), key);
     }
 
-    public static Binary sign(MethodInvoke mi, PrivateKey key) throws SignatureException {
-        return sign(binaryOf(mi), key);
+    public static boolean verify(MethodInvoke mi, PublicKey key) throws SignatureException {
+        return verify(mi, mi.getSignature(), key);
     }
 
-    public static Binary sign(MethodInvokeResult mi, PrivateKey key) throws SignatureException {
-        return sign(binaryOf(mi), key);
+    public static boolean verify(MethodInvokeResult mi, PublicKey key) throws SignatureException {
+        return verify(mi, mi.getSignature(), key);
     }
 
-    static boolean verify(Binary b, PublicKey key) throws SignatureException {
-        Signature dsa = SecurityTools.newSignatureForVerify(key);
-        return dsa.verify(b.toByteArray());
+    /**
+     * Verifies the signatures of a number of messages in parallel. A message that is not signed, that is missing a
+     * required field, or whose signature is not encoded correctly, fails verification.
+     *
+     * @param messages
+     *            the messages to verify, broadcasts, broadcast acks, method invocations or method invocation results
+     * @param keys
+     *            a function returning the public key of the sender of a message
+     * @param executor
+     *            the executor the signatures are verified in
+     * @return a future completed with the result of verifying each message, in the order of the specified list. Or
+     *         completed exceptionally if the key of a sender could not be found
+     */
+    public static CompletableFuture<boolean[]> verifyAll(List<? extends Message> messages,
+            Function<? super Message, ? extends PublicKey> keys, Executor executor) {
+        requireNonNull(keys);
+        boolean[] result = new boolean[messages.size()];
+        CompletableFuture<boolean[]> f = new CompletableFuture<>();
+        if (result.length == 0) {
+            f.complete(result);
+            return f;
+        }
+        AtomicInteger remaining = new AtomicInteger(result.length);
+        for (int i = 0; i < result.length; i++) {
+            Message message = messages.get(i);
+            int index = i;
+            executor.execute(() -> {
+                try {
+                    result[index] = verify(message, signatureOf(message), keys.apply(message));
+                } catch (SignatureException | IllegalArgumentException ignore) {
+                    // result[index] = false
+                } catch (Throwable t) {
+                    f.completeExceptionally(t);
+                    return;
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    f.complete(result);
+                }
+            });
+        }
+        return f;
     }
 
-    public static boolean verify(Broadcast mi, PublicKey key) throws SignatureException {
-        return verify(binaryOf(mi), key);
+    static Binary signatureOf(Message message) {
+        if (message instanceof Broadcast) {
+            return ((Broadcast) message).getSignature();
+        } else if (message instanceof BroadcastAck) {
+            return ((BroadcastAck) message).getSignature();
+        } else if (message instanceof MethodInvoke) {
+            return ((MethodInvoke) message).getSignature();
+        } else if (message instanceof MethodInvokeResult) {
+            return ((MethodInvokeResult) message).getSignature();
+        }
+        throw new IllegalArgumentException("Cannot sign messages of type " + message.getClass().getName());
     }
 
-    public static boolean verify(BroadcastAck mi, PublicKey key) throws SignatureException {
-        return verify(binaryOf(mi), key);
+    static void write(Broadcast br, Input in) {
+        in.write(br.getBroadcastType(), false, "broadcastType");
+        in.write(br.getSenderId(), false, "senderId");
+        in.write(br.getSenderTimestamp(), false, "senderTimestamp");
+        in.write(br.getSenderPosition(), true, "senderPosition");
+        in.write(br.getPayload(), true, "payload");
     }
 
-    public static boolean verify(MethodInvoke mi, PublicKey key) throws SignatureException {
-        return verify(binaryOf(mi), key);
+    static void write(BroadcastAck br, Input in) {
+        in.write(br.getAckForMessageId(), false, "broadcastType");
+        in.write(br.getOriginalSenderId(), false, "senderId");
+        in.write(br.getReceiverId(), false, "senderTimestamp");
+        in.write(br.getReceiverTimestamp(), true, "senderPosition");
+        in.write(br.getReceiverPosition(), true, "payload");
     }
 
-    public static boolean verify(MethodInvokeResult mi, PublicKey key) throws SignatureException {
-        return verify(binaryOf(mi), key);
+    static void write(Message message, Input in) {
+        if (message instanceof Broadcast) {
+            write((Broadcast) message, in);
+        } else if (message instanceof BroadcastAck) {
+            write((BroadcastAck) message, in);
+        } else if (message instanceof MethodInvoke) {
+            write((MethodInvoke) message, in);
+        } else if (message instanceof MethodInvokeResult) {
+            write((MethodInvokeResult) message, in);
+        } else {
+            throw new IllegalArgumentException("Cannot hash messages of type " + message.getClass().getName());
+        }
+    }
+
+    static void write(MethodInvoke mi, Input in) {
+        in.write(mi.getEndpointMethod(), false, "endpointMethod");
+        in.write(mi.getSenderId(), false, "senderId");
+        in.write(mi.getSenderTimestamp(), false, "senderTimestamp");
+        in.write(mi.getSenderPosition(), true, "senderPosition");
+        in.write(mi.getReceiverId(), true, "receiverId"); // null=server
+        in.write(mi.getParameters(), true, "parameters"); // true
+    }
+
+    static void write(MethodInvokeResult mir, Input in) {
+        in.write(mir.getResultForMessageId(), false, "resultForMessageId");
+        in.write(mir.getOriginalSenderId(), false, "originalSenderId");
+        in.write(mir.getReceiverId(), false, "receiverId");
+        in.write(mir.getReceiverTimestamp(), true, "senderPosition");
+        in.write(mir.getResult(), true, "receiverId"); // null=server
+        in.write(mir.getFailure(), true, "parameters"); // true
+    }
+
+    /** A message digest or signature that the fields of a message are written to. */
+    abstract static class Input {
+
+        /** The buffer fields are encoded into. */
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        /** Encodes strings the same way as {@link String#getBytes(java.nio.charset.Charset)}. */
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        /**
+         * Updates the digest or signature with the remaining bytes of the specified buffer.
+         *
+         * @param bytes
+         *            the bytes to update with
+         */
+        abstract void update(ByteBuffer bytes);
+
+        final void write(Binary binary, boolean optional, String name) {
+            if (binary == null) {
+                checkEmpty(optional, name);
+            } else {
+                for (ByteBuffer bb : binary.asReadOnlyByteBufferList()) {
+                    update(bb);
+                }
+            }
+        }
+
+        final void write(Message message, boolean optional, String name) {
+            if (message == null) {
+                checkEmpty(optional, name);
+            } else {
+                PooledStringWriter w = PooledStringWriter.acquire();
+                try {
+                    MessageSerializer.writeToJSON(message, MessageHelper.getSerializer(message), w);
+                    writeUtf8(w.getBuffer());
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to write message as JSON", e);
+                } finally {
+                    w.recycle();
+                }
+            }
+        }
+
+        final void write(Position position, boolean optional, String name) {
+            if (position == null) {
+                checkEmpty(optional, name);
+            } else {
+                write(position.toBinary(), false, name);
+            }
+        }
+
+        final void write(String str, boolean optional, String name) {
+            if (str == null) {
+                checkEmpty(optional, name);
+            } else {
+                writeUtf8(str);
+            }
+        }
+
+        final void write(Timestamp timestamp, boolean optional, String name) {
+            if (timestamp == null) {
+                checkEmpty(optional, name);
+            } else {
+                buffer.clear();
+                buffer.putLong(timestamp.getTime()).flip();
+                update(buffer);
+            }
+        }
+
+        final void writeUtf8(CharSequence cs) {
+            CharBuffer chars = CharBuffer.wrap(cs);
+            encoder.reset();
+            CoderResult cr;
+            do {
+                buffer.clear();
+                cr = encoder.encode(chars, buffer, true);
+                if (cr.isUnderflow()) {
+                    encoder.flush(buffer);
+                }
+                buffer.flip();
+                update(buffer);
+            } while (cr.isOverflow());
+        }
+    }
+
+    /** Writes messages to a SHA-256 message digest. */
+    static final class DigestInput extends Input {
+
+        /** The message digest. */
+        final MessageDigest digest;
+
+        DigestInput() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("All java implementations should have SHA-256", e);
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        void update(ByteBuffer bytes) {
+            digest.update(bytes);
+        }
+    }
+
+    /** Writes messages to a signature, which is initialized for each message. */
+    static final class SignatureInput extends Input {
+
+        /** The signature. */
+        final Signature signature = SecurityTools.newSignature();
+
+        /** {@inheritDoc} */
+        @Override
+        void update(ByteBuffer bytes) {
+            try {
+                signature.update(bytes);
+            } catch (SignatureException e) {
+                // Only thrown if the signature has not been initialized
+                throw new IllegalStateException(e);
+            }
+        }
     }
 }
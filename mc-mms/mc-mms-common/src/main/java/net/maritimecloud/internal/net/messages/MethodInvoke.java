@@ -18,6 +18,9 @@ import java.io.IOException;
 import java.util.Objects;
 
 import net.maritimecloud.internal.message.Hashing;
+import net.maritimecloud.internal.message.SpecializedMessageSerializer;
+import net.maritimecloud.internal.message.binary.AbstractBinaryMessageWriter;
+import net.maritimecloud.internal.message.text.json.JsonValueWriter;
 import net.maritimecloud.message.Message;
 import net.maritimecloud.message.MessageReader;
 import net.maritimecloud.message.MessageSerializer;
@@ -270,7 +273,31 @@ public class MethodInvoke implements Message {
     }
 
     /** A serializer for reading and writing instances of MethodInvoke. */
-    static class Serializer extends MessageSerializer<MethodInvoke> {
+    static class Serializer extends SpecializedMessageSerializer<MethodInvoke> {
+
+        /** The JSON name of the messageId field. */
+        private static final char[] MESSAGE_ID = JsonValueWriter.fieldName("messageId");
+
+        /** The JSON name of the endpointMethod field. */
+        private static final char[] ENDPOINT_METHOD = JsonValueWriter.fieldName("endpointMethod");
+
+        /** The JSON name of the senderId field. */
+        private static final char[] SENDER_ID = JsonValueWriter.fieldName("senderId");
+
+        /** The JSON name of the senderTimestamp field. */
+        private static final char[] SENDER_TIMESTAMP = JsonValueWriter.fieldName("senderTimestamp");
+
+        /** The JSON name of the senderPosition field. */
+        private static final char[] SENDER_POSITION = JsonValueWriter.fieldName("senderPosition");
+
+        /** The JSON name of the receiverId field. */
+        private static final char[] RECEIVER_ID = JsonValueWriter.fieldName("receiverId");
+
+        /** The JSON name of the parameters field. */
+        private static final char[] PARAMETERS = JsonValueWriter.fieldName("parameters");
+
+        /** The JSON name of the signature field. */
+        private static final char[] SIGNATURE = JsonValueWriter.fieldName("signature");
 
         /** {@inheritDoc} */
         @Override
@@ -280,9 +307,51 @@ public class MethodInvoke implements Message {
 
         /** {@inheritDoc} */
         @Override
-        public void write(MethodInvoke message, MessageWriter writer) throws IOException {
+        protected void writeGeneric(MethodInvoke message, MessageWriter writer) throws IOException {
             message.writeTo(writer);
         }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void writeBinary(MethodInvoke message, AbstractBinaryMessageWriter writer) throws IOException {
+            writer.writeBinary(1, null, message.messageId);
+            writer.writeText(2, null, message.endpointMethod);
+            writer.writeText(3, null, message.senderId);
+            writer.writeTimestamp(4, null, message.senderTimestamp);
+            writer.writePosition(5, null, message.senderPosition);
+            writer.writeText(6, null, message.receiverId);
+            writer.writeText(7, null, message.parameters);
+            writer.writeBinary(15, null, message.signature);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void writeJson(MethodInvoke message, JsonValueWriter writer) throws IOException {
+            if (message.messageId != null) {
+                writer.writeTag(MESSAGE_ID).writeBinary(message.messageId);
+            }
+            if (message.endpointMethod != null) {
+                writer.writeTag(ENDPOINT_METHOD).writeText(message.endpointMethod);
+            }
+            if (message.senderId != null) {
+                writer.writeTag(SENDER_ID).writeText(message.senderId);
+            }
+            if (message.senderTimestamp != null) {
+                writer.writeTag(SENDER_TIMESTAMP).writeTimestamp(message.senderTimestamp);
+            }
+            if (message.senderPosition != null) {
+                writer.writeTag(SENDER_POSITION).writePosition(message.senderPosition);
+            }
+            if (message.receiverId != null) {
+                writer.writeTag(RECEIVER_ID).writeText(message.receiverId);
+            }
+            if (message.parameters != null) {
+                writer.writeTag(PARAMETERS).writeText(message.parameters);
+            }
+            if (message.signature != null) {
+                writer.writeTag(SIGNATURE).writeBinary(message.signature);
+            }
+        }
     }
 
     /** An immutable version of MethodInvoke. */
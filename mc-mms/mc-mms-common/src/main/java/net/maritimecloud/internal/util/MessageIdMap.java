@@ -0,0 +1,410 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+import net.maritimecloud.util.Binary;
+
+/**
+ * A concurrent map from message ids to values. Message ids are 32 byte random values or SHA-256 hashes, such an id is
+ * stored as four longs in an open addressing table, without keeping the {@link Binary} of the id. So an entry takes up
+ * 32 bytes for the id and a reference to the value, and looking up an id allocates nothing and compares four longs.
+ * Ids of any other length are rare and are kept in a plain map.
+ * <p>
+ * The map is split into a fixed number of segments that are each updated under their own lock. Lookups do not lock,
+ * they read optimistically and only fall back to the lock of the segment if an update happened at the same time.
+ *
+ * @param <V>
+ *            the type of values
+ * @author Kasper Nielsen
+ */
+public class MessageIdMap<V> {
+
+    /** The size of the ids that are stored in the segments. */
+    static final int ID_SIZE = 32;
+
+    /** The number of segments, must be a power of 2. */
+    private static final int SEGMENTS = 16;
+
+    /** Ids that are not {@link #ID_SIZE} bytes long. */
+    private final ConcurrentHashMap<Binary, V> other = new ConcurrentHashMap<>();
+
+    /** The segments. */
+    private final Segment<V>[] segments;
+
+    /** Creates a new empty map. */
+    @SuppressWarnings("unchecked")
+    public MessageIdMap() {
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    /** Removes all mappings. */
+    public void clear() {
+        for (Segment<V> s : segments) {
+            s.clear();
+        }
+        other.clear();
+    }
+
+    /**
+     * Invokes the specified action for each mapping. Each segment is locked while its mappings are visited, so the
+     * action must not modify this map. The ids of the mappings are recreated for each invocation.
+     *
+     * @param action
+     *            the action to perform for each mapping
+     */
+    public void forEach(BiConsumer<? super Binary, ? super V> action) {
+        requireNonNull(action, "action is null");
+        for (Segment<V> s : segments) {
+            s.forEach(action);
+        }
+        other.forEach(action);
+    }
+
+    /**
+     * Returns the value mapped to the specified id, or null if there is no mapping.
+     *
+     * @param id
+     *            the message id
+     * @return the value mapped to the id, or null if there is no mapping
+     */
+    public V get(Binary id) {
+        if (id.size() != ID_SIZE) {
+            return other.get(id);
+        }
+        ByteBuffer b = id.asReadOnlyByteBuffer();
+        int p = b.position();
+        long k0 = b.getLong(p), k1 = b.getLong(p + 8), k2 = b.getLong(p + 16), k3 = b.getLong(p + 24);
+        return segment(k0, k1, k2, k3).get(k0, k1, k2, k3);
+    }
+
+    /**
+     * Maps the specified id to the specified value.
+     *
+     * @param id
+     *            the message id
+     * @param value
+     *            the value
+     * @return the previous value mapped to the id, or null if there was no mapping
+     */
+    public V put(Binary id, V value) {
+        requireNonNull(value, "value is null");
+        if (id.size() != ID_SIZE) {
+            return other.put(id, value);
+        }
+        ByteBuffer b = id.asReadOnlyByteBuffer();
+        int p = b.position();
+        long k0 = b.getLong(p), k1 = b.getLong(p + 8), k2 = b.getLong(p + 16), k3 = b.getLong(p + 24);
+        return segment(k0, k1, k2, k3).put(k0, k1, k2, k3, value, false);
+    }
+
+    /**
+     * Maps the specified id to the specified value, unless the id is already mapped.
+     *
+     * @param id
+     *            the message id
+     * @param value
+     *            the value
+     * @return the existing value mapped to the id, or null if the specified value was added
+     */
+    public V putIfAbsent(Binary id, V value) {
+        requireNonNull(value, "value is null");
+        if (id.size() != ID_SIZE) {
+            return other.putIfAbsent(id, value);
+        }
+        ByteBuffer b = id.asReadOnlyByteBuffer();
+        int p = b.position();
+        long k0 = b.getLong(p), k1 = b.getLong(p + 8), k2 = b.getLong(p + 16), k3 = b.getLong(p + 24);
+        return segment(k0, k1, k2, k3).put(k0, k1, k2, k3, value, true);
+    }
+
+    /**
+     * Removes the mapping of the specified id.
+     *
+     * @param id
+     *            the message id
+     * @return the value that was mapped to the id, or null if there was no mapping
+     */
+    public V remove(Binary id) {
+        if (id.size() != ID_SIZE) {
+            return other.remove(id);
+        }
+        ByteBuffer b = id.asReadOnlyByteBuffer();
+        int p = b.position();
+        long k0 = b.getLong(p), k1 = b.getLong(p + 8), k2 = b.getLong(p + 16), k3 = b.getLong(p + 24);
+        return segment(k0, k1, k2, k3).remove(k0, k1, k2, k3, null);
+    }
+
+    /**
+     * Removes the mapping of the specified id, if it is mapped to the specified value.
+     *
+     * @param id
+     *            the message id
+     * @param value
+     *            the expected value
+     * @return true if the mapping was removed, otherwise false
+     */
+    public boolean remove(Binary id, V value) {
+        requireNonNull(value, "value is null");
+        if (id.size() != ID_SIZE) {
+            return other.remove(id, value);
+        }
+        ByteBuffer b = id.asReadOnlyByteBuffer();
+        int p = b.position();
+        long k0 = b.getLong(p), k1 = b.getLong(p + 8), k2 = b.getLong(p + 16), k3 = b.getLong(p + 24);
+        return segment(k0, k1, k2, k3).remove(k0, k1, k2, k3, value) != null;
+    }
+
+    /**
+     * Returns the number of mappings.
+     *
+     * @return the number of mappings
+     */
+    public int size() {
+        int size = other.size();
+        for (Segment<V> s : segments) {
+            size += s.size();
+        }
+        return size;
+    }
+
+    private Segment<V> segment(long k0, long k1, long k2, long k3) {
+        return segments[(int) (hash(k0, k1, k2, k3) >>> 60) & (SEGMENTS - 1)];
+    }
+
+    /** Spreads the bits of the four longs of an id, ids are normally random but we do not rely on it. */
+    static long hash(long k0, long k1, long k2, long k3) {
+        long h = ((k0 * 0x9E3779B97F4A7C15L ^ k1) * 0x9E3779B97F4A7C15L ^ k2) * 0x9E3779B97F4A7C15L ^ k3;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * An open addressing hash table with linear probing. Updates hold the write lock of the segment. Lookups do not
+     * lock, they read the table optimistically and only take the read lock if an update happened while reading.
+     */
+    static final class Segment<V> {
+
+        /** The initial number of slots, must be a power of 2. */
+        private static final int INITIAL_CAPACITY = 16;
+
+        /** The lock guarding updates. */
+        private final StampedLock lock = new StampedLock();
+
+        /** The slots, replaced as a whole when the table is resized. */
+        private Table table = new Table(INITIAL_CAPACITY);
+
+        /** The number of mappings. */
+        private int size;
+
+        void clear() {
+            long stamp = lock.writeLock();
+            try {
+                table = new Table(INITIAL_CAPACITY);
+                size = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(BiConsumer<? super Binary, ? super V> action) {
+            long stamp = lock.readLock();
+            try {
+                Table t = table;
+                for (int i = 0; i < t.values.length; i++) {
+                    if (t.values[i] != null) {
+                        ByteBuffer b = ByteBuffer.allocate(ID_SIZE);
+                        b.putLong(t.keys[4 * i]).putLong(t.keys[4 * i + 1]).putLong(t.keys[4 * i + 2])
+                                .putLong(t.keys[4 * i + 3]);
+                        action.accept(Binary.copyFrom(b.array()), (V) t.values[i]);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(long k0, long k1, long k2, long k3) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                // Might see a table that is being updated, the value is only used if no update has started since
+                Object value = table.get(k0, k1, k2, k3);
+                if (lock.validate(stamp)) {
+                    return (V) value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return (V) table.get(k0, k1, k2, k3);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(long k0, long k1, long k2, long k3, V value, boolean onlyIfAbsent) {
+            long stamp = lock.writeLock();
+            try {
+                Table t = table;
+                int i = t.indexOf(k0, k1, k2, k3);
+                if (t.values[i] != null) {
+                    V existing = (V) t.values[i];
+                    if (!onlyIfAbsent) {
+                        t.values[i] = value;
+                    }
+                    return existing;
+                }
+                t.keys[4 * i] = k0;
+                t.keys[4 * i + 1] = k1;
+                t.keys[4 * i + 2] = k2;
+                t.keys[4 * i + 3] = k3;
+                t.values[i] = value;
+                // Keep the load factor at or below 0.75
+                if (++size > t.values.length - (t.values.length >> 2)) {
+                    table = t.resize();
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long k0, long k1, long k2, long k3, V expected) {
+            long stamp = lock.writeLock();
+            try {
+                Table t = table;
+                int i = t.indexOf(k0, k1, k2, k3);
+                if (t.values[i] == null || expected != null && !expected.equals(t.values[i])) {
+                    return null;
+                }
+                V existing = (V) t.values[i];
+                size--;
+                t.remove(i);
+                return existing;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /** The slots of a segment. A slot is empty if its value is null. */
+    static final class Table {
+
+        /** The id of each slot, 4 longs per slot. */
+        final long[] keys;
+
+        /** The value of each slot, null for empty slots. */
+        final Object[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity * 4];
+            values = new Object[capacity];
+        }
+
+        /**
+         * Returns the value of the id, or null if the id is not in the table. Tolerates concurrent updates, in which
+         * case the result might be wrong but the lookup always ends.
+         */
+        Object get(long k0, long k1, long k2, long k3) {
+            int mask = values.length - 1;
+            int i = (int) hash(k0, k1, k2, k3) & mask;
+            for (int n = 0; n <= mask; n++, i = i + 1 & mask) {
+                Object v = values[i];
+                if (v == null) {
+                    return null;
+                } else if (matches(i, k0, k1, k2, k3)) {
+                    return v;
+                }
+            }
+            return null;
+        }
+
+        /** Returns the slot of the id, or the empty slot where the id should be inserted. */
+        int indexOf(long k0, long k1, long k2, long k3) {
+            int mask = values.length - 1;
+            for (int i = (int) hash(k0, k1, k2, k3) & mask;; i = i + 1 & mask) {
+                if (values[i] == null || matches(i, k0, k1, k2, k3)) {
+                    return i;
+                }
+            }
+        }
+
+        private boolean matches(int i, long k0, long k1, long k2, long k3) {
+            return keys[4 * i] == k0 && keys[4 * i + 1] == k1 && keys[4 * i + 2] == k2 && keys[4 * i + 3] == k3;
+        }
+
+        private int home(int i, int mask) {
+            return (int) hash(keys[4 * i], keys[4 * i + 1], keys[4 * i + 2], keys[4 * i + 3]) & mask;
+        }
+
+        /**
+         * Empties the specified slot. Backward shift deletion, moves following entries of the cluster into the slot so
+         * no tombstones are needed.
+         */
+        void remove(int i) {
+            int mask = values.length - 1;
+            for (int j = i + 1 & mask; values[j] != null; j = j + 1 & mask) {
+                int home = home(j, mask);
+                // Move entry j to the free slot i if i lies cyclically in [home, j)
+                if ((j - home & mask) >= (j - i & mask)) {
+                    System.arraycopy(keys, 4 * j, keys, 4 * i, 4);
+                    values[i] = values[j];
+                    i = j;
+                }
+            }
+            values[i] = null;
+        }
+
+        /** Returns a new table with twice the capacity, containing the mappings of this table. */
+        Table resize() {
+            Table t = new Table(values.length * 2);
+            int mask = t.values.length - 1;
+            for (int j = 0; j < values.length; j++) {
+                if (values[j] != null) {
+                    int i = home(j, mask);
+                    while (t.values[i] != null) {
+                        i = i + 1 & mask;
+                    }
+                    System.arraycopy(keys, 4 * j, t.keys, 4 * i, 4);
+                    t.values[i] = values[j];
+                }
+            }
+            return t;
+        }
+    }
+}
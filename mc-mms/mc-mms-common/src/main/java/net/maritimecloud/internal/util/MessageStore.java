@@ -14,10 +14,12 @@
  */
 package net.maritimecloud.internal.util;
 
-import java.util.Collections;
-import java.util.Map;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -25,76 +27,219 @@ import java.util.function.Predicate;
 import net.maritimecloud.util.Binary;
 
 /**
+ * A store of messages that is indexed by message id and by time. Messages are kept in a hashed timing wheel: the
+ * timestamp of a message selects a bucket, each bucket covers one tick of time, and the wheel has enough buckets to
+ * cover the time to live. Adding a message and finding it by id are constant time operations. Expired messages are
+ * removed a bucket at a time, without testing the messages that are in buckets that have expired as a whole.
+ * <p>
+ * When a bucket is reused for a later tick, the messages left in it are older than the time to live and are removed.
+ * So the store never holds more than roughly one time to live of messages, even if it is never pruned.
+ * <p>
+ * Timestamps are compared as longs, they are normally obtained from {@link System#nanoTime()}.
  *
  * @author Kasper Nielsen
  */
 public class MessageStore<T extends StoredMessage> {
 
-    static final int HASH_LENGTH = 32;
+    /** The default time to live of messages. */
+    static final long DEFAULT_TIME_TO_LIVE_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    /** The default duration of each bucket. */
+    static final long DEFAULT_TICK_NANOS = TimeUnit.MINUTES.toNanos(1);
 
-    final long timeToLiveNanos = TimeUnit.NANOSECONDS.convert(1, TimeUnit.HOURS);
+    /** All messages, keyed by message id. */
+    final MessageIdMap<T> messages = new MessageIdMap<>();
 
-    /** All messages, keyed by hash. Is a skip list to allow for prefix search. */
-    final ConcurrentSkipListMap<Binary, T> messages = new ConcurrentSkipListMap<>();
+    /** The duration of each bucket in nanoseconds. */
+    final long tickNanos;
 
-    /** All messages ordered by time, uses hash for breaking ties. */
-    final ConcurrentSkipListMap<Key, T> messagesByTime = new ConcurrentSkipListMap<>();
+    /** The time to live of messages in nanoseconds. */
+    final long timeToLiveNanos;
+
+    /** The buckets of the wheel, a message with timestamp t is placed in bucket floorMod(t / tickNanos, length). */
+    final Bucket<T>[] wheel;
+
+    /** Creates a new store where messages live for one hour, and each bucket covers one minute. */
+    public MessageStore() {
+        this(DEFAULT_TIME_TO_LIVE_NANOS, DEFAULT_TICK_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a new store.
+     *
+     * @param timeToLive
+     *            the time to live of messages
+     * @param tickDuration
+     *            the duration of each bucket, messages are expired at this granularity when the store is not pruned
+     * @param unit
+     *            the unit of the time to live and the tick duration
+     */
+    @SuppressWarnings("unchecked")
+    public MessageStore(long timeToLive, long tickDuration, TimeUnit unit) {
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        this.tickNanos = unit.toNanos(tickDuration);
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive, was " + tickDuration);
+        } else if (timeToLiveNanos < tickNanos) {
+            throw new IllegalArgumentException("timeToLive must be at least the tick duration, was " + timeToLive);
+        }
+        // One extra bucket so a bucket is never reused while it holds messages younger than the time to live
+        long buckets = (timeToLiveNanos + tickNanos - 1) / tickNanos + 1;
+        if (buckets > 1 << 20) {
+            throw new IllegalArgumentException("Too many buckets, timeToLive / tickDuration = " + buckets);
+        }
+        wheel = new Bucket[(int) buckets];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket<>();
+        }
+    }
 
     public void addMessage(T m) {
-        messages.put(m.getMessageId(), m);
-        messagesByTime.put(new Key(m), m);
+        long tick = Math.floorDiv(m.getTimestamp(), tickNanos);
+        Bucket<T> b = wheel[(int) Math.floorMod(tick, (long) wheel.length)];
+        synchronized (b) {
+            if (tick > b.tick) {
+                // The bucket was last used a full rotation ago, everything in it has expired
+                b.expireAll(messages);
+                b.tick = tick;
+            }
+            // Messages older than the tick of the bucket are late arrivals, they are kept until the bucket expires
+            b.messages.add(m);
+            messages.put(m.getMessageId(), m);
+        }
     }
 
     public T find(Binary key) {
         return messages.get(key);
     }
 
+    /**
+     * Returns all messages whose id starts with the specified prefix. Message ids are random, so this visits every
+     * message in the store.
+     *
+     * @param prefix
+     *            the prefix of the message ids
+     * @return a set of all messages whose id starts with the prefix
+     */
     public Set<T> findPrefixed(Binary prefix) {
-        return Collections.emptySet();
+        requireNonNull(prefix, "prefix is null");
+        Set<T> result = new HashSet<>();
+        messages.forEach((id, m) -> {
+            if (id.startsWith(prefix)) {
+                result.add(m);
+            }
+        });
+        return result;
     }
 
     public void forEach(Consumer<? super T> consumer) {
-        messages.values().forEach(consumer);
+        // Do not invoke the consumer while holding the locks of the index
+        ArrayList<T> list = new ArrayList<>();
+        messages.forEach((id, m) -> list.add(m));
+        list.forEach(consumer);
     }
 
+    /**
+     * Invokes the specified consumer for each message, starting with the oldest message. Messages within the same tick
+     * are visited in the order they were added.
+     *
+     * @param consumer
+     *            the consumer
+     */
     public void forEachEldestFirst(Consumer<? super T> consumer) {
-        messagesByTime.descendingMap().values().forEach(consumer);
+        ArrayList<T> list = new ArrayList<>();
+        for (Bucket<T> b : wheel) {
+            synchronized (b) {
+                list.addAll(b.messages);
+            }
+        }
+        list.sort((a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()));
+        for (T t : list) {
+            if (messages.get(t.getMessageId()) == t) {
+                consumer.accept(t);
+            }
+        }
     }
 
     public void clear() {
-        // It would be easier to just clear the two maps.
-        // But this would fail if we get a concurrent update
-        pruneMessagesOldThan(Long.MAX_VALUE);
+        for (Bucket<T> b : wheel) {
+            synchronized (b) {
+                b.expireAll(messages);
+            }
+        }
     }
 
+    /**
+     * Removes all messages accepted by the specified predicate. This tests every message in the store, use
+     * {@link #pruneMessagesOldThan(long)} to remove old messages.
+     *
+     * @param predicate
+     *            the predicate
+     */
     public void pruneMessages(Predicate<? super T> predicate) {
-        for (Map.Entry<Key, T> e : messagesByTime.entrySet()) {
-            if (predicate.test(e.getValue())) {
-                messagesByTime.remove(e.getKey());
-                messages.remove(e.getValue().getMessageId());
+        for (Bucket<T> b : wheel) {
+            synchronized (b) {
+                b.expire(messages, predicate);
             }
         }
     }
 
+    /**
+     * Removes all messages with a timestamp older than the specified timestamp. Buckets that are entirely older than
+     * the timestamp are dropped as a whole. Only the messages in the bucket that contains the timestamp are tested
+     * individually.
+     *
+     * @param timestamp
+     *            the timestamp
+     */
     public void pruneMessagesOldThan(long timestamp) {
-        pruneMessages(e -> e.getTimestamp() < timestamp);
+        long tick = Math.floorDiv(timestamp, tickNanos);
+        for (Bucket<T> b : wheel) {
+            synchronized (b) {
+                if (b.tick < tick) {
+                    b.expireAll(messages);
+                } else if (b.tick == tick) {
+                    b.expire(messages, m -> m.getTimestamp() < timestamp);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of messages in the store.
+     *
+     * @return the number of messages in the store
+     */
+    public int size() {
+        return messages.size();
     }
 
+    /** A bucket of the wheel, guarded by its own monitor. */
+    static final class Bucket<T extends StoredMessage> {
+
+        /** The messages in this bucket, in the order they were added. */
+        final ArrayList<T> messages = new ArrayList<>();
 
-    static class Key implements Comparable<Key> {
-        final StoredMessage msg;
+        /** The latest tick this bucket has been used for. */
+        long tick = Long.MIN_VALUE;
 
-        Key(StoredMessage msg) {
-            this.msg = msg;
+        /** Removes all messages in this bucket, keeping the capacity of the list for the next rotation. */
+        void expireAll(MessageIdMap<T> index) {
+            for (T t : messages) {
+                // The same id might have been added again later, in which case it is left in the index
+                index.remove(t.getMessageId(), t);
+            }
+            messages.clear();
         }
 
-        /** {@inheritDoc} */
-        @Override
-        public int compareTo(Key o) {
-            if (msg.getTimestamp() == o.msg.getTimestamp()) {
-                return msg.getMessageId().compareTo(o.msg.getMessageId());
+        void expire(MessageIdMap<T> index, Predicate<? super T> predicate) {
+            for (Iterator<T> iter = messages.iterator(); iter.hasNext();) {
+                T t = iter.next();
+                if (predicate.test(t)) {
+                    index.remove(t.getMessageId(), t);
+                    iter.remove();
+                }
             }
-            return Long.compare(msg.getTimestamp(), o.msg.getTimestamp());
         }
     }
 }
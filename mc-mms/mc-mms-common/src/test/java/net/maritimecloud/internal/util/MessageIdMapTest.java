@@ -0,0 +1,164 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.maritimecloud.util.Binary;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link MessageIdMap}.
+ *
+ * @author Kasper Nielsen
+ */
+public class MessageIdMapTest {
+
+    @Test
+    public void putGetRemove() {
+        MessageIdMap<String> map = new MessageIdMap<>();
+        Binary id = Binary.random(32);
+        assertNull(map.get(id));
+        assertNull(map.put(id, "a"));
+        assertEquals("a", map.get(id));
+        assertEquals("a", map.get(Binary.copyFrom(id.toByteArray())));
+        assertEquals("a", map.put(id, "b"));
+        assertEquals("b", map.putIfAbsent(id, "c"));
+        assertEquals("b", map.get(id));
+        assertFalse(map.remove(id, "c"));
+        assertTrue(map.remove(id, "b"));
+        assertNull(map.remove(id));
+        assertEquals(0, map.size());
+    }
+
+    /** Ids that only differ in the last byte, and ids that are not 32 bytes long, must still be told apart. */
+    @Test
+    public void samePrefix() {
+        MessageIdMap<Integer> map = new MessageIdMap<>();
+        Binary prefix = Binary.random(31);
+        List<Binary> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(prefix.concat(Binary.copyFrom((byte) i)));
+            ids.add(prefix.concat(Binary.copyFrom((byte) i, (byte) i)));
+        }
+        ids.add(prefix);
+        ids.add(Binary.EMPTY);
+        ids.add(Binary.copyFrom((byte) 0));
+        ids.add(Binary.copyFrom(new byte[16]));
+        for (int i = 0; i < ids.size(); i++) {
+            assertNull(map.put(ids.get(i), i));
+        }
+        assertEquals(ids.size(), map.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(Integer.valueOf(i), map.get(ids.get(i)));
+        }
+        HashMap<Binary, Integer> all = new HashMap<>();
+        map.forEach(all::put);
+        assertEquals(ids.size(), all.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(Integer.valueOf(i), all.get(ids.get(i)));
+        }
+        for (int i = 0; i < ids.size(); i += 2) {
+            assertEquals(Integer.valueOf(i), map.remove(ids.get(i)));
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), map.get(ids.get(i)));
+        }
+    }
+
+    /** Compares a long random sequence of operations against a {@link HashMap}. */
+    @Test
+    public void random() {
+        Random r = new Random(123);
+        MessageIdMap<Integer> map = new MessageIdMap<>();
+        Map<Binary, Integer> expected = new HashMap<>();
+        List<Binary> ids = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            byte[] b = new byte[32];
+            r.nextBytes(b);
+            ids.add(Binary.copyFrom(b));
+        }
+        for (int i = 0; i < 100_000; i++) {
+            Binary id = ids.get(r.nextInt(ids.size()));
+            if (r.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), map.remove(id));
+            } else {
+                assertEquals(expected.put(id, i), map.put(id, i));
+            }
+            assertEquals(expected.get(id), map.get(id));
+        }
+        assertEquals(expected.size(), map.size());
+        Map<Binary, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(ids.get(0)));
+    }
+
+    /** Lookups do not lock, they must still find every id while other ids are added, removed and resized. */
+    @Test
+    public void concurrentReads() throws Exception {
+        MessageIdMap<Integer> map = new MessageIdMap<>();
+        List<Binary> stable = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Binary id = Binary.random(32);
+            stable.add(id);
+            map.put(id, i);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            Random r = new Random(123);
+            List<Binary> churn = new ArrayList<>();
+            while (!done.get()) {
+                if (churn.size() < 5000 && r.nextBoolean()) {
+                    Binary id = Binary.random(32);
+                    churn.add(id);
+                    map.put(id, -1);
+                } else if (!churn.isEmpty()) {
+                    map.remove(churn.remove(r.nextInt(churn.size())));
+                }
+                if (churn.size() == 5000) {
+                    churn.forEach(map::remove);
+                    churn.clear();
+                }
+            }
+        });
+        writer.start();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+            while (System.nanoTime() < deadline) {
+                for (int i = 0; i < stable.size(); i++) {
+                    assertEquals(Integer.valueOf(i), map.get(stable.get(i)));
+                }
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+    }
+}
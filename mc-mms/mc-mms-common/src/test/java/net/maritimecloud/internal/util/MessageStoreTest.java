@@ -0,0 +1,141 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.maritimecloud.util.Binary;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link MessageStore}.
+ *
+ * @author Kasper Nielsen
+ */
+public class MessageStoreTest {
+
+    /** A store where messages live for 100 ns in buckets of 10 ns. */
+    final MessageStore<M> store = new MessageStore<>(100, 10, TimeUnit.NANOSECONDS);
+
+    @Test
+    public void addFind() {
+        M m1 = new M(5), m2 = new M(-17);
+        store.addMessage(m1);
+        store.addMessage(m2);
+        assertSame(m1, store.find(m1.id));
+        assertSame(m2, store.find(m2.id));
+        assertNull(store.find(Binary.random(32)));
+        assertEquals(2, store.size());
+        store.clear();
+        assertEquals(0, store.size());
+        assertNull(store.find(m1.id));
+    }
+
+    @Test
+    public void findPrefixed() {
+        M m1 = new M(1, Binary.copyFromHex("0102030405")), m2 = new M(2, Binary.copyFromHex("0102FF"));
+        M m3 = new M(3, Binary.copyFromHex("FF01"));
+        store.addMessage(m1);
+        store.addMessage(m2);
+        store.addMessage(m3);
+        assertEquals(new HashSet<>(Arrays.asList(m1, m2)), store.findPrefixed(Binary.copyFromHex("01")));
+        assertEquals(new HashSet<>(Arrays.asList(m1)), store.findPrefixed(Binary.copyFromHex("010203")));
+        assertEquals(3, store.findPrefixed(Binary.EMPTY).size());
+        assertEquals(0, store.findPrefixed(Binary.copyFromHex("02")).size());
+        assertEquals(new HashSet<>(Arrays.asList(m3)), store.findPrefixed(Binary.copyFromHex("FF01")));
+        assertEquals(0, store.findPrefixed(Binary.copyFromHex("FF0100")).size());
+
+        // Removed messages are no longer found
+        store.pruneMessages(m -> m == m2);
+        assertEquals(new HashSet<>(Arrays.asList(m1)), store.findPrefixed(Binary.copyFromHex("01")));
+        store.clear();
+        assertEquals(0, store.findPrefixed(Binary.EMPTY).size());
+    }
+
+    @Test
+    public void pruneMessagesOldThan() {
+        List<M> list = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            M m = new M(i);
+            list.add(m);
+            store.addMessage(m);
+        }
+        store.pruneMessagesOldThan(35);
+        assertEquals(65, store.size());
+        for (M m : list) {
+            assertEquals(m.timestamp < 35 ? null : m, store.find(m.id));
+        }
+        store.pruneMessages(m -> m.timestamp % 2 == 0);
+        assertEquals(33, store.size());
+    }
+
+    /** Buckets that are reused after a full rotation drop the messages they hold. */
+    @Test
+    public void expireOnRotation() {
+        M old = new M(3);
+        store.addMessage(old);
+        for (int i = 4; i < 110; i += 10) {
+            store.addMessage(new M(i));
+        }
+        assertSame(old, store.find(old.id));
+        // Same bucket as the old message, one rotation (110 ns) later
+        store.addMessage(new M(113));
+        assertNull(store.find(old.id));
+        assertEquals(11, store.size());
+    }
+
+    @Test
+    public void forEachEldestFirst() {
+        long[] timestamps = { 50, 3, 99, 12, 13, 47, 0 };
+        for (long t : timestamps) {
+            store.addMessage(new M(t));
+        }
+        List<Long> visited = new ArrayList<>();
+        store.forEachEldestFirst(m -> visited.add(m.timestamp));
+        assertEquals(Arrays.asList(0L, 3L, 12L, 13L, 47L, 50L, 99L), visited);
+    }
+
+    static class M implements StoredMessage {
+        final Binary id;
+
+        final long timestamp;
+
+        M(long timestamp) {
+            this(timestamp, Binary.random(32));
+        }
+
+        M(long timestamp, Binary id) {
+            this.timestamp = timestamp;
+            this.id = id;
+        }
+
+        public Binary getMessageId() {
+            return id;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+}
@@ -26,6 +26,9 @@ import net.maritimecloud.mms.server.broadcast.ServerBroadcastManager;
 import net.maritimecloud.mms.server.connection.client.ClientManager;
 import net.maritimecloud.mms.server.connection.client.ClientReaper;
 import net.maritimecloud.mms.server.connection.client.DefaultTransportListener;
+import net.maritimecloud.mms.server.connection.client.SessionJournal;
+import net.maritimecloud.mms.server.connection.client.SessionQueueOverflowPolicy;
+import net.maritimecloud.mms.server.connection.client.SignatureVerifier;
 import net.maritimecloud.mms.server.endpoints.ServerEndpointManager;
 import net.maritimecloud.mms.server.endpoints.ServerServices;
 import net.maritimecloud.mms.server.security.MmsSecurityManager;
@@ -71,6 +74,24 @@ public class MmsServerConfiguration implements AccessLogConfiguration {
     /** The default port this server is running on. */
     public static final int DEFAULT_PORT = 43234;
 
+    /** The default maximum number of messages sent in a single frame. */
+    public static final int DEFAULT_BATCH_MAX_SIZE = 64;
+
+    /** The default maximum number of bytes of unacknowledged messages kept for a single session. */
+    public static final long DEFAULT_SESSION_QUEUE_MAX_BYTES = 16 * 1024 * 1024;
+
+    /** The default maximum number of unacknowledged messages kept for a single session. */
+    public static final int DEFAULT_SESSION_QUEUE_MAX_MESSAGES = 10_000;
+
+    /** The default initial size of a session journal file. */
+    public static final int DEFAULT_SESSION_JOURNAL_INITIAL_SIZE = 1024 * 1024;
+
+    /** The default maximum number of messages waiting for their signature to be verified. */
+    public static final int DEFAULT_SIGNATURE_VERIFICATION_QUEUE_SIZE = 10_000;
+
+    /** The default maximum number of public keys of senders that are cached. */
+    public static final int DEFAULT_SIGNATURE_KEY_CACHE_SIZE = 10_000;
+
     /** The id of the server, hard coded for now */
     ServerId id = new ServerId(1);
 
@@ -94,6 +115,36 @@ public class MmsServerConfiguration implements AccessLogConfiguration {
             "e.g. \"inbound && msg.m.class.simpleName != 'PositionReport'\"")
     String accessLogFilter;
 
+    /** The maximum number of messages sent in a single frame, or null if not set. */
+    Integer batchMaxSize;
+
+    /** The number of milliseconds to wait for more messages before sending a partial batch, or null if not set. */
+    Long batchLinger;
+
+    /** The maximum number of bytes of unacknowledged messages kept for a single session, or null if not set. */
+    Long sessionQueueMaxBytes;
+
+    /** The maximum number of unacknowledged messages kept for a single session, or null if not set. */
+    Integer sessionQueueMaxMessages;
+
+    /** What to do when the queue of unacknowledged messages of a session is full, or null if not set. */
+    SessionQueueOverflowPolicy sessionQueueOverflowPolicy;
+
+    /** The directory of the session journal files, or null if the session journal is disabled. */
+    File sessionJournalDirectory;
+
+    /** The initial size of a session journal file, or null if not set. */
+    Integer sessionJournalInitialSize;
+
+    /** The number of threads verifying signatures, or null if not set. */
+    Integer signatureVerificationThreads;
+
+    /** The maximum number of messages waiting for their signature to be verified, or null if not set. */
+    Integer signatureVerificationQueueSize;
+
+    /** The maximum number of public keys of senders that are cached, or null if not set. */
+    Integer signatureKeyCacheSize;
+
     /**
      * @return the id
      */
@@ -101,6 +152,99 @@ public class MmsServerConfiguration implements AccessLogConfiguration {
         return id;
     }
 
+    /**
+     * Returns the maximum number of messages that are sent to a client in a single frame.
+     *
+     * @return the maximum number of messages that are sent to a client in a single frame
+     */
+    public int getBatchMaxSize() {
+        return batchMaxSize == null ? DEFAULT_BATCH_MAX_SIZE : batchMaxSize;
+    }
+
+    /**
+     * Returns the number of milliseconds a session writer waits for more messages before sending a partial batch.
+     *
+     * @return the number of milliseconds to wait for more messages before sending a partial batch
+     */
+    public long getBatchLinger() {
+        return batchLinger == null ? 0 : batchLinger;
+    }
+
+    /**
+     * Returns the maximum number of bytes of unacknowledged messages kept for a single session.
+     *
+     * @return the maximum number of bytes of unacknowledged messages kept for a single session, or 0 for no limit
+     */
+    public long getSessionQueueMaxBytes() {
+        return sessionQueueMaxBytes == null ? DEFAULT_SESSION_QUEUE_MAX_BYTES : sessionQueueMaxBytes;
+    }
+
+    /**
+     * Returns the maximum number of unacknowledged messages kept for a single session.
+     *
+     * @return the maximum number of unacknowledged messages kept for a single session
+     */
+    public int getSessionQueueMaxMessages() {
+        return sessionQueueMaxMessages == null ? DEFAULT_SESSION_QUEUE_MAX_MESSAGES : sessionQueueMaxMessages;
+    }
+
+    /**
+     * Returns what happens when the queue of unacknowledged messages of a session is full.
+     *
+     * @return the overflow policy
+     */
+    public SessionQueueOverflowPolicy getSessionQueueOverflowPolicy() {
+        return sessionQueueOverflowPolicy == null ? SessionQueueOverflowPolicy.DROP_OLDEST_BROADCAST
+                : sessionQueueOverflowPolicy;
+    }
+
+    /**
+     * Returns the directory of the session journal files.
+     *
+     * @return the directory of the session journal files, or null if the session journal is disabled
+     */
+    public File getSessionJournalDirectory() {
+        return sessionJournalDirectory;
+    }
+
+    /**
+     * Returns the initial size of a session journal file.
+     *
+     * @return the initial size of a session journal file
+     */
+    public int getSessionJournalInitialSize() {
+        return sessionJournalInitialSize == null ? DEFAULT_SESSION_JOURNAL_INITIAL_SIZE : sessionJournalInitialSize;
+    }
+
+    /**
+     * Returns the number of threads verifying the signatures of broadcasts and method invocations.
+     *
+     * @return the number of threads verifying signatures
+     */
+    public int getSignatureVerificationThreads() {
+        return signatureVerificationThreads == null ? Runtime.getRuntime().availableProcessors()
+                : signatureVerificationThreads;
+    }
+
+    /**
+     * Returns the maximum number of messages waiting for their signature to be verified.
+     *
+     * @return the maximum number of messages waiting for their signature to be verified
+     */
+    public int getSignatureVerificationQueueSize() {
+        return signatureVerificationQueueSize == null ? DEFAULT_SIGNATURE_VERIFICATION_QUEUE_SIZE
+                : signatureVerificationQueueSize;
+    }
+
+    /**
+     * Returns the maximum number of public keys of senders that are cached.
+     *
+     * @return the maximum number of public keys of senders that are cached
+     */
+    public int getSignatureKeyCacheSize() {
+        return signatureKeyCacheSize == null ? DEFAULT_SIGNATURE_KEY_CACHE_SIZE : signatureKeyCacheSize;
+    }
+
     /**
      * @return the security configuration file
      */
@@ -150,6 +294,162 @@ public class MmsServerConfiguration implements AccessLogConfiguration {
         return this;
     }
 
+    /**
+     * Sets the maximum number of messages that are sent to a client in a single frame. A value of 1 disables batching.
+     *
+     * @param batchMaxSize
+     *            the maximum number of messages in a single frame
+     * @return this configuration
+     */
+    public MmsServerConfiguration setBatchMaxSize(int batchMaxSize) {
+        if (batchMaxSize < 1) {
+            throw new IllegalArgumentException("batchMaxSize must be at least 1, was " + batchMaxSize);
+        }
+        this.batchMaxSize = batchMaxSize;
+        return this;
+    }
+
+    /**
+     * Sets the number of milliseconds a session writer waits for more messages before sending a partial batch. The
+     * partial batch is sent by a scheduled task, no thread is kept busy while waiting. A value of 0 sends the messages
+     * that are queued immediately.
+     *
+     * @param batchLinger
+     *            the number of milliseconds to wait for more messages
+     * @return this configuration
+     */
+    public MmsServerConfiguration setBatchLinger(long batchLinger) {
+        if (batchLinger < 0) {
+            throw new IllegalArgumentException("batchLinger must be non-negative, was " + batchLinger);
+        }
+        this.batchLinger = batchLinger;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of bytes of unacknowledged messages kept for a single session. The size of a message is
+     * the size of the message in the binary format.
+     *
+     * @param sessionQueueMaxBytes
+     *            the maximum number of bytes, or 0 for no limit
+     * @return this configuration
+     */
+    public MmsServerConfiguration setSessionQueueMaxBytes(long sessionQueueMaxBytes) {
+        if (sessionQueueMaxBytes < 0) {
+            throw new IllegalArgumentException("sessionQueueMaxBytes must be non-negative, was " + sessionQueueMaxBytes);
+        }
+        this.sessionQueueMaxBytes = sessionQueueMaxBytes;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of unacknowledged messages kept for a single session.
+     *
+     * @param sessionQueueMaxMessages
+     *            the maximum number of messages
+     * @return this configuration
+     */
+    public MmsServerConfiguration setSessionQueueMaxMessages(int sessionQueueMaxMessages) {
+        if (sessionQueueMaxMessages < 1) {
+            throw new IllegalArgumentException("sessionQueueMaxMessages must be at least 1, was "
+                    + sessionQueueMaxMessages);
+        }
+        this.sessionQueueMaxMessages = sessionQueueMaxMessages;
+        return this;
+    }
+
+    /**
+     * Sets what happens when the queue of unacknowledged messages of a session is full.
+     *
+     * @param sessionQueueOverflowPolicy
+     *            the overflow policy
+     * @return this configuration
+     */
+    public MmsServerConfiguration setSessionQueueOverflowPolicy(SessionQueueOverflowPolicy sessionQueueOverflowPolicy) {
+        this.sessionQueueOverflowPolicy = requireNonNull(sessionQueueOverflowPolicy);
+        return this;
+    }
+
+    /**
+     * Sets the directory of the session journal files. Messages that have not been acknowledged by a client are kept in
+     * a memory-mapped journal file instead of on the heap, and can be resent after a server restart.
+     *
+     * @param sessionJournalDirectory
+     *            the directory of the session journal files, or null to disable the session journal
+     * @return this configuration
+     */
+    public MmsServerConfiguration setSessionJournalDirectory(File sessionJournalDirectory) {
+        this.sessionJournalDirectory = sessionJournalDirectory;
+        return this;
+    }
+
+    /**
+     * Sets the initial size of a session journal file. Journal files grow if needed.
+     *
+     * @param sessionJournalInitialSize
+     *            the initial size in bytes
+     * @return this configuration
+     */
+    public MmsServerConfiguration setSessionJournalInitialSize(int sessionJournalInitialSize) {
+        if (sessionJournalInitialSize < 1) {
+            throw new IllegalArgumentException("sessionJournalInitialSize must be at least 1, was "
+                    + sessionJournalInitialSize);
+        }
+        this.sessionJournalInitialSize = sessionJournalInitialSize;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads verifying the signatures of broadcasts and method invocations. Signatures are only
+     * verified if a signature key handler is configured in the security configuration.
+     *
+     * @param signatureVerificationThreads
+     *            the number of threads
+     * @return this configuration
+     */
+    public MmsServerConfiguration setSignatureVerificationThreads(int signatureVerificationThreads) {
+        if (signatureVerificationThreads < 1) {
+            throw new IllegalArgumentException("signatureVerificationThreads must be at least 1, was "
+                    + signatureVerificationThreads);
+        }
+        this.signatureVerificationThreads = signatureVerificationThreads;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of messages waiting for their signature to be verified. When the queue is full, the
+     * thread reading messages from a client verifies the signature itself, which slows down the client.
+     *
+     * @param signatureVerificationQueueSize
+     *            the maximum number of messages
+     * @return this configuration
+     */
+    public MmsServerConfiguration setSignatureVerificationQueueSize(int signatureVerificationQueueSize) {
+        if (signatureVerificationQueueSize < 1) {
+            throw new IllegalArgumentException("signatureVerificationQueueSize must be at least 1, was "
+                    + signatureVerificationQueueSize);
+        }
+        this.signatureVerificationQueueSize = signatureVerificationQueueSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of public keys of senders that are cached, instead of being looked up by the signature
+     * key handler for every message.
+     *
+     * @param signatureKeyCacheSize
+     *            the maximum number of keys, or 0 to disable the cache
+     * @return this configuration
+     */
+    public MmsServerConfiguration setSignatureKeyCacheSize(int signatureKeyCacheSize) {
+        if (signatureKeyCacheSize < 0) {
+            throw new IllegalArgumentException("signatureKeyCacheSize must be non-negative, was "
+                    + signatureKeyCacheSize);
+        }
+        this.signatureKeyCacheSize = signatureKeyCacheSize;
+        return this;
+    }
+
     /**
      * @param accessLog
      *            the accessLog to set
@@ -205,6 +505,37 @@ public class MmsServerConfiguration implements AccessLogConfiguration {
         if (accessLogFilter == null && fileConf.hasPath("access-log-filter")) {
             accessLogFilter = fileConf.getString("access-log-filter");
         }
+        if (batchMaxSize == null && fileConf.hasPath("batch-max-size")) {
+            setBatchMaxSize(fileConf.getInt("batch-max-size"));
+        }
+        if (batchLinger == null && fileConf.hasPath("batch-linger")) {
+            setBatchLinger(fileConf.getLong("batch-linger"));
+        }
+        if (sessionQueueMaxBytes == null && fileConf.hasPath("session-queue-max-bytes")) {
+            setSessionQueueMaxBytes(fileConf.getBytes("session-queue-max-bytes"));
+        }
+        if (sessionQueueMaxMessages == null && fileConf.hasPath("session-queue-max-messages")) {
+            setSessionQueueMaxMessages(fileConf.getInt("session-queue-max-messages"));
+        }
+        if (sessionQueueOverflowPolicy == null && fileConf.hasPath("session-queue-overflow-policy")) {
+            setSessionQueueOverflowPolicy(SessionQueueOverflowPolicy.valueOf(
+                    fileConf.getString("session-queue-overflow-policy").toUpperCase().replace('-', '_')));
+        }
+        if (sessionJournalDirectory == null && fileConf.hasPath("session-journal-dir")) {
+            setSessionJournalDirectory(new File(fileConf.getString("session-journal-dir")));
+        }
+        if (sessionJournalInitialSize == null && fileConf.hasPath("session-journal-initial-size")) {
+            setSessionJournalInitialSize(fileConf.getBytes("session-journal-initial-size").intValue());
+        }
+        if (signatureVerificationThreads == null && fileConf.hasPath("signature-verification-threads")) {
+            setSignatureVerificationThreads(fileConf.getInt("signature-verification-threads"));
+        }
+        if (signatureVerificationQueueSize == null && fileConf.hasPath("signature-verification-queue-size")) {
+            setSignatureVerificationQueueSize(fileConf.getInt("signature-verification-queue-size"));
+        }
+        if (signatureKeyCacheSize == null && fileConf.hasPath("signature-key-cache-size")) {
+            setSignatureKeyCacheSize(fileConf.getInt("signature-key-cache-size"));
+        }
 
         return fileConf;
     }
@@ -233,7 +564,9 @@ public class MmsServerConfiguration implements AccessLogConfiguration {
 
         conf.addService(ClientManager.class);
         conf.addService(ClientReaper.class);
+        conf.addService(SessionJournal.class);
         conf.addService(DefaultTransportListener.class);
+        conf.addService(SignatureVerifier.class);
 
         conf.addService(new ServerEventListener() {});
 
@@ -17,6 +17,7 @@ package net.maritimecloud.mms.server;
 import static java.util.Objects.requireNonNull;
 import net.maritimecloud.core.id.MaritimeId;
 import net.maritimecloud.internal.mms.messages.PositionReport;
+import net.maritimecloud.internal.mms.messages.spi.LazyBroadcast;
 import net.maritimecloud.internal.net.messages.Broadcast;
 import net.maritimecloud.internal.net.messages.MethodInvoke;
 import net.maritimecloud.internal.net.messages.MethodInvokeResult;
@@ -28,6 +29,9 @@ import net.maritimecloud.mms.server.connection.client.Session;
 import net.maritimecloud.mms.server.connection.client.SessionMessageFuture;
 import net.maritimecloud.mms.server.endpoints.ServerEndpointManager;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 
@@ -37,6 +41,9 @@ import com.codahale.metrics.MetricRegistry;
  */
 public class MmsServerConnectionBus implements Session.Listener {
 
+    /** The logger. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MmsServerConnectionBus.class);
+
     ServerBroadcastManager sbm;
 
     final ClientManager tm;
@@ -67,7 +74,19 @@ public class MmsServerConnectionBus implements Session.Listener {
             connection.send(srm);
             return;
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.error("Could not process broadcast " + message.getMessageId() + " from client "
+                    + connection.getClient().getId(), e);
+        }
+    }
+
+    public void onBroadcast(Session connection, LazyBroadcast message) {
+        try {
+            PositionReport srm = sbm.broadcast(connection.getClient(), message);
+            connection.send(srm);
+            return;
+        } catch (Exception e) {
+            LOGGER.error("Could not process broadcast " + message.getRouting().getMessageId() + " from client "
+                    + connection.getClient().getId(), e);
         }
     }
 
@@ -75,6 +94,9 @@ public class MmsServerConnectionBus implements Session.Listener {
         if (message instanceof Broadcast) {
             onBroadcast(connection, (Broadcast) message);
             broadcastsMeter.mark();
+        } else if (message instanceof LazyBroadcast) {
+            onBroadcast(connection, (LazyBroadcast) message);
+            broadcastsMeter.mark();
         } else if (message instanceof MethodInvoke) {
             MethodInvoke mi = (MethodInvoke) message;
             onMethodInvoke(connection, message, mi.getReceiverId(), mi.getSenderId());
@@ -16,42 +16,52 @@ package net.maritimecloud.mms.server.broadcast;
 
 import static java.util.Objects.requireNonNull;
 
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
-
+import net.maritimecloud.internal.util.Coverage;
 import net.maritimecloud.internal.util.concurrent.CustomConcurrentHashMap;
 import net.maritimecloud.internal.util.concurrent.CustomConcurrentHashMap.Strength;
-import net.maritimecloud.mms.server.connection.client.Session;
-import net.maritimecloud.util.geometry.Area;
+import net.maritimecloud.mms.server.connection.client.Client;
 import net.maritimecloud.util.geometry.Position;
 
 /**
+ * The clients that subscribe to a single type of broadcasts, and the area each of them subscribes to.
  *
  * @author Kasper Nielsen
  */
 class BroadcastSubscriptionSet {
-    final CustomConcurrentHashMap<Session, CopyOnWriteArrayList<Area>> c = new CustomConcurrentHashMap<>(Strength.weak,
-            Strength.strong);
-
-    Set<Session> find(Position position) {
-        for (Entry<Session, CopyOnWriteArrayList<Area>> e : c.entrySet()) {
-            Session c = e.getKey();
-            if (c != null) {
-                // for (Area area : e.getValue()) {}
-            }
-        }
-        return null;
+
+    /** The subscribing clients. Clients are weakly referenced, so clients that are gone are removed automatically. */
+    final CustomConcurrentHashMap<Client, Coverage> c = new CustomConcurrentHashMap<>(Strength.weak, Strength.strong);
+
+    /** The type of broadcasts. */
+    final String broadcastType;
+
+    BroadcastSubscriptionSet(String broadcastType) {
+        this.broadcastType = requireNonNull(broadcastType);
     }
 
-    void add(Session connection, Area a) {
-        requireNonNull(a);
-        CopyOnWriteArrayList<Area> l = c.get(connection);
-        if (l == null) {
-            c.putIfAbsent(connection, new CopyOnWriteArrayList<Area>());
-            l = c.get(connection);
+    /**
+     * Returns whether or not the specified client subscribes to broadcasts sent from the specified position. As when
+     * filtering on the client, a broadcast without a sender position is received by every subscriber.
+     *
+     * @param client
+     *            the client
+     * @param senderPosition
+     *            the position of the sender, or null if the sender did not include a position
+     * @return whether or not the client subscribes to the broadcast
+     */
+    boolean isSubscribed(Client client, Position senderPosition) {
+        Coverage coverage = c.get(client);
+        if (coverage == null) {
+            return false;
         }
-        l.add(a);
+        return senderPosition == null || coverage.isCovered(senderPosition);
+    }
+
+    void add(Client client, Coverage coverage) {
+        c.put(client, requireNonNull(coverage));
     }
 
+    void remove(Client client) {
+        c.remove(client);
+    }
 }
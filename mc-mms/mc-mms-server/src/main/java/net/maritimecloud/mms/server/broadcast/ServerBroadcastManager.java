@@ -16,16 +16,26 @@ package net.maritimecloud.mms.server.broadcast;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 import net.maritimecloud.internal.mms.messages.PositionReport;
+import net.maritimecloud.internal.mms.messages.spi.LazyBroadcast;
+import net.maritimecloud.internal.mms.messages.spi.PreEncodedMessage;
 import net.maritimecloud.internal.net.messages.Broadcast;
 import net.maritimecloud.internal.net.messages.BroadcastAck;
+import net.maritimecloud.internal.util.Coverage;
+import net.maritimecloud.internal.util.concurrent.CustomConcurrentHashMap;
+import net.maritimecloud.internal.util.concurrent.CustomConcurrentHashMap.Strength;
 import net.maritimecloud.mms.server.MmsServerConnectionBus;
 import net.maritimecloud.mms.server.connection.client.Client;
 import net.maritimecloud.mms.server.connection.client.ClientManager;
 import net.maritimecloud.util.geometry.Area;
+import net.maritimecloud.util.geometry.Position;
 import net.maritimecloud.util.geometry.PositionTime;
 
 import org.cakeframework.container.concurrent.ThreadManager;
@@ -37,8 +47,16 @@ import org.cakeframework.container.concurrent.ThreadManager;
  */
 public class ServerBroadcastManager {
 
+    /** Subscribers by broadcast type. */
     final ConcurrentHashMap<String, BroadcastSubscriptionSet> listeners = new ConcurrentHashMap<>();
 
+    /**
+     * The broadcast types each client subscribes to. Clients that have never subscribed are not in the map, they
+     * receive all broadcasts and filter them themselves.
+     */
+    final CustomConcurrentHashMap<Client, Set<String>> subscriptions = new CustomConcurrentHashMap<>(Strength.weak,
+            Strength.strong);
+
     private final ClientManager tm;
 
     private final ThreadManager threadManager;
@@ -50,53 +68,105 @@ public class ServerBroadcastManager {
     }
 
     public PositionReport broadcast(Client sender, Broadcast broadcast) {
+        // The message is identical for all receivers, so we only encode it once
+        Broadcast bd = new Broadcast();
+        bd.setMessageId(broadcast.getMessageId());
+        bd.setBroadcastType(broadcast.getBroadcastType());
+        bd.setSenderId(broadcast.getSenderId());
+        bd.setSenderTimestamp(broadcast.getSenderTimestamp());
+        bd.setSenderPosition(broadcast.getSenderPosition());
+
+        bd.setPayload(broadcast.getPayload());
+        bd.setSignature(broadcast.getSignature());
+        return broadcast(sender, broadcast, new PreEncodedMessage(bd));
+    }
+
+    /**
+     * Broadcasts a message of which only the routing fields have been decoded. The broadcast is forwarded by copying
+     * its encoded fields, instead of re-encoding it.
+     *
+     * @param sender
+     *            the sender of the broadcast
+     * @param broadcast
+     *            the broadcast
+     * @return the reply to the sender
+     * @throws IOException
+     *             if the broadcast could not be decoded
+     */
+    public PositionReport broadcast(Client sender, LazyBroadcast broadcast) throws IOException {
+        return broadcast(sender, broadcast.getRouting(), broadcast.toForward());
+    }
+
+    private PositionReport broadcast(Client sender, Broadcast routing, PreEncodedMessage encoded) {
         // final PositionTime sourcePositionTime = send.getPositionTime();
 
-        tm.forEachTarget(t -> {
+        BroadcastSubscriptionSet set = listeners.get(routing.getBroadcastType());
+        Position senderPosition = routing.getSenderPosition();
+        // Only clients within the bounding box of the area are visited, so we do all of them in a single task
+        threadManager.getExecutor("mms.broadcast").execute(() -> tm.forEachWithin(routing.getArea(), t -> {
             // We could do some checks with regards to not send to terminated
-            if (t != sender/* && t.isConnected() */) { // do not broadcast to self
-                threadManager.getExecutor("mms.broadcast").execute(() -> broadcast(sender, broadcast, t));
+            if (t != sender/* && t.isConnected() */ && isSubscribed(t, set, senderPosition)) { // not to self
+                broadcastSend(sender, routing, encoded, t);
             }
-        });
+        }));
         return new PositionReport();
     }
 
-    void broadcast(Client source, Broadcast broadcast, Client destination) {
-        PositionTime latest = destination.getLatestPositionAndTime();
-        if (latest != null) {
-
-            boolean doSend = false;
-            Area area = broadcast.getArea();
-            // if (area instanceof RelativeCircularArea) {
-            // double distance = sourcePositionTime.geodesicDistanceTo(latest);
-            // RelativeCircularArea c = (RelativeCircularArea) area;
-            // doSend = distance < c.getRadius();
-            // } else {
-            doSend = area.contains(latest);
-            // }
-            if (doSend) {
-                broadcastSend(source, broadcast, destination);
-            }
+    /**
+     * Returns whether or not the specified client should receive a broadcast.
+     *
+     * @param client
+     *            the client
+     * @param set
+     *            the subscribers of the type of the broadcast, or null if there are none
+     * @param senderPosition
+     *            the position of the sender, or null if the sender did not include a position
+     * @return whether or not the client should receive the broadcast
+     */
+    boolean isSubscribed(Client client, BroadcastSubscriptionSet set, Position senderPosition) {
+        if (set != null && set.isSubscribed(client, senderPosition)) {
+            return true;
         }
+        return !subscriptions.containsKey(client);
     }
 
-    void broadcastSend(Client source, Broadcast broadcast, Client destination) {
-        Broadcast bd = new Broadcast();
-        bd.setMessageId(broadcast.getMessageId());
-        bd.setBroadcastType(broadcast.getBroadcastType());
-        bd.setSenderId(broadcast.getSenderId());
-        bd.setSenderTimestamp(broadcast.getSenderTimestamp());
-        bd.setSenderPosition(broadcast.getSenderPosition());
-
-        bd.setPayload(broadcast.getPayload());
-        bd.setSignature(broadcast.getSignature());
+    /**
+     * Replaces the broadcast subscriptions of a client. From now on the client will only receive broadcasts of the
+     * specified types, that are sent from within the specified area.
+     *
+     * @param client
+     *            the client
+     * @param broadcastTypes
+     *            all the types of broadcasts the client subscribes to
+     * @param area
+     *            the area the senders must be within, or null to receive broadcasts from anywhere
+     */
+    public void subscribe(Client client, List<String> broadcastTypes, Area area) {
+        Coverage coverage = area == null ? Coverage.ALL : new Coverage.StaticAreaCoverage(area);
+        Set<String> types = new HashSet<>(broadcastTypes);
+        // Subscriptions are rare, so a single lock is fine
+        synchronized (subscriptions) {
+            Set<String> existing = subscriptions.put(client, types);
+            if (existing != null) {
+                for (String type : existing) {
+                    if (!types.contains(type)) {
+                        listeners.get(type).remove(client);
+                    }
+                }
+            }
+            for (String type : types) {
+                listeners.computeIfAbsent(type, BroadcastSubscriptionSet::new).add(client, coverage);
+            }
+        }
+    }
 
-        CompletableFuture<Void> acked = destination.send(bd).protocolAcked();
+    void broadcastSend(Client source, Broadcast broadcast, PreEncodedMessage encoded, Client destination) {
+        CompletableFuture<Void> acked = destination.send(encoded).protocolAcked();
 
         if (broadcast.hasAckBroadcast()) {
             acked.thenAccept(e -> {
                 BroadcastAck ba = new BroadcastAck();
-                ba.setAckForMessageId(bd.getMessageId());
+                ba.setAckForMessageId(broadcast.getMessageId());
                 // Ignore original sender id
                 ba.setReceiverId(destination.getId());
 
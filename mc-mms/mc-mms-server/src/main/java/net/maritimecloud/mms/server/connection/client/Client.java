@@ -46,6 +46,9 @@ public class Client {
 
     volatile PositionTime latestPositionAndTime;
 
+    /** The protocol version selected by the client in its latest Hello message. */
+    volatile int protocolVersion = 1;
+
     /** A read write lock for the client. */
     final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
@@ -73,12 +76,27 @@ public class Client {
     }
 
     Client connectWithWriteLock(ServerTransport transport) {
-        Session session = new Session(this);
+        return connectWithWriteLock(transport, null, 0);
+    }
+
+    /**
+     * Connects the client to a new session, or to a session recovered from the session journal.
+     *
+     * @param transport
+     *            the transport
+     * @param recovered
+     *            the journal of the session to recover, or null to create a new session
+     * @param lastReceivedMessageId
+     *            the id of the latest message the client has received in the recovered session
+     * @return this client
+     */
+    Client connectWithWriteLock(ServerTransport transport, SessionJournalFile recovered, long lastReceivedMessageId) {
+        Session session = new Session(this, recovered);
         state = new ClientInternalState(State.CONNECTED, transport, session);
         MmsMessage mm = new MmsMessage(new Connected().setSessionId(session.getSessionId())
-                .setLastReceivedMessageId(0L));
+                .setLastReceivedMessageId(session.latestMessageIdReceivedByRemote));
         transport.sendMessage(mm); // Send connected message
-        session.onConnectWithWriteLock(transport, 0);
+        session.onConnectWithWriteLock(transport, lastReceivedMessageId);
         return this;
     }
 
@@ -159,14 +177,14 @@ public class Client {
             if (state.state == State.CONNECTED) {
                 if (closingCode.getId() == 1000) {
                     this.state = ClientInternalState.TERMINATED;
-                    clientManager.clients.remove(id, this);
+                    clientManager.remove(this);
                 } else {
                     this.state = new ClientInternalState(State.DISCONNECTED, t, state.session);
                 }
                 state.session.disconnectedWithWriteLock(closingCode.getId() == 1000);
             } else if (state.state == State.CONNECTING) {
                 this.state = ClientInternalState.TERMINATED;
-                clientManager.clients.remove(id, this);
+                clientManager.remove(this);
             } else {
                 throw new IllegalStateException();
             }
@@ -187,6 +205,7 @@ public class Client {
                     // not for a single session, but inbetween sessions.
                     if (pt.getTime() > latestPositionAndTime.getTime()) {
                         latestPositionAndTime = pt;
+                        clientManager.updatePosition(this, pt);
                     }
                 }
                 state.session.onMessageWithReadLock(message);
@@ -19,6 +19,10 @@ import static java.util.Objects.requireNonNull;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -28,9 +32,15 @@ import net.maritimecloud.internal.mms.messages.Hello;
 import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
 import net.maritimecloud.message.Message;
 import net.maritimecloud.mms.server.MmsServer;
+import net.maritimecloud.mms.server.MmsServerConfiguration;
 import net.maritimecloud.mms.server.connection.client.Client.State;
 import net.maritimecloud.mms.server.connection.transport.ServerTransport;
+import net.maritimecloud.mms.server.tracker.PositionIndex;
 import net.maritimecloud.net.mms.MmsConnectionClosingCode;
+import net.maritimecloud.util.geometry.Area;
+import net.maritimecloud.util.geometry.PositionTime;
+
+import org.cakeframework.container.lifecycle.RunOnStop;
 
 /**
  *
@@ -38,26 +48,72 @@ import net.maritimecloud.net.mms.MmsConnectionClosingCode;
  */
 public class ClientManager implements Iterable<Client> {
 
+    /** Schedules the sending of partial batches that have lingered, or null if batches do not linger. */
+    final ScheduledExecutorService batchScheduler;
+
     /** A list of all currently connected clients. Clients will be removed after xx time */
     final ConcurrentHashMap<String, Client> clients = new ConcurrentHashMap<>();
 
     /** The MMS Server */
     final MmsServer mmsServer;
 
+    /** A spatial index of the latest position of all clients. */
+    final PositionIndex<Client> positionIndex = new PositionIndex<>();
+
+    /** Listeners that are notified whenever the position of a client changes or a client is removed. */
+    private final CopyOnWriteArrayList<BiConsumer<Client, PositionTime>> positionListeners =
+            new CopyOnWriteArrayList<>();
+
     /**
      * Creates a new ClientManager
      *
      * @param mmsServer
      *            the mms server
+     * @param configuration
+     *            the configuration of the server
      */
-    public ClientManager(MmsServer mmsServer) {
+    public ClientManager(MmsServer mmsServer, MmsServerConfiguration configuration) {
         this.mmsServer = requireNonNull(mmsServer);
+        if (configuration.getBatchLinger() > 0) {
+            batchScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "mms.batch-linger");
+                t.setDaemon(true);
+                return t;
+            });
+        } else {
+            batchScheduler = null;
+        }
+    }
+
+    /**
+     * Adds a listener that is invoked whenever a client reports a new position. The listener is invoked with a
+     * <code>null</code> position when a client is removed. Listeners are invoked by the thread reporting the position
+     * and should return quickly.
+     *
+     * @param listener
+     *            the listener to add
+     */
+    public void addPositionListener(BiConsumer<Client, PositionTime> listener) {
+        positionListeners.add(requireNonNull(listener));
     }
 
     public void forEachTarget(Consumer<Client> consumer) {
         clients.forEachValue(10, requireNonNull(consumer));
     }
 
+    /**
+     * Invokes the specified consumer for every client whose latest reported position is within the specified area.
+     *
+     * @param area
+     *            the area
+     * @param consumer
+     *            the consumer to invoke for each client within the area
+     */
+    public void forEachWithin(Area area, Consumer<Client> consumer) {
+        requireNonNull(consumer);
+        positionIndex.forEachWithin(area, (c, pt) -> consumer.accept(c));
+    }
+
     /**
      * Returns any client with the specified id
      *
@@ -95,6 +151,7 @@ public class ClientManager implements Iterable<Client> {
             if (c == null) { // no existing client
                 c = new Client(this, transport, id);
                 c.latestPositionAndTime = hello.getPositionTime();
+                c.protocolVersion = hello.hasProtocolVersion() ? hello.getProtocolVersion() : 1;
                 // we need to lock it before we insert it into the hash map so other threads won't attempt to send any
                 // messages before we have sent a Connected message.
                 // We can probably remove it at some point, just need to figure out how?
@@ -102,7 +159,12 @@ public class ClientManager implements Iterable<Client> {
                 try {
                     // Try and see if we can insert as current client. Otherwise let for(;;) loop retry
                     if (clients.putIfAbsent(id, c) == null) {
-                        return c.connectWithWriteLock(transport);
+                        updatePosition(c, c.latestPositionAndTime);
+                        // The client might reconnect to a session that existed before the server was restarted
+                        SessionJournalFile recovered = hello.hasSessionId() ? mmsServer.getService(
+                                SessionJournal.class).recover(id, hello.getSessionId()) : null;
+                        return c.connectWithWriteLock(transport, recovered,
+                                hello.hasLastReceivedMessageId() ? hello.getLastReceivedMessageId() : 0);
                     }
                 } finally {
                     c.lock.writeLock().unlock();
@@ -113,6 +175,8 @@ public class ClientManager implements Iterable<Client> {
                 c.lock.writeLock().lock();
                 try {
                     c.latestPositionAndTime = hello.getPositionTime(); // lets start by updating the latest timestamp
+                    c.protocolVersion = hello.hasProtocolVersion() ? hello.getProtocolVersion() : 1;
+                    updatePosition(c, c.latestPositionAndTime);
 
                     ClientInternalState state = c.state;
                     if (state.state == State.CONNECTING) {
@@ -123,7 +187,7 @@ public class ClientManager implements Iterable<Client> {
                         throw new IllegalStateException();
 
                     } else if (state.state == State.TERMINATED) {
-                        clients.remove(id, c);// remove it, and let for(;;) handle the new connection
+                        remove(c);// remove it, and let for(;;) handle the new connection
                     } else {
                         Session existingSession = state.session;
                         if (state.state == State.CONNECTED) {
@@ -160,6 +224,18 @@ public class ClientManager implements Iterable<Client> {
         return clients.values().parallelStream();
     }
 
+    /**
+     * Removes the specified terminated client.
+     *
+     * @param client
+     *            the client to remove
+     */
+    void remove(Client client) {
+        if (clients.remove(client.getId(), client)) {
+            updatePosition(client, null);
+        }
+    }
+
     SessionMessageFuture sendMessage(String destinationId, Message m) {
         Client ic = clients.get(destinationId);
         if (ic == null) {
@@ -168,6 +244,22 @@ public class ClientManager implements Iterable<Client> {
         return ic.sendMessage(null, m);
     }
 
+    /**
+     * Updates the latest position of the specified client and notifies all position listeners. If the specified
+     * position is <code>null</code> the client has been removed.
+     *
+     * @param client
+     *            the client
+     * @param pt
+     *            the latest position of the client
+     */
+    void updatePosition(Client client, PositionTime pt) {
+        positionIndex.put(client, pt);
+        for (BiConsumer<Client, PositionTime> l : positionListeners) {
+            l.accept(client, pt);
+        }
+    }
+
     /**
      * Returns a stream of all connected clients.
      *
@@ -176,4 +268,12 @@ public class ClientManager implements Iterable<Client> {
     public Stream<Client> stream() {
         return clients.values().stream();
     }
+
+    /** Stops the scheduler of partial batches. */
+    @RunOnStop
+    public void stop() {
+        if (batchScheduler != null) {
+            batchScheduler.shutdownNow();
+        }
+    }
 }
@@ -44,15 +44,20 @@ public class ClientReaper {
     /** The client manager that maintains a list of connected clients. */
     private final ClientManager clientManager;
 
+    /** The session journal, used for deleting journals of sessions that are never recovered. */
+    private final SessionJournal sessionJournal;
+
     /** The transport listener, used for reaping clients that do not send hello messages. */
     private final DefaultTransportListener transportListener;
 
     /**
      * @param clientManager
      */
-    public ClientReaper(ClientManager clientManager, DefaultTransportListener transportListener) {
+    public ClientReaper(ClientManager clientManager, DefaultTransportListener transportListener,
+            SessionJournal sessionJournal) {
         this.clientManager = requireNonNull(clientManager);
         this.transportListener = requireNonNull(transportListener);
+        this.sessionJournal = requireNonNull(sessionJournal);
     }
 
     /** Cleans up and remove stale clients. */
@@ -99,6 +104,7 @@ public class ClientReaper {
                     if (state.session != null && ic.getTimeOfLatestReceivedMessage() + timeoutNanos < now) {
                         LOGGER.info("Killing client " + ic.getId());
                         ic.close(MmsConnectionClosingCode.CLIENT_TIMEOUT);
+                        state.session.disconnectedWithWriteLock(true); // release queued messages
                         ic.state = ClientInternalState.TERMINATED;
                         state = ic.state;// refresh state
                     }
@@ -110,10 +116,15 @@ public class ClientReaper {
             if (state.state == State.TERMINATED && lock.tryLock()) {
                 try {
                     clients.remove(); // A client will never transition from the terminated state
+                    clientManager.updatePosition(ic, null);
                 } finally {
                     lock.unlock();
                 }
             }
         }
+
+        // Journals of sessions from before a restart, whose clients never reconnected
+        sessionJournal.deleteStale(System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(timeoutNanos),
+                clientManager.clients::containsKey);
     }
 }
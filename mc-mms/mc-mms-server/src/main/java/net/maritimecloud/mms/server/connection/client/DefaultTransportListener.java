@@ -50,16 +50,21 @@ public class DefaultTransportListener implements ServerTransportListener {
     /** The access log manager */
     private AccessLogManager accessLogManager;
 
+    /** Verifies the signatures of messages before they are processed by a client. */
+    private final SignatureVerifier signatureVerifier;
+
     /**
      * We keep track of clients that have not yet send a hello. This is done in order to be able to close those
      * connections at some point. Otherwise they will be lying around forever, unless the client closes the socket.
      */
     final Set<ServerTransport> missingHellos = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
-    public DefaultTransportListener(ClientManager clientManager, ServerId id, AccessLogManager accessLogManager) {
+    public DefaultTransportListener(ClientManager clientManager, ServerId id, AccessLogManager accessLogManager,
+            SignatureVerifier signatureVerifier) {
         this.clientManager = requireNonNull(clientManager);
         this.serverId = id.toString();
         this.accessLogManager = requireNonNull(accessLogManager);
+        this.signatureVerifier = requireNonNull(signatureVerifier);
     }
 
     /** {@inheritDoc} */
@@ -97,6 +102,10 @@ public class DefaultTransportListener implements ServerTransportListener {
                 if (m instanceof Hello) {
                     Hello hello = (Hello) m;
                     missingHellos.remove(t);
+                    if (hello.hasProtocolVersion()
+                            && hello.getProtocolVersion() >= MmsMessage.PROTOCOL_VERSION_COMPACT) {
+                        t.useCompactBinary(); // before the Connected message is sent
+                    }
                     Client newClient = clientManager.onHello(hello, t);
                     if (newClient != null) {
                         t.setAttachment(ATTACHMENT_CLIENT, newClient);
@@ -111,7 +120,7 @@ public class DefaultTransportListener implements ServerTransportListener {
                 t.close(MmsConnectionClosingCode.WRONG_MESSAGE
                         .withMessage("A client must not send a Hello message more than once"));
             } else {
-                client.onMessage(t, message);
+                signatureVerifier.onMessage(client, t, message);
             }
         }
     }
@@ -149,7 +158,9 @@ public class DefaultTransportListener implements ServerTransportListener {
     @Override
     public void onOpen(ServerTransport t) {
         // send a Welcome message to the client as the first thing
-        MmsMessage welcome = new MmsMessage(new Welcome().addProtocolVersion(1).setServerId(serverId)
+        MmsMessage welcome = new MmsMessage(new Welcome().addProtocolVersion(1)
+                .addProtocolVersion(MmsMessage.PROTOCOL_VERSION_BATCH)
+                .addProtocolVersion(MmsMessage.PROTOCOL_VERSION_COMPACT).setServerId(serverId)
                 .putProperties("implementation", "mmsServer/0.2"));
         t.sendMessage(welcome);
 
@@ -16,41 +16,98 @@ package net.maritimecloud.mms.server.connection.client;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
+import net.maritimecloud.internal.mms.messages.spi.PreEncodedMessage;
+import net.maritimecloud.internal.net.messages.Broadcast;
 import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageFormatType;
+import net.maritimecloud.mms.server.MmsServerConfiguration;
 import net.maritimecloud.mms.server.connection.transport.ServerTransport;
 import net.maritimecloud.util.Binary;
 
 import org.cakeframework.container.concurrent.ThreadManager;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
 /**
  *
  * @author Kasper Nielsen
  */
 public class Session {
 
+    /** The logger. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(Session.class);
+
+    /** The maximum number of messages sent in a single frame, if the client supports batches. */
+    private final int batchMaxSize;
+
+    /** The number of nanoseconds to wait for more messages before sending a partial batch. */
+    private final long batchLingerNanos;
+
     /** The client that this session is attached to. */
     private final Client client;
 
     /** A context map used for attaching state to the session. */
     private final ConcurrentHashMap<String, Object> contextMap = new ConcurrentHashMap<>();
 
+    /** The journal of unacknowledged messages, or null if messages are only kept in memory. */
+    private final SessionJournalFile journal;
+
     private long latestMessageIdAckedByRemote /* = 0 */;
 
     long latestMessageIdReceivedByRemote;
 
-    private long nextMessageIdToSend = 1;
+    private long nextMessageIdToSend;
+
+    /** The estimated number of bytes of all messages in {@link #unAckedMessages}. Guarded by unAckedMessages. */
+    private long queuedBytes;
+
+    /** Counts the estimated number of bytes of unacknowledged messages, for all sessions, or null for no limit. */
+    private final Counter queuedBytesCounter;
+
+    /** Counts the number of unacknowledged messages, for all sessions. */
+    private final Counter queuedMessagesCounter;
+
+    /** Marks every message that is dropped to make room for a new message. */
+    private final Meter queueDroppedMeter;
+
+    /** The maximum number of bytes of messages in {@link #unAckedMessages}, or 0 for no limit. */
+    private final long queueMaxBytes;
+
+    /** The maximum number of messages in {@link #unAckedMessages}. */
+    private final int queueMaxMessages;
+
+    /** What to do when {@link #unAckedMessages} is full. */
+    private final SessionQueueOverflowPolicy queueOverflowPolicy;
+
+    /** Marks every message that is rejected because the queue is full. */
+    private final Meter queueRejectedMeter;
 
     /** A queue of messages that have not yet been acked. */
     private final Queue<SessionMessageFuture> unAckedMessages = new LinkedBlockingQueue<>();
 
+    /** Messages that have been assigned an id but not yet appended to the journal, ordered by message id. */
+    private final Queue<SessionMessageFuture> unJournaledMessages = new ConcurrentLinkedQueue<>();
+
     /**
      * A executor that is used to asynchronous write messages. The reason is websocket.asyncwrite will sometime call
      * into @onClose on the transport. onClose will try to acquire a write lock, to properly lock it. However, a receive
@@ -59,8 +116,20 @@ public class Session {
      */
     private final Executor sendExecutor;
 
+    /** Marks the size in bytes of every binary frame sent. */
+    private final Meter sentBytesMeter;
+
+    /** Marks the size in characters of every text frame sent. */
+    private final Meter sentCharsMeter;
+
+    /** Marks every frame sent. */
+    private final Meter sentFramesMeter;
+
+    /** Marks every message sent, a frame contains one or more messages. */
+    private final Meter sentMessagesMeter;
+
     /** The unique session id. */
-    private final Binary sessionId = Binary.random(32);
+    private final Binary sessionId;
 
     /** A listener of incoming messages */
     private final Session.Listener sessionMessageListener;
@@ -71,11 +140,52 @@ public class Session {
     /** The transport to send messages on. Might be null, for example, if the remote client is disconnected. */
     private Writer writer;
 
-    Session(Client client) {
+    /**
+     * Creates a new session.
+     *
+     * @param client
+     *            the client of the session
+     * @param recovered
+     *            the journal of a session that existed before the server was restarted, or null for a new session
+     */
+    Session(Client client, SessionJournalFile recovered) {
         this.client = requireNonNull(client);
         this.sessionMessageListener = requireNonNull(client.clientManager.mmsServer.getService(Session.Listener.class));
         ThreadManager tm = client.clientManager.mmsServer.getService(ThreadManager.class);
         this.sendExecutor = tm.getExecutor("mms");
+        MmsServerConfiguration conf = client.clientManager.mmsServer.getService(MmsServerConfiguration.class);
+        this.batchMaxSize = conf.getBatchMaxSize();
+        this.batchLingerNanos = TimeUnit.MILLISECONDS.toNanos(conf.getBatchLinger());
+        this.queueMaxBytes = conf.getSessionQueueMaxBytes();
+        this.queueMaxMessages = conf.getSessionQueueMaxMessages();
+        this.queueOverflowPolicy = conf.getSessionQueueOverflowPolicy();
+        MetricRegistry metrics = client.clientManager.mmsServer.getService(MetricRegistry.class);
+        this.sentBytesMeter = metrics.meter("sentBytes");
+        this.sentCharsMeter = metrics.meter("sentChars");
+        this.sentFramesMeter = metrics.meter("sentFrames");
+        this.sentMessagesMeter = metrics.meter("sentMessages");
+        // Messages are only sized if there is a limit, so the byte count is not known without one
+        this.queuedBytesCounter = queueMaxBytes > 0 ? metrics.counter("sessionQueueBytes") : null;
+        this.queuedMessagesCounter = metrics.counter("sessionQueueMessages");
+        this.queueDroppedMeter = metrics.meter("sessionQueueDropped");
+        this.queueRejectedMeter = metrics.meter("sessionQueueRejected");
+        if (recovered == null) {
+            this.sessionId = Binary.secureRandom(32);
+            this.nextMessageIdToSend = 1;
+            this.journal = client.clientManager.mmsServer.getService(SessionJournal.class).create(client.getId(),
+                    sessionId);
+        } else {
+            this.sessionId = recovered.getSessionId();
+            this.nextMessageIdToSend = recovered.getNextMessageId();
+            this.latestMessageIdReceivedByRemote = recovered.getLatestReceivedId();
+            this.journal = recovered;
+            try {
+                recovered.forEach((id, broadcast, data) -> enqueued(new SessionMessageFuture(null, id, data.length,
+                        broadcast)));
+            } catch (IOException e) {
+                LOGGER.error("Could not read session journal of client " + client.getId(), e);
+            }
+        }
     }
 
     /** Invoked whenever the session is killed permanently. Makes sure all outstanding writes are marked as failed. */
@@ -83,26 +193,150 @@ public class Session {
         this.writer = null;
         // loeb igennem alle, marker dem som doede
         // og toem alle koere
+        if (destroy) {
+            synchronized (unAckedMessages) {
+                for (SessionMessageFuture f = unAckedMessages.poll(); f != null; f = unAckedMessages.poll()) {
+                    dequeued(f);
+                }
+            }
+            if (journal != null) {
+                journal.close(true);
+            }
+        }
+    }
+
+    /** Adds the specified message to {@link #unAckedMessages} and updates the queue statistics. */
+    private void enqueued(SessionMessageFuture f) {
+        unAckedMessages.add(f);
+        queuedBytes += f.size;
+        if (queuedBytesCounter != null) {
+            queuedBytesCounter.inc(f.size);
+        }
+        queuedMessagesCounter.inc();
+    }
+
+    /** Updates the queue statistics after a message has been removed from {@link #unAckedMessages}. */
+    private void dequeued(SessionMessageFuture f) {
+        queuedBytes -= f.size;
+        if (queuedBytesCounter != null) {
+            queuedBytesCounter.dec(f.size);
+        }
+        queuedMessagesCounter.dec();
+    }
+
+    /**
+     * Drops the oldest broadcast in {@link #unAckedMessages}.
+     *
+     * @return the future of the dropped broadcast, or null if the queue contains no broadcasts
+     */
+    private SessionMessageFuture dropOldestBroadcast() {
+        for (Iterator<SessionMessageFuture> iter = unAckedMessages.iterator(); iter.hasNext();) {
+            SessionMessageFuture f = iter.next();
+            if (f.broadcast) {
+                iter.remove();
+                dequeued(f);
+                queueDroppedMeter.mark();
+                return f;
+            }
+        }
+        return null;
     }
 
     // called while readlocked on the client.
     // might be called concurrently, so we lock it for now, but might find another solution in the future
     SessionMessageFuture enqueueMessageWithReadLock(Message msg) {
+        // Forwarded broadcasts are pre-encoded, their type is known without decoding them
+        Class<? extends Message> type = msg instanceof PreEncodedMessage ? ((PreEncodedMessage) msg).getMessageType()
+                : msg.getClass();
+        int size = 0;
+        if (queueMaxBytes > 0 || journal != null) {
+            // The size is calculated without encoding, the encoding is reused when the message is journaled and written
+            PreEncodedMessage pe = msg instanceof PreEncodedMessage ? (PreEncodedMessage) msg : new PreEncodedMessage(msg);
+            if (queueMaxBytes > 0) {
+                try {
+                    size = pe.getBinarySize();
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Could not encode message of type " + type, e);
+                }
+            }
+            msg = pe;
+        }
         // We need to have another thread write the message. The problem is that even though
         MmsMessage m = new MmsMessage(msg);
+        List<SessionMessageFuture> dropped = null;
+        SessionMessageFuture smf = null;
         synchronized (unAckedMessages) {
-            SessionMessageFuture smf = new SessionMessageFuture(m, nextMessageIdToSend++);
-            m.setMessageId(smf.messageId);
-            m.setLatestReceivedId(latestMessageIdReceivedByRemote);
-            unAckedMessages.add(smf);
-
-            // only write if connected, otherwise leave in notAcked queue
-            if (writer != null) {
-                writer.send(smf, sendExecutor);
+            // Make room for the message, a single message larger than queueMaxBytes is accepted into an empty queue
+            while (smf == null && (unAckedMessages.size() >= queueMaxMessages || queueMaxBytes > 0
+                    && queuedBytes + size > queueMaxBytes && !unAckedMessages.isEmpty())) {
+                SessionMessageFuture d = queueOverflowPolicy == SessionQueueOverflowPolicy.DROP_OLDEST_BROADCAST
+                        ? dropOldestBroadcast() : null;
+                if (d == null) {
+                    queueRejectedMeter.mark();
+                    smf = SessionMessageFuture.queueFull(type);
+                } else {
+                    if (dropped == null) {
+                        dropped = new ArrayList<>();
+                    }
+                    dropped.add(d);
+                }
+            }
+            if (smf == null) {
+                long messageId = nextMessageIdToSend++;
+                m.setMessageId(messageId);
+                m.setLatestReceivedId(latestMessageIdReceivedByRemote);
+                smf = new SessionMessageFuture(m, messageId, size, Broadcast.class.isAssignableFrom(type));
+                enqueued(smf);
+
+                if (journal != null) {
+                    // Journaled and sent by journalAndSend() after the lock has been released
+                    unJournaledMessages.add(smf);
+                } else if (writer != null) {
+                    // only write if connected, otherwise leave in notAcked queue
+                    writer.send(m, sendExecutor);
+                }
             }
-            return smf;
         }
+        if (journal != null) {
+            journalAndSend();
+        }
+        // Fail the dropped messages outside of the lock
+        if (dropped != null) {
+            for (SessionMessageFuture d : dropped) {
+                if (journal != null) {
+                    journal.markDropped(d.messageId);
+                }
+                d.protocolAcked().completeExceptionally(new SessionQueueOverflowException(
+                        "The session queue is full, message with id " + d.messageId + " was dropped"));
+            }
+        }
+        return smf;
+    }
 
+    /**
+     * Appends the messages in {@link #unJournaledMessages} to the journal, and sends them if connected. Invoked
+     * without holding the lock on {@link #unAckedMessages}, so enqueuing messages does not wait for the journal. The
+     * lock on the journal makes sure messages are appended, and sent, in the order of their ids. A message is only sent
+     * after it has been journaled, so it cannot be acknowledged before it has been appended.
+     */
+    private void journalAndSend() {
+        synchronized (journal) {
+            for (SessionMessageFuture f = unJournaledMessages.poll(); f != null; f = unJournaledMessages.poll()) {
+                MmsMessage m = f.message;
+                try {
+                    journal.append(f.messageId, f.broadcast, m.toBinary());
+                    // Journaled messages are not kept in memory, they are read from the journal if they must be resent
+                    f.message = null;
+                } catch (IOException e) {
+                    LOGGER.error("Could not write message to the session journal of client " + client.getId(), e);
+                }
+                // only write if connected, otherwise leave in notAcked queue
+                Writer writer = this.writer;
+                if (writer != null) {
+                    writer.send(m, sendExecutor);
+                }
+            }
+        }
     }
 
     /**
@@ -144,9 +378,26 @@ public class Session {
 
         // Technically it is okay to send messages directly but we should probably send them async as well
         for (SessionMessageFuture f : unAckedMessages) {
-            transport.sendMessage(f.message);
+            MmsMessage m = f.message;
+            if (m != null) {
+                transport.sendMessage(m);
+            }
             nextMessageIdToSend = f.messageId + 1;
         }
+        if (journal != null) {
+            // Resend messages in the journal, the binary representation is written as it is to binary transports
+            try {
+                journal.forEach((id, broadcast, data) -> {
+                    try {
+                        transport.sendMessage(MmsMessage.wrapBinaryMessage(data));
+                    } catch (IOException e) {
+                        LOGGER.error("Could not read message " + id + " from the journal of client " + client.getId(), e);
+                    }
+                });
+            } catch (IOException e) {
+                LOGGER.error("Could not read session journal of client " + client.getId(), e);
+            }
+        }
     }
 
     /**
@@ -159,6 +410,9 @@ public class Session {
         timeOfLastReceivedMessage = System.nanoTime();
         latestMessageIdReceivedByRemote = message.getMessageId();
         latestMessageIdAckedByRemote = message.getLatestReceivedId();
+        if (journal != null) {
+            journal.setLatestReceivedId(latestMessageIdReceivedByRemote);
+        }
         // So hmm, the two above why are they above this line.
         // Mainly because the listener will most likely send a reply message
         // And it will strange that latestReceivedMessageId has not been updated
@@ -169,13 +423,21 @@ public class Session {
     }
 
     private void removeAckedExclusively(long id) {
+        if (journal != null) {
+            journal.truncate(id);
+        }
         for (;;) {
-            SessionMessageFuture f = unAckedMessages.peek();
-            if (f == null || f.messageId > id) {
-                return;
+            SessionMessageFuture f;
+            synchronized (unAckedMessages) {
+                f = unAckedMessages.peek();
+                if (f == null || f.messageId > id) {
+                    return;
+                }
+                unAckedMessages.poll();// remove peeked element
+                dequeued(f);
             }
+            // Complete outside of the lock, as completion might send messages to other sessions
             f.protocolAcked().complete(null);
-            unAckedMessages.poll();// remove peeked element
         }
     }
 
@@ -199,17 +461,65 @@ public class Session {
         void onMessage(Session session, Message message);
     }
 
-    static class Writer implements Runnable {
+    /**
+     * Writes queued messages to the transport. If the client supports batches, all messages that are queued, up to
+     * {@link #batchMaxSize}, are sent in a single frame. A batch that is not full is kept for up to
+     * {@link #batchLingerNanos}, waiting for more messages. The batch is sent by a task that is scheduled for when it
+     * has lingered long enough, so no thread of the executor waits for messages.
+     */
+    class Writer implements Runnable {
         private final ReentrantLock executorLock = new ReentrantLock();
 
-        private final BlockingQueue<SessionMessageFuture> q = new LinkedBlockingQueue<>();
+        private final BlockingQueue<MmsMessage> q = new LinkedBlockingQueue<>();
 
         final ServerTransport transport;
 
+        /** The messages of a batch that is not yet full. Guarded by executorLock. */
+        private final List<MmsMessage> batch = new ArrayList<>();
+
+        /** The time at which the batch must be sent. Guarded by executorLock. */
+        private long deadline;
+
+        /** The deadline for which a send of the batch has been scheduled. Guarded by executorLock. */
+        private long scheduledDeadline;
+
         Writer(ServerTransport transport) {
             this.transport = requireNonNull(transport);
         }
 
+        /** Sends the messages of the batch in a single frame, and clears the batch. */
+        private void flush() {
+            if (!batch.isEmpty()) {
+                try {
+                    int size = transport.sendMessages(batch);
+                    MessageFormatType format = transport.getChannelFormatType();
+                    if (format == MessageFormatType.MACHINE_READABLE
+                            || format == MessageFormatType.MACHINE_READABLE_COMPACT) {
+                        sentBytesMeter.mark(size);
+                    } else {
+                        sentCharsMeter.mark(size);
+                    }
+                    sentFramesMeter.mark();
+                    sentMessagesMeter.mark(batch.size());
+                } catch (Exception e) {
+                    LOGGER.error("Could not send " + batch.size() + " messages to client " + client.getId(), e);
+                }
+                batch.clear();
+            }
+        }
+
+        /** Sends the batch if it has lingered long enough. Invoked by the task scheduled by {@link #run()}. */
+        private void flushIfDue() {
+            executorLock.lock(); // Only held briefly by run(), which never waits for messages
+            try {
+                if (!batch.isEmpty() && deadline - System.nanoTime() <= 0) {
+                    flush();
+                }
+            } finally {
+                executorLock.unlock();
+            }
+        }
+
         /** {@inheritDoc} */
         public void run() {
             // We need retry check for extra elements one more time, if we have successfully polled elements
@@ -223,15 +533,26 @@ public class Session {
                 sholdRetry = false;
                 if (executorLock.tryLock()) {
                     try {
-                        SessionMessageFuture s = q.poll();
-                        while (s != null) {
+                        int max = client.protocolVersion >= MmsMessage.PROTOCOL_VERSION_BATCH ? batchMaxSize : 1;
+                        for (MmsMessage s = q.poll(); s != null; s = q.poll()) {
                             sholdRetry = true;
-                            try {
-                                transport.sendMessage(s.message);
-                            } catch (Exception e) {
-                                e.printStackTrace();
+                            if (batch.isEmpty()) {
+                                deadline = System.nanoTime() + batchLingerNanos;
                             }
-                            s = q.poll();
+                            batch.add(s);
+                            if (batch.size() >= max) {
+                                flush();
+                            }
+                        }
+                        ScheduledExecutorService scheduler = client.clientManager.batchScheduler;
+                        long delay = deadline - System.nanoTime();
+                        if (scheduler == null || delay <= 0) {
+                            flush();
+                        } else if (!batch.isEmpty() && scheduledDeadline != deadline) {
+                            // Wait a bit for more messages, before sending a frame that is not full
+                            scheduledDeadline = deadline;
+                            scheduler.schedule(() -> sendExecutor.execute(this::flushIfDue), delay,
+                                    TimeUnit.NANOSECONDS);
                         }
                     } finally {
                         executorLock.unlock();
@@ -240,8 +561,8 @@ public class Session {
             } while (sholdRetry);
         }
 
-        void send(SessionMessageFuture f, Executor e) {
-            q.add(f);
+        void send(MmsMessage m, Executor e) {
+            q.add(m);
             e.execute(this);
         }
     }
@@ -0,0 +1,155 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.mms.server.connection.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.function.Predicate;
+
+import net.maritimecloud.mms.server.MmsServerConfiguration;
+import net.maritimecloud.util.Binary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a journal file for every session in a directory, containing the messages that have not yet been acknowledged
+ * by the client. The messages are replayed from the journal when the client reconnects, also after a server restart.
+ * If no directory has been configured the journal is disabled, and messages are only kept in memory.
+ *
+ * @author Kasper Nielsen
+ * @see MmsServerConfiguration#setSessionJournalDirectory(File)
+ */
+public class SessionJournal {
+
+    /** The file extension of journal files. */
+    static final String EXTENSION = ".journal";
+
+    /** The logger. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionJournal.class);
+
+    /** The directory of the journal files, or null if the journal is disabled. */
+    private final File directory;
+
+    /** The initial size of a journal file. */
+    private final int initialSize;
+
+    public SessionJournal(MmsServerConfiguration configuration) {
+        this.directory = configuration.getSessionJournalDirectory();
+        this.initialSize = configuration.getSessionJournalInitialSize();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Could not create the session journal directory " + directory);
+        }
+    }
+
+    /**
+     * Creates a new journal file for the specified session, replacing any existing journal of the client.
+     *
+     * @param clientId
+     *            the id of the client
+     * @param sessionId
+     *            the id of the session
+     * @return the new journal file, or null if the journal is disabled or the file could not be created
+     */
+    SessionJournalFile create(String clientId, Binary sessionId) {
+        if (directory != null) {
+            File f = fileOf(clientId);
+            try {
+                return SessionJournalFile.create(f, sessionId, initialSize);
+            } catch (IOException e) {
+                LOGGER.error("Could not create session journal " + f + ", messages are only kept in memory", e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Deletes all journal files that have not been modified since the specified time, and that are not in use.
+     *
+     * @param modifiedBefore
+     *            the time in milliseconds since the epoch
+     * @param inUse
+     *            tests whether or not the journal of a client with the specified id is in use
+     */
+    public void deleteStale(long modifiedBefore, Predicate<String> inUse) {
+        File[] files = directory == null ? null : directory.listFiles((d, name) -> name.endsWith(EXTENSION));
+        if (files != null) {
+            for (File f : files) {
+                String name = f.getName();
+                try {
+                    String clientId = URLDecoder.decode(name.substring(0, name.length() - EXTENSION.length()), "UTF-8");
+                    if (f.lastModified() < modifiedBefore && !inUse.test(clientId)) {
+                        LOGGER.info("Deleting stale session journal " + f);
+                        f.delete();
+                    }
+                } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                    LOGGER.warn("Ignoring unknown file in the session journal directory " + f);
+                }
+            }
+        }
+    }
+
+    private File fileOf(String clientId) {
+        try {
+            return new File(directory, URLEncoder.encode(clientId, "UTF-8") + EXTENSION);
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e); // UTF-8 is always supported
+        }
+    }
+
+    /**
+     * Returns whether or not the journal is enabled.
+     *
+     * @return whether or not the journal is enabled
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Opens the journal of a session that existed before the server was restarted.
+     *
+     * @param clientId
+     *            the id of the client
+     * @param sessionId
+     *            the id of the session the client wants to reconnect to
+     * @return the journal file of the session, or null if there is no journal for the session
+     */
+    SessionJournalFile recover(String clientId, Binary sessionId) {
+        requireNonNull(sessionId);
+        if (directory != null) {
+            File f = fileOf(clientId);
+            if (f.exists()) {
+                try {
+                    SessionJournalFile j = SessionJournalFile.open(f);
+                    if (j != null && j.getSessionId().equals(sessionId)) {
+                        return j;
+                    }
+                    if (j != null) {
+                        j.close(false);
+                    }
+                } catch (IOException e) {
+                    LOGGER.error("Could not open session journal " + f, e);
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,358 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.mms.server.connection.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import net.maritimecloud.util.Binary;
+
+/**
+ * An append-only, memory-mapped file containing the binary representation of the messages of a single session that
+ * have not yet been acknowledged by the client.
+ * <p>
+ * The file starts with a fixed size header followed by the records. Each record consists of the message id, the length
+ * of the message, a flags byte and the message itself. Records before {@code start} have been acknowledged, and are
+ * removed when the file is compacted to make room for new records. The file is written through the memory mapping, so
+ * it survives a crash of the server process but not necessarily of the operating system.
+ *
+ * @author Kasper Nielsen
+ */
+final class SessionJournalFile {
+
+    /** Flags a record as containing a broadcast. */
+    static final byte FLAG_BROADCAST = 1;
+
+    /** Flags a record as having been dropped, it is never replayed. */
+    static final byte FLAG_DROPPED = 2;
+
+    /** The size of the header. */
+    static final int HEADER_SIZE = 64;
+
+    /** The value of the first 4 bytes of a valid journal file. */
+    static final int MAGIC = 0x4D4D534A;
+
+    /** The maximum size of a session id. */
+    static final int MAX_SESSION_ID_SIZE = 32;
+
+    /** The position of the offset of the end of the last record. */
+    private static final int POS_END = 60;
+
+    /** The position of the latest message id received by the remote client. */
+    private static final int POS_LATEST_RECEIVED_ID = 40;
+
+    /** The position of the next message id to send. */
+    private static final int POS_NEXT_MESSAGE_ID = 48;
+
+    /** The position of the session id, preceded by its length. */
+    private static final int POS_SESSION_ID = 4;
+
+    /** The position of the offset of the first record that has not been acknowledged. */
+    private static final int POS_START = 56;
+
+    /** The size of the record header, message id + length + flags. */
+    static final int RECORD_HEADER_SIZE = 13;
+
+    /** The memory mapped contents of the file, null if the file has been closed. */
+    private MappedByteBuffer buffer;
+
+    /** The channel of the file. */
+    private final FileChannel channel;
+
+    /** The file. */
+    private final File file;
+
+    /** The id of the session. */
+    private final Binary sessionId;
+
+    private SessionJournalFile(File file, FileChannel channel, MappedByteBuffer buffer, Binary sessionId) {
+        this.file = requireNonNull(file);
+        this.channel = requireNonNull(channel);
+        this.buffer = requireNonNull(buffer);
+        this.sessionId = requireNonNull(sessionId);
+    }
+
+    /**
+     * Appends a message.
+     *
+     * @param messageId
+     *            the id of the message
+     * @param broadcast
+     *            whether or not the message is a broadcast
+     * @param data
+     *            the binary representation of the message
+     * @throws IOException
+     *             if the file could not be extended
+     */
+    synchronized void append(long messageId, boolean broadcast, byte[] data) throws IOException {
+        checkOpen();
+        ensureCapacity(RECORD_HEADER_SIZE + data.length);
+        int end = buffer.getInt(POS_END);
+        buffer.putLong(end, messageId);
+        buffer.putInt(end + 8, data.length);
+        buffer.put(end + 12, broadcast ? FLAG_BROADCAST : 0);
+        ByteBuffer b = buffer.duplicate();
+        b.position(end + RECORD_HEADER_SIZE);
+        b.put(data);
+        // Only update the header after the record has been written
+        buffer.putLong(POS_NEXT_MESSAGE_ID, messageId + 1);
+        buffer.putInt(POS_END, end + RECORD_HEADER_SIZE + data.length);
+    }
+
+    private void checkOpen() throws IOException {
+        if (buffer == null) {
+            throw new IOException("The journal has been closed, file = " + file);
+        }
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @param delete
+     *            whether or not to delete the file
+     */
+    synchronized void close(boolean delete) {
+        buffer = null; // The mapping is released when the buffer is garbage collected
+        try {
+            channel.close();
+        } catch (IOException ignore) {}
+        if (delete) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Makes sure there is room for the specified number of bytes after the last record. Removes acknowledged records
+     * by moving the records that have not been acknowledged to the start of the file. If there is still not enough
+     * room, the file is extended.
+     */
+    private void ensureCapacity(int size) throws IOException {
+        int start = buffer.getInt(POS_START);
+        int end = buffer.getInt(POS_END);
+        if (end + size <= buffer.capacity()) {
+            return;
+        }
+        if (start > HEADER_SIZE) {
+            byte[] live = new byte[end - start];
+            ByteBuffer b = buffer.duplicate();
+            b.position(start);
+            b.get(live);
+            b.position(HEADER_SIZE);
+            b.put(live);
+            buffer.putInt(POS_START, HEADER_SIZE);
+            buffer.putInt(POS_END, end = HEADER_SIZE + live.length);
+        }
+        if (end + size > buffer.capacity()) {
+            long newSize = Math.max(2L * buffer.capacity(), (long) end + size);
+            if (newSize > Integer.MAX_VALUE) {
+                throw new IOException("The journal cannot be larger than 2 GB, file = " + file);
+            }
+            buffer = channel.map(MapMode.READ_WRITE, 0, newSize);
+        }
+    }
+
+    /**
+     * Invokes the specified visitor for every message that has not been acknowledged or dropped, in the order they were
+     * appended.
+     *
+     * @param visitor
+     *            the visitor
+     * @throws IOException
+     *             if the journal has been closed
+     */
+    synchronized void forEach(Visitor visitor) throws IOException {
+        checkOpen();
+        int end = buffer.getInt(POS_END);
+        for (int pos = buffer.getInt(POS_START); pos < end;) {
+            int length = buffer.getInt(pos + 8);
+            byte flags = buffer.get(pos + 12);
+            if ((flags & FLAG_DROPPED) == 0) {
+                byte[] data = new byte[length];
+                ByteBuffer b = buffer.duplicate();
+                b.position(pos + RECORD_HEADER_SIZE);
+                b.get(data);
+                visitor.visit(buffer.getLong(pos), (flags & FLAG_BROADCAST) != 0, data);
+            }
+            pos += RECORD_HEADER_SIZE + length;
+        }
+    }
+
+    /**
+     * Returns the latest message id received by the remote client.
+     *
+     * @return the latest message id received by the remote client
+     */
+    synchronized long getLatestReceivedId() {
+        return buffer == null ? 0 : buffer.getLong(POS_LATEST_RECEIVED_ID);
+    }
+
+    /**
+     * Returns the next message id to send.
+     *
+     * @return the next message id to send
+     */
+    synchronized long getNextMessageId() {
+        return buffer == null ? 1 : buffer.getLong(POS_NEXT_MESSAGE_ID);
+    }
+
+    /**
+     * Returns the id of the session.
+     *
+     * @return the id of the session
+     */
+    Binary getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Marks the message with the specified id as dropped.
+     *
+     * @param messageId
+     *            the id of the message
+     */
+    synchronized void markDropped(long messageId) {
+        if (buffer != null) {
+            int end = buffer.getInt(POS_END);
+            for (int pos = buffer.getInt(POS_START); pos < end; pos += RECORD_HEADER_SIZE + buffer.getInt(pos + 8)) {
+                if (buffer.getLong(pos) == messageId) {
+                    buffer.put(pos + 12, (byte) (buffer.get(pos + 12) | FLAG_DROPPED));
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the latest message id received by the remote client.
+     *
+     * @param latestReceivedId
+     *            the latest message id received by the remote client
+     */
+    synchronized void setLatestReceivedId(long latestReceivedId) {
+        if (buffer != null) {
+            buffer.putLong(POS_LATEST_RECEIVED_ID, latestReceivedId);
+        }
+    }
+
+    /**
+     * Removes all messages with an id less than or equal to the specified id.
+     *
+     * @param messageId
+     *            the id of the latest message that has been acknowledged
+     */
+    synchronized void truncate(long messageId) {
+        if (buffer != null) {
+            int start = buffer.getInt(POS_START);
+            int end = buffer.getInt(POS_END);
+            while (start < end && buffer.getLong(start) <= messageId) {
+                start += RECORD_HEADER_SIZE + buffer.getInt(start + 8);
+            }
+            buffer.putInt(POS_START, start);
+        }
+    }
+
+    /**
+     * Creates a new journal file, overriding any existing file.
+     *
+     * @param file
+     *            the file
+     * @param sessionId
+     *            the id of the session
+     * @param initialSize
+     *            the initial size of the file
+     * @return the new journal
+     * @throws IOException
+     *             if the file could not be created
+     */
+    static SessionJournalFile create(File file, Binary sessionId, int initialSize) throws IOException {
+        if (sessionId.size() > MAX_SESSION_ID_SIZE) {
+            throw new IllegalArgumentException("The session id must be at most " + MAX_SESSION_ID_SIZE + " bytes");
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer b = channel.map(MapMode.READ_WRITE, 0, Math.max(initialSize, HEADER_SIZE));
+            b.putInt(POS_SESSION_ID, sessionId.size());
+            ByteBuffer bb = b.duplicate();
+            bb.position(POS_SESSION_ID + 4);
+            sessionId.copyTo(bb);
+            b.putLong(POS_LATEST_RECEIVED_ID, 0);
+            b.putLong(POS_NEXT_MESSAGE_ID, 1);
+            b.putInt(POS_START, HEADER_SIZE);
+            b.putInt(POS_END, HEADER_SIZE);
+            b.putInt(0, MAGIC); // Written last, marks the file as valid
+            return new SessionJournalFile(file, channel, b, sessionId);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an existing journal file.
+     *
+     * @param file
+     *            the file
+     * @return the journal, or null if the file is not a valid journal file
+     * @throws IOException
+     *             if the file could not be read
+     */
+    static SessionJournalFile open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size >= HEADER_SIZE && size <= Integer.MAX_VALUE) {
+                MappedByteBuffer b = channel.map(MapMode.READ_WRITE, 0, size);
+                int idSize = b.getInt(POS_SESSION_ID);
+                int start = b.getInt(POS_START);
+                int end = b.getInt(POS_END);
+                if (b.getInt(0) == MAGIC && idSize >= 0 && idSize <= MAX_SESSION_ID_SIZE && start >= HEADER_SIZE
+                        && start <= end && end <= size) {
+                    ByteBuffer bb = b.duplicate();
+                    bb.position(POS_SESSION_ID + 4);
+                    return new SessionJournalFile(file, channel, b, Binary.copyFrom(bb, idSize));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        channel.close();
+        return null;
+    }
+
+    /** A visitor of the messages in a journal. */
+    interface Visitor {
+
+        /**
+         * Visits a message.
+         *
+         * @param messageId
+         *            the id of the message
+         * @param broadcast
+         *            whether or not the message is a broadcast
+         * @param data
+         *            the binary representation of the message
+         */
+        void visit(long messageId, boolean broadcast, byte[] data);
+    }
+}
@@ -31,18 +31,29 @@ public class SessionMessageFuture {
 
     private final CompletableFuture<Void> acked = new CompletableFuture<>();
 
+    /** Whether or not the message is a broadcast. */
+    final boolean broadcast;
+
     /** When the future was, and the initial was first attempted to be sent. */
     final long creationTime = System.nanoTime();
 
-    /** The message that should be send, might be null for certain error conditions. */
-    final MmsMessage message;
+    /**
+     * The message that should be send, might be null for certain error conditions. Or if the message is kept in the
+     * session journal, in which case it is cleared once it has been appended.
+     */
+    volatile MmsMessage message;
 
     /** The message id. */
     final long messageId;
 
-    SessionMessageFuture(MmsMessage cm, long messageId) {
+    /** The estimated size of the message in bytes, used for bounding the queue of unacknowledged messages. */
+    final int size;
+
+    SessionMessageFuture(MmsMessage cm, long messageId, int size, boolean broadcast) {
         this.message = cm;
         this.messageId = messageId;
+        this.size = size;
+        this.broadcast = broadcast;
     }
 
     /**
@@ -63,6 +74,13 @@ public class SessionMessageFuture {
         return null;
     }
 
+    static SessionMessageFuture queueFull(Class<? extends Message> type) {
+        SessionMessageFuture f = new SessionMessageFuture(null, -1, 0, false);
+        f.acked.completeExceptionally(new SessionQueueOverflowException("The session queue is full, message of type "
+                + type.getSimpleName() + " was rejected"));
+        return f;
+    }
+
     public enum FailToSendReason {
         NOT_CONNECTED, OK, SESSION_EXPIRED;
     }
@@ -0,0 +1,31 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.mms.server.connection.client;
+
+/**
+ * Exception used for failing the {@link SessionMessageFuture#protocolAcked()} future of a message that was rejected
+ * or dropped because the queue of unacknowledged messages of the session was full.
+ *
+ * @author Kasper Nielsen
+ */
+public class SessionQueueOverflowException extends RuntimeException {
+
+    /** serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    public SessionQueueOverflowException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,34 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.mms.server.connection.client;
+
+/**
+ * Defines what happens when a message is sent to a session whose queue of unacknowledged messages is full.
+ *
+ * @author Kasper Nielsen
+ * @see net.maritimecloud.mms.server.MmsServerConfiguration#setSessionQueueOverflowPolicy(SessionQueueOverflowPolicy)
+ */
+public enum SessionQueueOverflowPolicy {
+
+    /**
+     * Drops the oldest broadcasts in the queue until there is room for the new message. Broadcasts are only sent to
+     * clients that were within the broadcast area at the time of sending, so an old broadcast is the least valuable
+     * message in the queue. If the queue contains no broadcasts the new message is rejected.
+     */
+    DROP_OLDEST_BROADCAST,
+
+    /** Rejects the new message, failing its {@link SessionMessageFuture#protocolAcked()} future. */
+    REJECT;
+}
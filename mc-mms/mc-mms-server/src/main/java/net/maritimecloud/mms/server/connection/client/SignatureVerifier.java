@@ -0,0 +1,269 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.mms.server.connection.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.maritimecloud.internal.mms.messages.spi.LazyBroadcast;
+import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
+import net.maritimecloud.internal.net.messages.Broadcast;
+import net.maritimecloud.internal.net.messages.MessageHasher;
+import net.maritimecloud.internal.net.messages.MethodInvoke;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.mms.server.MmsServerConfiguration;
+import net.maritimecloud.mms.server.connection.transport.ServerTransport;
+import net.maritimecloud.mms.server.security.MmsSecurityManager;
+import net.maritimecloud.net.mms.MmsConnectionClosingCode;
+
+import org.cakeframework.container.lifecycle.RunOnStop;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verifies the signatures of the broadcasts and method invocations received from clients, before they are processed
+ * by {@link Client#onMessage(ServerTransport, MmsMessage)}.
+ * <p>
+ * Signatures are verified by a dedicated pool of threads, so that the threads reading from the clients are not
+ * stalled by the cost of the verification. Messages from the same connection are still processed in the order they
+ * were received, no matter their type: a message that does not need verification waits for the messages received
+ * before it. When the queue of the pool is full, the reading thread verifies the signature itself.
+ * <p>
+ * Signatures are only verified if a signature key handler has been configured in the security configuration.
+ * Unsigned messages are accepted. A client that sends a message with an invalid signature, or a signature from a
+ * sender with an unknown key, is disconnected.
+ *
+ * @author Kasper Nielsen
+ */
+public class SignatureVerifier {
+
+    /** The transport attachment holding the messages of a connection that are waiting to be processed. */
+    static final String ATTACHMENT_PENDING = "signature.pending";
+
+    /** The logger. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SignatureVerifier.class);
+
+    /** The threads verifying signatures, or null if signatures are not verified. */
+    private final ThreadPoolExecutor executor;
+
+    /** The cached public keys of senders. */
+    private final ConcurrentHashMap<String, PublicKey> keys = new ConcurrentHashMap<>();
+
+    /** The maximum number of cached keys. */
+    private final int keyCacheSize;
+
+    /** The security manager that looks up the public keys of senders. */
+    private final MmsSecurityManager securityManager;
+
+    public SignatureVerifier(MmsServerConfiguration configuration, MmsSecurityManager securityManager) {
+        this.securityManager = requireNonNull(securityManager);
+        this.keyCacheSize = configuration.getSignatureKeyCacheSize();
+        if (securityManager.isSignatureVerificationEnabled()) {
+            int threads = configuration.getSignatureVerificationThreads();
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory tf = r -> {
+                Thread t = new Thread(r, "mms.signature-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(
+                    configuration.getSignatureVerificationQueueSize()), tf, new ThreadPoolExecutor.CallerRunsPolicy());
+        } else {
+            executor = null;
+        }
+    }
+
+    /**
+     * Returns the public key of a sender, from the cache if possible.
+     *
+     * @param senderId
+     *            the id of the sender
+     * @return the public key of the sender, or null if the sender has no known key
+     */
+    PublicKey getKey(String senderId) {
+        PublicKey key = keys.get(senderId);
+        if (key == null) {
+            key = securityManager.getSignatureKey(senderId);
+            if (key != null && keyCacheSize > 0) {
+                if (keys.size() >= keyCacheSize) {
+                    keys.clear(); // simpler than least recently used, and the keys are easily looked up again
+                }
+                keys.put(senderId, key);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Processes a message received from a client, once its signature has been verified.
+     *
+     * @param client
+     *            the client that sent the message
+     * @param t
+     *            the transport the message was received on
+     * @param message
+     *            the message
+     */
+    void onMessage(Client client, ServerTransport t, MmsMessage message) {
+        if (executor == null) {
+            client.onMessage(t, message);
+            return;
+        }
+        // Messages from a transport are received by a single thread at a time
+        PendingMessages pending = t.getAttachment(ATTACHMENT_PENDING, PendingMessages.class);
+        if (pending == null) {
+            t.setAttachment(ATTACHMENT_PENDING, pending = new PendingMessages(client, t));
+        }
+        Message m = message.getM();
+        if (m instanceof Broadcast || m instanceof LazyBroadcast || m instanceof MethodInvoke) {
+            Pending p = new Pending(message);
+            pending.add(p);
+            PendingMessages pm = pending;
+            executor.execute(() -> {
+                p.valid = verify(p.message.getM());
+                p.verified = true;
+                pm.process();
+            });
+        } else {
+            Pending p = new Pending(message);
+            p.valid = p.verified = true;
+            pending.add(p);
+            pending.process();
+        }
+    }
+
+    /** Shuts down the threads verifying signatures. */
+    @RunOnStop
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Verifies the signature of a broadcast or method invocation.
+     *
+     * @param m
+     *            the message to verify
+     * @return true if the message is not signed, or if the signature is valid
+     */
+    boolean verify(Message m) {
+        try {
+            if (m instanceof LazyBroadcast) {
+                m = ((LazyBroadcast) m).getBroadcast();
+            }
+            if (m instanceof Broadcast) {
+                Broadcast b = (Broadcast) m;
+                return b.getSignature() == null || verify(b, b.getSenderId());
+            }
+            MethodInvoke mi = (MethodInvoke) m;
+            return mi.getSignature() == null || verify(mi, mi.getSenderId());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not verify the signature of a message", e);
+            return false;
+        }
+    }
+
+    private boolean verify(Message m, String senderId) {
+        PublicKey key = senderId == null ? null : getKey(senderId);
+        if (key == null) {
+            return false;
+        }
+        try {
+            return m instanceof Broadcast ? MessageHasher.verify((Broadcast) m, key) : MessageHasher.verify(
+                    (MethodInvoke) m, key);
+        } catch (SignatureException e) {
+            return false; // the signature is not encoded correctly
+        }
+    }
+
+    /** A message waiting to be processed. */
+    static final class Pending {
+
+        /** The message. */
+        final MmsMessage message;
+
+        /** Whether or not the signature is valid, written before {@link #verified}. */
+        boolean valid;
+
+        /** Whether or not the signature has been verified. */
+        volatile boolean verified;
+
+        Pending(MmsMessage message) {
+            this.message = message;
+        }
+    }
+
+    /** The messages received on a single transport that are waiting to be processed, in the order received. */
+    static final class PendingMessages {
+
+        /** The client that sent the messages. */
+        final Client client;
+
+        /** Whether the transport has been closed because of an invalid message, guarded by this. */
+        private boolean closed;
+
+        /** The messages, guarded by this. */
+        private final ArrayDeque<Pending> messages = new ArrayDeque<>();
+
+        /** The transport the messages were received on. */
+        final ServerTransport transport;
+
+        PendingMessages(Client client, ServerTransport transport) {
+            this.client = client;
+            this.transport = transport;
+        }
+
+        synchronized void add(Pending p) {
+            if (!closed) {
+                messages.add(p);
+            }
+        }
+
+        private void close(MmsConnectionClosingCode reason) {
+            closed = true;
+            messages.clear();
+            transport.close(reason);
+        }
+
+        /** Processes the verified messages at the head of the queue. */
+        synchronized void process() {
+            for (Pending p = messages.peek(); p != null && p.verified; p = messages.peek()) {
+                messages.poll();
+                if (!p.valid) {
+                    close(MmsConnectionClosingCode.BAD_DATA.withMessage("Invalid signature"));
+                    return;
+                }
+                try {
+                    client.onMessage(transport, p.message);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Failed to process message", e);
+                    close(MmsConnectionClosingCode.INTERNAL_ERROR.withMessage(e.getMessage()));
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -26,6 +26,8 @@ import org.slf4j.LoggerFactory;
 import javax.websocket.CloseReason;
 import javax.websocket.Session;
 import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -120,7 +122,12 @@ public final class ServerTransport {
             channelFormatType = MessageFormatType.MACHINE_READABLE;
         }
         eventListener.transportBinaryMessageReceived(this, binary);
-        endpointOnMessage(() -> MmsMessage.parseBinaryMessage(binary));
+        if (channelFormatType == MessageFormatType.MACHINE_READABLE_COMPACT) {
+            endpointOnMessage(() -> MmsMessage.parseCompactBinaryMessage(ByteBuffer.wrap(binary)));
+        } else {
+            // Broadcasts are only decoded as far as needed to route them
+            endpointOnMessage(() -> MmsMessage.parseBinaryMessage(ByteBuffer.wrap(binary), true));
+        }
     }
 
     void endpointOnClose(CloseReason closeReason) {
@@ -203,29 +210,60 @@ public final class ServerTransport {
      *            the message to send
      */
     public void sendMessage(MmsMessage message) {
-        try {
-            eventListener.transportMessageSend(this, message);
-        } catch (RuntimeException e) {
-            LOGGER.error("Event listener failed", e);
+        sendMessages(Collections.singletonList(message));
+    }
+
+    /**
+     * Sends the specified messages with the transport. If more than one message is specified, the messages are sent
+     * in a single frame containing a {@link net.maritimecloud.internal.mms.messages.Batch} message. Which should only
+     * be used if the client has selected at least {@link MmsMessage#PROTOCOL_VERSION_BATCH}.
+     *
+     * @param messages
+     *            the messages to send
+     * @return the size of the frame that was sent, in bytes for binary frames and in characters for text frames. Or 0
+     *         if the transport is closed
+     */
+    public int sendMessages(List<MmsMessage> messages) {
+        for (MmsMessage message : messages) {
+            try {
+                eventListener.transportMessageSend(this, message);
+            } catch (RuntimeException e) {
+                LOGGER.error("Event listener failed", e);
+            }
         }
         Session wsSession = this.wsSession;
         if (wsSession != null) {
             try {
-                if (channelFormatType == MessageFormatType.MACHINE_READABLE) {
-                    byte[] data = message.toBinary();
+                int size;
+                MessageFormatType channelFormatType = this.channelFormatType;
+                if (channelFormatType == MessageFormatType.MACHINE_READABLE
+                        || channelFormatType == MessageFormatType.MACHINE_READABLE_COMPACT) {
+                    byte[] data;
+                    if (channelFormatType == MessageFormatType.MACHINE_READABLE) {
+                        data = messages.size() == 1 ? messages.get(0).toBinary() : MmsMessage.toBinary(messages);
+                    } else {
+                        data = messages.size() == 1 ? messages.get(0).toCompactBinary() : MmsMessage
+                                .toCompactBinary(messages);
+                    }
                     eventListener.transportBinaryMessageSend(this, data);
                     wsSession.getAsyncRemote().sendBinary(ByteBuffer.wrap(data));
+                    size = data.length;
                 } else {
-                    String textToSend = message.toText();
+                    String textToSend = messages.size() == 1 ? messages.get(0).toText() : MmsMessage.toText(messages);
                     eventListener.transportTextMessageSend(this, textToSend);
                     wsSession.getAsyncRemote().sendText(textToSend);
+                    size = textToSend.length();
                 }
-                listener.onMessageSent(this, message);
+                for (MmsMessage message : messages) {
+                    listener.onMessageSent(this, message);
+                }
+                return size;
             } catch (Exception e) {
                 LOGGER.error("Failed to serialize data", e);
                 close(MmsConnectionClosingCode.INTERNAL_ERROR.withMessage(e.getMessage()));
             }
         }
+        return 0;
     }
 
     /**
@@ -250,6 +288,17 @@ public final class ServerTransport {
         return channelFormatType;
     }
 
+    /**
+     * Switches a binary channel to the compact binary format. Called when the client selects
+     * {@link MmsMessage#PROTOCOL_VERSION_COMPACT} in its Hello message, all following binary messages in both
+     * directions use the compact format. Text channels are not affected.
+     */
+    public void useCompactBinary() {
+        if (channelFormatType == MessageFormatType.MACHINE_READABLE) {
+            channelFormatType = MessageFormatType.MACHINE_READABLE_COMPACT;
+        }
+    }
+
     /**
      * Called when the client has been resolved from a Hello message
      * @param client the client
@@ -23,6 +23,7 @@ import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 
 import net.maritimecloud.internal.mms.messages.services.AbstractServices;
+import net.maritimecloud.mms.server.broadcast.ServerBroadcastManager;
 import net.maritimecloud.mms.server.connection.client.Client;
 import net.maritimecloud.mms.server.connection.client.ClientManager;
 import net.maritimecloud.mms.server.connection.client.Session;
@@ -43,13 +44,18 @@ public class ServerServices extends AbstractServices {
 
     final ClientManager clientManager;
 
+    /** The broadcast manager, that keeps track of broadcast subscriptions. */
+    final ServerBroadcastManager broadcastManager;
+
     // Metrics
     final Meter endpointRegistrationsMeter;
 
     final Meter serviceLocatesMeter;
 
-    public ServerServices(ClientManager clientManager, MetricRegistry metrics) {
+    public ServerServices(ClientManager clientManager, ServerBroadcastManager broadcastManager,
+            MetricRegistry metrics) {
         this.clientManager = requireNonNull(clientManager);
+        this.broadcastManager = requireNonNull(broadcastManager);
 
         endpointRegistrationsMeter = metrics.meter("endpointRegistrations");
         serviceLocatesMeter = metrics.meter("serviceLocates");
@@ -134,7 +140,10 @@ public class ServerServices extends AbstractServices {
 
     /** {@inheritDoc} */
     @Override
-    protected void subscribe(MessageHeader header, List<String> name, Area area) {}
+    protected void subscribe(MessageHeader header, List<String> name, Area area) {
+        Session con = ServerEndpointManager.connection(header);
+        broadcastManager.subscribe(con.getClient(), name, area);
+    }
 
     /** {@inheritDoc} */
     @Override
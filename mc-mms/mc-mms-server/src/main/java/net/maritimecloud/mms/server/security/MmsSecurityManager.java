@@ -23,6 +23,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.websocket.Session;
+import java.security.PublicKey;
 import java.util.Objects;
 
 /**
@@ -39,6 +40,8 @@ import java.util.Objects;
  *                   authenticate the client using the resolved authentication token.</li>
  *     <li>client-verification-conf: Configures a {@code ClientVerificationHandler} class that will
  *                   check verify that the client is valid for the current user.</li>
+ *     <li>signature-conf: Configures a {@code SignatureKeyHandler} class that looks up the public keys used for
+ *                   verifying signed broadcasts and method invocations.</li>
  * </ul>
  *
  * The handlers are not used directly in security manager client code. Instead, the security manager
@@ -56,6 +59,7 @@ public class MmsSecurityManager {
     private final AuthenticationTokenHandler authenticationTokenHandler;
     private final AuthenticationHandler authenticationHandler;
     private final ClientVerificationHandler clientVerificationHandler;
+    private final SignatureKeyHandler signatureKeyHandler;
 
     /**
      * Constructor
@@ -69,6 +73,7 @@ public class MmsSecurityManager {
         authenticationTokenHandler = newSecurityConfHandler(AuthenticationTokenHandler.SECURITY_CONF_GROUP);
         authenticationHandler = newSecurityConfHandler(AuthenticationHandler.SECURITY_CONF_GROUP);
         clientVerificationHandler = newSecurityConfHandler(ClientVerificationHandler.SECURITY_CONF_GROUP);
+        signatureKeyHandler = newSecurityConfHandler(SignatureKeyHandler.SECURITY_CONF_GROUP);
     }
 
     /**
@@ -87,6 +92,25 @@ public class MmsSecurityManager {
         return sslHandler != null ? sslHandler.getSslContextFactory() : new SslContextFactory();
     }
 
+    /**
+     * Returns whether the signatures of broadcasts and method invocations are verified, i.e. whether a
+     * signature key handler has been configured
+     * @return whether the signatures of broadcasts and method invocations are verified
+     */
+    public boolean isSignatureVerificationEnabled() {
+        return signatureKeyHandler != null;
+    }
+
+    /**
+     * Returns the public key used for verifying the signatures of the given sender
+     *
+     * @param senderId the maritime ID of the sender
+     * @return the public key of the sender, or null if the key is unknown or no signature key handler is configured
+     */
+    public PublicKey getSignatureKey(String senderId) {
+        return signatureKeyHandler != null ? signatureKeyHandler.getPublicKey(senderId) : null;
+    }
+
     /**
      * Instantiates a new security configuration handler for the given security group name
      *
@@ -0,0 +1,36 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.mms.server.security;
+
+import java.security.PublicKey;
+
+/**
+ * Interface to be implemented by handler classes that look up the public keys used for verifying the signatures of
+ * broadcasts and method invocations.
+ */
+public interface SignatureKeyHandler extends BaseSecurityHandler {
+
+    String SECURITY_CONF_GROUP = "signature-conf";
+
+    /**
+     * Returns the public key of the given sender.
+     * <p>
+     * The handler may be invoked concurrently from multiple threads.
+     *
+     * @param senderId the maritime ID of the sender
+     * @return the public key of the sender, or null if the sender has no known key
+     */
+    PublicKey getPublicKey(String senderId);
+}
@@ -0,0 +1,86 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.mms.server.security.impl;
+
+import com.typesafe.config.Config;
+import net.maritimecloud.mms.server.security.SignatureKeyHandler;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Implementation of the {@code SignatureKeyHandler} interface that looks up the public key of a sender in the
+ * certificates of a key-store, using the maritime ID of the sender as the alias. Aliases are not case sensitive, as
+ * some key-store types store them in lower case.
+ *
+ * <p>The implementation will look for the following attributes:</p>
+ * <ul>
+ *     <li>keystore: The path to a key-store that contains a certificate for each sender.</li>
+ *     <li>keystore-password: The key-store password</li>
+ *     <li>keystore-type: The key-store type. Defaults to the default key-store type of the JVM</li>
+ * </ul>
+ * The key-store is read once, when the handler is initialized.
+ */
+@SuppressWarnings("unused")
+public class KeyStoreSignatureKeyHandler implements SignatureKeyHandler {
+
+    private Config conf;
+
+    /** The public keys by sender */
+    private Map<String, PublicKey> keys;
+
+    /** {@inheritDoc} */
+    @Override
+    public PublicKey getPublicKey(String senderId) {
+        return keys.get(senderId.toLowerCase(Locale.ROOT));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void init(Config conf) {
+        this.conf = conf;
+        String type = conf.hasPath("keystore-type") ? conf.getString("keystore-type") : KeyStore.getDefaultType();
+        char[] password = conf.hasPath("keystore-password") ? conf.getString("keystore-password").toCharArray() : null;
+        Map<String, PublicKey> keys = new HashMap<>();
+        try (InputStream in = new FileInputStream(conf.getString("keystore"))) {
+            KeyStore keyStore = KeyStore.getInstance(type);
+            keyStore.load(in, password);
+            for (Enumeration<String> e = keyStore.aliases(); e.hasMoreElements();) {
+                String alias = e.nextElement();
+                Certificate cert = keyStore.getCertificate(alias);
+                if (cert != null) {
+                    keys.put(alias.toLowerCase(Locale.ROOT), cert.getPublicKey());
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Could not read the key-store " + conf.getString("keystore"), e);
+        }
+        this.keys = Collections.unmodifiableMap(keys);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Config getConf() {
+        return conf;
+    }
+}
@@ -0,0 +1,170 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.mms.server.tracker;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import net.maritimecloud.util.geometry.Area;
+import net.maritimecloud.util.geometry.Position;
+import net.maritimecloud.util.geometry.Rectangle;
+
+/**
+ * A grid based spatial index of a number of areas. Each object is registered in every cell that overlaps the bounding
+ * box of its area. Finding the objects whose area might contain a given position is done by looking up the single cell
+ * of the position, instead of testing every area.
+ * <p>
+ * Areas whose {@link Area#getBoundingBox()} fails, or that cover more than {@link #MAX_CELLS} cells, are kept in a
+ * separate list that is returned for every position.
+ *
+ * @param <T>
+ *            the type of objects that are indexed
+ * @author Kasper Nielsen
+ */
+public class AreaIndex<T> {
+
+    /** The maximum number of cells an object is registered in. */
+    static final int MAX_CELLS = 4096;
+
+    /** All non-empty cells. */
+    private final ConcurrentHashMap<Long, Set<T>> cells = new ConcurrentHashMap<>();
+
+    /** The grid that areas are mapped to. */
+    private final Grid grid;
+
+    /** The cells each object is registered in, empty if the object is in {@link #unbounded}. */
+    private final ConcurrentHashMap<T, long[]> objects = new ConcurrentHashMap<>();
+
+    /** Objects whose area is too big, or has no bounding box. */
+    private final Set<T> unbounded = ConcurrentHashMap.newKeySet();
+
+    /** Creates a new index using {@link PositionIndex#DEFAULT_CELL_SIZE}. */
+    public AreaIndex() {
+        this(PositionIndex.DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Creates a new index.
+     *
+     * @param cellSize
+     *            the size of each cell in degrees, must divide 360 evenly
+     * @throws IllegalArgumentException
+     *             if the specified cell size does not divide 360 evenly
+     */
+    public AreaIndex(double cellSize) {
+        this.grid = new Grid(cellSize);
+    }
+
+    /**
+     * Invokes the specified consumer for every object whose area might contain the specified position. The consumer
+     * must test the position against the area itself, as the index only looks at bounding boxes.
+     *
+     * @param position
+     *            the position
+     * @param consumer
+     *            the consumer to invoke for each candidate
+     */
+    public void forEachCandidate(Position position, Consumer<T> consumer) {
+        requireNonNull(position, "position is null");
+        requireNonNull(consumer, "consumer is null");
+        Set<T> cell = cells.get(grid.cellOf(position));
+        if (cell != null) {
+            cell.forEach(consumer);
+        }
+        unbounded.forEach(consumer);
+    }
+
+    /**
+     * Adds the specified object to the index, replacing any existing area registered for the object.
+     *
+     * @param object
+     *            the object to add
+     * @param area
+     *            the area of the object
+     */
+    public void put(T object, Area area) {
+        requireNonNull(object, "object is null");
+        requireNonNull(area, "area is null");
+        Rectangle bb;
+        try {
+            bb = area.getBoundingBox();
+        } catch (RuntimeException e) {
+            // Not supported, or cannot be computed, for example for circles close to a pole
+            bb = null;
+        }
+        final long[] ids;
+        if (bb == null || grid.count(bb) > MAX_CELLS) {
+            ids = null;
+        } else {
+            List<Long> list = new ArrayList<>();
+            grid.forEachCell(bb, list::add);
+            ids = list.stream().mapToLong(Long::longValue).toArray();
+        }
+        objects.compute(object, (k, existing) -> {
+            removeFromCells(object, existing);
+            if (ids == null) {
+                unbounded.add(object);
+            } else {
+                for (long id : ids) {
+                    cells.compute(id, (c, s) -> {
+                        Set<T> set = s == null ? ConcurrentHashMap.newKeySet() : s;
+                        set.add(object);
+                        return set;
+                    });
+                }
+            }
+            return ids == null ? new long[0] : ids;
+        });
+    }
+
+    /**
+     * Removes the specified object from the index.
+     *
+     * @param object
+     *            the object to remove
+     */
+    public void remove(T object) {
+        objects.computeIfPresent(requireNonNull(object, "object is null"), (k, ids) -> {
+            removeFromCells(object, ids);
+            return null;
+        });
+    }
+
+    private void removeFromCells(T object, long[] ids) {
+        if (ids != null) {
+            unbounded.remove(object);
+            for (long id : ids) {
+                cells.computeIfPresent(id, (c, s) -> {
+                    s.remove(object);
+                    return s.isEmpty() ? null : s;
+                });
+            }
+        }
+    }
+
+    /**
+     * Returns the number of objects in the index.
+     *
+     * @return the number of objects in the index
+     */
+    public int size() {
+        return objects.size();
+    }
+}
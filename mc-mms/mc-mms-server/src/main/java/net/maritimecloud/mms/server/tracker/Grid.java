@@ -0,0 +1,110 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.mms.server.tracker;
+
+import java.util.function.LongConsumer;
+
+import net.maritimecloud.util.geometry.Position;
+import net.maritimecloud.util.geometry.Rectangle;
+
+/**
+ * A grid of equally sized cells covering the earth. Cells are numbered in the same way as
+ * {@link Position#getCell(double)}, except that longitude 180 is in the same column as longitude -180.
+ *
+ * @author Kasper Nielsen
+ */
+final class Grid {
+
+    /** The size of each cell in degrees. */
+    final double cellSize;
+
+    /** The number of cells along a full circle of latitude. */
+    final long cellsPerRow;
+
+    /**
+     * Creates a new grid.
+     *
+     * @param cellSize
+     *            the size of each cell in degrees, must divide 360 evenly
+     * @throws IllegalArgumentException
+     *             if the specified cell size does not divide 360 evenly
+     */
+    Grid(double cellSize) {
+        double cellsPerRow = 360.0 / cellSize;
+        if (cellSize <= 0 || cellsPerRow != Math.rint(cellsPerRow)) {
+            throw new IllegalArgumentException("cellSize must divide 360 evenly, was " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.cellsPerRow = (long) cellsPerRow;
+    }
+
+    /** Returns the id of the cell containing the specified position. */
+    long cellOf(Position position) {
+        // Position.getCell puts longitude 180 in the first column of the next row
+        double longitude = position.getLongitude() == 180 ? -180 : position.getLongitude();
+        return rowOf(position.getLatitude()) * cellsPerRow + columnOf(longitude);
+    }
+
+    /** Returns the number of columns visited by {@link #forEachCell(Rectangle, LongConsumer)}. */
+    private long columns(Rectangle bb) {
+        long span = columnOf(bb.getBottomRightLongitude()) - columnOf(bb.getTopLeftLongitude());
+        return Math.min(cellsPerRow, (span < 0 ? span + cellsPerRow : span) + 3);
+    }
+
+    private long columnOf(double longitude) {
+        return (long) ((360.0 + longitude) / cellSize) - cellsPerRow;
+    }
+
+    /**
+     * Returns the number of cells visited by {@link #forEachCell(Rectangle, LongConsumer)} for the specified bounding
+     * box.
+     *
+     * @param bb
+     *            the bounding box
+     * @return the number of cells covering the bounding box
+     */
+    long count(Rectangle bb) {
+        return (rowOf(bb.getTopLeftLatitude()) - rowOf(bb.getBottomRightLatitude()) + 3) * columns(bb);
+    }
+
+    /**
+     * Invokes the specified consumer with the id of every cell overlapping the specified bounding box. Bounding boxes
+     * are not always exact, for example, for circles at high latitudes. So the bounding box is padded with one cell in
+     * each direction.
+     *
+     * @param bb
+     *            the bounding box
+     * @param consumer
+     *            the consumer to invoke with the id of each cell
+     */
+    void forEachCell(Rectangle bb, LongConsumer consumer) {
+        long fromRow = rowOf(bb.getBottomRightLatitude()) - 1;
+        long toRow = rowOf(bb.getTopLeftLatitude()) + 1;
+        long fromColumn = columnOf(bb.getTopLeftLongitude());
+        long columns = columns(bb);
+        long half = cellsPerRow / 2;
+        for (long row = fromRow; row <= toRow; row++) {
+            for (long i = 0; i < columns; i++) {
+                // Columns are numbered from -half to half, wrap around at the date line
+                long column = Math.floorMod(fromColumn - 1 + i + half, cellsPerRow) - half;
+                consumer.accept(row * cellsPerRow + column);
+            }
+        }
+    }
+
+    private long rowOf(double latitude) {
+        return (long) Math.floor(latitude / cellSize);
+    }
+}
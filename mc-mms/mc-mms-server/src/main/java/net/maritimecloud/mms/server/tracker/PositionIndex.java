@@ -0,0 +1,166 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.mms.server.tracker;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import net.maritimecloud.util.geometry.Area;
+import net.maritimecloud.util.geometry.Position;
+import net.maritimecloud.util.geometry.PositionTime;
+import net.maritimecloud.util.geometry.Rectangle;
+
+/**
+ * A grid based spatial index of the latest position of a number of objects. Each object is placed in the cell returned
+ * by {@link Position#getCell(double)} for its latest position. Finding the objects within an area is done by visiting
+ * only the cells that overlap the bounding box of the area, instead of testing every object.
+ *
+ * @param <T>
+ *            the type of objects that are indexed
+ * @author Kasper Nielsen
+ */
+public class PositionIndex<T> {
+
+    /** The default size of a cell in degrees. */
+    public static final double DEFAULT_CELL_SIZE = 1.0;
+
+    /** All non-empty cells. */
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<T, PositionTime>> cells = new ConcurrentHashMap<>();
+
+    /** The grid that positions are mapped to. */
+    private final Grid grid;
+
+    /** The cell each object is currently placed in. */
+    private final ConcurrentHashMap<T, Long> objects = new ConcurrentHashMap<>();
+
+    /** Creates a new index using {@link #DEFAULT_CELL_SIZE}. */
+    public PositionIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Creates a new index.
+     *
+     * @param cellSize
+     *            the size of each cell in degrees, must divide 360 evenly
+     * @throws IllegalArgumentException
+     *             if the specified cell size does not divide 360 evenly
+     */
+    public PositionIndex(double cellSize) {
+        this.grid = new Grid(cellSize);
+    }
+
+    /**
+     * Invokes the specified consumer for every object whose latest position is within the specified area.
+     *
+     * @param area
+     *            the area
+     * @param consumer
+     *            the consumer to invoke for each object in the area
+     */
+    public void forEachWithin(Area area, BiConsumer<T, PositionTime> consumer) {
+        requireNonNull(area, "area is null");
+        requireNonNull(consumer, "consumer is null");
+        Rectangle bb;
+        try {
+            bb = area.getBoundingBox();
+        } catch (RuntimeException e) {
+            // not all areas can calculate a bounding box, fallback to visiting every cell
+            bb = null;
+        }
+        // Only walk the grid if it is cheaper than visiting all non-empty cells
+        if (bb != null && grid.count(bb) <= cells.size()) {
+            grid.forEachCell(bb, id -> {
+                ConcurrentHashMap<T, PositionTime> cell = cells.get(id);
+                if (cell != null) {
+                    visit(cell, area, consumer);
+                }
+            });
+            return;
+        }
+        for (ConcurrentHashMap<T, PositionTime> cell : cells.values()) {
+            visit(cell, area, consumer);
+        }
+    }
+
+    /**
+     * Updates the latest position of the specified object. If the specified position is <code>null</code> the object
+     * is removed from the index.
+     *
+     * @param object
+     *            the object to update
+     * @param position
+     *            the latest position of the object
+     */
+    public void put(T object, PositionTime position) {
+        requireNonNull(object, "object is null");
+        if (position == null) {
+            remove(object);
+            return;
+        }
+        long cell = grid.cellOf(position);
+        objects.compute(object, (k, existing) -> {
+            if (existing != null && existing != cell) {
+                removeFromCell(object, existing);
+            }
+            cells.compute(cell, (c, m) -> {
+                ConcurrentHashMap<T, PositionTime> map = m == null ? new ConcurrentHashMap<>() : m;
+                map.put(object, position);
+                return map;
+            });
+            return cell;
+        });
+    }
+
+    /**
+     * Removes the specified object from the index.
+     *
+     * @param object
+     *            the object to remove
+     */
+    public void remove(T object) {
+        objects.computeIfPresent(requireNonNull(object, "object is null"), (k, cell) -> {
+            removeFromCell(object, cell);
+            return null;
+        });
+    }
+
+    private void removeFromCell(T object, long cell) {
+        cells.computeIfPresent(cell, (c, m) -> {
+            m.remove(object);
+            return m.isEmpty() ? null : m;
+        });
+    }
+
+    /**
+     * Returns the number of objects in the index.
+     *
+     * @return the number of objects in the index
+     */
+    public int size() {
+        return objects.size();
+    }
+
+    private static <T> void visit(ConcurrentHashMap<T, PositionTime> cell, Area area,
+            BiConsumer<T, PositionTime> consumer) {
+        cell.forEach((t, pt) -> {
+            if (area.contains(pt)) {
+                consumer.accept(t, pt);
+            }
+        });
+    }
+}
@@ -16,8 +16,12 @@ package net.maritimecloud.mms.server.tracker;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
 import net.maritimecloud.mms.server.connection.client.Client;
@@ -31,64 +35,105 @@ import org.cakeframework.container.concurrent.Daemon;
 
 /**
  * An object that tracks positions.
+ * <p>
+ * Position changes are pushed by the {@link ClientManager} into a queue of changed clients, that is drained by a
+ * single daemon thread. For each change only the subscriptions whose area overlaps the new or the previous position
+ * of the client are notified. Multiple changes for the same client that have not yet been processed are coalesced
+ * into a single change.
  *
  * @author Kasper Nielsen
  */
 public class PositionTracker {
-    // Good description of why we use brute force
-    // http://www.jandrewrogers.com/2015/03/02/geospatial-databases-are-hard/?h
+
     /** Magic constant. */
     static final int THRESHOLD = 1;
 
-    /** All targets at last update. Must be read via synchronized */
-    private ConcurrentHashMap<Client, PositionTime> latest = new ConcurrentHashMap<>();
+    /** Marks a client that has been removed in {@link #pending}. */
+    private static final PositionTime REMOVED = PositionTime.create(0, 0, Long.MIN_VALUE);
+
+    /** All targets at last update. Only modified by the thread processing changes. */
+    private final ConcurrentHashMap<Client, PositionTime> latest = new ConcurrentHashMap<>();
+
+    /** The latest position of clients that have changed but have not yet been processed. */
+    private final ConcurrentHashMap<Client, PositionTime> pending = new ConcurrentHashMap<>();
+
+    /** Clients with a pending change, in the order they changed. */
+    private final LinkedBlockingQueue<Client> changes = new LinkedBlockingQueue<>();
 
     /** All current subscriptions. */
     final ConcurrentHashMap<PositionUpdatedHandler, Subscription> subscriptions = new ConcurrentHashMap<>();
 
+    /** A spatial index of the exit area of all subscriptions. */
+    final AreaIndex<Subscription> subscriptionIndex = new AreaIndex<>();
+
     private final ClientManager clientManager;
 
     public PositionTracker(ClientManager clientManager) {
         this.clientManager = requireNonNull(clientManager);
+        clientManager.addPositionListener(this::positionChanged);
     }
 
     @Daemon
     public void run(Container c) {
-        long start = System.currentTimeMillis();
         while (!c.getState().isShutdown()) {
             try {
-                doRun0();
-                long now = System.currentTimeMillis();
-                long sleep = 1000 - Math.min(1000, now - start);
-                if (sleep > 0) {
-                    Thread.sleep(sleep);
+                Client client = changes.poll(1, TimeUnit.SECONDS);
+                while (client != null) {
+                    process(client);
+                    client = changes.poll();
                 }
-                start = now;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             } catch (Exception e) {
                 e.printStackTrace();
             }
         }
     }
 
-    /** Should be scheduled to run every x second to update handlers. */
-    private void doRun0() {
-        ConcurrentHashMap<Client, PositionTime> current = new ConcurrentHashMap<>();
-        final Map<Client, PositionTime> latest = this.latest;
-
-        // We only want to process those that have been updated since last time
-        final ConcurrentHashMap<Client, PositionTime> updates = new ConcurrentHashMap<>();
-        clientManager.forEach(pt -> {
-            PositionTime p = latest.get(pt);
-            PositionTime currentPt = pt.getLatestPositionAndTime();
-            if (p == null || !p.positionEquals(currentPt)) {
-                updates.put(pt, currentPt);
+    /**
+     * Invoked whenever a client reports a new position.
+     *
+     * @param client
+     *            the client
+     * @param pt
+     *            the new position of the client, or <code>null</code> if the client has been removed
+     */
+    void positionChanged(Client client, PositionTime pt) {
+        if (pending.put(client, pt == null ? REMOVED : pt) == null) {
+            changes.add(client);
+        }
+    }
+
+    /**
+     * Processes all pending changes for the specified client.
+     *
+     * @param client
+     *            the client that has changed
+     */
+    void process(Client client) {
+        PositionTime pt = pending.remove(client);
+        if (pt == null) {
+            return; // already processed
+        }
+        PositionTime previous = latest.get(client);
+        if (pt == REMOVED) {
+            if (previous != null) {
+                latest.remove(client);
+                subscriptionIndex.forEachCandidate(previous, s -> s.remove(client));
             }
-            current.put(pt, currentPt);
-        });
-        // update each subscription with new positions
-        subscriptions.forEachValue(THRESHOLD, s -> s.updateWith(updates));
-        // update latest with current latest
-        this.latest = current;
+        } else if (previous == null || !previous.positionEquals(pt)) {
+            latest.put(client, pt);
+            Set<Subscription> candidates = new HashSet<>();
+            subscriptionIndex.forEachCandidate(pt, candidates::add);
+            if (previous != null) {
+                // subscriptions that are tracking the client, might need to know that it has left
+                subscriptionIndex.forEachCandidate(previous, candidates::add);
+            }
+            for (Subscription s : candidates) {
+                s.updateWith(client, pt);
+            }
+        }
     }
 
     /**
@@ -102,12 +147,7 @@ public class PositionTracker {
     public void forEachWithinArea(Area shape, BiConsumer<Client, PositionTime> block) {
         requireNonNull(shape, "shape is null");
         requireNonNull(block, "block is null");
-        clientManager.forEach(c -> {
-            PositionTime pt = c.getLatestPositionAndTime();
-            if (shape.contains(pt)) {
-                block.accept(c, pt);
-            }
-        });
+        clientManager.forEachWithin(shape, c -> block.accept(c, c.getLatestPositionAndTime()));
     }
 
     /**
@@ -136,8 +176,19 @@ public class PositionTracker {
         return result;
     }
 
+    /**
+     * Stops tracking the specified client. The removal is processed by the thread processing changes, which notifies
+     * any subscription that is tracking the client.
+     *
+     * @param t
+     *            the client to remove
+     * @return whether or not the client was tracked or had a pending change
+     */
     public boolean remove(Client t) {
-        return latest.remove(t) != null;
+        PositionTime p = pending.get(t);
+        boolean tracked = p == null ? latest.containsKey(t) : p != REMOVED;
+        positionChanged(t, null);
+        return tracked;
     }
 
     /**
@@ -182,6 +233,7 @@ public class PositionTracker {
         if (subscriptions.putIfAbsent(handler, s) != null) {
             throw new IllegalArgumentException("The specified handler has already been registered");
         }
+        subscriptionIndex.put(s, exitShape);
         return s;
     }
 }
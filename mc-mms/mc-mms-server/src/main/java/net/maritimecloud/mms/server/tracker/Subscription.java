@@ -59,6 +59,7 @@ public class Subscription {
     /** Cancels the subscription and free up any resources. */
     public synchronized void cancel() {
         if (tracker.subscriptions.remove(handler, this)) {
+            tracker.subscriptionIndex.remove(this);
             trackedObjects.clear();
         }
     }
@@ -116,32 +117,42 @@ public class Subscription {
     }
 
     /**
-     * Called regular by the position tracked with updated positions. If any of updated objects are within the area of
-     * interest. This class must notify the installed handler.
+     * Called by the position tracker whenever a tracked object that might be of interest to this subscription has
+     * moved. If the object is entering, moving within or exiting the area of interest. This class must notify the
+     * installed handler.
      *
-     * @param updates
-     *            the position that have been updated since this method was last invoked
+     * @param t
+     *            the object that has moved
+     * @param pt
+     *            the new position of the object
      */
-    synchronized void updateWith(ConcurrentHashMap<Client, PositionTime> updates) {
-        for (Map.Entry<Client, PositionTime> e : updates.entrySet()) {
-            Client t = e.getKey();
-            PositionTime pt = e.getValue();
-            PositionTime current = trackedObjects.get(t);
-            boolean positionChanged = current == null || pt == null || !current.positionEquals(pt);
-            if (current == null) {// not tracked
-                if (shapeEntering.contains(pt)) {
-                    trackedObjects.put(t, pt);
-                    handler.entering(t, pt, PositionUpdatedHandler.EnterReason.ENTERED_AREA);
-                }
-            } else if (!shapeExiting.contains(pt)) {
-                handler.exiting(t, PositionUpdatedHandler.LeaveReason.LEFT_AREA);
-                trackedObjects.remove(t);
-            } else {
-                if (positionChanged) {
-                    handler.updated(t, current, pt);
-                }
+    synchronized void updateWith(Client t, PositionTime pt) {
+        PositionTime current = trackedObjects.get(t);
+        if (current == null) {// not tracked
+            if (shapeEntering.contains(pt)) {
                 trackedObjects.put(t, pt);
+                handler.entering(t, pt, PositionUpdatedHandler.EnterReason.ENTERED_AREA);
             }
+        } else if (!shapeExiting.contains(pt)) {
+            handler.exiting(t, PositionUpdatedHandler.LeaveReason.LEFT_AREA);
+            trackedObjects.remove(t);
+        } else {
+            if (!current.positionEquals(pt)) {
+                handler.updated(t, current, pt);
+            }
+            trackedObjects.put(t, pt);
+        }
+    }
+
+    /**
+     * Called by the position tracker whenever an object that might be tracked by this subscription has disconnected.
+     *
+     * @param t
+     *            the object that has disconnected
+     */
+    synchronized void remove(Client t) {
+        if (trackedObjects.remove(t) != null) {
+            handler.exiting(t, PositionUpdatedHandler.LeaveReason.DISCONNECTED);
         }
     }
 }
@@ -0,0 +1,148 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.net.messages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.maritimecloud.message.Message;
+import net.maritimecloud.util.Binary;
+import net.maritimecloud.util.Timestamp;
+import net.maritimecloud.util.geometry.Position;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link MessageHasher}.
+ *
+ * @author Kasper Nielsen
+ */
+public class MessageHasherTest {
+
+    /** Longer than the encoding buffer, and with characters of every UTF-8 length and a lone surrogate. */
+    static final String TEXT;
+
+    static {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            sb.append("aæ€😀");
+        }
+        TEXT = sb.append("\uD83D").toString();
+    }
+
+    static Broadcast broadcast() {
+        Broadcast b = new Broadcast().setBroadcastType("foo.Bar").setSenderId("mmsi://123");
+        b.setSenderTimestamp(Timestamp.create(1234567)).setSenderPosition(Position.create(12.345, -54.321));
+        return b.setPayload(Binary.copyFromUtf8(TEXT).concat(Binary.copyFromUtf8("{}")));
+    }
+
+    static MethodInvoke methodInvoke() {
+        MethodInvoke mi = new MethodInvoke().setEndpointMethod("foo.Service.bar").setSenderId("mmsi://123");
+        return mi.setSenderTimestamp(Timestamp.create(1234567)).setReceiverId("mmsi://456").setParameters(TEXT);
+    }
+
+    /** The concatenation of the fields that was previously hashed and signed. */
+    static Binary reference(Binary... fields) {
+        Binary b = Binary.EMPTY;
+        for (Binary f : fields) {
+            b = b.concat(f == null ? Binary.EMPTY : f);
+        }
+        return b;
+    }
+
+    static Binary utf8(String s) {
+        return s == null ? null : Binary.copyFromUtf8(s);
+    }
+
+    @Test
+    public void calculateSHA256() {
+        Broadcast b = broadcast();
+        assertEquals(reference(utf8(b.getBroadcastType()), utf8(b.getSenderId()), b.getSenderTimestamp().toBinary(),
+                b.getSenderPosition().toBinary(), b.getPayload()).sha256(), MessageHasher.calculateSHA256(b));
+        b.setSenderPosition(null);
+        assertEquals(reference(utf8(b.getBroadcastType()), utf8(b.getSenderId()), b.getSenderTimestamp().toBinary(),
+                b.getPayload()).sha256(), MessageHasher.calculateSHA256(b));
+
+        MethodInvoke mi = methodInvoke();
+        assertEquals(reference(utf8(mi.getEndpointMethod()), utf8(mi.getSenderId()),
+                mi.getSenderTimestamp().toBinary(), utf8(mi.getReceiverId()), utf8(mi.getParameters())).sha256(),
+                MessageHasher.calculateSHA256(mi));
+
+        MethodInvokeResult mir = new MethodInvokeResult().setResultForMessageId(Binary.random(32));
+        mir.setOriginalSenderId("mmsi://123").setReceiverId("mmsi://456").setReceiverTimestamp(Timestamp.create(1));
+        mir.setFailure(new MethodInvokeFailure().setErrorCode(12).setDescription(TEXT));
+        assertEquals(reference(mir.getResultForMessageId(), utf8(mir.getOriginalSenderId()), utf8(mir.getReceiverId()),
+                mir.getReceiverTimestamp().toBinary(), utf8(mir.getFailure().toJSON())).sha256(),
+                MessageHasher.calculateSHA256(mir));
+    }
+
+    /** A message with a missing field must not affect the next message hashed by the thread. */
+    @Test
+    public void missingField() {
+        Binary expected = MessageHasher.calculateSHA256(broadcast());
+        try {
+            MessageHasher.calculateSHA256(broadcast().setSenderTimestamp(null));
+            throw new AssertionError();
+        } catch (IllegalArgumentException ok) {}
+        assertEquals(expected, MessageHasher.calculateSHA256(broadcast()));
+    }
+
+    @Test
+    public void signAndVerify() throws Exception {
+        KeyPair keys = newKeyPair();
+        Broadcast b = broadcast();
+        assertFalse(MessageHasher.verify(b, keys.getPublic()));
+
+        b.setSignature(MessageHasher.sign(b, keys.getPrivate()));
+        assertTrue(MessageHasher.verify(b, keys.getPublic()));
+        assertFalse(MessageHasher.verify(b, newKeyPair().getPublic()));
+        assertFalse(MessageHasher.verify(b.setSenderId("mmsi://124"), keys.getPublic()));
+    }
+
+    @Test
+    public void verifyAll() throws Exception {
+        KeyPair keys = newKeyPair();
+        Broadcast signed = broadcast();
+        signed.setSignature(MessageHasher.sign(signed, keys.getPrivate()));
+        MethodInvoke invoke = methodInvoke();
+        invoke.setSignature(MessageHasher.sign(invoke, keys.getPrivate()));
+        Broadcast unsigned = broadcast();
+        Broadcast corrupt = broadcast().setSignature(Binary.copyFromUtf8("foo"));
+
+        List<Message> messages = Arrays.asList(signed, unsigned, invoke, corrupt, signed);
+        ExecutorService e = Executors.newFixedThreadPool(3);
+        try {
+            boolean[] result = MessageHasher.verifyAll(messages, m -> keys.getPublic(), e).get();
+            assertEquals("[true, false, true, false, true]", Arrays.toString(result));
+            assertEquals(0, MessageHasher.verifyAll(Arrays.asList(), m -> keys.getPublic(), e).get().length);
+        } finally {
+            e.shutdown();
+        }
+    }
+
+    static KeyPair newKeyPair() throws Exception {
+        KeyPairGenerator g = KeyPairGenerator.getInstance("EC");
+        g.initialize(256);
+        return g.generateKeyPair();
+    }
+}
@@ -0,0 +1,104 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.internal.net.messages;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import net.maritimecloud.internal.message.binary.compact.BinaryMessageWriter;
+import net.maritimecloud.internal.message.binary.protobuf.ProtobufMessageWriter;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageReader;
+import net.maritimecloud.message.MessageSerializer;
+import net.maritimecloud.message.MessageWriter;
+import net.maritimecloud.util.Binary;
+import net.maritimecloud.util.Timestamp;
+import net.maritimecloud.util.geometry.Circle;
+import net.maritimecloud.util.geometry.Position;
+
+import org.junit.Test;
+
+/**
+ * Tests that the specialized serializers write exactly what the generic writeTo methods write.
+ *
+ * @author Kasper Nielsen
+ */
+public class SpecializedSerializerTest {
+
+    static <T extends Message> void assertSameOutput(T message, MessageSerializer<T> serializer,
+            MessageSerializer<T> generic) throws IOException {
+        assertArrayEquals(ProtobufMessageWriter.write(message, generic),
+                ProtobufMessageWriter.write(message, serializer));
+        assertArrayEquals(BinaryMessageWriter.write(message, generic), BinaryMessageWriter.write(message, serializer));
+        assertEquals(MessageSerializer.writeToJSON(message, generic), MessageSerializer.writeToJSON(message, serializer));
+    }
+
+    @Test
+    public void broadcast() throws IOException {
+        MessageSerializer<Broadcast> generic = new MessageSerializer<Broadcast>() {
+            @Override
+            public Broadcast read(MessageReader reader) throws IOException {
+                return Broadcast.SERIALIZER.read(reader);
+            }
+
+            @Override
+            public void write(Broadcast message, MessageWriter writer) throws IOException {
+                message.writeTo(writer);
+            }
+        };
+        Broadcast b = new Broadcast();
+        assertSameOutput(b, Broadcast.SERIALIZER, generic);
+        b.setMessageId(Binary.copyFromUtf8("abc"));
+        b.setBroadcastType("some.Broadcast");
+        b.setSenderId("mmsi://123");
+        b.setSenderTimestamp(Timestamp.create(1413900000000L));
+        b.setSenderPosition(Position.create(10, 20));
+        b.setPayload(Binary.copyFromUtf8("{\"msg\":\"hello\"}"));
+        assertSameOutput(b, Broadcast.SERIALIZER, generic);
+        b.setAckBroadcast(false);
+        b.setArea(Circle.create(10, 20, 1000));
+        b.setRadius(-1000);
+        b.setSignature(Binary.copyFromUtf8("signature"));
+        assertSameOutput(b, Broadcast.SERIALIZER, generic);
+    }
+
+    @Test
+    public void methodInvoke() throws IOException {
+        MessageSerializer<MethodInvoke> generic = new MessageSerializer<MethodInvoke>() {
+            @Override
+            public MethodInvoke read(MessageReader reader) throws IOException {
+                return MethodInvoke.SERIALIZER.read(reader);
+            }
+
+            @Override
+            public void write(MethodInvoke message, MessageWriter writer) throws IOException {
+                message.writeTo(writer);
+            }
+        };
+        MethodInvoke mi = new MethodInvoke();
+        assertSameOutput(mi, MethodInvoke.SERIALIZER, generic);
+        mi.setMessageId(Binary.copyFromUtf8("abc"));
+        mi.setEndpointMethod("some.Endpoint.method");
+        mi.setSenderId("mmsi://123");
+        mi.setSenderTimestamp(Timestamp.create(1413900000000L));
+        mi.setSenderPosition(Position.create(10, 20));
+        mi.setReceiverId("mmsi://456");
+        mi.setParameters("{\"a\": \"\\u00e6\\\"\"}");
+        mi.setSignature(Binary.copyFromUtf8("signature"));
+        assertSameOutput(mi, MethodInvoke.SERIALIZER, generic);
+    }
+}
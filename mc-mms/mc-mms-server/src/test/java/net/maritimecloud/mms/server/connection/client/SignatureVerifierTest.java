@@ -0,0 +1,167 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.mms.server.connection.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.maritimecloud.internal.mms.messages.spi.LazyBroadcast;
+import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
+import net.maritimecloud.internal.net.messages.Broadcast;
+import net.maritimecloud.internal.net.messages.MessageHasher;
+import net.maritimecloud.internal.net.messages.MethodInvoke;
+import net.maritimecloud.mms.server.MmsServerConfiguration;
+import net.maritimecloud.mms.server.security.MmsSecurityManager;
+import net.maritimecloud.mms.server.security.SignatureKeyHandler;
+import net.maritimecloud.util.Binary;
+import net.maritimecloud.util.Timestamp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+/**
+ * Tests {@link SignatureVerifier}.
+ *
+ * @author Kasper Nielsen
+ */
+public class SignatureVerifierTest {
+
+    static final KeyPair KEYS = newKeyPair();
+
+    SignatureVerifier verifier;
+
+    @Before
+    public void before() {
+        Keys.KEYS.clear();
+        Keys.LOOKUPS.set(0);
+        Keys.KEYS.put("mmsi://1", KEYS.getPublic());
+        Config conf = ConfigFactory.parseString("signature-conf { handler-class = \"" + Keys.class.getName() + "\" }");
+        verifier = new SignatureVerifier(new MmsServerConfiguration(), new MmsSecurityManager(conf));
+    }
+
+    @After
+    public void after() {
+        verifier.stop();
+    }
+
+    static Broadcast broadcast(String senderId) {
+        Broadcast b = new Broadcast().setBroadcastType("foo.Bar").setSenderId(senderId);
+        return b.setSenderTimestamp(Timestamp.create(1234)).setPayload(Binary.copyFromUtf8("{}"));
+    }
+
+    static Broadcast signed(Broadcast b, KeyPair keys) throws Exception {
+        return b.setSignature(MessageHasher.sign(b, keys.getPrivate()));
+    }
+
+    @Test
+    public void broadcast() throws Exception {
+        assertTrue(verifier.verify(broadcast("mmsi://1")));
+        assertTrue(verifier.verify(signed(broadcast("mmsi://1"), KEYS)));
+        assertFalse(verifier.verify(signed(broadcast("mmsi://1"), newKeyPair())));
+        assertFalse(verifier.verify(signed(broadcast("mmsi://1"), KEYS).setBroadcastType("foo.Baz")));
+        assertFalse(verifier.verify(signed(broadcast("mmsi://2"), KEYS))); // unknown key
+    }
+
+    @Test
+    public void lazyBroadcast() throws Exception {
+        Broadcast b = signed(broadcast("mmsi://1"), KEYS);
+        byte[] frame = new MmsMessage(b).setMessageId(1).setLatestReceivedId(1).toBinary();
+        MmsMessage m = MmsMessage.parseBinaryMessage(ByteBuffer.wrap(frame), true);
+        assertTrue(m.getM() instanceof LazyBroadcast);
+        assertTrue(verifier.verify(m.getM()));
+    }
+
+    @Test
+    public void methodInvoke() throws Exception {
+        MethodInvoke mi = new MethodInvoke().setEndpointMethod("foo.Service.bar").setSenderId("mmsi://1");
+        mi.setSenderTimestamp(Timestamp.create(1234)).setParameters("{}");
+        assertTrue(verifier.verify(mi));
+        mi.setSignature(MessageHasher.sign(mi, KEYS.getPrivate()));
+        assertTrue(verifier.verify(mi));
+        assertFalse(verifier.verify(mi.setParameters("{\"a\": 1}")));
+    }
+
+    @Test
+    public void keyCache() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(verifier.verify(signed(broadcast("mmsi://1"), KEYS)));
+        }
+        assertEquals(1, Keys.LOOKUPS.get());
+
+        // unknown keys are not cached, so they can be added later
+        verifier.verify(signed(broadcast("mmsi://2"), KEYS));
+        Keys.KEYS.put("mmsi://2", KEYS.getPublic());
+        assertTrue(verifier.verify(signed(broadcast("mmsi://2"), KEYS)));
+    }
+
+    @Test
+    public void disabled() {
+        assertFalse(new MmsSecurityManager(ConfigFactory.empty()).isSignatureVerificationEnabled());
+        assertTrue(new MmsSecurityManager(ConfigFactory.parseString("signature-conf { handler-class = \""
+                + Keys.class.getName() + "\" }")).isSignatureVerificationEnabled());
+    }
+
+    static KeyPair newKeyPair() {
+        try {
+            KeyPairGenerator g = KeyPairGenerator.getInstance("EC");
+            g.initialize(256);
+            return g.generateKeyPair();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /** A signature key handler with a fixed set of keys. */
+    public static class Keys implements SignatureKeyHandler {
+
+        static final Map<String, PublicKey> KEYS = new ConcurrentHashMap<>();
+
+        static final AtomicInteger LOOKUPS = new AtomicInteger();
+
+        Config conf;
+
+        /** {@inheritDoc} */
+        @Override
+        public void init(Config conf) {
+            this.conf = conf;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Config getConf() {
+            return conf;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public PublicKey getPublicKey(String senderId) {
+            LOOKUPS.incrementAndGet();
+            return KEYS.get(senderId);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.mms.server.tracker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.maritimecloud.util.geometry.Position;
+import net.maritimecloud.util.geometry.Rectangle;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Grid}.
+ *
+ * @author Kasper Nielsen
+ */
+public class GridTest {
+
+    /** Longitude 180 and -180 are the same meridian, and must be in the same cell. */
+    @Test
+    public void antimeridian() {
+        Grid grid = new Grid(1);
+        assertEquals(grid.cellOf(Position.create(10.5, -180)), grid.cellOf(Position.create(10.5, 180)));
+        assertEquals(grid.cellOf(Position.create(-10.5, -180)), grid.cellOf(Position.create(-10.5, 180)));
+        assertEquals(Position.create(10.5, 179.5).getCell(1), grid.cellOf(Position.create(10.5, 179.5)));
+
+        // the cell of a position on the antimeridian is one of the cells covering a box ending there
+        List<Long> cells = new ArrayList<>();
+        grid.forEachCell(Rectangle.create(Position.create(10.8, 179.2), Position.create(10.2, 180)), cells::add);
+        assertTrue(cells.contains(grid.cellOf(Position.create(10.5, 180))));
+        assertEquals(12, cells.size());
+    }
+}
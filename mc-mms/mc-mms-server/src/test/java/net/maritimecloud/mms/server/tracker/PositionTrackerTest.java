@@ -0,0 +1,156 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.mms.server.tracker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.maritimecloud.mms.server.connection.client.Client;
+import net.maritimecloud.mms.server.connection.client.ClientManager;
+import net.maritimecloud.server.AbstractServerConnectionTest;
+import net.maritimecloud.util.geometry.Circle;
+import net.maritimecloud.util.geometry.PositionTime;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link PositionTracker}. Changes are processed by invoking {@link PositionTracker#process(Client)} directly
+ * instead of relying on the daemon thread.
+ *
+ * @author Kasper Nielsen
+ */
+public class PositionTrackerTest extends AbstractServerConnectionTest {
+
+    static final PositionTime INSIDE1 = PositionTime.create(10, 10, 1);
+
+    static final PositionTime INSIDE2 = PositionTime.create(10.001, 10, 2);
+
+    static final PositionTime OUTSIDE = PositionTime.create(20, 20, 3);
+
+    ClientManager cm;
+
+    PositionTracker tracker;
+
+    Client c1;
+
+    Recorder r;
+
+    @Before
+    public void setup() {
+        cm = server.getService(ClientManager.class);
+        tracker = new PositionTracker(cm);
+        c1 = new Client(cm, null, ID1.toString());
+        r = new Recorder();
+        tracker.subscribe(Circle.create(10, 10, 10000), r, 0);
+    }
+
+    @Test
+    public void enterAndExit() {
+        tracker.positionChanged(c1, INSIDE1);
+        tracker.process(c1);
+        assertEquals(Arrays.asList("entering " + INSIDE1 + " ENTERED_AREA"), r.events);
+
+        tracker.positionChanged(c1, INSIDE2);
+        tracker.process(c1);
+        assertEquals("updated " + INSIDE1 + " " + INSIDE2, r.last());
+
+        tracker.positionChanged(c1, OUTSIDE);
+        tracker.process(c1);
+        assertEquals("exiting LEFT_AREA", r.last());
+        assertEquals(3, r.events.size());
+
+        // moving around outside of the area is of no interest to the subscription
+        tracker.positionChanged(c1, PositionTime.create(21, 21, 4));
+        tracker.process(c1);
+        assertEquals(3, r.events.size());
+    }
+
+    @Test
+    public void coalesce() {
+        tracker.positionChanged(c1, OUTSIDE);
+        tracker.positionChanged(c1, INSIDE1);
+        tracker.positionChanged(c1, INSIDE2);
+        tracker.process(c1);
+        assertEquals(Arrays.asList("entering " + INSIDE2 + " ENTERED_AREA"), r.events);
+
+        // all changes have been processed
+        tracker.process(c1);
+        assertEquals(1, r.events.size());
+
+        // the client entered and left again before the changes were processed
+        tracker.positionChanged(c1, OUTSIDE);
+        tracker.positionChanged(c1, INSIDE2);
+        tracker.process(c1);
+        assertEquals(1, r.events.size());
+    }
+
+    @Test
+    public void remove() {
+        assertFalse(tracker.remove(c1));
+        tracker.process(c1);
+        assertTrue(r.events.isEmpty());
+
+        tracker.positionChanged(c1, INSIDE1);
+        tracker.process(c1);
+        assertTrue(tracker.remove(c1));
+        assertFalse(tracker.remove(c1));
+
+        // the subscription is notified by the thread processing changes
+        assertEquals(1, r.events.size());
+        tracker.process(c1);
+        assertEquals("exiting DISCONNECTED", r.last());
+        assertEquals(2, r.events.size());
+    }
+
+    @Test
+    public void removeCoalesced() {
+        tracker.positionChanged(c1, INSIDE1);
+        assertTrue(tracker.remove(c1));
+        tracker.process(c1);
+        assertTrue(r.events.isEmpty());
+
+        // a new position after a removal is reported as entering
+        tracker.remove(c1);
+        tracker.positionChanged(c1, INSIDE1);
+        tracker.process(c1);
+        assertEquals(Arrays.asList("entering " + INSIDE1 + " ENTERED_AREA"), r.events);
+    }
+
+    static class Recorder extends PositionUpdatedHandler {
+        final List<String> events = new ArrayList<>();
+
+        String last() {
+            return events.get(events.size() - 1);
+        }
+
+        protected void entering(Client t, PositionTime positiontime, EnterReason reasonForEntering) {
+            events.add("entering " + positiontime + " " + reasonForEntering);
+        }
+
+        protected void updated(Client t, PositionTime previous, PositionTime current) {
+            events.add("updated " + previous + " " + current);
+        }
+
+        protected void exiting(Client t, LeaveReason reasonForEntering) {
+            events.add("exiting " + reasonForEntering);
+        }
+    }
+}
@@ -102,10 +102,19 @@ public abstract class AbstractServerConnectionTest {
         clientPort = ThreadLocalRandom.current().nextInt(40000, 50000);
         MmsServerConfiguration sc = new MmsServerConfiguration();
         sc.setServerPort(clientPort);
+        configure(sc);
         server = sc.build();
         server.start().join();
     }
 
+    /**
+     * Invoked before the server is built, can be overridden to change the configuration of the server.
+     *
+     * @param configuration
+     *            the configuration of the server
+     */
+    protected void configure(MmsServerConfiguration configuration) {}
+
     protected TesstEndpoint newClient() throws Exception {
 
         TesstEndpoint t = new TesstEndpoint();
@@ -27,6 +27,7 @@ import javax.websocket.OnOpen;
 import javax.websocket.RemoteEndpoint.Basic;
 import javax.websocket.Session;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.SynchronousQueue;
@@ -124,6 +125,19 @@ public class TesstEndpoint {
         }
     }
 
+    /**
+     * Sends the specified message in the binary format.
+     *
+     * @param m
+     *            the message to send
+     */
+    public void sendBinary(Message m) {
+        try {
+            session.getBasicRemote().sendBinary(ByteBuffer.wrap(new MmsMessage(m).toBinary()));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
 
     public void sendBroadcast() {
 
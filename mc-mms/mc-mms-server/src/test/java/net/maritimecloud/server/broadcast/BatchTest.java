@@ -0,0 +1,81 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.server.broadcast;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.maritimecloud.internal.mms.messages.Batch;
+import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
+import net.maritimecloud.internal.mms.messages.spi.PreEncodedMessage;
+import net.maritimecloud.internal.net.messages.Broadcast;
+import net.maritimecloud.util.Binary;
+
+import org.junit.Test;
+
+/**
+ * Tests that batches written directly from the encoded messages are identical to batches written as normal messages.
+ *
+ * @author Kasper Nielsen
+ */
+public class BatchTest {
+
+    static List<MmsMessage> messages() {
+        List<MmsMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Broadcast b = PreEncodedMessageTest.broadcast().setSenderId("mmsi://\"12/" + i + "\" ");
+            messages.add(PreEncodedMessageTest.message(i % 2 == 0 ? b : new PreEncodedMessage(b), 100 + i, 50 + i));
+        }
+        return messages;
+    }
+
+    @Test
+    public void binary() throws Exception {
+        List<MmsMessage> messages = messages();
+        Batch b = new Batch();
+        for (MmsMessage m : messages) {
+            b.addBinaryMessages(Binary.copyFrom(m.toBinary()));
+        }
+        assertArrayEquals(new MmsMessage(b).toBinary(), MmsMessage.toBinary(messages));
+
+        b = new Batch();
+        for (MmsMessage m : messages) {
+            b.addBinaryMessages(Binary.copyFrom(m.toCompactBinary()));
+        }
+        assertArrayEquals(new MmsMessage(b).toCompactBinary(), MmsMessage.toCompactBinary(messages));
+    }
+
+    @Test
+    public void text() throws Exception {
+        List<MmsMessage> messages = messages();
+        Batch expected = new Batch();
+        for (MmsMessage m : messages) {
+            expected.addTextMessages(m.toText());
+        }
+        MmsMessage read = MmsMessage.parseTextMessage(MmsMessage.toText(messages));
+        assertEquals(expected, read.getM());
+
+        List<MmsMessage> batch = MmsMessage.parseBatch((Batch) read.getM());
+        assertEquals(5, batch.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(100 + i, batch.get(i).getMessageId());
+            assertEquals(50 + i, batch.get(i).getLatestReceivedId());
+            assertEquals(messages.get(i).getM(), batch.get(i).getM());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.server.broadcast;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import net.maritimecloud.core.id.MaritimeId;
+import net.maritimecloud.internal.mms.messages.PositionReport;
+import net.maritimecloud.internal.mms.messages.services.Services;
+import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
+import net.maritimecloud.internal.net.messages.Broadcast;
+import net.maritimecloud.internal.net.messages.MethodInvoke;
+import net.maritimecloud.internal.net.messages.MethodInvokeResult;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.message.MessageSerializer;
+import net.maritimecloud.message.ValueSerializer;
+import net.maritimecloud.mms.stubs.BroadcastTestMessage;
+import net.maritimecloud.net.EndpointInvocationFuture;
+import net.maritimecloud.net.LocalEndpoint;
+import net.maritimecloud.server.AbstractServerConnectionTest;
+import net.maritimecloud.server.TesstEndpoint;
+import net.maritimecloud.util.Binary;
+import net.maritimecloud.util.Timestamp;
+import net.maritimecloud.util.geometry.Area;
+import net.maritimecloud.util.geometry.Circle;
+import net.maritimecloud.util.geometry.PositionTime;
+
+import org.junit.Test;
+
+/**
+ * Tests that clients that have subscribed to broadcasts via {@link Services#subscribe(java.util.List, Area)} only
+ * receive the broadcasts they subscribe to.
+ *
+ * @author Kasper Nielsen
+ */
+public class BroadcastSubscribeTest extends AbstractServerConnectionTest {
+
+    @Test
+    public void subscribe() throws Exception {
+        TesstEndpoint c1 = newClient(ID1);
+        TesstEndpoint c3 = newClient(ID3);
+        TesstEndpoint c6 = newClient(ID6);
+
+        // c6 subscribes to another type, c3 has never subscribed and receives everything
+        c6.send(subscribe(ID6, null, "some.other.Type"));
+        c6.take(MethodInvokeResult.class);
+        c1.send(BroadcastTest.createBroadcast(ID1, PositionTime.create(1, 1, 1), msg("foo1"), null, 10, null));
+        assertEquals("foo1", read(c3.take(Broadcast.class)));
+
+        // c6 subscribes to the type, but only from an area far away
+        c6.send(subscribe(ID6, Circle.create(50, 50, 1000), BroadcastTestMessage.class.getName()));
+        c6.take(MethodInvokeResult.class);
+        c1.send(BroadcastTest.createBroadcast(ID1, PositionTime.create(1, 1, 1), msg("foo2"), null, 10, null));
+        assertEquals("foo2", read(c3.take(Broadcast.class)));
+
+        // c6 subscribes to the type from everywhere
+        c6.send(subscribe(ID6, null, BroadcastTestMessage.class.getName(), "some.other.Type"));
+        c6.take(MethodInvokeResult.class);
+        c1.send(BroadcastTest.createBroadcast(ID1, PositionTime.create(1, 1, 1), msg("foo3"), null, 10, null));
+        assertEquals("foo3", read(c3.take(Broadcast.class)));
+        assertEquals("foo3", read(c6.take(Broadcast.class)));
+
+        c1.take(PositionReport.class);
+        c1.take(PositionReport.class);
+        c1.take(PositionReport.class);
+    }
+
+    /** Broadcasts sent in the binary format are filtered by the position of the sender as well. */
+    @Test
+    public void subscribeBinarySender() throws Exception {
+        TesstEndpoint c1 = newClient(ID1);
+        TesstEndpoint c3 = newClient(ID3);
+        TesstEndpoint c6 = newClient(ID6);
+
+        // c6 subscribes to the type, but only from an area far away from the sender
+        c6.send(subscribe(ID6, Circle.create(50, 50, 1000), BroadcastTestMessage.class.getName()));
+        c6.take(MethodInvokeResult.class);
+        c1.sendBinary(BroadcastTest.createBroadcast(ID1, PositionTime.create(1, 1, 1), msg("foo1"), null, 10, null));
+        assertEquals("foo1", read(c3.take(Broadcast.class)));
+
+        // c6 subscribes to the type from an area around the sender, so the next broadcast is the first it receives
+        c6.send(subscribe(ID6, Circle.create(1, 1, 1000), BroadcastTestMessage.class.getName()));
+        c6.take(MethodInvokeResult.class);
+        c1.sendBinary(BroadcastTest.createBroadcast(ID1, PositionTime.create(1, 1, 1), msg("foo2"), null, 10, null));
+        assertEquals("foo2", read(c3.take(Broadcast.class)));
+        assertEquals("foo2", read(c6.take(Broadcast.class)));
+
+        c1.take(PositionReport.class);
+        c1.take(PositionReport.class);
+    }
+
+    /** Broadcasts without a sender position are received by subscribers of any area, as when filtered on the client. */
+    @Test
+    public void subscribeNoSenderPosition() throws Exception {
+        TesstEndpoint c1 = newClient(ID1);
+        TesstEndpoint c6 = newClient(ID6);
+
+        c6.send(subscribe(ID6, Circle.create(50, 50, 1000), BroadcastTestMessage.class.getName()));
+        c6.take(MethodInvokeResult.class);
+        Broadcast b = BroadcastTest.createBroadcast(ID1, PositionTime.create(1, 1, 1), msg("foo1"), null, 10, null);
+        c1.send(b.setSenderPosition(null));
+        assertEquals("foo1", read(c6.take(Broadcast.class)));
+
+        c1.take(PositionReport.class);
+    }
+
+    static BroadcastTestMessage msg(String msg) {
+        return new BroadcastTestMessage().setMsg(msg);
+    }
+
+    static String read(Broadcast b) {
+        return ((BroadcastTestMessage) MmsMessage.tryRead(b)).getMsg();
+    }
+
+    /** Creates the method invocation a client sends when calling {@link Services#subscribe(java.util.List, Area)}. */
+    static MethodInvoke subscribe(MaritimeId sender, Area area, String... broadcastTypes) {
+        MethodInvoke mi = new MethodInvoke();
+        new Services(new LocalEndpoint.Invocator() {
+            public MaritimeId getRemote() {
+                return null;
+            }
+
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            public <T> EndpointInvocationFuture<T> invokeRemote(String endpoint, Message parameters,
+                    MessageSerializer<? extends Message> parameterSerializer, ValueSerializer<T> resultSerializer) {
+                mi.setEndpointMethod(endpoint);
+                mi.setParameters(MessageSerializer.writeToJSON(parameters, (MessageSerializer) parameterSerializer));
+                return null;
+            }
+        }).subscribe(Arrays.asList(broadcastTypes), area);
+        mi.setMessageId(Binary.random(32));
+        mi.setSenderId(sender.toString());
+        mi.setSenderTimestamp(Timestamp.now());
+        return mi;
+    }
+}
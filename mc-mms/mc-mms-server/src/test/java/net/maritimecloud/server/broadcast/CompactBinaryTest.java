@@ -0,0 +1,90 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.server.broadcast;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.maritimecloud.internal.mms.messages.Batch;
+import net.maritimecloud.internal.mms.messages.PositionReport;
+import net.maritimecloud.internal.mms.messages.spi.LazyBroadcast;
+import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
+import net.maritimecloud.internal.mms.messages.spi.PreEncodedMessage;
+import net.maritimecloud.internal.net.messages.Broadcast;
+import net.maritimecloud.util.geometry.PositionTime;
+
+import org.junit.Test;
+
+/**
+ * Tests that messages round-trip through the compact binary format, and that it is smaller than the default binary
+ * format.
+ *
+ * @author Kasper Nielsen
+ */
+public class CompactBinaryTest {
+
+    static MmsMessage read(byte[] frame) throws Exception {
+        return MmsMessage.parseCompactBinaryMessage(ByteBuffer.wrap(frame));
+    }
+
+    @Test
+    public void positionReport() throws Exception {
+        PositionReport pr = new PositionReport().setPositionTime(PositionTime.create(55.6761, 12.5683, 1413900000000L));
+        MmsMessage m = PreEncodedMessageTest.message(pr, 1234, 1200);
+        byte[] compact = m.toCompactBinary();
+        assertTrue(compact.length <= m.toBinary().length); // small integers, so both formats use the same bytes
+        assertTrue(compact.length < m.toText().length());
+
+        MmsMessage read = read(compact);
+        assertEquals(1234, read.getMessageId());
+        assertEquals(1200, read.getLatestReceivedId());
+        assertEquals(pr, read.getM());
+    }
+
+    @Test
+    public void broadcast() throws Exception {
+        Broadcast b = LazyBroadcastTest.broadcast();
+        MmsMessage m = PreEncodedMessageTest.message(b, 12, 34);
+        byte[] compact = m.toCompactBinary();
+        assertTrue(compact.length < m.toBinary().length);
+        assertEquals(b, read(compact).getM());
+
+        // Pre-encoded and lazily decoded broadcasts are written like the broadcast itself
+        assertArrayEquals(compact, PreEncodedMessageTest.message(new PreEncodedMessage(b), 12, 34).toCompactBinary());
+        MmsMessage lazy = MmsMessage.parseBinaryMessage(ByteBuffer.wrap(m.toBinary()), true);
+        assertTrue(lazy.getM() instanceof LazyBroadcast);
+        assertArrayEquals(compact, lazy.toCompactBinary());
+    }
+
+    @Test
+    public void batch() throws Exception {
+        List<MmsMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            messages.add(PreEncodedMessageTest.message(PreEncodedMessageTest.broadcast(), 100 + i, 50));
+        }
+        MmsMessage read = read(MmsMessage.toCompactBinary(messages));
+        List<MmsMessage> batch = MmsMessage.parseBatch((Batch) read.getM(), true);
+        assertEquals(5, batch.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(100 + i, batch.get(i).getMessageId());
+            assertEquals(messages.get(i).getM(), batch.get(i).getM());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.server.broadcast;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import net.maritimecloud.internal.mms.messages.spi.LazyBroadcast;
+import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
+import net.maritimecloud.internal.mms.messages.spi.PreEncodedMessage;
+import net.maritimecloud.internal.net.messages.Broadcast;
+import net.maritimecloud.util.Binary;
+import net.maritimecloud.util.geometry.Circle;
+
+import org.junit.Test;
+
+/**
+ * Tests that a broadcast that is only decoded for routing is forwarded exactly like a fully decoded broadcast.
+ *
+ * @author Kasper Nielsen
+ */
+public class LazyBroadcastTest {
+
+    static Broadcast broadcast() {
+        Broadcast b = PreEncodedMessageTest.broadcast();
+        b.setAckBroadcast(true);
+        b.setArea(Circle.create(10, 20, 1000));
+        b.setRadius(1000);
+        b.setSignature(Binary.copyFromUtf8("signature"));
+        return b;
+    }
+
+    @Test
+    public void routingFields() throws Exception {
+        Broadcast b = broadcast();
+        byte[] frame = PreEncodedMessageTest.message(b, 12, 34).toBinary();
+
+        MmsMessage read = MmsMessage.parseBinaryMessage(ByteBuffer.wrap(frame), true);
+        assertEquals(12, read.getMessageId());
+        assertEquals(34, read.getLatestReceivedId());
+        assertTrue(read.getM() instanceof LazyBroadcast);
+        LazyBroadcast lb = (LazyBroadcast) read.getM();
+
+        Broadcast routing = lb.getRouting();
+        assertEquals(b.getMessageId(), routing.getMessageId());
+        assertEquals(b.getBroadcastType(), routing.getBroadcastType());
+        assertEquals(b.getSenderId(), routing.getSenderId());
+        assertEquals(b.getSenderPosition(), routing.getSenderPosition());
+        assertEquals(b.getAckBroadcast(), routing.getAckBroadcast());
+        assertEquals(b.getArea(), routing.getArea());
+        assertNull(routing.getPayload());
+
+        assertEquals(b, lb.getBroadcast());
+        assertEquals(b.toJSON(), lb.toJSON());
+        assertArrayEquals(frame, read.toBinary());
+    }
+
+    @Test
+    public void forward() throws Exception {
+        Broadcast b = broadcast();
+        byte[] frame = PreEncodedMessageTest.message(b, 12, 34).toBinary();
+        LazyBroadcast lb = (LazyBroadcast) MmsMessage.parseBinaryMessage(ByteBuffer.wrap(frame), true).getM();
+
+        // What the server forwarded before broadcasts were decoded lazily
+        Broadcast bd = new Broadcast();
+        bd.setMessageId(b.getMessageId());
+        bd.setBroadcastType(b.getBroadcastType());
+        bd.setSenderId(b.getSenderId());
+        bd.setSenderTimestamp(b.getSenderTimestamp());
+        bd.setSenderPosition(b.getSenderPosition());
+        bd.setPayload(b.getPayload());
+        bd.setSignature(b.getSignature());
+        PreEncodedMessage expected = new PreEncodedMessage(bd);
+
+        PreEncodedMessage forward = lb.toForward();
+        assertSame(forward, lb.toForward());
+        assertSame(Broadcast.class, forward.getMessageType());
+        for (int i = 1; i < 4; i++) {
+            MmsMessage e = PreEncodedMessageTest.message(expected, 100 + i, 50 + i);
+            MmsMessage f = PreEncodedMessageTest.message(forward, 100 + i, 50 + i);
+            assertArrayEquals(e.toBinary(), f.toBinary());
+            assertEquals(e.toText(), f.toText());
+            assertArrayEquals(e.toCompactBinary(), f.toCompactBinary());
+        }
+        // Decoded from the forwarded fields when needed
+        assertEquals(bd, forward.getMessage());
+    }
+}
@@ -0,0 +1,92 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.server.broadcast;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import net.maritimecloud.internal.message.binary.protobuf.ProtobufMessageWriter;
+import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
+import net.maritimecloud.internal.mms.messages.spi.PreEncodedMessage;
+import net.maritimecloud.internal.net.messages.Broadcast;
+import net.maritimecloud.message.Message;
+import net.maritimecloud.util.Binary;
+import net.maritimecloud.util.geometry.Position;
+
+import org.junit.Test;
+
+/**
+ * Tests that a pre-encoded broadcast is written exactly like a normal message.
+ *
+ * @author Kasper Nielsen
+ */
+public class PreEncodedMessageTest {
+
+    static Broadcast broadcast() {
+        Broadcast b = new Broadcast();
+        b.setMessageId(Binary.copyFromUtf8("abc"));
+        b.setBroadcastType("some.Broadcast");
+        b.setSenderId("mmsi://123");
+        b.setSenderPosition(Position.create(10, 20));
+        b.setPayload(Binary.copyFromUtf8("{\"msg\":\"hello\"}"));
+        return b;
+    }
+
+    static MmsMessage message(Message m, long messageId, long latestReceivedId) {
+        return new MmsMessage(m).setMessageId(messageId).setLatestReceivedId(latestReceivedId);
+    }
+
+    @Test
+    public void sameAsNormalMessage() throws Exception {
+        Broadcast b = broadcast();
+        PreEncodedMessage pe = new PreEncodedMessage(b);
+        for (int i = 1; i < 4; i++) {
+            MmsMessage normal = message(b, 100 + i, 50 + i);
+            MmsMessage encoded = message(pe, 100 + i, 50 + i);
+            assertSame(b, encoded.getM());
+            assertArrayEquals(normal.toBinary(), encoded.toBinary());
+            assertEquals(normal.toText(), encoded.toText());
+
+            MmsMessage read = MmsMessage.parseBinaryMessage(encoded.toBinary());
+            assertEquals(100 + i, read.getMessageId());
+            assertEquals(50 + i, read.getLatestReceivedId());
+            assertEquals(b, read.getM());
+            assertEquals(b, MmsMessage.parseTextMessage(encoded.toText()).getM());
+        }
+    }
+
+    @Test
+    public void binarySize() throws Exception {
+        Broadcast b = broadcast();
+        PreEncodedMessage pe = new PreEncodedMessage(b);
+        assertEquals(ProtobufMessageWriter.write(b, Broadcast.SERIALIZER).length, pe.getBinarySize());
+        assertEquals(new MmsMessage(b).toBinary().length, new MmsMessage(pe).toBinary().length);
+    }
+
+    @Test
+    public void wrapBinaryMessage() throws Exception {
+        Broadcast b = broadcast();
+        MmsMessage normal = message(b, 12, 34);
+        byte[] binary = normal.toBinary();
+        MmsMessage wrapped = MmsMessage.wrapBinaryMessage(binary);
+        assertEquals(12, wrapped.getMessageId());
+        assertEquals(34, wrapped.getLatestReceivedId());
+        assertSame(binary, wrapped.toBinary());
+        assertArrayEquals(normal.toCompactBinary(), wrapped.toCompactBinary());
+        assertEquals(normal.toText(), wrapped.toText());
+        assertEquals(b, wrapped.getM());
+    }
+}
@@ -0,0 +1,104 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.server.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import net.maritimecloud.internal.mms.client.MoreAsserts;
+import net.maritimecloud.internal.mms.messages.Connected;
+import net.maritimecloud.internal.mms.messages.Hello;
+import net.maritimecloud.internal.mms.messages.PositionReport;
+import net.maritimecloud.internal.mms.messages.Welcome;
+import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
+import net.maritimecloud.internal.net.messages.Broadcast;
+import net.maritimecloud.mms.server.MmsServerConfiguration;
+import net.maritimecloud.mms.stubs.BroadcastTestMessage;
+import net.maritimecloud.server.AbstractServerConnectionTest;
+import net.maritimecloud.server.TesstEndpoint;
+import net.maritimecloud.server.broadcast.BroadcastTest;
+import net.maritimecloud.util.Binary;
+import net.maritimecloud.util.geometry.PositionTime;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Tests that unacknowledged messages are resent from the session journal after a server restart.
+ *
+ * @author Kasper Nielsen
+ */
+public class SessionJournalTest extends AbstractServerConnectionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** {@inheritDoc} */
+    @Override
+    protected void configure(MmsServerConfiguration configuration) {
+        configuration.setSessionJournalDirectory(new File(folder.getRoot(), "journal"));
+    }
+
+    static Hello hello(Binary sessionId, long lastReceivedMessageId) {
+        Hello h = new Hello().setClientId(ID2.toString()).setLastReceivedMessageId(lastReceivedMessageId)
+                .setPositionTime(PositionTime.create(1, 1, System.currentTimeMillis()));
+        return sessionId == null ? h : h.setSessionId(sessionId);
+    }
+
+    @Test
+    public void replayAfterRestart() throws Exception {
+        TesstEndpoint c1 = newClient(ID1);
+
+        TesstEndpoint t = newClient();
+        t.take(Welcome.class);
+        t.send(hello(null, 0));
+        Binary reconnectId = t.take(Connected.class).getSessionId();
+        t.close();
+
+        for (int i = 0; i < 3; i++) {
+            c1.send(BroadcastTest.createBroadcast(ID1, PositionTime.create(1, 1, 1),
+                    new BroadcastTestMessage().setMsg("foo" + i), null, 10, null), i + 1, i);
+            c1.take(PositionReport.class);
+        }
+        // 3 broadcasts for ID2, and the latest position report for ID1 that has not been acknowledged
+        MetricRegistry metrics = server.getService(MetricRegistry.class);
+        MoreAsserts.assertTrueWithin(() -> metrics.counter("sessionQueueMessages").getCount() == 4, 5,
+                TimeUnit.SECONDS);
+
+        // Restart the server
+        server.shutdown();
+        assertTrue(server.awaitTerminated(5, TimeUnit.SECONDS));
+        before();
+
+        t = newClient();
+        t.take(Welcome.class);
+        t.send(hello(reconnectId, 1));
+        Connected c = t.take(Connected.class);
+        assertEquals(reconnectId, c.getSessionId());
+
+        // The first broadcast has been received by the client
+        for (int i = 2; i <= 3; i++) {
+            MmsMessage mm = t.t();
+            assertEquals(i, mm.getMessageId());
+            mm.cast(Broadcast.class);
+        }
+    }
+}
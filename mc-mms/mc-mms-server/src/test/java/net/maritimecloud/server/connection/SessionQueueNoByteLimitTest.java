@@ -0,0 +1,33 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.server.connection;
+
+import net.maritimecloud.mms.server.MmsServerConfiguration;
+
+/**
+ * Tests that broadcasts are dropped from a full session queue, when the queue is only bounded by the number of
+ * messages. Forwarded broadcasts are then queued without being decoded.
+ *
+ * @author Kasper Nielsen
+ */
+public class SessionQueueNoByteLimitTest extends SessionQueueTest {
+
+    /** {@inheritDoc} */
+    @Override
+    protected void configure(MmsServerConfiguration configuration) {
+        super.configure(configuration);
+        configuration.setSessionQueueMaxBytes(0);
+    }
+}
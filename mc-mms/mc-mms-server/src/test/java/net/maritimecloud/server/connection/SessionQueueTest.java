@@ -0,0 +1,95 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.server.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import net.maritimecloud.internal.mms.client.MoreAsserts;
+import net.maritimecloud.internal.mms.messages.Connected;
+import net.maritimecloud.internal.mms.messages.Hello;
+import net.maritimecloud.internal.mms.messages.PositionReport;
+import net.maritimecloud.internal.mms.messages.Welcome;
+import net.maritimecloud.internal.mms.messages.spi.MmsMessage;
+import net.maritimecloud.internal.net.messages.Broadcast;
+import net.maritimecloud.mms.server.MmsServerConfiguration;
+import net.maritimecloud.mms.stubs.BroadcastTestMessage;
+import net.maritimecloud.server.AbstractServerConnectionTest;
+import net.maritimecloud.server.TesstEndpoint;
+import net.maritimecloud.server.broadcast.BroadcastTest;
+import net.maritimecloud.util.Binary;
+import net.maritimecloud.util.geometry.PositionTime;
+
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Tests that the queue of unacknowledged messages of a session is bounded.
+ *
+ * @author Kasper Nielsen
+ */
+public class SessionQueueTest extends AbstractServerConnectionTest {
+
+    /** {@inheritDoc} */
+    @Override
+    protected void configure(MmsServerConfiguration configuration) {
+        configuration.setSessionQueueMaxMessages(3);
+    }
+
+    @Test
+    public void dropOldestBroadcast() throws Exception {
+        TesstEndpoint c1 = newClient(ID1);
+
+        TesstEndpoint t = newClient();
+        t.take(Welcome.class);
+        t.send(new Hello().setClientId(ID2.toString()).setLastReceivedMessageId(0L)
+                .setPositionTime(PositionTime.create(1, 1, System.currentTimeMillis())));
+        Binary reconnectId = t.take(Connected.class).getSessionId();
+        t.close();
+
+        // The session of ID2 is kept while it is disconnected, so broadcasts are queued.
+        // ID1 acknowledges the position reports it receives, so its own queue never fills up
+        for (int i = 0; i < 5; i++) {
+            c1.send(BroadcastTest.createBroadcast(ID1, PositionTime.create(1, 1, 1),
+                    new BroadcastTestMessage().setMsg("foo" + i), null, 10, null), i + 1, i);
+            c1.take(PositionReport.class);
+        }
+        MetricRegistry metrics = server.getService(MetricRegistry.class);
+        MoreAsserts.assertTrueWithin(() -> metrics.meter("sessionQueueDropped").getCount() == 2, 5, TimeUnit.SECONDS);
+        assertEquals(0, metrics.meter("sessionQueueRejected").getCount());
+        // The bytes of the queue are only counted if they are limited
+        boolean limited = server.getService(MmsServerConfiguration.class).getSessionQueueMaxBytes() > 0;
+        assertEquals(limited, metrics.getCounters().containsKey("sessionQueueBytes"));
+        if (limited) {
+            assertTrue(metrics.counter("sessionQueueBytes").getCount() > 0);
+        }
+
+        t = newClient();
+        t.take(Welcome.class);
+        t.send(new Hello().setClientId(ID2.toString()).setSessionId(reconnectId).setLastReceivedMessageId(0L)
+                .setPositionTime(PositionTime.create(1, 1, System.currentTimeMillis())));
+        t.take(Connected.class);
+
+        // Only the 3 latest broadcasts are resent
+        for (int i = 3; i <= 5; i++) {
+            MmsMessage mm = t.t();
+            assertEquals(i, mm.getMessageId());
+            mm.cast(Broadcast.class);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.server.tracker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import net.maritimecloud.mms.server.tracker.AreaIndex;
+import net.maritimecloud.util.geometry.Area;
+import net.maritimecloud.util.geometry.Circle;
+import net.maritimecloud.util.geometry.Ellipse;
+import net.maritimecloud.util.geometry.Position;
+import net.maritimecloud.util.geometry.Rectangle;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Kasper Nielsen
+ */
+public class AreaIndexTest {
+
+    static Set<Integer> candidates(AreaIndex<Integer> index, Position p) {
+        Set<Integer> result = new HashSet<>();
+        index.forEachCandidate(p, result::add);
+        return result;
+    }
+
+    @Test
+    public void putAndRemove() {
+        AreaIndex<Integer> index = new AreaIndex<>();
+        index.put(1, Rectangle.create(Position.create(10, 10), Position.create(5, 15)));
+        index.put(2, Circle.create(Position.create(-30, 20), 10000));
+        assertEquals(2, index.size());
+        assertEquals(Collections.singleton(1), candidates(index, Position.create(7, 12)));
+        assertEquals(Collections.singleton(2), candidates(index, Position.create(-30, 20)));
+        assertEquals(Collections.emptySet(), candidates(index, Position.create(50, 50)));
+
+        // move area 1
+        index.put(1, Circle.create(Position.create(-30, 20), 10000));
+        assertEquals(2, index.size());
+        assertEquals(Collections.emptySet(), candidates(index, Position.create(7, 12)));
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), candidates(index, Position.create(-30, 20)));
+
+        index.remove(1);
+        index.remove(2);
+        assertEquals(0, index.size());
+        assertEquals(Collections.emptySet(), candidates(index, Position.create(-30, 20)));
+    }
+
+    @Test
+    public void unbounded() {
+        AreaIndex<Integer> index = new AreaIndex<>();
+        index.put(1, new Ellipse(Position.create(10, 10), 0, 0, 1000, 500, 0));
+        index.put(2, Rectangle.ALL);
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), candidates(index, Position.create(-70, 170)));
+        index.remove(1);
+        index.put(2, Circle.create(Position.create(10, 10), 1000));
+        assertEquals(Collections.emptySet(), candidates(index, Position.create(-70, 170)));
+    }
+
+    /** A circle close to a pole has no valid bounding box, it is returned for every position. */
+    @Test
+    public void nearPole() {
+        AreaIndex<Integer> index = new AreaIndex<>();
+        index.put(1, Circle.create(Position.create(89.9, 10), 100_000));
+        assertEquals(1, index.size());
+        assertEquals(Collections.singleton(1), candidates(index, Position.create(89.95, -170)));
+        assertEquals(Collections.singleton(1), candidates(index, Position.create(-70, 170)));
+        index.remove(1);
+        assertEquals(Collections.emptySet(), candidates(index, Position.create(89.95, -170)));
+    }
+
+    /** Tests that every area containing a position is returned as a candidate. */
+    @Test
+    public void randomAreas() {
+        Random rnd = new Random(12345);
+        AreaIndex<Integer> index = new AreaIndex<>();
+        Area[] areas = new Area[200];
+        for (int i = 0; i < areas.length; i++) {
+            Position p = Position.create(rnd.nextDouble() * 140 - 70, rnd.nextDouble() * 340 - 170);
+            areas[i] = i % 2 == 0 ? Circle.create(p, rnd.nextDouble() * 500_000) : Rectangle.create(p,
+                    Position.create(p.getLatitude() - rnd.nextDouble() * 10, p.getLongitude() + rnd.nextDouble() * 10));
+            index.put(i, areas[i]);
+        }
+        for (int i = 0; i < 10000; i++) {
+            Position p = Position.create(rnd.nextDouble() * 160 - 80, rnd.nextDouble() * 360 - 180);
+            Set<Integer> candidates = candidates(index, p);
+            for (int j = 0; j < areas.length; j++) {
+                if (areas[j].contains(p)) {
+                    assertTrue(candidates.contains(j));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/* Copyright (c) 2011 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.maritimecloud.server.tracker;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import net.maritimecloud.mms.server.tracker.PositionIndex;
+import net.maritimecloud.util.geometry.Area;
+import net.maritimecloud.util.geometry.Circle;
+import net.maritimecloud.util.geometry.Polygon;
+import net.maritimecloud.util.geometry.Position;
+import net.maritimecloud.util.geometry.PositionTime;
+import net.maritimecloud.util.geometry.Rectangle;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Kasper Nielsen
+ */
+public class PositionIndexTest {
+
+    static Set<Integer> within(PositionIndex<Integer> index, Area area) {
+        Set<Integer> result = new HashSet<>();
+        index.forEachWithin(area, (i, pt) -> result.add(i));
+        return result;
+    }
+
+    static Set<Integer> scan(Map<Integer, PositionTime> positions, Area area) {
+        Set<Integer> result = new HashSet<>();
+        positions.forEach((i, pt) -> {
+            if (area.contains(pt)) {
+                result.add(i);
+            }
+        });
+        return result;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void illegalCellSize() {
+        new PositionIndex<>(0.7);
+    }
+
+    @Test
+    public void moveAndRemove() {
+        PositionIndex<Integer> index = new PositionIndex<>();
+        Rectangle r = Rectangle.create(Position.create(10, 10), Position.create(5, 15));
+        index.put(1, PositionTime.create(7, 12, 1));
+        index.put(2, PositionTime.create(-7, 12, 1));
+        assertEquals(2, index.size());
+        assertEquals(Collections.singleton(1), within(index, r));
+
+        index.put(1, PositionTime.create(-7, 12, 2));
+        index.put(2, PositionTime.create(8, 11, 2));
+        assertEquals(Collections.singleton(2), within(index, r));
+
+        index.remove(2);
+        assertEquals(1, index.size());
+        assertEquals(Collections.emptySet(), within(index, r));
+
+        index.put(1, null);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void randomAreas() {
+        Random rnd = new Random(12345);
+        PositionIndex<Integer> index = new PositionIndex<>();
+        Map<Integer, PositionTime> positions = new HashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            PositionTime pt = Position.create(rnd.nextDouble() * 160 - 80, rnd.nextDouble() * 340 - 170).withTime(i);
+            positions.put(i, pt);
+            index.put(i, pt);
+        }
+        for (int i = 0; i < 100; i++) {
+            Position p = Position.create(rnd.nextDouble() * 140 - 70, rnd.nextDouble() * 300 - 150);
+            Circle c = Circle.create(p, rnd.nextDouble() * 1_000_000);
+            assertEquals(scan(positions, c), within(index, c));
+
+            Rectangle r = Rectangle.create(p, Position.create(p.getLatitude() - rnd.nextDouble() * 10,
+                    p.getLongitude() + rnd.nextDouble() * 10));
+            assertEquals(scan(positions, r), within(index, r));
+        }
+        Polygon pol = Polygon.create(Position.create(10, -10), Position.create(10, 10), Position.create(-10, 10),
+                Position.create(-10, -10), Position.create(10, -10));
+        assertEquals(scan(positions, pol), within(index, pol));
+    }
+
+    /** Areas that fail to calculate a bounding box are matched against every cell. */
+    @Test
+    public void noBoundingBox() {
+        PositionIndex<Integer> index = new PositionIndex<>();
+        index.put(1, PositionTime.create(7, 12, 1));
+        index.put(2, PositionTime.create(-7, 12, 1));
+        Circle c = Circle.create(Position.create(7, 12), 1000);
+        Area area = new Area() {
+            private static final long serialVersionUID = 1L;
+
+            public boolean contains(Position position) {
+                return c.contains(position);
+            }
+
+            public Rectangle getBoundingBox() {
+                throw new IllegalStateException();
+            }
+
+            public Position getRandomPosition(Random random) {
+                return c.getRandomPosition(random);
+            }
+
+            public boolean intersects(Area other) {
+                return c.intersects(other);
+            }
+
+            public Area immutable() {
+                return this;
+            }
+        };
+        assertEquals(Collections.singleton(1), within(index, area));
+    }
+}
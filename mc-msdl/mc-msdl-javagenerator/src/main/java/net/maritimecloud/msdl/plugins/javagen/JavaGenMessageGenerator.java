@@ -20,11 +20,17 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import net.maritimecloud.internal.message.Hashing;
 import net.maritimecloud.internal.message.MessageHelper;
+import net.maritimecloud.internal.message.SpecializedMessageSerializer;
+import net.maritimecloud.internal.message.binary.AbstractBinaryMessageWriter;
+import net.maritimecloud.internal.message.text.json.JsonValueWriter;
 import net.maritimecloud.internal.msdl.parser.antlr.StringUtil;
 import net.maritimecloud.message.Message;
 import net.maritimecloud.message.MessageReader;
@@ -444,9 +450,22 @@ public class JavaGenMessageGenerator {
 
     void generateParser() {
         CodegenClass c = this.c.addInnerClass();
-        c.setDefinition("static class ", serializerName, " extends ", MessageSerializer.class, "<",
-                this.c.getSimpleName(), ">");
+        boolean specialized = plugin.isSpecializedSerializers();
+        Map<FieldOrParameter, String> jsonNames = null;
         c.addJavadoc("A serializer for reading and writing instances of ", this.c.getSimpleName(), ".");
+        if (!specialized) {
+            c.setDefinition("static class ", serializerName, " extends ", MessageSerializer.class, "<",
+                    this.c.getSimpleName(), ">");
+        } else {
+            c.addImport(SpecializedMessageSerializer.class, JsonValueWriter.class);
+            c.setDefinition("static class ", serializerName, " extends ", SpecializedMessageSerializer.class, "<",
+                    this.c.getSimpleName(), ">");
+            jsonNames = jsonFieldNames(fields);
+            for (FieldOrParameter f : fields) {
+                c.addFieldWithJavadoc("The JSON name of the " + f.getName() + " field.", "private static final char[] ",
+                        jsonNames.get(f), " = ", JsonValueWriter.class, ".fieldName(\"", f.getName(), "\");");
+            }
+        }
 
         // Reader
         CodegenMethod m = c.addMethod("public ", this.c.getSimpleName(), " read(", MessageReader.class,
@@ -456,13 +475,54 @@ public class JavaGenMessageGenerator {
         m.add("return new ", this.c.getSimpleName(), "(" + (fields.isEmpty() ? "" : "reader") + ");");
 
         // Writer
-        m = c.addMethod("public void write(", this.c.getSimpleName(), " message, ", MessageWriter.class,
-                " writer) throws ", IOException.class);
+        m = c.addMethod(specialized ? "protected void writeGeneric(" : "public void write(", this.c.getSimpleName(),
+                " message, ", MessageWriter.class, " writer) throws ", IOException.class);
         m.addImport(MessageWriter.class);
         m.addAnnotation(Override.class).addJavadoc("{@inheritDoc}");
         if (!fields.isEmpty()) {
             m.add("message.writeTo(writer);");
         }
+        if (specialized) {
+            generateSpecializedWriters(c, jsonNames);
+        }
+    }
+
+    /**
+     * Generates the binary and the JSON writer of a serializer extending {@link SpecializedMessageSerializer}. Both
+     * must write exactly what the generic writeTo method writes to the same writer.
+     */
+    void generateSpecializedWriters(CodegenClass c, Map<FieldOrParameter, String> jsonNames) {
+        c.addImport(AbstractBinaryMessageWriter.class);
+        CodegenMethod b = c.addMethod("protected void writeBinary(", this.c.getSimpleName(), " message, ",
+                AbstractBinaryMessageWriter.class, " writer) throws ", IOException.class);
+        b.addAnnotation(Override.class).addJavadoc("{@inheritDoc}");
+        CodegenMethod j = c.addMethod("protected void writeJson(", this.c.getSimpleName(), " message, ",
+                JsonValueWriter.class, " writer) throws ", IOException.class);
+        j.addAnnotation(Override.class).addJavadoc("{@inheritDoc}");
+        for (FieldOrParameter f : fields) {
+            BaseType t = f.getType().getBaseType();
+            String value = "message." + f.getName();
+            String arguments = value + writeArguments(c, f.getType(), file);
+
+            // Binary: primitives are unboxed, and no field names
+            if (t.isAnyOf(BaseType.BOOLEAN, BaseType.DOUBLE, BaseType.FLOAT, BaseType.INT, BaseType.INT64)) {
+                String unbox = t == BaseType.INT ? "intValue" : t == BaseType.INT64 ? "longValue" : t.name()
+                        .toLowerCase() + "Value";
+                b.add("if (", value, " != null) {");
+                b.add("writer.write", new JavaGenType(f.getType()).writeReadName(), "(", f.getTag(), ", ", value, ".",
+                        unbox, "());");
+                b.add("}");
+            } else {
+                b.add("writer.write", new JavaGenType(f.getType()).writeReadName(), "(", f.getTag(), ", null, ",
+                        arguments, ");");
+            }
+
+            // JSON: prepared field names
+            j.add("if (", value, " != null", t.isComplexType() ? " && !" + value + ".isEmpty()" : "", ") {");
+            j.add("writer.writeTag(", jsonNames.get(f), ").write", new JavaGenType(f.getType()).writeReadName(), "(",
+                    arguments, ");");
+            j.add("}");
+        }
     }
 
     void generateToFrom() {
@@ -481,6 +541,59 @@ public class JavaGenMessageGenerator {
         }
     }
 
+    /**
+     * Returns the name of the constant holding the prepared JSON name of the specified field. For example,
+     * {@code POSITION_TIME} for a field named {@code positionTime}. The name is not unique, see
+     * {@link #jsonFieldNames(List)}.
+     */
+    static String jsonFieldName(FieldOrParameter f) {
+        StringBuilder sb = new StringBuilder();
+        for (char ch : f.getName().toCharArray()) {
+            if (Character.isUpperCase(ch) && sb.length() > 0) {
+                sb.append('_');
+            }
+            sb.append(Character.toUpperCase(ch));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the names of the constants holding the prepared JSON names of the specified fields. Fields whose names
+     * map to the same constant, such as {@code fooBar} and {@code foo_bar}, have their tag appended to the constant.
+     */
+    static Map<FieldOrParameter, String> jsonFieldNames(List<FieldOrParameter> fields) {
+        Map<String, Integer> count = new HashMap<>();
+        for (FieldOrParameter f : fields) {
+            count.merge(jsonFieldName(f), 1, Integer::sum);
+        }
+        Set<String> used = new HashSet<>(count.keySet());
+        Map<FieldOrParameter, String> result = new HashMap<>();
+        for (FieldOrParameter f : fields) {
+            String name = jsonFieldName(f);
+            if (count.get(name) > 1) {
+                name += "_" + f.getTag();
+                while (!used.add(name)) { // taken by another field, for example, foo_bar_1
+                    name += "_";
+                }
+            }
+            result.put(f, name);
+        }
+        return result;
+    }
+
+    /** Returns the serializer arguments that follow the value when writing a field of the specified type. */
+    static String writeArguments(CodegenClass c, Type type, MsdlFile file) {
+        if (type.getBaseType() == BaseType.MESSAGE) {
+            return ", " + new JavaGenType(type).render(c, file) + ".SERIALIZER";
+        } else if (type instanceof ListOrSetType) {
+            return ", " + complexParser(c, ((ListOrSetType) type).getElementType(), file);
+        } else if (type instanceof MapType) {
+            MapType mt = (MapType) type;
+            return ", " + complexParser(c, mt.getKeyType(), file) + ", " + complexParser(c, mt.getValueType(), file);
+        }
+        return "";
+    }
+
     static String complexParser(CodegenClass c, Type type, MsdlFile file) {
         if (type == null) {
             return "null";
@@ -54,6 +54,8 @@ public class JavaGenPlugin extends MsdlPlugin {
 
     String packagePrefix;
 
+    boolean specializedSerializers;
+
     JavaGenPlugin(Path p) {
         this.outputPath = requireNonNull(p);
     }
@@ -111,6 +113,13 @@ public class JavaGenPlugin extends MsdlPlugin {
         return implementsSerializable;
     }
 
+    /**
+     * @return whether or not serializers with specialized binary and JSON writers are generated
+     */
+    public boolean isSpecializedSerializers() {
+        return specializedSerializers;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void process(Project project) throws Exception {
@@ -139,6 +148,20 @@ public class JavaGenPlugin extends MsdlPlugin {
         return this;
     }
 
+    /**
+     * Sets whether or not to generate serializers with specialized writers for the binary formats and for JSON. The
+     * specialized writers write primitive fields without boxing and use prepared JSON field names, but depend on
+     * internal classes of the core module.
+     *
+     * @param specializedSerializers
+     *            whether or not to generate specialized serializers
+     * @return this plugin
+     */
+    public JavaGenPlugin setSpecializedSerializers(boolean specializedSerializers) {
+        this.specializedSerializers = specializedSerializers;
+        return this;
+    }
+
     /**
      * @param packagePrefix
      *            the packagePrefix to set
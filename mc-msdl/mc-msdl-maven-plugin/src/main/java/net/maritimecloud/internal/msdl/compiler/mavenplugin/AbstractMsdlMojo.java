@@ -94,6 +94,13 @@ abstract class AbstractMsdlMojo extends AbstractMojo {
     @Parameter(required = false)
     private boolean implementsSerializable;
 
+    /**
+     * If set to {@code true}, the generated serializers get specialized writers for the binary formats and for JSON
+     * that write primitive fields without boxing.
+     */
+    @Parameter(required = false, defaultValue = "false")
+    private boolean specializedSerializers;
+
     /** Additional source paths for {@code .proto} definitions. */
     @Parameter(required = false)
     private File[] additionalProtoPathElements = {};
@@ -246,6 +253,7 @@ abstract class AbstractMsdlMojo extends AbstractMojo {
                     JavaGenPlugin javaPlugin = JavaGenPlugin.create(outputDirectory.toPath());
                     javaPlugin.setImplementsSerializable(implementsSerializable);
                     getLog().debug("Setting implements serialiable = " + implementsSerializable);
+                    javaPlugin.setSpecializedSerializers(specializedSerializers);
                     g.addPlugin(javaPlugin);
 
                     if (headerLocation != null) {